@@ -0,0 +1,60 @@
+package com.github.RocketSmash9000.audio;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanning a synthetic library laid out as artist/album/track, with a cover image and a text file
+ * next to every album's tracks. Measures the directory walk and extension checks, with a warm file
+ * system cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AudioFinderBenchmark {
+	private static final String[] EXTENSIONS = {".mp3", ".flac", ".ogg", ".m4a", ".wav", ".aac"};
+	private static final int TRACKS_PER_ALBUM = 12;
+	private static final int ALBUMS_PER_ARTIST = 5;
+
+	@Param({"1200", "12000"})
+	public int tracks;
+
+	private Path library;
+
+	@Setup
+	public void setUp() throws IOException {
+		library = Files.createTempDirectory("trim-finder-bench");
+		int albums = tracks / TRACKS_PER_ALBUM;
+		for (int album = 0; album < albums; album++) {
+			Path dir = Files.createDirectories(library.resolve("artist-" + album / ALBUMS_PER_ARTIST)
+					.resolve("album-" + album));
+			for (int track = 0; track < TRACKS_PER_ALBUM; track++) {
+				Files.createFile(dir.resolve("track-" + track + EXTENSIONS[track % EXTENSIONS.length]));
+			}
+			Files.createFile(dir.resolve("cover.jpg"));
+			Files.createFile(dir.resolve("notes.txt"));
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		try (var paths = Files.walk(library)) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	@Benchmark
+	public List<File> findAudioFiles() {
+		return new AudioFinder(library.toString()).getAudioFiles();
+	}
+}
@@ -0,0 +1,60 @@
+package com.github.RocketSmash9000.audio;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picking the next track and reshuffling, for libraries of 10k to 1M tracks. Each pick removes a random
+ * element from the remaining tracks, so it scales with the library; a refill copies and shuffles all of it.
+ * Refills needed between picks happen outside the measured method, so the pick scores are comparable across sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AudioQueueBenchmark {
+	@Param({"10000", "100000", "1000000"})
+	public int tracks;
+
+	private AudioQueue queue;
+
+	@Setup
+	public void setUp() {
+		List<File> files = new ArrayList<>(tracks);
+		for (int i = 0; i < tracks; i++) {
+			files.add(new File("/music/artist-" + (i / 100) + "/album-" + (i / 10) + "/track-" + i + ".mp3"));
+		}
+		queue = new AudioQueue(files);
+	}
+
+	// Starts every iteration from a full queue, as after a refill
+	@Setup(Level.Iteration)
+	public void refill() {
+		queue.refillQueue();
+	}
+
+	// A small library runs out within an iteration; refill it here so getNextTrack only ever times picks
+	@Setup(Level.Invocation)
+	public void refillWhenEmpty() {
+		if (queue.getRemainingTracks() == 0) {
+			queue.refillQueue();
+		}
+	}
+
+	@Benchmark
+	public File getNextTrack() {
+		return queue.getNextTrack();
+	}
+
+	@Benchmark
+	public int refillQueue() {
+		queue.refillQueue();
+		return queue.getRemainingTracks();
+	}
+}
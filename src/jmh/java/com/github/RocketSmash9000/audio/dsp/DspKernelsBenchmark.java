@@ -0,0 +1,73 @@
+package com.github.RocketSmash9000.audio.dsp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar against SIMD DSP kernels. The forked JVMs inherit {@code --add-modules jdk.incubator.vector}
+ * from the jmh profile, so {@code kernels=vector} uses the Vector API.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DspKernelsBenchmark {
+	@Param({"scalar", "vector"})
+	public String kernels;
+
+	@Param({"256", "4096"})
+	public int length;
+
+	private DspKernels impl;
+	private float[] a;
+	private float[] b;
+	private float[] out;
+	private WindowedFft fft;
+	private float[] spectrum;
+
+	@Setup
+	public void setUp() {
+		impl = kernels.equals("scalar") ? new ScalarKernels() : DspKernels.get();
+		Random random = new Random(42);
+		a = new float[length];
+		b = new float[length];
+		out = new float[length];
+		for (int i = 0; i < length; i++) {
+			a[i] = random.nextFloat() * 2 - 1;
+			b[i] = random.nextFloat() * 2 - 1;
+		}
+		fft = new WindowedFft(length, impl);
+		spectrum = new float[length / 2 + 1];
+	}
+
+	@Benchmark
+	public float dot() {
+		return impl.dot(a, 0, b, 0, length);
+	}
+
+	@Benchmark
+	public float[] normalizeDb() {
+		impl.normalizeDb(a, out, length, -60f);
+		return out;
+	}
+
+	@Benchmark
+	public float peak() {
+		return impl.peak(a, length);
+	}
+
+	@Benchmark
+	public double sumOfSquares() {
+		return impl.sumOfSquares(a, length);
+	}
+
+	@Benchmark
+	public float[] windowedFft() {
+		fft.transform(a, 0, spectrum);
+		return spectrum;
+	}
+}
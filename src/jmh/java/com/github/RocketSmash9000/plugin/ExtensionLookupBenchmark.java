@@ -0,0 +1,54 @@
+package com.github.RocketSmash9000.plugin;
+
+import com.github.RocketSmash9000.config.PluginConfig;
+import com.github.RocketSmash9000.plugin.example.ExamplePlugin;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of looking up extensions of one type: the cached registry against asking PF4J every time,
+ * which reads the extension indexes and creates new extension instances on each call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtensionLookupBenchmark {
+    private Path tempDir;
+    private PluginManager manager;
+
+    @Setup
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("trim-extension-bench");
+        File configFile = tempDir.resolve("plugins.json").toFile();
+        Files.writeString(configFile.toPath(), "{}");
+        manager = new PluginManager(Files.createDirectories(tempDir.resolve("plugins")), true, new PluginConfig(configFile));
+        manager.initialize();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        manager.shutdown();
+        try (var paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public List<ExamplePlugin> cached() {
+        return manager.getExtensions(ExamplePlugin.class);
+    }
+
+    @Benchmark
+    public List<ExamplePlugin> uncached() {
+        return manager.getPf4jPluginManager().getExtensions(ExamplePlugin.class);
+    }
+}
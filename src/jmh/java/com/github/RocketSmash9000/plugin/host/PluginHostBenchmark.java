@@ -0,0 +1,114 @@
+package com.github.RocketSmash9000.plugin.host;
+
+import com.github.RocketSmash9000.plugin.TRiMPlugin;
+import com.github.RocketSmash9000.plugin.event.PlaybackEvent;
+import com.github.RocketSmash9000.plugin.event.PlaybackEventListener;
+import org.openjdk.jmh.annotations.*;
+import org.pf4j.Plugin;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips to a plugin running in its own host process, against calling the same listener in process.
+ * {@code eventThenPing} is what it costs to get one playback event handled by an out-of-process listener.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PluginHostBenchmark {
+    private static final String PLUGIN_ID = "host-bench";
+
+    private Path tempDir;
+    private RemotePluginHost host;
+    private final CountingListener localListener = new CountingListener();
+    private final PlaybackEvent event = PlaybackEvent.progress(new File("track.flac"), 0.5);
+
+    @Setup
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("trim-host-bench");
+        Path pluginDir = Files.createDirectories(tempDir.resolve(PLUGIN_ID));
+        Files.writeString(pluginDir.resolve("plugin.properties"), "plugin.id=" + PLUGIN_ID + "\n"
+                + "plugin.class=" + BenchmarkPlugin.class.getName() + "\n"
+                + "plugin.version=1.0.0\n");
+        Path index = pluginDir.resolve("target/classes/META-INF/extensions.idx");
+        Files.createDirectories(index.getParent());
+        Files.writeString(index, CountingListener.class.getName() + "\n");
+
+        host = RemotePluginHost.start(PLUGIN_ID, pluginDir, tempDir.resolve(PLUGIN_ID + ".log"), true,
+                RemotePluginHost.DEFAULT_MAX_HEAP, RemotePluginHost.DEFAULT_START_TIMEOUT);
+        host.load(Duration.ofSeconds(10));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        host.unload(Duration.ofSeconds(10));
+        host.close();
+        try (var paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public long ping() {
+        return host.ping();
+    }
+
+    @Benchmark
+    public long eventThenPing() {
+        host.sendEvent(event);
+        return host.ping();
+    }
+
+    @Benchmark
+    public long inProcessListener() {
+        localListener.onPlaybackEvent(event);
+        return localListener.count;
+    }
+
+    public static class CountingListener implements PlaybackEventListener {
+        long count;
+
+        @Override
+        public void onPlaybackEvent(PlaybackEvent event) {
+            count++;
+        }
+    }
+
+    public static class BenchmarkPlugin extends Plugin implements TRiMPlugin {
+        @Override
+        public void onLoad() {
+        }
+
+        @Override
+        public void onUnload() {
+        }
+
+        @Override
+        public String getPluginId() {
+            return PLUGIN_ID;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Host benchmark";
+        }
+
+        @Override
+        public String getVersion() {
+            return "1.0.0";
+        }
+
+        @Override
+        public String getMinimumApplicationVersion() {
+            return "1.0.0";
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.RocketSmash9000.visualization;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame cost of turning 256 spectrum bins into bar values: the precomputed log-spaced
+ * tables against the old fixed-size run averaging.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BandMapperBenchmark {
+	@Param({"30", "80", "200"})
+	public int bars;
+
+	private final float[] bins = new float[256];
+	private float[] output;
+	private BandMapper logMapper;
+	private BandMapper melMapper;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		for (int i = 0; i < bins.length; i++) {
+			bins[i] = -60f + random.nextFloat() * 60f;
+		}
+		output = new float[bars];
+		logMapper = new BandMapper(BandMapper.Scale.LOG, bars, bins.length, 44100, 50, 16000);
+		melMapper = new BandMapper(BandMapper.Scale.MEL, bars, bins.length, 44100, 50, 16000);
+	}
+
+	@Benchmark
+	public float[] logTables() {
+		logMapper.reduce(bins, output);
+		return output;
+	}
+
+	@Benchmark
+	public float[] melTables() {
+		melMapper.reduce(bins, output);
+		return output;
+	}
+
+	@Benchmark
+	public float[] linearRuns() {
+		int perBar = Math.max(1, bins.length / bars);
+		for (int i = 0; i < bars && i * perBar < bins.length; i++) {
+			float sum = 0;
+			int start = i * perBar;
+			int end = Math.min(start + perBar, bins.length);
+			for (int j = start; j < end; j++) {
+				sum += bins[j];
+			}
+			output[i] = sum / (end - start);
+		}
+		return output;
+	}
+}
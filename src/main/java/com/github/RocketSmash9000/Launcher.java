@@ -0,0 +1,12 @@
+package com.github.RocketSmash9000;
+
+/**
+ * Plain entry point that doesn't extend {@link javafx.application.Application}.
+ * The Java launcher refuses to start an Application subclass from the classpath
+ * (as in the jar-with-dependencies), so this is used for that jar and for the AppCDS training run.
+ */
+public class Launcher {
+	public static void main(String[] args) {
+		Main.main(args);
+	}
+}
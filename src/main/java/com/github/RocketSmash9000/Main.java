@@ -3,9 +3,26 @@ package com.github.RocketSmash9000;
 import com.github.RocketSmash9000.audio.AudioFinder;
 import com.github.RocketSmash9000.audio.AudioQueue;
 import com.github.RocketSmash9000.audio.AudioMetadataExtractor;
+import com.github.RocketSmash9000.audio.loudness.LoudnessAnalyzer;
+import com.github.RocketSmash9000.audio.playback.PcmPlaybackEngine;
+import com.github.RocketSmash9000.audio.playback.PlaybackBackend;
+import com.github.RocketSmash9000.audio.playback.TrackPlayer;
+import com.github.RocketSmash9000.audio.playback.TrackPlayers;
+import com.github.RocketSmash9000.audio.waveform.PeakPyramid;
+import com.github.RocketSmash9000.audio.waveform.WaveformService;
 import com.github.RocketSmash9000.config.AppConfig;
+import com.github.RocketSmash9000.config.WriteBehindStore;
+import com.github.RocketSmash9000.diagnostics.Counter;
+import com.github.RocketSmash9000.diagnostics.FlightRecording;
+import com.github.RocketSmash9000.diagnostics.LatencyHistogram;
+import com.github.RocketSmash9000.diagnostics.Metrics;
+import com.github.RocketSmash9000.diagnostics.TrackTransitionEvent;
 import com.github.RocketSmash9000.util.AppDirectories;
+import com.github.RocketSmash9000.util.StartupProfiler;
+import com.github.RocketSmash9000.plugin.event.PlaybackEvent;
+import com.github.RocketSmash9000.plugin.event.PlaybackEventBus;
 import com.github.RocketSmash9000.plugin.ui.ToolbarButtonExtension;
+import com.github.RocketSmash9000.plugin.visualization.SpectrumConsumerExtension;
 import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -18,28 +35,36 @@ import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.Stage;
 import com.github.RocketSmash9000.visualization.EQVisualizer;
+import com.github.RocketSmash9000.visualization.SpectrumRing;
+import com.github.RocketSmash9000.visualization.WaveformView;
 
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javafx.scene.control.Alert;
+import com.github.RocketSmash9000.plugin.PluginHotReloader;
 import com.github.RocketSmash9000.plugin.PluginManager;
+import com.github.RocketSmash9000.ui.DiagnosticsOverlay;
 import com.github.RocketSmash9000.ui.PluginManagerDialog;
 
 public class Main extends Application {
-	private MediaPlayer mediaPlayer;
+	private TrackPlayer player;
 	private AudioQueue audioQueue;
 	private Label nowPlayingLabel;
-	private ProgressBar progressBar;
+	private WaveformView waveformView;
 	private Button playPauseButton;
 	private Button nextButton;
 	private Button eqToggleButton;
@@ -47,17 +72,72 @@ public class Main extends Application {
 	private EQVisualizer eqVisualizer;
 	private boolean isPlaying = false;
 	private boolean eqEnabled = false;
+	private Button pluginsButton;
+	private HBox controls;
 	private PluginManager pluginManager;
+	private volatile PluginHotReloader pluginReloader;
 	private AppConfig appConfig;
+	private StartupProfiler startupProfiler;
+	private final LoudnessAnalyzer loudnessAnalyzer = new LoudnessAnalyzer();
+	private final WaveformService waveformService = new WaveformService();
+	private final PlaybackEventBus eventBus = new PlaybackEventBus();
+	private File currentTrack;
+	private double trackGain = 1.0; // Per-track loudness normalization gain, fixed for the whole track
+
+	/**
+	 * When set to true, the app exits as soon as startup has finished (used to train the AppCDS archive).
+	 */
+	private static final String EXIT_AFTER_STARTUP_PROPERTY = "trim.exitAfterStartup";
+
+	/**
+	 * How often plugins are told the playback position.
+	 */
+	private static final long PROGRESS_EVENT_INTERVAL_NANOS = 250_000_000L;
+
+	// From leaving one track until the next one plays
+	private static final LatencyHistogram TRANSITION_TIMES = Metrics.getDefault().histogram("track.transition");
+	// Time between FX pulses
+	private static final LatencyHistogram FRAME_TIMES = Metrics.getDefault().histogram("fx.frame");
+	private static final Counter WAVEFORM_LOOKUPS = Metrics.getDefault().counter("waveform.lookups");
+	private static final Counter WAVEFORM_MISSES = Metrics.getDefault().counter("waveform.misses");
 
 	@Override
 	public void start(Stage primaryStage) {
-		// Initialize configurations
-		appConfig = new AppConfig();
-		
-		// Initialize plugin manager
-		initializePluginManager();
-		
+		startupProfiler = new StartupProfiler();
+		startupProfiler.mark("fx-start");
+
+		// Config parsing, plugin loading and Jackson warm-up don't need the FX thread,
+		// so they run in the background while the window is built and shown
+		ExecutorService startupExecutor = Executors.newFixedThreadPool(3, r -> {
+			Thread t = new Thread(r, "trim-startup");
+			t.setDaemon(true);
+			return t;
+		});
+		CompletableFuture<AppConfig> configFuture = CompletableFuture.supplyAsync(
+				() -> startupProfiler.time("config", AppConfig::new), startupExecutor);
+		CompletableFuture<PluginManager> pluginsFuture = CompletableFuture.supplyAsync(
+				() -> startupProfiler.time("plugins", this::initializePluginManager), startupExecutor);
+		CompletableFuture<Void> warmUpFuture = CompletableFuture.runAsync(
+				() -> startupProfiler.time("jackson-warmup", AppConfig::warmUp), startupExecutor);
+
+		startupProfiler.time("ui", () -> buildUi(primaryStage));
+		startupProfiler.mark("window-shown");
+
+		configFuture.thenAcceptAsync(this::applyConfig, Platform::runLater);
+		pluginsFuture.thenAcceptAsync(this::applyPluginManager, Platform::runLater);
+		CompletableFuture.allOf(configFuture, pluginsFuture, warmUpFuture)
+				.whenCompleteAsync((ignored, error) -> {
+					startupExecutor.shutdown();
+					startupProfiler.mark("startup-done");
+					startupProfiler.report();
+					if (Boolean.getBoolean(EXIT_AFTER_STARTUP_PROPERTY)) {
+						// Used by the AppCDS training run: load everything once, then exit
+						Platform.exit();
+					}
+				}, Platform::runLater);
+	}
+
+	private void buildUi(Stage primaryStage) {
 		// Create UI elements
 		BorderPane root = new BorderPane();
 		root.setPadding(new Insets(10));
@@ -70,13 +150,13 @@ public class Main extends Application {
         nowPlayingLabel.setTextAlignment(TextAlignment.CENTER);
         BorderPane.setMargin(nowPlayingLabel, new Insets(0, 0, 10, 0));
 
-		// Create EQ Visualizer and Progress Bar container
+		// Create EQ Visualizer and waveform container
 		VBox visualizationContainer = new VBox();
 		visualizationContainer.setMaxWidth(Double.MAX_VALUE);
 		HBox.setHgrow(visualizationContainer, Priority.ALWAYS);
 		
 		// EQ Visualizer - make it responsive
-		eqVisualizer = new EQVisualizer(mediaPlayer, 400, 60);
+		eqVisualizer = new EQVisualizer(null, 400, 60);
 		eqVisualizer.setVisible(false);
 		eqVisualizer.setMaxWidth(Double.MAX_VALUE);
 		HBox.setHgrow(eqVisualizer, Priority.ALWAYS);
@@ -84,52 +164,52 @@ public class Main extends Application {
 		// Bind width to container width minus some padding
 		eqVisualizer.prefWidthProperty().bind(visualizationContainer.widthProperty().subtract(20));
 		
-		// Progress bar with centered container
-		progressBar = new ProgressBar(0);
-		progressBar.setPrefHeight(10);
-		progressBar.setDisable(true);
+		// Seekable waveform (a plain progress bar until the track's waveform is ready)
+		waveformView = new WaveformView();
+		waveformView.setPrefHeight(40);
+		waveformView.setOnSeek(fraction -> {
+			if (player != null && player.isSeekable()) {
+				player.seek(fraction);
+			}
+		});
 		
-		// Container to center the progress bar with max width
+		// Container to center the waveform with max width
 		HBox progressContainer = new HBox();
 		progressContainer.setAlignment(Pos.CENTER);
 		progressContainer.setMaxWidth(Double.MAX_VALUE);
 		HBox.setHgrow(progressContainer, Priority.ALWAYS);
 		
-		// Bind progress bar width to 90% of its container's width
-		progressBar.prefWidthProperty().bind(progressContainer.widthProperty().multiply(0.9));
-		progressBar.maxWidthProperty().bind(progressContainer.widthProperty().multiply(0.9));
+		// Bind waveform width to 90% of its container's width
+		waveformView.prefWidthProperty().bind(progressContainer.widthProperty().multiply(0.9));
+		waveformView.maxWidthProperty().bind(progressContainer.widthProperty().multiply(0.9));
 		
-		progressContainer.getChildren().add(progressBar);
+		progressContainer.getChildren().add(waveformView);
 		
 		visualizationContainer.getChildren().addAll(eqVisualizer, progressContainer);
 		VBox.setVgrow(eqVisualizer, Priority.ALWAYS);
 		VBox.setVgrow(progressContainer, Priority.NEVER);
 
 		// Bottom: Controls
-		HBox controls = new HBox(10);
+		controls = new HBox(10);
 		controls.setPadding(new Insets(10, 0, 0, 0));
 
 		Button openButton = new Button("Open Folder");
 		openButton.setOnAction(e -> openFolder(primaryStage));
-		volumeSlider = new Slider(0.0, 1.0, appConfig.getVolume());
+		// The saved volume is applied once the config has been loaded in the background
+		volumeSlider = new Slider(0.0, 1.0, AppConfig.DEFAULT_VOLUME);
 		volumeSlider.setPrefWidth(100);
 		volumeSlider.setShowTickLabels(false);
 		volumeSlider.setShowTickMarks(true);
 		volumeSlider.setMajorTickUnit(0.25);
 		volumeSlider.setBlockIncrement(0.1);
-		volumeSlider.valueProperty().addListener((obs, oldVal, newVal) -> {
-		    if (mediaPlayer != null) {
-		        mediaPlayer.setVolume(newVal.doubleValue());
-		    }
-		    appConfig.setVolume(newVal.doubleValue());
-		});
+		volumeSlider.setDisable(true);
 
 		playPauseButton = new Button("▶");
 		playPauseButton.setOnAction(e -> togglePlayPause());
 		playPauseButton.setDisable(true);
 
 		nextButton = new Button("⏭");
-		nextButton.setOnAction(e -> playNextTrack());
+		nextButton.setOnAction(e -> skipTrack());
 		nextButton.setDisable(true);
 
 		eqToggleButton = new Button("EQ OFF");
@@ -140,7 +220,8 @@ public class Main extends Application {
         });
 
         // Add plugin manager button
-        Button pluginsButton = new Button("Plugins");
+        pluginsButton = new Button("Plugins");
+        pluginsButton.setDisable(true); // Enabled once plugins have finished loading
         pluginsButton.setOnAction(e -> {
             if (pluginManager != null) {
                 new PluginManagerDialog(pluginManager, primaryStage).show();
@@ -159,9 +240,6 @@ public class Main extends Application {
         pluginsButton.setStyle(buttonStyle);
 
         controls.getChildren().addAll(openButton, playPauseButton, nextButton, eqToggleButton, pluginsButton);
-
-        // Add plugin-provided toolbar buttons (if any)
-        attachPluginToolbarButtons(controls);
         controls.setAlignment(javafx.geometry.Pos.CENTER);
         
         // Create bottom controls with volume slider
@@ -192,8 +270,13 @@ public class Main extends Application {
 		root.setCenter(content);
 		root.setMinHeight(200);
 
-		// Set up the scene
-		Scene scene = new Scene(root, 550, 200);
+		// Set up the scene, with the diagnostics overlay on top
+		Runtime runtime = Runtime.getRuntime();
+		Metrics.getDefault().gauge("jvm.heap.used", () -> runtime.totalMemory() - runtime.freeMemory());
+		Metrics.getDefault().gauge("jvm.heap.max", runtime::maxMemory);
+		DiagnosticsOverlay diagnosticsOverlay = new DiagnosticsOverlay(Metrics.getDefault());
+		Scene scene = new Scene(new StackPane(root, diagnosticsOverlay), 550, 200);
+		diagnosticsOverlay.install(scene);
 		try {
 			scene.getStylesheets().add(Objects.requireNonNull(getClass().getResource("/css/dark-theme.css")).toExternalForm());
 		} catch (Exception e) {
@@ -202,23 +285,71 @@ public class Main extends Application {
 		
 		primaryStage.setTitle("TRiM Player");
 		primaryStage.setScene(scene);
+		scene.addPostLayoutPulseListener(new Runnable() {
+			@Override
+			public void run() {
+				startupProfiler.mark("first-frame");
+				scene.removePostLayoutPulseListener(this);
+			}
+		});
 		primaryStage.show();
 
 		// Event Handlers
 
-		// Update progress bar
+		// Update playback position
 		new AnimationTimer() {
+			private long lastProgressEvent;
+			private long lastPulse;
+
 			@Override
 			public void handle(long now) {
-				if (mediaPlayer != null) {
-					double progress = mediaPlayer.getCurrentTime().toMillis() /
-							mediaPlayer.getTotalDuration().toMillis();
-					progressBar.setProgress(progress);
+				if (lastPulse != 0) {
+					FRAME_TIMES.record(now - lastPulse);
+				}
+				lastPulse = now;
+				if (player != null) {
+					double progress = player.getProgress();
+					if (!Double.isNaN(progress)) {
+						waveformView.setProgress(progress);
+						if (isPlaying && now - lastProgressEvent >= PROGRESS_EVENT_INTERVAL_NANOS) {
+							lastProgressEvent = now;
+							eventBus.publish(PlaybackEvent.progress(currentTrack, progress));
+						}
+					}
 				}
 			}
 		}.start();
 	}
 
+	/**
+	 * Applies the configuration loaded during startup. Runs on the FX thread.
+	 */
+	private void applyConfig(AppConfig config) {
+		appConfig = config;
+		volumeSlider.setValue(config.getVolume());
+		volumeSlider.valueProperty().addListener((obs, oldVal, newVal) -> {
+		    if (player != null) {
+		        player.setVolume(effectiveVolume());
+		    }
+		    appConfig.setVolume(newVal.doubleValue());
+		});
+		volumeSlider.setDisable(false);
+	}
+
+	/**
+	 * Hooks up the plugin manager created during startup. Runs on the FX thread.
+	 */
+	private void applyPluginManager(PluginManager manager) {
+		pluginManager = manager;
+		if (manager != null) {
+			manager.setEventBus(eventBus);
+			attachSpectrumConsumers(manager);
+		}
+		// Add plugin-provided toolbar buttons (if any)
+		attachPluginToolbarButtons(controls);
+		pluginsButton.setDisable(false);
+	}
+
 	private void openFolder(Stage primaryStage) {
 		DirectoryChooser directoryChooser = new DirectoryChooser();
 		directoryChooser.setTitle("Select Music Folder");
@@ -228,6 +359,12 @@ public class Main extends Application {
 			try {
 				AudioFinder finder = new AudioFinder(selectedDirectory.getAbsolutePath());
 				audioQueue = new AudioQueue(finder.getAudioFiles());
+				if (isLoudnessNormalizationEnabled()) {
+					loudnessAnalyzer.analyzeAll(finder.getAudioFiles());
+				}
+				// Build the waveform cache for the whole folder in the background
+				waveformService.prefetch(finder.getAudioFiles());
+				eventBus.publish(PlaybackEvent.of(PlaybackEvent.Type.LIBRARY_CHANGED, selectedDirectory));
 				playPauseButton.setDisable(false);
 				nextButton.setDisable(false);
 				playNextTrack();
@@ -238,71 +375,147 @@ public class Main extends Application {
 	}
 
 	private void togglePlayPause() {
-		if (mediaPlayer != null) {
+		if (player != null) {
 			if (isPlaying) {
-				mediaPlayer.pause();
+				player.pause();
 				playPauseButton.setText("▶");
+				eventBus.publish(PlaybackEvent.of(PlaybackEvent.Type.PAUSED, currentTrack));
 			} else {
-				mediaPlayer.play();
+				player.play();
 				playPauseButton.setText("⏸");
+				eventBus.publish(PlaybackEvent.of(PlaybackEvent.Type.RESUMED, currentTrack));
 			}
 			isPlaying = !isPlaying;
 		}
 	}
 
+	/**
+	 * Moves on before the current track has ended.
+	 */
+	private void skipTrack() {
+		if (currentTrack != null) {
+			eventBus.publish(PlaybackEvent.of(PlaybackEvent.Type.TRACK_SKIPPED, currentTrack));
+		}
+		playNextTrack();
+	}
+
 	private void playNextTrack() {
 		if (audioQueue == null) return;
 
+		long transitionStart = System.nanoTime();
+		PlaybackBackend backend = appConfig != null ? appConfig.getPlaybackBackend() : PlaybackBackend.JAVAFX;
 		// Stop current track if playing
-		if (mediaPlayer != null) {
+		if (player != null) {
+			TrackTransitionEvent dispose = new TrackTransitionEvent(TrackTransitionEvent.DISPOSE,
+					currentTrack != null ? currentTrack.getPath() : null, backend.name());
+			dispose.begin();
 			try {
-				mediaPlayer.stop();
-				mediaPlayer.dispose();
+				player.dispose();
 			} catch (Exception e) {
 				System.err.println("Error cleaning up media player: " + e.getMessage());
 			} finally {
-				mediaPlayer = null;
+				player = null;
+				dispose.commit();
 			}
 		}
+		currentTrack = null;
 
 		File nextTrack = audioQueue.getNextTrack();
 		if (nextTrack != null) {
 			try {
-				String mediaUrl = nextTrack.toURI().toString();
-				Media media = new Media(mediaUrl);
-				mediaPlayer = new MediaPlayer(media);
-				mediaPlayer.setVolume(appConfig.getVolume());
-
-				mediaPlayer.setOnReady(() -> {
+				int bufferMillis = appConfig != null ? appConfig.getPcmBufferMillis() : PcmPlaybackEngine.DEFAULT_BUFFER_MILLIS;
+				int lineBufferMillis = appConfig != null ? appConfig.getPcmLineBufferMillis() : PcmPlaybackEngine.DEFAULT_LINE_BUFFER_MILLIS;
+				TrackTransitionEvent open = new TrackTransitionEvent(TrackTransitionEvent.OPEN, nextTrack.getPath(), backend.name());
+				open.begin();
+				TrackPlayer trackPlayer = TrackPlayers.open(nextTrack, backend, bufferMillis, lineBufferMillis);
+				open.commit();
+				// Spans the player's preparation, committed by the ready handler
+				TrackTransitionEvent ready = new TrackTransitionEvent(TrackTransitionEvent.READY, nextTrack.getPath(), backend.name());
+				ready.begin();
+				player = trackPlayer;
+				currentTrack = nextTrack;
+				trackGain = isLoudnessNormalizationEnabled() ? loudnessAnalyzer.getGainFactor(nextTrack) : 1.0;
+				trackPlayer.setVolume(effectiveVolume());
+				showWaveform(nextTrack, trackPlayer);
+
+				trackPlayer.setOnReady(() -> {
+					ready.commit();
 					try {
 						// Get track info from metadata
 						String displayName = AudioMetadataExtractor.getDisplayName(nextTrack);
 						nowPlayingLabel.setText(displayName);
 						playPauseButton.setText("⏸");
 						isPlaying = true;
-						// Update EQ visualizer with the new media player
-						eqVisualizer.setMediaPlayer(mediaPlayer);
-						mediaPlayer.play();
+						// Update EQ visualizer with the new media player (null for the PCM backend)
+						eqVisualizer.setMediaPlayer(trackPlayer.getMediaPlayer());
+						TrackTransitionEvent firstPlay = new TrackTransitionEvent(TrackTransitionEvent.FIRST_PLAY,
+								nextTrack.getPath(), backend.name());
+						firstPlay.begin();
+						trackPlayer.play();
+						firstPlay.commit();
+						TRANSITION_TIMES.recordSince(transitionStart);
+						eventBus.publish(PlaybackEvent.of(PlaybackEvent.Type.TRACK_STARTED, nextTrack));
 					} catch (Exception e) {
 						System.err.println("Error in media player ready handler: " + e.getMessage());
-						playNextTrack(); // Skip to next track on error
+						skipTrack(); // Skip to next track on error
 					}
 				});
 
-				mediaPlayer.setOnEndOfMedia(this::playNextTrack);
+				trackPlayer.setOnEndOfMedia(() -> {
+					eventBus.publish(PlaybackEvent.of(PlaybackEvent.Type.TRACK_ENDED, nextTrack));
+					playNextTrack();
+				});
 
-				mediaPlayer.setOnError(() -> {
+				trackPlayer.setOnError(() -> {
 					showError("Playback Error", "Could not play: " + nextTrack.getName());
-					playNextTrack(); // Skip to next track on error
+					skipTrack(); // Skip to next track on error
 				});
 
 			} catch (Exception e) {
 				showError("Error", "Could not play: " + nextTrack.getName());
+				eventBus.publish(PlaybackEvent.of(PlaybackEvent.Type.TRACK_SKIPPED, nextTrack));
 				playNextTrack(); // Skip to next track on error
 			}
 		}
 	}
 
+	/**
+	 * Shows the track's waveform, which is normally already in memory, and starts preparing the next one.
+	 */
+	private void showWaveform(File track, TrackPlayer trackPlayer) {
+		// Requests jump the queue, so the current track goes last to be computed first
+		File upcoming = audioQueue.peekNextTrack();
+		if (upcoming != null) {
+			waveformService.request(upcoming);
+		}
+
+		PeakPyramid peaks = waveformService.getIfReady(track);
+		WAVEFORM_LOOKUPS.increment();
+		if (peaks == null) {
+			WAVEFORM_MISSES.increment();
+		}
+		waveformView.setPeaks(peaks);
+		waveformView.setProgress(0);
+		if (peaks == null) {
+			waveformService.request(track).thenAccept(computed -> Platform.runLater(() -> {
+				if (player == trackPlayer) {
+					waveformView.setPeaks(computed);
+				}
+			}));
+		}
+	}
+
+	private boolean isLoudnessNormalizationEnabled() {
+		return appConfig == null || appConfig.isLoudnessNormalization();
+	}
+
+	/**
+	 * @return The slider volume with the current track's normalization gain applied
+	 */
+	private double effectiveVolume() {
+		return Math.min(1.0, volumeSlider.getValue() * trackGain);
+	}
+
 	private void showError(String title, String message) {
 		Platform.runLater(() -> {
 			Alert alert = new Alert(Alert.AlertType.ERROR);
@@ -315,34 +528,93 @@ public class Main extends Application {
 
 	@Override
 	public void stop() {
-		if (mediaPlayer != null) {
-			mediaPlayer.stop();
-			mediaPlayer.dispose();
+		if (player != null) {
+			player.dispose();
+		}
+		loudnessAnalyzer.shutdown();
+		waveformService.shutdown();
+		eventBus.shutdown();
+		if (pluginReloader != null) {
+			pluginReloader.stop();
 		}
+		if (pluginManager != null) {
+			// Unloads every plugin and ends the plugin host processes, killing any that don't exit
+			pluginManager.shutdown();
+		}
+		// Persist any settings changes still waiting in the write-behind queue
+		WriteBehindStore.getDefault().flush();
 	}
 
     /**
-     * Discovers plugin-provided toolbar button extensions and adds them to the controls bar.
+     * Keeps the controls bar in sync with plugin-provided toolbar button extensions: buttons are added
+     * and removed as plugins are enabled, disabled or reloaded.
      */
     private void attachPluginToolbarButtons(HBox controls) {
         if (pluginManager == null) {
             return;
         }
-        try {
-            List<ToolbarButtonExtension> extensions = pluginManager.getExtensions(ToolbarButtonExtension.class);
-            for (ToolbarButtonExtension ext : extensions) {
-                try {
-                    Button b = buildButton(ext);
-                    controls.getChildren().add(b);
-                } catch (Exception ex) {
-                    System.err.println("Failed to build plugin toolbar button: " + ex.getMessage());
-                    ex.printStackTrace();
+        // Only touched on the FX thread
+        Map<ToolbarButtonExtension, Button> buttons = new IdentityHashMap<>();
+        pluginManager.trackExtensions(ToolbarButtonExtension.class, ext -> Platform.runLater(() -> {
+            try {
+                Button b = buildButton(ext);
+                buttons.put(ext, b);
+                controls.getChildren().add(b);
+            } catch (Exception ex) {
+                System.err.println("Failed to build plugin toolbar button: " + ex.getMessage());
+                ex.printStackTrace();
+            }
+        }), ext -> Platform.runLater(() -> {
+            Button b = buttons.remove(ext);
+            if (b != null) {
+                controls.getChildren().remove(b);
+            }
+        }));
+    }
+
+    /**
+     * Gives every plugin spectrum consumer its own reader over the visualizer's spectrum ring,
+     * for as long as its plugin is enabled.
+     */
+    private void attachSpectrumConsumers(PluginManager manager) {
+        SpectrumRing ring = eqVisualizer.getSpectrumRing();
+        // Only touched from tracker callbacks, which the plugin manager serializes.
+        // Each one completes with the consumer's reader once it is attached.
+        Map<SpectrumConsumerExtension, CompletableFuture<SpectrumRing.Reader>> attachments = new IdentityHashMap<>();
+        manager.trackExtensions(SpectrumConsumerExtension.class, consumer -> {
+            CompletableFuture<SpectrumRing.Reader> attachment = new CompletableFuture<>();
+            attachments.put(consumer, attachment);
+            // A plugin with lazy activation isn't started for this; it's attached once something else starts it
+            manager.runExtensionTaskWhenStarted(consumer, "spectrum attach", () -> {
+                // Made only now, so no spectrum is computed for a plugin that isn't running
+                SpectrumRing.Reader reader = ring.newReader();
+                if (!attachment.complete(reader)) {
+                    // Removed before it got here
+                    reader.close();
+                    return;
                 }
+                consumer.onAttach(reader);
+            }).exceptionally(ex -> {
+                if (!(ex instanceof CancellationException)) {
+                    System.err.println("Plugin spectrum consumer failed to attach: " + ex.getMessage());
+                }
+                attachment.thenAccept(SpectrumRing.Reader::close);
+                return null;
+            });
+        }, consumer -> {
+            CompletableFuture<SpectrumRing.Reader> attachment = attachments.remove(consumer);
+            if (attachment.cancel(false)) {
+                // Its plugin never started, so there's nothing to detach
+                return;
             }
-        } catch (Exception e) {
-            System.err.println("Error loading toolbar button extensions: " + e.getMessage());
-            e.printStackTrace();
-        }
+            SpectrumRing.Reader reader = attachment.join();
+            manager.runExtensionTask(consumer, "spectrum detach", consumer::onDetach).whenComplete((ignored, ex) -> {
+                if (ex != null) {
+                    System.err.println("Plugin spectrum consumer failed to detach: " + ex.getMessage());
+                }
+                reader.close();
+            });
+        });
     }
 
     /**
@@ -361,29 +633,38 @@ public class Main extends Application {
         }
         btn.setDisable(ext.initiallyDisabled());
         btn.setOnAction(e -> {
-            try {
-                ext.onAction();
-            } catch (Exception ex) {
-                // Ensure plugin exceptions don't bubble up into the UI thread
+            // Runs on the plugin's own thread so a slow action can't freeze the player
+            pluginManager.runExtensionTask(ext, "toolbar action", ext::onAction).exceptionally(ex -> {
                 System.err.println("Plugin toolbar action failed: " + ex.getMessage());
                 ex.printStackTrace();
-            }
+                return null;
+            });
         });
         return btn;
     }
 
-	private void initializePluginManager() {
+	/**
+	 * Creates and initializes the plugin manager. Runs on a startup thread.
+	 *
+	 * @return The plugin manager, or null if it failed to initialize
+	 */
+	private PluginManager initializePluginManager() {
 		try {
 			// Use the plugins directory from AppDirectories
 			Path pluginsDir = AppDirectories.getPluginsDir();
 			if (!Files.exists(pluginsDir)) {
 				Files.createDirectories(pluginsDir);
 			}
-			pluginManager = new PluginManager(pluginsDir, false);
-			pluginManager.initialize();
+			PluginManager manager = new PluginManager(pluginsDir, false);
+			manager.initialize();
+			// Swap in new plugin versions dropped into the folder without restarting
+			pluginReloader = new PluginHotReloader(manager, pluginsDir, PluginHotReloader.DEFAULT_INTERVAL_MILLIS);
+			pluginReloader.start();
+			return manager;
 		} catch (Exception e) {
 			System.err.println("Failed to initialize plugin manager: " + e.getMessage());
 			e.printStackTrace();
+			return null;
 		}
 	}
 
@@ -396,6 +677,7 @@ public class Main extends Application {
 	}
 
 	public static void main(String[] args) {
+		FlightRecording.startIfRequested();
 		launch(args);
 	}
 }
\ No newline at end of file
@@ -1,5 +1,10 @@
 package com.github.RocketSmash9000.audio;
 
+import com.github.RocketSmash9000.diagnostics.Counter;
+import com.github.RocketSmash9000.diagnostics.LatencyHistogram;
+import com.github.RocketSmash9000.diagnostics.LibraryScanEvent;
+import com.github.RocketSmash9000.diagnostics.Metrics;
+
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -14,7 +19,12 @@ public class AudioFinder {
 			".mp3", ".wav", ".ogg", ".m4a", ".flac", ".aac"
 	);
 
+	// Together they give the scan rate
+	private static final LatencyHistogram SCAN_TIMES = Metrics.getDefault().histogram("library.scan");
+	private static final Counter FILES_FOUND = Metrics.getDefault().counter("library.files");
+
 	private final List<File> audioFiles;
+	private int directoriesScanned;
 
 	/**
 	 * Creates a new AudioFinder that will scan the specified directory for audio files.
@@ -29,7 +39,23 @@ public class AudioFinder {
 			throw new IllegalArgumentException("Path must be a valid directory: " + directoryPath);
 		}
 
+		LibraryScanEvent event = new LibraryScanEvent();
+		event.begin();
+		long start = System.nanoTime();
 		this.audioFiles = Collections.unmodifiableList(findAudioFiles(directory));
+		SCAN_TIMES.recordSince(start);
+		FILES_FOUND.add(audioFiles.size());
+		event.end();
+		if (event.shouldCommit()) {
+			event.directory = directory.getAbsolutePath();
+			event.files = audioFiles.size();
+			event.directories = directoriesScanned;
+			// Sizes take another stat per file, so they're only looked up when the event is recorded
+			for (File file : audioFiles) {
+				event.bytes += file.length();
+			}
+			event.commit();
+		}
 	}
 
 	/**
@@ -43,6 +69,7 @@ public class AudioFinder {
 	private List<File> findAudioFiles(File directory) {
 		List<File> foundFiles = new ArrayList<>();
 		File[] files = directory.listFiles();
+		directoriesScanned++;
 
 		if (files != null) {
 			for (File file : files) {
@@ -1,5 +1,6 @@
 package com.github.RocketSmash9000.audio;
 
+import com.github.RocketSmash9000.diagnostics.MetadataReadEvent;
 import com.mpatric.mp3agic.ID3v1;
 import com.mpatric.mp3agic.ID3v2;
 import com.mpatric.mp3agic.InvalidDataException;
@@ -22,8 +23,19 @@ public class AudioMetadataExtractor {
      * @return The track title, or filename if no title is found
      */
     public static String getTrackTitle(File file) {
-        if (!file.getName().toLowerCase().endsWith(".mp3")) {
-            return getFileNameWithoutExtension(file);
+        MetadataReadEvent event = new MetadataReadEvent();
+        event.begin();
+        String title = readTitle(file);
+        commit(event, file, "title", title);
+        return title != null ? title : getFileNameWithoutExtension(file);
+    }
+    
+    /**
+     * @return The title from the file's tags, or null if it has none or isn't an MP3
+     */
+    private static String readTitle(File file) {
+        if (!isMp3(file)) {
+            return null;
         }
         
         try {
@@ -47,7 +59,7 @@ public class AudioMetadataExtractor {
             // If there's any error reading metadata, fall back to filename
         }
         
-        return getFileNameWithoutExtension(file);
+        return null;
     }
     
     /**
@@ -57,8 +69,19 @@ public class AudioMetadataExtractor {
      * @return The artist name, or empty string if not found
      */
     public static String getArtist(File file) {
-        if (!file.getName().toLowerCase().endsWith(".mp3")) {
-            return "";
+        MetadataReadEvent event = new MetadataReadEvent();
+        event.begin();
+        String artist = readArtist(file);
+        commit(event, file, "artist", artist);
+        return artist != null ? artist : "";
+    }
+    
+    /**
+     * @return The artist from the file's tags, or null if it has none or isn't an MP3
+     */
+    private static String readArtist(File file) {
+        if (!isMp3(file)) {
+            return null;
         }
         
         try {
@@ -79,9 +102,9 @@ public class AudioMetadataExtractor {
                 return artist.trim();
             }
         } catch (IOException | UnsupportedTagException | InvalidDataException e) {
-            // If there's any error reading metadata, return empty string
+            // If there's any error reading metadata, treat it as having no artist
         }
-        return "";
+        return null;
     }
     
     /**
@@ -102,6 +125,21 @@ public class AudioMetadataExtractor {
         }
     }
     
+    private static boolean isMp3(File file) {
+        return file.getName().toLowerCase().endsWith(".mp3");
+    }
+    
+    private static void commit(MetadataReadEvent event, File file, String field, String value) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.track = file.getPath();
+            event.field = field;
+            event.parsed = isMp3(file);
+            event.found = value != null;
+            event.commit();
+        }
+    }
+    
     /**
      * Gets the filename without its extension.
      * 
@@ -1,5 +1,8 @@
 package com.github.RocketSmash9000.audio;
 
+import com.github.RocketSmash9000.diagnostics.LatencyHistogram;
+import com.github.RocketSmash9000.diagnostics.Metrics;
+
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -13,9 +16,14 @@ import java.util.Random;
  * When the queue is empty, it automatically refills itself with the original list.
  */
 public class AudioQueue {
+	private static final LatencyHistogram PICK_TIMES = Metrics.getDefault().histogram("queue.pick");
+	private static final LatencyHistogram REFILL_TIMES = Metrics.getDefault().histogram("queue.refill");
+
 	private final List<File> originalFiles;
 	private List<File> currentQueue;
 	private final Random random;
+	// Picked ahead of time by peekNextTrack(), returned by the next getNextTrack()
+	private File upcoming;
 
 	/**
 	 * Creates a new AudioQueue with the given list of audio files.
@@ -40,6 +48,21 @@ public class AudioQueue {
 	 * @return The next audio file to play, or null if no files are available
 	 */
 	public synchronized File getNextTrack() {
+		File next = peekNextTrack();
+		upcoming = null;
+		return next;
+	}
+
+	/**
+	 * Picks the track that the next call to {@link #getNextTrack()} will return, without consuming it.
+	 * Useful for preparing the next track while the current one plays.
+	 * @return The upcoming audio file, or null if no files are available
+	 */
+	public synchronized File peekNextTrack() {
+		if (upcoming != null) {
+			return upcoming;
+		}
+
 		if (currentQueue.isEmpty()) {
 			refillQueue();
 		}
@@ -48,8 +71,11 @@ public class AudioQueue {
 			return null; // Should not happen if constructor validation passes
 		}
 
+		long start = System.nanoTime();
 		int randomIndex = random.nextInt(currentQueue.size());
-		return currentQueue.remove(randomIndex);
+		upcoming = currentQueue.remove(randomIndex);
+		PICK_TIMES.recordSince(start);
+		return upcoming;
 	}
 
 	/**
@@ -57,8 +83,11 @@ public class AudioQueue {
 	 * The new queue will be a shuffled version of the original files.
 	 */
 	public synchronized void refillQueue() {
+		long start = System.nanoTime();
+		upcoming = null;
 		currentQueue = new ArrayList<>(originalFiles);
 		Collections.shuffle(currentQueue, random);
+		REFILL_TIMES.recordSince(start);
 	}
 
 	/**
@@ -66,7 +95,7 @@ public class AudioQueue {
 	 * @return The number of tracks remaining
 	 */
 	public synchronized int getRemainingTracks() {
-		return currentQueue.size();
+		return currentQueue.size() + (upcoming != null ? 1 : 0);
 	}
 
 	/**
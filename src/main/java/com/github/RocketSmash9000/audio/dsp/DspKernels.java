@@ -0,0 +1,63 @@
+package com.github.RocketSmash9000.audio.dsp;
+
+/**
+ * Inner loops of TRiM's signal processing, over primitive float arrays.
+ * <p>
+ * {@link #get()} returns a SIMD implementation built on the incubating Vector API when the JVM was started
+ * with {@code --add-modules jdk.incubator.vector}, and a plain scalar implementation otherwise.
+ * Both produce the same results up to floating point rounding.
+ */
+public interface DspKernels {
+
+	/**
+	 * @return The fastest implementation available in this JVM
+	 */
+	static DspKernels get() {
+		return KernelLoader.INSTANCE;
+	}
+
+	/**
+	 * @return A short name of the implementation, for logs and benchmarks
+	 */
+	String getName();
+
+	/**
+	 * @return The sum of {@code a[aOffset + i] * b[bOffset + i]} for {@code i} below {@code length}
+	 */
+	float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+	/**
+	 * Maps levels in dB onto display heights: {@code floorDb} and below become 0, 0 dB and above become 1,
+	 * and values in between follow an {@code x^1.5} curve to make quiet detail visible.
+	 *
+	 * @param db Levels in dB
+	 * @param out Receives the heights; may be the same array as {@code db}
+	 * @param length The number of values
+	 * @param floorDb The (negative) level that maps to 0
+	 */
+	void normalizeDb(float[] db, float[] out, int length, float floorDb);
+
+	/**
+	 * @return The largest absolute value among the first {@code length} samples
+	 */
+	float peak(float[] samples, int length);
+
+	/**
+	 * @return The sum of the squares of the first {@code length} samples, for RMS and energy
+	 */
+	double sumOfSquares(float[] samples, int length);
+
+	/**
+	 * Element-wise product, e.g. for applying a window.
+	 *
+	 * @param out Receives {@code a[i] * b[i]}; may be the same array as {@code a} or {@code b}
+	 */
+	void multiply(float[] a, float[] b, float[] out, int length);
+
+	/**
+	 * Magnitudes of complex values.
+	 *
+	 * @param out Receives {@code sqrt(re[i]^2 + im[i]^2)}
+	 */
+	void magnitudes(float[] re, float[] im, float[] out, int length);
+}
@@ -0,0 +1,30 @@
+package com.github.RocketSmash9000.audio.dsp;
+
+/**
+ * Picks the {@link DspKernels} implementation once per JVM.
+ */
+final class KernelLoader {
+	/** Set to true to force the scalar kernels, e.g. for comparisons. */
+	static final String SCALAR_PROPERTY = "trim.dsp.scalar";
+	private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+	static final DspKernels INSTANCE = load();
+
+	private KernelLoader() {
+	}
+
+	private static DspKernels load() {
+		if (Boolean.getBoolean(SCALAR_PROPERTY) || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+			return new ScalarKernels();
+		}
+		try {
+			// Loaded reflectively so this class never links against the incubator module
+			return (DspKernels) Class.forName(KernelLoader.class.getPackageName() + ".VectorKernels")
+					.getDeclaredConstructor()
+					.newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			System.err.println("Vector API unavailable, using scalar DSP kernels: " + e);
+			return new ScalarKernels();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.github.RocketSmash9000.audio.dsp;
+
+/**
+ * Plain-loop {@link DspKernels}; the reference implementation and the fallback without the Vector API.
+ */
+public class ScalarKernels implements DspKernels {
+
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+
+	@Override
+	public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+		float sum = 0;
+		for (int i = 0; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	public void normalizeDb(float[] db, float[] out, int length, float floorDb) {
+		float scale = -1f / floorDb;
+		for (int i = 0; i < length; i++) {
+			float x = Math.max(0f, Math.min(1f, (db[i] - floorDb) * scale));
+			out[i] = x * (float) Math.sqrt(x);
+		}
+	}
+
+	@Override
+	public float peak(float[] samples, int length) {
+		float peak = 0;
+		for (int i = 0; i < length; i++) {
+			peak = Math.max(peak, Math.abs(samples[i]));
+		}
+		return peak;
+	}
+
+	@Override
+	public double sumOfSquares(float[] samples, int length) {
+		double sum = 0;
+		for (int i = 0; i < length; i++) {
+			sum += samples[i] * samples[i];
+		}
+		return sum;
+	}
+
+	@Override
+	public void multiply(float[] a, float[] b, float[] out, int length) {
+		for (int i = 0; i < length; i++) {
+			out[i] = a[i] * b[i];
+		}
+	}
+
+	@Override
+	public void magnitudes(float[] re, float[] im, float[] out, int length) {
+		for (int i = 0; i < length; i++) {
+			out[i] = (float) Math.sqrt(re[i] * re[i] + im[i] * im[i]);
+		}
+	}
+}
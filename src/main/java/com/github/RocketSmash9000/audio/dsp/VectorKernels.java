@@ -0,0 +1,118 @@
+package com.github.RocketSmash9000.audio.dsp;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link DspKernels} using the incubating Vector API, at the widest vector size the CPU supports.
+ * Tails shorter than one vector are handled with scalar loops.
+ * <p>
+ * Only load this through {@link DspKernels#get()}, which checks that the module is available.
+ */
+public class VectorKernels implements DspKernels {
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+	@Override
+	public String getName() {
+		return "vector-" + SPECIES.vectorBitSize();
+	}
+
+	@Override
+	public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+		FloatVector acc = FloatVector.zero(SPECIES);
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+			FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+			acc = va.fma(vb, acc);
+		}
+		float sum = acc.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	public void normalizeDb(float[] db, float[] out, int length, float floorDb) {
+		float scale = -1f / floorDb;
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			FloatVector x = FloatVector.fromArray(SPECIES, db, i)
+					.sub(floorDb)
+					.mul(scale)
+					.max(0f)
+					.min(1f);
+			x.mul(x.sqrt()).intoArray(out, i);
+		}
+		for (; i < length; i++) {
+			float x = Math.max(0f, Math.min(1f, (db[i] - floorDb) * scale));
+			out[i] = x * (float) Math.sqrt(x);
+		}
+	}
+
+	@Override
+	public float peak(float[] samples, int length) {
+		FloatVector max = FloatVector.zero(SPECIES);
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			max = max.max(FloatVector.fromArray(SPECIES, samples, i).abs());
+		}
+		float peak = max.reduceLanes(VectorOperators.MAX);
+		for (; i < length; i++) {
+			peak = Math.max(peak, Math.abs(samples[i]));
+		}
+		return peak;
+	}
+
+	@Override
+	public double sumOfSquares(float[] samples, int length) {
+		// Accumulate in floats per block and fold into a double, so long inputs keep their precision
+		double sum = 0;
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		while (i < bound) {
+			FloatVector acc = FloatVector.zero(SPECIES);
+			int blockEnd = Math.min(bound, i + SPECIES.length() * 256);
+			for (; i < blockEnd; i += SPECIES.length()) {
+				FloatVector v = FloatVector.fromArray(SPECIES, samples, i);
+				acc = v.fma(v, acc);
+			}
+			sum += acc.reduceLanes(VectorOperators.ADD);
+		}
+		for (; i < length; i++) {
+			sum += samples[i] * samples[i];
+		}
+		return sum;
+	}
+
+	@Override
+	public void multiply(float[] a, float[] b, float[] out, int length) {
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			FloatVector.fromArray(SPECIES, a, i).mul(FloatVector.fromArray(SPECIES, b, i)).intoArray(out, i);
+		}
+		for (; i < length; i++) {
+			out[i] = a[i] * b[i];
+		}
+	}
+
+	@Override
+	public void magnitudes(float[] re, float[] im, float[] out, int length) {
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			FloatVector r = FloatVector.fromArray(SPECIES, re, i);
+			FloatVector m = FloatVector.fromArray(SPECIES, im, i);
+			r.mul(r).add(m.mul(m)).sqrt().intoArray(out, i);
+		}
+		for (; i < length; i++) {
+			out[i] = (float) Math.sqrt(re[i] * re[i] + im[i] * im[i]);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.github.RocketSmash9000.audio.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Hann-windowed, radix-2 FFT that turns a block of real samples into a magnitude spectrum.
+ * <p>
+ * Window, twiddle factors and the bit-reversal permutation are computed once per size. Windowing and
+ * the magnitude pass run through {@link DspKernels}; the butterflies are plain loops. Not thread-safe:
+ * each thread needs its own instance.
+ */
+public class WindowedFft {
+	private final int size;
+	private final DspKernels kernels;
+	private final float[] window;
+	private final float[] cos;
+	private final float[] sin;
+	private final int[] reversed;
+	private final float[] re;
+	private final float[] im;
+
+	public WindowedFft(int size) {
+		this(size, DspKernels.get());
+	}
+
+	/**
+	 * @param size The block size; a power of two, at least 2
+	 * @param kernels The kernels for windowing and magnitudes
+	 * @throws IllegalArgumentException if the size is not a power of two
+	 */
+	public WindowedFft(int size, DspKernels kernels) {
+		if (size < 2 || Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("FFT size must be a power of two: " + size);
+		}
+		this.size = size;
+		this.kernels = kernels;
+		this.window = new float[size];
+		for (int i = 0; i < size; i++) {
+			window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / size));
+		}
+		this.cos = new float[size / 2];
+		this.sin = new float[size / 2];
+		for (int i = 0; i < size / 2; i++) {
+			cos[i] = (float) Math.cos(2 * Math.PI * i / size);
+			sin[i] = (float) -Math.sin(2 * Math.PI * i / size);
+		}
+		int bits = Integer.numberOfTrailingZeros(size);
+		this.reversed = new int[size];
+		for (int i = 0; i < size; i++) {
+			reversed[i] = Integer.reverse(i) >>> (32 - bits);
+		}
+		this.re = new float[size];
+		this.im = new float[size];
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Computes the magnitude spectrum of one block.
+	 *
+	 * @param samples At least {@link #getSize()} samples, starting at {@code offset}
+	 * @param offset The first sample of the block
+	 * @param magnitudes Receives {@code size / 2 + 1} magnitudes, from 0 Hz to the Nyquist frequency
+	 */
+	public void transform(float[] samples, int offset, float[] magnitudes) {
+		float[] windowed = im; // Scratch until the permutation below, then the imaginary parts
+		System.arraycopy(samples, offset, windowed, 0, size);
+		kernels.multiply(windowed, window, windowed, size);
+		for (int i = 0; i < size; i++) {
+			re[reversed[i]] = windowed[i];
+		}
+		Arrays.fill(im, 0f);
+
+		for (int half = 1, step = size / 2; half < size; half <<= 1, step >>= 1) {
+			for (int start = 0; start < size; start += half << 1) {
+				for (int k = 0; k < half; k++) {
+					float wr = cos[k * step];
+					float wi = sin[k * step];
+					int a = start + k;
+					int b = a + half;
+					float tr = re[b] * wr - im[b] * wi;
+					float ti = re[b] * wi + im[b] * wr;
+					re[b] = re[a] - tr;
+					im[b] = im[a] - ti;
+					re[a] += tr;
+					im[a] += ti;
+				}
+			}
+		}
+		kernels.magnitudes(re, im, magnitudes, size / 2 + 1);
+	}
+}
@@ -0,0 +1,158 @@
+package com.github.RocketSmash9000.audio.loudness;
+
+import com.github.RocketSmash9000.audio.playback.PcmDecoder;
+import com.github.RocketSmash9000.audio.playback.PcmDecoders;
+import com.github.RocketSmash9000.audio.playback.PcmSamples;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Computes per-track loudness in the background so playback can apply a fixed per-track gain.
+ * Existing ReplayGain tags are used when present; otherwise WAV and FLAC tracks are decoded and measured.
+ * Results are kept in a {@link LoudnessCache}. Tracks that can't be analyzed (e.g. untagged MP3s) play at unity gain,
+ * and are recorded in the cache so they aren't read again until they change.
+ */
+public class LoudnessAnalyzer {
+	/** Target loudness for normalization, matching ReplayGain 2.0. */
+	public static final double TARGET_LUFS = ReplayGainTags.REFERENCE_LUFS;
+
+	private static final int DECODE_BUFFER_BYTES = 64 * 1024;
+
+	private final LoudnessCache cache;
+	private final ExecutorService executor;
+	private final int threads;
+	private final AtomicLong batch = new AtomicLong();
+
+	/**
+	 * Creates an analyzer using all but one core.
+	 */
+	public LoudnessAnalyzer() {
+		this(new LoudnessCache(), Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+	}
+
+	/**
+	 * @param cache The cache to read from and write results to
+	 * @param threads The number of analysis threads
+	 */
+	public LoudnessAnalyzer(LoudnessCache cache, int threads) {
+		this.cache = cache;
+		this.threads = threads;
+		AtomicInteger counter = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "trim-loudness-" + counter.incrementAndGet());
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		});
+	}
+
+	/**
+	 * Analyzes every track that isn't cached yet and isn't known to be unanalyzable. Starting a new batch cancels the remainder of the previous one.
+	 *
+	 * @param tracks The tracks to analyze
+	 * @return A future that completes when the batch is done
+	 */
+	public CompletableFuture<Void> analyzeAll(List<File> tracks) {
+		long id = batch.incrementAndGet();
+		return CompletableFuture.runAsync(cache::load, executor).thenCompose(ignored -> {
+			long start = System.nanoTime();
+			AtomicInteger analyzed = new AtomicInteger();
+			List<CompletableFuture<Void>> tasks = new ArrayList<>();
+			for (File track : tracks) {
+				if (cache.get(track) != null || cache.isUnanalyzable(track)) continue;
+				tasks.add(CompletableFuture.runAsync(() -> {
+					if (batch.get() != id) return;
+					LoudnessResult result = analyze(track);
+					if (result != null) {
+						cache.put(track, result);
+						analyzed.incrementAndGet();
+					} else {
+						cache.putUnanalyzable(track);
+					}
+				}, executor));
+			}
+			return CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).whenComplete((v, e) -> {
+				cache.save();
+				reportThroughput(analyzed.get(), System.nanoTime() - start);
+			});
+		});
+	}
+
+	private void reportThroughput(int count, long nanos) {
+		if (count == 0) return;
+		double seconds = nanos / 1e9;
+		System.out.printf("Loudness analysis: %d tracks in %.1f s (%.2f tracks/sec/core on %d threads)%n",
+				count, seconds, count / seconds / threads, threads);
+	}
+
+	/**
+	 * Gets the gain to apply to a track to reach {@link #TARGET_LUFS}.
+	 * @param track The track about to play
+	 * @return A linear gain factor, or 1.0 if the track hasn't been analyzed
+	 */
+	public double getGainFactor(File track) {
+		LoudnessResult result = cache.get(track);
+		return result != null ? result.gainFactor(TARGET_LUFS) : 1.0;
+	}
+
+	/**
+	 * Stops the analysis threads.
+	 */
+	public void shutdown() {
+		batch.incrementAndGet();
+		executor.shutdownNow();
+		cache.save();
+	}
+
+	/**
+	 * Determines the loudness of a single track, preferring ReplayGain tags over measurement.
+	 * @param track The audio file
+	 * @return The result, or null if the track has no tags and can't be decoded
+	 */
+	public static LoudnessResult analyze(File track) {
+		LoudnessResult tagged = ReplayGainTags.read(track);
+		if (tagged != null) {
+			return tagged;
+		}
+		if (!PcmDecoders.supports(track)) {
+			return null;
+		}
+		try (PcmDecoder decoder = PcmDecoders.open(track)) {
+			return measure(decoder);
+		} catch (IOException e) {
+			System.err.println("Failed to analyze loudness of " + track.getName() + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Decodes the whole stream through a {@link LoudnessMeter}.
+	 * @param decoder The decoder to drain
+	 * @return The measured loudness
+	 * @throws IOException if decoding fails
+	 */
+	public static LoudnessResult measure(PcmDecoder decoder) throws IOException {
+		AudioFormat format = decoder.getFormat();
+		int channels = format.getChannels();
+		int bytesPerSample = format.getSampleSizeInBits() / 8;
+		LoudnessMeter meter = new LoudnessMeter(format.getSampleRate(), channels);
+
+		byte[] bytes = new byte[DECODE_BUFFER_BYTES - DECODE_BUFFER_BYTES % format.getFrameSize()];
+		float[] samples = new float[bytes.length / bytesPerSample];
+		int n;
+		while ((n = decoder.read(bytes, 0, bytes.length)) > 0) {
+			int count = PcmSamples.toFloats(format, bytes, n, samples);
+			meter.process(samples, count / channels);
+		}
+		return new LoudnessResult(meter.getIntegratedLoudness(), meter.getPeak(), LoudnessResult.Source.ANALYZED);
+	}
+}
@@ -0,0 +1,159 @@
+package com.github.RocketSmash9000.audio.loudness;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.RocketSmash9000.config.WriteBehindStore;
+import com.github.RocketSmash9000.util.AppDirectories;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache of loudness results, keyed by absolute path.
+ * An entry is only valid while the file's size and modification time are unchanged.
+ * Files that couldn't be analyzed are remembered too, so they aren't read again until they change.
+ */
+public class LoudnessCache {
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+	private static final String CACHE_FILENAME = "loudness_cache.json";
+
+	private final Path cachePath;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private volatile boolean loaded;
+	private volatile boolean dirty;
+
+	public LoudnessCache() {
+		this(AppDirectories.getAppDir().resolve(CACHE_FILENAME));
+	}
+
+	public LoudnessCache(Path cachePath) {
+		this.cachePath = cachePath;
+	}
+
+	/**
+	 * Loads the cache file. Does nothing if it has already been loaded.
+	 */
+	public synchronized void load() {
+		if (loaded) {
+			return;
+		}
+		try {
+			if (Files.exists(cachePath)) {
+				Map<String, Entry> stored = objectMapper.readValue(cachePath.toFile(), new TypeReference<Map<String, Entry>>() {});
+				entries.putAll(stored);
+			}
+		} catch (IOException e) {
+			System.err.println("Failed to load loudness cache: " + e.getMessage());
+		}
+		loaded = true;
+	}
+
+	/**
+	 * Gets the cached result for a file if it is still up to date.
+	 * @param file The audio file
+	 * @return The cached result, or null if missing or stale
+	 */
+	public LoudnessResult get(File file) {
+		Entry entry = currentEntry(file);
+		if (entry == null || !entry.isAnalyzable()) {
+			return null;
+		}
+		return new LoudnessResult(entry.getIntegratedLufs(), entry.getPeak(), entry.getSource());
+	}
+
+	/**
+	 * Checks whether a file is known to have no result, because it couldn't be analyzed as it is now.
+	 * @param file The audio file
+	 * @return true if {@link #putUnanalyzable} was called for the file and it hasn't changed since
+	 */
+	public boolean isUnanalyzable(File file) {
+		Entry entry = currentEntry(file);
+		return entry != null && !entry.isAnalyzable();
+	}
+
+	private Entry currentEntry(File file) {
+		Entry entry = entries.get(file.getAbsolutePath());
+		if (entry == null || entry.getSize() != file.length() || entry.getLastModified() != file.lastModified()) {
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Stores a result for a file. Call {@link #save()} to persist it.
+	 */
+	public void put(File file, LoudnessResult result) {
+		Entry entry = newEntry(file);
+		entry.setIntegratedLufs(result.integratedLufs());
+		entry.setPeak(result.peak());
+		entry.setSource(result.source());
+		entries.put(file.getAbsolutePath(), entry);
+		dirty = true;
+	}
+
+	/**
+	 * Records that a file couldn't be analyzed, e.g. an MP3 without ReplayGain tags, so it is skipped
+	 * until its size or modification time changes. Call {@link #save()} to persist it.
+	 */
+	public void putUnanalyzable(File file) {
+		Entry entry = newEntry(file);
+		entry.setAnalyzable(false);
+		entries.put(file.getAbsolutePath(), entry);
+		dirty = true;
+	}
+
+	private static Entry newEntry(File file) {
+		Entry entry = new Entry();
+		entry.setSize(file.length());
+		entry.setLastModified(file.lastModified());
+		return entry;
+	}
+
+	/**
+	 * Writes the cache to disk if it has changed since the last save.
+	 */
+	public synchronized void save() {
+		if (!dirty) {
+			return;
+		}
+		dirty = false;
+		try {
+			WriteBehindStore.writeAtomically(cachePath, objectMapper.writeValueAsBytes(entries));
+		} catch (IOException e) {
+			System.err.println("Failed to save loudness cache: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * A cached result plus the file attributes it was computed for.
+	 */
+	public static class Entry {
+		private long size;
+		private long lastModified;
+		// Infinite loudness (digital silence) can't be written as JSON, so it's stored as a very low value
+		private double integratedLufs;
+		private double peak;
+		private LoudnessResult.Source source = LoudnessResult.Source.ANALYZED;
+		// False for files that couldn't be analyzed; entries written before this existed are all results
+		private boolean analyzable = true;
+
+		public long getSize() { return size; }
+		public void setSize(long size) { this.size = size; }
+		public long getLastModified() { return lastModified; }
+		public void setLastModified(long lastModified) { this.lastModified = lastModified; }
+		public double getIntegratedLufs() { return integratedLufs; }
+		public void setIntegratedLufs(double integratedLufs) {
+			this.integratedLufs = Double.isFinite(integratedLufs) ? integratedLufs : -200.0;
+		}
+		public double getPeak() { return peak; }
+		public void setPeak(double peak) { this.peak = peak; }
+		public LoudnessResult.Source getSource() { return source; }
+		public void setSource(LoudnessResult.Source source) { this.source = source; }
+		public boolean isAnalyzable() { return analyzable; }
+		public void setAnalyzable(boolean analyzable) { this.analyzable = analyzable; }
+	}
+}
@@ -0,0 +1,166 @@
+package com.github.RocketSmash9000.audio.loudness;
+
+import com.github.RocketSmash9000.audio.dsp.DspKernels;
+
+import java.util.Arrays;
+
+/**
+ * Integrated loudness meter following ITU-R BS.1770-4 / EBU R128:
+ * K-weighting, 400 ms blocks with 75% overlap, an absolute gate at -70 LUFS and a relative gate at -10 LU.
+ * Also tracks the sample peak. Not thread-safe; feed it from a single thread.
+ */
+public class LoudnessMeter {
+	private static final double ABSOLUTE_GATE_LUFS = -70.0;
+	private static final double RELATIVE_GATE_LU = -10.0;
+	private static final int SUB_BLOCKS_PER_BLOCK = 4; // 400 ms blocks made of 100 ms steps
+
+	private final int channels;
+	private final int subBlockFrames;
+	// Two cascaded biquads per channel: high-shelf "pre-filter" then the RLB high-pass
+	private final double[] shelfB = new double[3];
+	private final double[] shelfA = new double[3];
+	private final double[] highPassA = new double[3];
+	private final double[][] state;
+
+	private final double[] subBlockEnergy = new double[SUB_BLOCKS_PER_BLOCK];
+	private double currentEnergy;
+	private int currentFrames;
+	private long subBlocks;
+	private double[] blockEnergies = new double[256];
+	private int blockCount;
+	private double peak;
+	private final DspKernels kernels = DspKernels.get();
+
+	/**
+	 * Creates a meter for interleaved audio with the given layout.
+	 * @param sampleRate The sample rate in Hz
+	 * @param channels The number of interleaved channels
+	 */
+	public LoudnessMeter(double sampleRate, int channels) {
+		if (sampleRate <= 0 || channels <= 0) {
+			throw new IllegalArgumentException("Invalid audio layout: " + sampleRate + " Hz, " + channels + " channels");
+		}
+		this.channels = channels;
+		this.subBlockFrames = Math.max(1, (int) Math.round(sampleRate / 10.0));
+		this.state = new double[channels][8];
+
+		// Coefficients from the BS.1770 filter definitions, re-derived for any sample rate
+		double f0 = 1681.974450955533;
+		double gain = 3.999843853973347;
+		double q = 0.7071752369554196;
+		double k = Math.tan(Math.PI * f0 / sampleRate);
+		double vh = Math.pow(10.0, gain / 20.0);
+		double vb = Math.pow(vh, 0.4996667741545416);
+		double a0 = 1.0 + k / q + k * k;
+		shelfB[0] = (vh + vb * k / q + k * k) / a0;
+		shelfB[1] = 2.0 * (k * k - vh) / a0;
+		shelfB[2] = (vh - vb * k / q + k * k) / a0;
+		shelfA[1] = 2.0 * (k * k - 1.0) / a0;
+		shelfA[2] = (1.0 - k / q + k * k) / a0;
+
+		f0 = 38.13547087602444;
+		q = 0.5003270373238773;
+		k = Math.tan(Math.PI * f0 / sampleRate);
+		a0 = 1.0 + k / q + k * k;
+		highPassA[1] = 2.0 * (k * k - 1.0) / a0;
+		highPassA[2] = (1.0 - k / q + k * k) / a0;
+	}
+
+	/**
+	 * Feeds interleaved samples in the range [-1, 1].
+	 * @param samples Interleaved samples
+	 * @param frames The number of frames to consume from the start of the array
+	 */
+	public void process(float[] samples, int frames) {
+		// The filters are recursive and stay scalar, but the peak scan is a separate SIMD pass
+		peak = Math.max(peak, kernels.peak(samples, frames * channels));
+		for (int f = 0; f < frames; f++) {
+			int base = f * channels;
+			double frameEnergy = 0;
+			for (int ch = 0; ch < channels; ch++) {
+				double x = samples[base + ch];
+
+				double[] s = state[ch];
+				// Direct form I, shelf stage
+				double y1 = shelfB[0] * x + shelfB[1] * s[0] + shelfB[2] * s[1] - shelfA[1] * s[2] - shelfA[2] * s[3];
+				s[1] = s[0];
+				s[0] = x;
+				s[3] = s[2];
+				s[2] = y1;
+				// High-pass stage (numerator is 1, -2, 1)
+				double y2 = y1 - 2.0 * s[4] + s[5] - highPassA[1] * s[6] - highPassA[2] * s[7];
+				s[5] = s[4];
+				s[4] = y1;
+				s[7] = s[6];
+				s[6] = y2;
+
+				// Channel weights are 1.0 for L, R and C; surround channels are rare enough to ignore here
+				frameEnergy += y2 * y2;
+			}
+			currentEnergy += frameEnergy;
+			if (++currentFrames == subBlockFrames) {
+				finishSubBlock();
+			}
+		}
+	}
+
+	private void finishSubBlock() {
+		subBlockEnergy[(int) (subBlocks % SUB_BLOCKS_PER_BLOCK)] = currentEnergy;
+		subBlocks++;
+		currentEnergy = 0;
+		currentFrames = 0;
+
+		if (subBlocks >= SUB_BLOCKS_PER_BLOCK) {
+			double sum = 0;
+			for (double e : subBlockEnergy) sum += e;
+			if (blockCount == blockEnergies.length) {
+				blockEnergies = Arrays.copyOf(blockEnergies, blockCount * 2);
+			}
+			blockEnergies[blockCount++] = sum / (SUB_BLOCKS_PER_BLOCK * subBlockFrames);
+		}
+	}
+
+	/**
+	 * @return The gated integrated loudness in LUFS, or negative infinity if everything was below the gate
+	 */
+	public double getIntegratedLoudness() {
+		double absoluteThreshold = energyOf(ABSOLUTE_GATE_LUFS);
+		double sum = 0;
+		int count = 0;
+		for (int i = 0; i < blockCount; i++) {
+			if (blockEnergies[i] > absoluteThreshold) {
+				sum += blockEnergies[i];
+				count++;
+			}
+		}
+		if (count == 0) {
+			return Double.NEGATIVE_INFINITY;
+		}
+
+		double relativeThreshold = energyOf(loudnessOf(sum / count) + RELATIVE_GATE_LU);
+		double gatedSum = 0;
+		int gatedCount = 0;
+		for (int i = 0; i < blockCount; i++) {
+			if (blockEnergies[i] > absoluteThreshold && blockEnergies[i] > relativeThreshold) {
+				gatedSum += blockEnergies[i];
+				gatedCount++;
+			}
+		}
+		return gatedCount == 0 ? Double.NEGATIVE_INFINITY : loudnessOf(gatedSum / gatedCount);
+	}
+
+	/**
+	 * @return The highest absolute sample value seen, as a linear amplitude
+	 */
+	public double getPeak() {
+		return peak;
+	}
+
+	private static double loudnessOf(double energy) {
+		return -0.691 + 10.0 * Math.log10(energy);
+	}
+
+	private static double energyOf(double loudness) {
+		return Math.pow(10.0, (loudness + 0.691) / 10.0);
+	}
+}
@@ -0,0 +1,37 @@
+package com.github.RocketSmash9000.audio.loudness;
+
+/**
+ * Loudness information for one track.
+ *
+ * @param integratedLufs Integrated loudness in LUFS
+ * @param peak Sample peak as a linear amplitude (1.0 = full scale)
+ * @param source Where the values came from
+ */
+public record LoudnessResult(double integratedLufs, double peak, Source source) {
+
+	public enum Source {
+		/** Measured by {@link LoudnessMeter}. */
+		ANALYZED,
+		/** Read from ReplayGain tags in the file. */
+		REPLAYGAIN_TAG
+	}
+
+	/**
+	 * Computes the linear gain that brings this track to the target loudness
+	 * without pushing its peak above full scale.
+	 *
+	 * @param targetLufs The target loudness, e.g. -18 LUFS for ReplayGain 2.0
+	 * @return A linear gain factor
+	 */
+	public double gainFactor(double targetLufs) {
+		if (!Double.isFinite(integratedLufs) || integratedLufs < -70.0) {
+			// Silent (or nearly silent) tracks are left alone
+			return 1.0;
+		}
+		double gainDb = targetLufs - integratedLufs;
+		if (peak > 0) {
+			gainDb = Math.min(gainDb, -20.0 * Math.log10(peak));
+		}
+		return Math.pow(10.0, gainDb / 20.0);
+	}
+}
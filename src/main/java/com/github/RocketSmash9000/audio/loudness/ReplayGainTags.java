@@ -0,0 +1,124 @@
+package com.github.RocketSmash9000.audio.loudness;
+
+import com.github.RocketSmash9000.audio.playback.FlacDecoder;
+import com.mpatric.mp3agic.ID3v2;
+import com.mpatric.mp3agic.ID3v2Frame;
+import com.mpatric.mp3agic.ID3v2FrameSet;
+import com.mpatric.mp3agic.Mp3File;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads existing ReplayGain track tags from MP3 (ID3v2 TXXX frames) and FLAC (Vorbis comments) files.
+ */
+public class ReplayGainTags {
+	/** ReplayGain 2.0 normalizes to this loudness; a tag's gain is relative to it. */
+	public static final double REFERENCE_LUFS = -18.0;
+
+	private static final String TRACK_GAIN = "REPLAYGAIN_TRACK_GAIN";
+	private static final String TRACK_PEAK = "REPLAYGAIN_TRACK_PEAK";
+
+	/**
+	 * Reads the track gain and peak tags of the given file.
+	 * @param file The audio file
+	 * @return The loudness implied by the tags, or null if the file has no usable ReplayGain tags
+	 */
+	public static LoudnessResult read(File file) {
+		String name = file.getName().toLowerCase(Locale.ROOT);
+		Map<String, String> tags;
+		try {
+			if (name.endsWith(".mp3")) {
+				tags = readId3UserText(file);
+			} else if (name.endsWith(".flac")) {
+				try (FlacDecoder decoder = new FlacDecoder(file)) {
+					tags = decoder.getComments();
+				}
+			} else {
+				return null;
+			}
+		} catch (Exception e) {
+			// Unreadable tags just mean the track gets analyzed instead
+			return null;
+		}
+		return fromTags(tags);
+	}
+
+	/**
+	 * Converts ReplayGain tag values into a loudness result.
+	 * @param tags Tags with upper-case keys
+	 * @return The result, or null if there is no parsable track gain
+	 */
+	static LoudnessResult fromTags(Map<String, String> tags) {
+		Double gain = parseNumber(tags.get(TRACK_GAIN));
+		if (gain == null) {
+			return null;
+		}
+		Double peak = parseNumber(tags.get(TRACK_PEAK));
+		return new LoudnessResult(REFERENCE_LUFS - gain, peak != null ? peak : 0.0,
+				LoudnessResult.Source.REPLAYGAIN_TAG);
+	}
+
+	private static Double parseNumber(String value) {
+		if (value == null) {
+			return null;
+		}
+		String trimmed = value.trim();
+		if (trimmed.toLowerCase(Locale.ROOT).endsWith("db")) {
+			trimmed = trimmed.substring(0, trimmed.length() - 2).trim();
+		}
+		try {
+			return Double.parseDouble(trimmed);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static Map<String, String> readId3UserText(File file) throws Exception {
+		Map<String, String> tags = new HashMap<>();
+		Mp3File mp3 = new Mp3File(file);
+		if (!mp3.hasId3v2Tag()) {
+			return tags;
+		}
+		ID3v2 id3 = mp3.getId3v2Tag();
+		ID3v2FrameSet frames = id3.getFrameSets().get("TXXX");
+		if (frames == null) {
+			return tags;
+		}
+		for (ID3v2Frame frame : frames.getFrames()) {
+			byte[] data = frame.getData();
+			if (data == null || data.length < 2) continue;
+			Charset charset = switch (data[0]) {
+				case 1 -> StandardCharsets.UTF_16;
+				case 2 -> StandardCharsets.UTF_16BE;
+				case 3 -> StandardCharsets.UTF_8;
+				default -> StandardCharsets.ISO_8859_1;
+			};
+			boolean wide = data[0] == 1 || data[0] == 2;
+			int terminator = findTerminator(data, 1, wide);
+			if (terminator < 0) continue;
+			String description = new String(data, 1, terminator - 1, charset);
+			int valueStart = terminator + (wide ? 2 : 1);
+			String value = new String(data, valueStart, data.length - valueStart, charset);
+			tags.put(description.trim().toUpperCase(Locale.ROOT), value.replace("\0", ""));
+		}
+		return tags;
+	}
+
+	private static int findTerminator(byte[] data, int start, boolean wide) {
+		if (wide) {
+			for (int i = start; i + 1 < data.length; i += 2) {
+				if (data[i] == 0 && data[i + 1] == 0) return i;
+			}
+		} else {
+			for (int i = start; i < data.length; i++) {
+				if (data[i] == 0) return i;
+			}
+		}
+		return -1;
+	}
+}
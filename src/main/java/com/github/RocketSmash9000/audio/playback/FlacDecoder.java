@@ -0,0 +1,481 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Pure-Java FLAC decoder.
+ * Supports all subframe types (constant, verbatim, fixed and LPC), both Rice partition
+ * variants and every stereo decorrelation mode. Frame CRCs are not verified.
+ * Output is signed little-endian PCM at 8, 16, 24 or 32 bits per sample.
+ */
+public class FlacDecoder implements PcmDecoder {
+	private static final int[] SAMPLE_RATES = {
+			0, 88200, 176400, 192000, 8000, 16000, 22050, 24000, 32000, 44100, 48000, 96000
+	};
+	private static final int[] SAMPLE_SIZES = {0, 8, 12, 0, 16, 20, 24, 32};
+
+	private final BitReader in;
+	private final int sampleRate;
+	private final int channels;
+	private final int bitsPerSample;
+	private final int outputBytesPerSample;
+	private final long totalFrames;
+	private final AudioFormat format;
+	private final Map<String, String> comments;
+
+	private int[][] samples;
+	private byte[] pending = new byte[0];
+	private int pendingOffset;
+	private int pendingLength;
+	private boolean finished;
+
+	/**
+	 * Opens the given FLAC file and parses its metadata blocks.
+	 * @param file The file to decode
+	 * @throws IOException if the file cannot be read or isn't a FLAC file
+	 */
+	public FlacDecoder(File file) throws IOException {
+		this(Files.newInputStream(file.toPath()));
+	}
+
+	/**
+	 * Parses FLAC metadata from the given stream. The stream is closed with the decoder.
+	 * @param input The stream positioned at the "fLaC" marker
+	 * @throws IOException if the stream isn't a FLAC stream
+	 */
+	public FlacDecoder(InputStream input) throws IOException {
+		this.in = new BitReader(new BufferedInputStream(input, 64 * 1024));
+		try {
+			if (in.readBits(32) != 0x664C6143 /* fLaC */) {
+				throw new IOException("Not a FLAC stream");
+			}
+
+			int rate = 0;
+			int channelCount = 0;
+			int bits = 0;
+			long frames = -1;
+			boolean sawStreamInfo = false;
+			Map<String, String> parsedComments = new LinkedHashMap<>();
+
+			boolean last = false;
+			while (!last) {
+				last = in.readBits(1) == 1;
+				int type = in.readBits(7);
+				int length = in.readBits(24);
+				if (type == 0) {
+					in.readBits(16); // min block size
+					in.readBits(16); // max block size
+					in.readBits(24); // min frame size
+					in.readBits(24); // max frame size
+					rate = in.readBits(20);
+					channelCount = in.readBits(3) + 1;
+					bits = in.readBits(5) + 1;
+					frames = ((long) in.readBits(4) << 32) | (in.readBits(32) & 0xFFFFFFFFL);
+					in.skipBytes(16); // MD5
+					in.skipBytes(length - 34);
+					sawStreamInfo = true;
+				} else if (type == 4) {
+					readVorbisComments(length, parsedComments);
+				} else {
+					in.skipBytes(length);
+				}
+			}
+			if (!sawStreamInfo) {
+				throw new IOException("FLAC stream has no STREAMINFO block");
+			}
+
+			this.sampleRate = rate;
+			this.channels = channelCount;
+			this.bitsPerSample = bits;
+			this.totalFrames = frames == 0 ? -1 : frames;
+			this.outputBytesPerSample = bits <= 8 ? 1 : bits <= 16 ? 2 : bits <= 24 ? 3 : 4;
+			this.comments = Collections.unmodifiableMap(parsedComments);
+			this.format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sampleRate, outputBytesPerSample * 8,
+					channels, channels * outputBytesPerSample, sampleRate, false);
+		} catch (EOFException e) {
+			in.close();
+			throw new IOException("Truncated FLAC header", e);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	private void readVorbisComments(int length, Map<String, String> target) throws IOException {
+		byte[] block = new byte[length];
+		in.readFully(block);
+		int pos = 0;
+		int vendorLength = readIntLE(block, pos);
+		pos += 4 + vendorLength;
+		int count = readIntLE(block, pos);
+		pos += 4;
+		for (int i = 0; i < count && pos + 4 <= block.length; i++) {
+			int entryLength = readIntLE(block, pos);
+			pos += 4;
+			if (entryLength < 0 || pos + entryLength > block.length) {
+				break;
+			}
+			String entry = new String(block, pos, entryLength, StandardCharsets.UTF_8);
+			pos += entryLength;
+			int eq = entry.indexOf('=');
+			if (eq > 0) {
+				target.putIfAbsent(entry.substring(0, eq).toUpperCase(Locale.ROOT), entry.substring(eq + 1));
+			}
+		}
+	}
+
+	private static int readIntLE(byte[] b, int pos) {
+		return (b[pos] & 0xFF) | (b[pos + 1] & 0xFF) << 8 | (b[pos + 2] & 0xFF) << 16 | (b[pos + 3] & 0xFF) << 24;
+	}
+
+	@Override
+	public AudioFormat getFormat() {
+		return format;
+	}
+
+	@Override
+	public long getTotalFrames() {
+		return totalFrames;
+	}
+
+	/**
+	 * Gets the Vorbis comments (tags) stored in the file. Keys are upper-cased.
+	 * @return An unmodifiable map of tags
+	 */
+	public Map<String, String> getComments() {
+		return comments;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		int frameSize = format.getFrameSize();
+		length -= length % frameSize;
+		int total = 0;
+		while (total < length) {
+			if (pendingLength == 0) {
+				if (finished || !decodeFrame()) {
+					finished = true;
+					break;
+				}
+			}
+			int n = Math.min(length - total, pendingLength);
+			System.arraycopy(pending, pendingOffset, buffer, offset + total, n);
+			pendingOffset += n;
+			pendingLength -= n;
+			total += n;
+		}
+		return total == 0 && finished ? -1 : total;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Decodes the next frame into the pending output buffer.
+	 * @return false at the end of the stream
+	 */
+	private boolean decodeFrame() throws IOException {
+		int sync;
+		try {
+			sync = in.readBits(15);
+		} catch (EOFException e) {
+			return false;
+		}
+		if (sync != 0x7FFC) {
+			throw new IOException("Lost FLAC frame sync");
+		}
+		in.readBits(1); // blocking strategy
+		int blockSizeCode = in.readBits(4);
+		int sampleRateCode = in.readBits(4);
+		int channelAssignment = in.readBits(4);
+		int sampleSizeCode = in.readBits(3);
+		in.readBits(1); // reserved
+		readUtf8Number();
+
+		int blockSize;
+		if (blockSizeCode == 1) {
+			blockSize = 192;
+		} else if (blockSizeCode >= 2 && blockSizeCode <= 5) {
+			blockSize = 576 << (blockSizeCode - 2);
+		} else if (blockSizeCode == 6) {
+			blockSize = in.readBits(8) + 1;
+		} else if (blockSizeCode == 7) {
+			blockSize = in.readBits(16) + 1;
+		} else if (blockSizeCode >= 8) {
+			blockSize = 256 << (blockSizeCode - 8);
+		} else {
+			throw new IOException("Reserved FLAC block size");
+		}
+
+		if (sampleRateCode == 12) {
+			in.readBits(8);
+		} else if (sampleRateCode == 13 || sampleRateCode == 14) {
+			in.readBits(16);
+		} else if (sampleRateCode == 15) {
+			throw new IOException("Invalid FLAC sample rate code");
+		}
+
+		int frameBits = sampleSizeCode == 0 ? bitsPerSample : SAMPLE_SIZES[sampleSizeCode];
+		if (frameBits == 0) {
+			throw new IOException("Reserved FLAC sample size");
+		}
+		in.readBits(8); // CRC-8
+
+		int frameChannels = channelAssignment < 8 ? channelAssignment + 1 : 2;
+		if (channelAssignment > 10 || frameChannels != channels) {
+			throw new IOException("Unsupported FLAC channel assignment: " + channelAssignment);
+		}
+		if (samples == null || samples[0].length < blockSize) {
+			samples = new int[channels][blockSize];
+		}
+
+		for (int ch = 0; ch < channels; ch++) {
+			// The side channel carries one extra bit
+			int bits = frameBits;
+			if ((channelAssignment == 8 || channelAssignment == 10) && ch == 1) bits++;
+			if (channelAssignment == 9 && ch == 0) bits++;
+			decodeSubframe(samples[ch], blockSize, bits);
+		}
+		in.alignToByte();
+		in.readBits(16); // CRC-16
+
+		decorrelate(channelAssignment, blockSize);
+		writePending(blockSize, frameBits);
+		return true;
+	}
+
+	private void readUtf8Number() throws IOException {
+		int first = in.readBits(8);
+		int extra = 0;
+		for (int mask = 0x80; (first & mask) != 0 && mask > 1; mask >>= 1) {
+			extra++;
+		}
+		for (int i = 1; i < extra; i++) {
+			in.readBits(8);
+		}
+	}
+
+	private void decodeSubframe(int[] out, int blockSize, int bits) throws IOException {
+		in.readBits(1); // padding
+		int type = in.readBits(6);
+		int wasted = 0;
+		if (in.readBits(1) == 1) {
+			wasted = in.readUnary() + 1;
+			bits -= wasted;
+		}
+
+		if (type == 0) {
+			int value = in.readSignedBits(bits);
+			for (int i = 0; i < blockSize; i++) out[i] = value;
+		} else if (type == 1) {
+			for (int i = 0; i < blockSize; i++) out[i] = in.readSignedBits(bits);
+		} else if (type >= 8 && type <= 12) {
+			decodeFixed(out, blockSize, bits, type & 7);
+		} else if (type >= 32) {
+			decodeLpc(out, blockSize, bits, (type & 31) + 1);
+		} else {
+			throw new IOException("Reserved FLAC subframe type: " + type);
+		}
+
+		if (wasted > 0) {
+			for (int i = 0; i < blockSize; i++) out[i] <<= wasted;
+		}
+	}
+
+	private void decodeFixed(int[] out, int blockSize, int bits, int order) throws IOException {
+		for (int i = 0; i < order; i++) out[i] = in.readSignedBits(bits);
+		decodeResidual(out, blockSize, order);
+		for (int i = order; i < blockSize; i++) {
+			switch (order) {
+				case 1 -> out[i] += out[i - 1];
+				case 2 -> out[i] += 2 * out[i - 1] - out[i - 2];
+				case 3 -> out[i] += 3 * out[i - 1] - 3 * out[i - 2] + out[i - 3];
+				case 4 -> out[i] += 4 * out[i - 1] - 6 * out[i - 2] + 4 * out[i - 3] - out[i - 4];
+				default -> { /* order 0: residual is the signal */ }
+			}
+		}
+	}
+
+	private void decodeLpc(int[] out, int blockSize, int bits, int order) throws IOException {
+		for (int i = 0; i < order; i++) out[i] = in.readSignedBits(bits);
+		int precision = in.readBits(4) + 1;
+		if (precision == 16) {
+			throw new IOException("Invalid FLAC LPC precision");
+		}
+		int shift = in.readSignedBits(5);
+		if (shift < 0) {
+			throw new IOException("Negative FLAC LPC shift");
+		}
+		int[] coefficients = new int[order];
+		for (int i = 0; i < order; i++) coefficients[i] = in.readSignedBits(precision);
+		decodeResidual(out, blockSize, order);
+		for (int i = order; i < blockSize; i++) {
+			long sum = 0;
+			for (int j = 0; j < order; j++) {
+				sum += (long) coefficients[j] * out[i - j - 1];
+			}
+			out[i] += (int) (sum >> shift);
+		}
+	}
+
+	private void decodeResidual(int[] out, int blockSize, int order) throws IOException {
+		int method = in.readBits(2);
+		if (method > 1) {
+			throw new IOException("Reserved FLAC residual coding method");
+		}
+		int paramBits = method == 0 ? 4 : 5;
+		int escape = method == 0 ? 15 : 31;
+		int partitionOrder = in.readBits(4);
+		int partitions = 1 << partitionOrder;
+		int partitionSize = blockSize >> partitionOrder;
+
+		int i = order;
+		for (int p = 0; p < partitions; p++) {
+			int count = p == 0 ? partitionSize - order : partitionSize;
+			int param = in.readBits(paramBits);
+			if (param == escape) {
+				int rawBits = in.readBits(5);
+				for (int end = i + count; i < end; i++) {
+					out[i] = rawBits == 0 ? 0 : in.readSignedBits(rawBits);
+				}
+			} else {
+				for (int end = i + count; i < end; i++) {
+					out[i] = in.readRice(param);
+				}
+			}
+		}
+	}
+
+	private void decorrelate(int channelAssignment, int blockSize) {
+		if (channelAssignment < 8) {
+			return;
+		}
+		int[] a = samples[0];
+		int[] b = samples[1];
+		for (int i = 0; i < blockSize; i++) {
+			switch (channelAssignment) {
+				case 8 -> b[i] = a[i] - b[i]; // left/side
+				case 9 -> a[i] = a[i] + b[i]; // side/right
+				default -> { // mid/side
+					int side = b[i];
+					int mid = (a[i] << 1) | (side & 1);
+					a[i] = (mid + side) >> 1;
+					b[i] = (mid - side) >> 1;
+				}
+			}
+		}
+	}
+
+	private void writePending(int blockSize, int frameBits) {
+		int needed = blockSize * channels * outputBytesPerSample;
+		if (pending.length < needed) {
+			pending = new byte[needed];
+		}
+		int shift = outputBytesPerSample * 8 - frameBits;
+		int pos = 0;
+		for (int i = 0; i < blockSize; i++) {
+			for (int ch = 0; ch < channels; ch++) {
+				int value = samples[ch][i] << shift;
+				for (int b = 0; b < outputBytesPerSample; b++) {
+					pending[pos++] = (byte) (value >> (8 * b));
+				}
+			}
+		}
+		pendingOffset = 0;
+		pendingLength = needed;
+	}
+
+	/**
+	 * MSB-first bit reader over a byte stream.
+	 */
+	private static final class BitReader {
+		private final InputStream in;
+		private long cache;
+		private int cacheBits;
+
+		BitReader(InputStream in) {
+			this.in = in;
+		}
+
+		int readBits(int n) throws IOException {
+			if (n == 0) {
+				return 0;
+			}
+			while (cacheBits < n) {
+				int b = in.read();
+				if (b < 0) {
+					throw new EOFException();
+				}
+				cache = (cache << 8) | b;
+				cacheBits += 8;
+			}
+			cacheBits -= n;
+			return (int) ((cache >>> cacheBits) & ((1L << n) - 1));
+		}
+
+		int readSignedBits(int n) throws IOException {
+			if (n == 0) {
+				return 0;
+			}
+			int value = readBits(n);
+			return (value << (32 - n)) >> (32 - n);
+		}
+
+		int readUnary() throws IOException {
+			int count = 0;
+			while (readBits(1) == 0) {
+				count++;
+			}
+			return count;
+		}
+
+		int readRice(int param) throws IOException {
+			int quotient = readUnary();
+			int value = (quotient << param) | readBits(param);
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		void alignToByte() {
+			cacheBits -= cacheBits % 8;
+		}
+
+		void readFully(byte[] target) throws IOException {
+			for (int i = 0; i < target.length; i++) {
+				target[i] = (byte) readBits(8);
+			}
+		}
+
+		void skipBytes(long count) throws IOException {
+			for (; count > 0 && cacheBits >= 8; count--) {
+				readBits(8);
+			}
+			while (count > 0) {
+				long skipped = in.skip(count);
+				if (skipped <= 0) {
+					if (in.read() < 0) {
+						throw new EOFException();
+					}
+					skipped = 1;
+				}
+				count -= skipped;
+			}
+		}
+
+		void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * {@link TrackPlayer} backed by a JavaFX {@link MediaPlayer}.
+ */
+public class JavaFxTrackPlayer implements TrackPlayer {
+	private final MediaPlayer mediaPlayer;
+
+	/**
+	 * Creates a media player for the given track.
+	 * @param track The audio file to play
+	 */
+	public JavaFxTrackPlayer(File track) {
+		Media media = new Media(track.toURI().toString());
+		this.mediaPlayer = new MediaPlayer(media);
+	}
+
+	/**
+	 * Checks whether JavaFX can play the given file. JavaFX has no FLAC or Ogg support.
+	 * @param file The audio file
+	 * @return true if the file can be played with a MediaPlayer
+	 */
+	public static boolean supports(File file) {
+		String name = file.getName().toLowerCase(Locale.ROOT);
+		return !name.endsWith(".flac") && !name.endsWith(".ogg");
+	}
+
+	@Override
+	public void setOnReady(Runnable onReady) {
+		mediaPlayer.setOnReady(onReady);
+	}
+
+	@Override
+	public void setOnEndOfMedia(Runnable onEndOfMedia) {
+		mediaPlayer.setOnEndOfMedia(onEndOfMedia);
+	}
+
+	@Override
+	public void setOnError(Runnable onError) {
+		mediaPlayer.setOnError(onError);
+	}
+
+	@Override
+	public void play() {
+		mediaPlayer.play();
+	}
+
+	@Override
+	public void pause() {
+		mediaPlayer.pause();
+	}
+
+	@Override
+	public void dispose() {
+		mediaPlayer.stop();
+		mediaPlayer.dispose();
+	}
+
+	@Override
+	public void setVolume(double volume) {
+		mediaPlayer.setVolume(volume);
+	}
+
+	@Override
+	public double getProgress() {
+		return mediaPlayer.getCurrentTime().toMillis() / mediaPlayer.getTotalDuration().toMillis();
+	}
+
+	@Override
+	public boolean isSeekable() {
+		return true;
+	}
+
+	@Override
+	public void seek(double fraction) {
+		Duration total = mediaPlayer.getTotalDuration();
+		if (total != null && !total.isUnknown() && !total.isIndefinite()) {
+			mediaPlayer.seek(total.multiply(fraction));
+		}
+	}
+
+	@Override
+	public MediaPlayer getMediaPlayer() {
+		return mediaPlayer;
+	}
+}
@@ -0,0 +1,70 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sink that discards all audio as fast as it is written.
+ * Used to run the playback engine without an audio device, e.g. in tests or for decode benchmarks.
+ */
+public class NullSink implements PcmSink {
+	private final AtomicLong bytesWritten = new AtomicLong();
+	private volatile AudioFormat format;
+	private volatile double volume = 1.0;
+	private volatile boolean closed;
+
+	@Override
+	public void open(AudioFormat format, int bufferBytes) {
+		this.format = format;
+	}
+
+	@Override
+	public int write(byte[] buffer, int offset, int length) {
+		bytesWritten.addAndGet(length);
+		return length;
+	}
+
+	@Override
+	public void start() {
+	}
+
+	@Override
+	public void pause() {
+	}
+
+	@Override
+	public void drain() {
+	}
+
+	@Override
+	public void setVolume(double volume) {
+		this.volume = volume;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+	}
+
+	/**
+	 * @return The total number of bytes written so far
+	 */
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+
+	/**
+	 * @return The format the sink was opened with, or null if it hasn't been opened
+	 */
+	public AudioFormat getFormat() {
+		return format;
+	}
+
+	public double getVolume() {
+		return volume;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+}
@@ -0,0 +1,32 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Decodes an audio file into interleaved PCM frames.
+ */
+public interface PcmDecoder extends Closeable {
+
+	/**
+	 * @return The format of the PCM data returned by {@link #read}
+	 */
+	AudioFormat getFormat();
+
+	/**
+	 * @return The total number of frames in the stream, or -1 if unknown
+	 */
+	long getTotalFrames();
+
+	/**
+	 * Reads decoded PCM data. Only whole frames are ever returned.
+	 *
+	 * @param buffer The destination buffer
+	 * @param offset The offset into the buffer
+	 * @param length The maximum number of bytes to read
+	 * @return The number of bytes read, or -1 at the end of the stream
+	 * @throws IOException if the stream is corrupt or cannot be read
+	 */
+	int read(byte[] buffer, int offset, int length) throws IOException;
+}
@@ -0,0 +1,38 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Picks a {@link PcmDecoder} for an audio file based on its extension.
+ */
+public class PcmDecoders {
+
+	/**
+	 * Checks whether a pure-Java decoder exists for the given file.
+	 * @param file The audio file
+	 * @return true if {@link #open(File)} can decode it
+	 */
+	public static boolean supports(File file) {
+		String name = file.getName().toLowerCase(Locale.ROOT);
+		return name.endsWith(".wav") || name.endsWith(".flac");
+	}
+
+	/**
+	 * Opens a decoder for the given file.
+	 * @param file The audio file
+	 * @return A decoder positioned at the first frame
+	 * @throws IOException if the file cannot be read or its format isn't supported
+	 */
+	public static PcmDecoder open(File file) throws IOException {
+		String name = file.getName().toLowerCase(Locale.ROOT);
+		if (name.endsWith(".wav")) {
+			return new WavDecoder(file);
+		}
+		if (name.endsWith(".flac")) {
+			return new FlacDecoder(file);
+		}
+		throw new IOException("No PCM decoder for " + file.getName());
+	}
+}
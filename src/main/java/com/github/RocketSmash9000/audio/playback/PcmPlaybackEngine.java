@@ -0,0 +1,263 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Plays a {@link PcmDecoder} into a {@link PcmSink} using two threads:
+ * a decoder thread that fills a {@link PcmRingBuffer} and an output thread that drains it into the sink.
+ * The threads only communicate through the lock-free ring buffer and a few volatile flags.
+ * <p>
+ * Callbacks are invoked on the engine's own threads; callers that touch the UI must marshal them.
+ */
+public class PcmPlaybackEngine {
+	/** Default amount of decoded audio kept ahead of the output, in milliseconds. */
+	public static final int DEFAULT_BUFFER_MILLIS = 500;
+	/** Default size of the device buffer, in milliseconds. */
+	public static final int DEFAULT_LINE_BUFFER_MILLIS = 100;
+
+	private static final int CHUNK_MILLIS = 20;
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+	private final PcmDecoder decoder;
+	private final PcmSink sink;
+	private final AudioFormat format;
+	private final PcmRingBuffer ring;
+	private final int lineBufferBytes;
+	private final int chunkBytes;
+
+	private volatile boolean paused;
+	private volatile boolean stopped;
+	private volatile boolean decoderFinished;
+	private volatile boolean failed;
+	private volatile long framesPlayed;
+	private volatile Runnable onEnd;
+	private volatile Consumer<Exception> onError;
+
+	private Thread decoderThread;
+	private Thread outputThread;
+
+	/**
+	 * Creates an engine with the default buffer sizes.
+	 */
+	public PcmPlaybackEngine(PcmDecoder decoder, PcmSink sink) {
+		this(decoder, sink, DEFAULT_BUFFER_MILLIS, DEFAULT_LINE_BUFFER_MILLIS);
+	}
+
+	/**
+	 * Creates an engine.
+	 *
+	 * @param decoder The decoder to play; closed when the engine stops
+	 * @param sink The sink to play into; closed when the engine stops
+	 * @param bufferMillis How much decoded audio the ring buffer holds
+	 * @param lineBufferMillis How much audio the sink's device buffer holds
+	 * @throws IllegalArgumentException if a buffer size is not positive
+	 */
+	public PcmPlaybackEngine(PcmDecoder decoder, PcmSink sink, int bufferMillis, int lineBufferMillis) {
+		this.decoder = Objects.requireNonNull(decoder, "Decoder cannot be null");
+		this.sink = Objects.requireNonNull(sink, "Sink cannot be null");
+		if (bufferMillis <= 0 || lineBufferMillis <= 0) {
+			throw new IllegalArgumentException("Buffer sizes must be positive");
+		}
+		this.format = decoder.getFormat();
+		int bytesPerMilli = Math.max(1, (int) Math.ceil(format.getFrameRate() * format.getFrameSize() / 1000.0));
+		this.ring = new PcmRingBuffer(bytesPerMilli * bufferMillis);
+		this.lineBufferBytes = bytesPerMilli * lineBufferMillis;
+		int chunk = bytesPerMilli * CHUNK_MILLIS;
+		this.chunkBytes = Math.max(format.getFrameSize(), chunk - chunk % format.getFrameSize());
+	}
+
+	/**
+	 * Opens the sink and starts decoding and playback.
+	 * @throws IOException if the sink cannot be opened
+	 * @throws IllegalStateException if the engine was already started
+	 */
+	public synchronized void start() throws IOException {
+		if (decoderThread != null) {
+			throw new IllegalStateException("Engine already started");
+		}
+		sink.open(format, lineBufferBytes);
+		if (!paused) {
+			sink.start();
+		}
+		decoderThread = new Thread(this::decodeLoop, "trim-pcm-decoder");
+		outputThread = new Thread(this::outputLoop, "trim-pcm-output");
+		decoderThread.setDaemon(true);
+		outputThread.setDaemon(true);
+		decoderThread.start();
+		outputThread.start();
+	}
+
+	/**
+	 * Pauses output. Decoding continues until the ring buffer is full.
+	 */
+	public synchronized void pause() {
+		if (paused || stopped) return;
+		paused = true;
+		if (outputThread != null) {
+			sink.pause();
+		}
+	}
+
+	/**
+	 * Resumes output after {@link #pause()}.
+	 */
+	public synchronized void resume() {
+		if (!paused || stopped) return;
+		paused = false;
+		if (outputThread != null) {
+			sink.start();
+			LockSupport.unpark(outputThread);
+		}
+	}
+
+	/**
+	 * Stops playback, waits for both threads to exit and closes the decoder and sink.
+	 * Safe to call more than once and from any thread, including the engine's callbacks.
+	 */
+	public void stop() {
+		Thread decoding;
+		Thread output;
+		synchronized (this) {
+			if (stopped) return;
+			stopped = true;
+			decoding = decoderThread;
+			output = outputThread;
+		}
+		if (output != null) {
+			// Unblocks an output thread that is waiting inside a device write
+			sink.pause();
+		}
+		joinQuietly(decoding);
+		joinQuietly(output);
+		sink.close();
+		try {
+			decoder.close();
+		} catch (IOException e) {
+			System.err.println("Error closing decoder: " + e.getMessage());
+		}
+	}
+
+	private static void joinQuietly(Thread thread) {
+		if (thread == null || thread == Thread.currentThread()) return;
+		LockSupport.unpark(thread);
+		try {
+			thread.join(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public void setVolume(double volume) {
+		sink.setVolume(volume);
+	}
+
+	/**
+	 * @param onEnd Called once all audio has been played
+	 */
+	public void setOnEnd(Runnable onEnd) {
+		this.onEnd = onEnd;
+	}
+
+	/**
+	 * @param onError Called if decoding fails; {@code onEnd} is not called after an error
+	 */
+	public void setOnError(Consumer<Exception> onError) {
+		this.onError = onError;
+	}
+
+	public AudioFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return The number of frames handed to the sink so far
+	 */
+	public long getFramesPlayed() {
+		return framesPlayed;
+	}
+
+	/**
+	 * @return The total number of frames, or -1 if the decoder doesn't know
+	 */
+	public long getTotalFrames() {
+		return decoder.getTotalFrames();
+	}
+
+	public boolean isPaused() {
+		return paused;
+	}
+
+	private void decodeLoop() {
+		byte[] chunk = new byte[chunkBytes];
+		try {
+			while (!stopped) {
+				int n = decoder.read(chunk, 0, chunk.length);
+				if (n < 0) break;
+
+				int offset = 0;
+				while (offset < n && !stopped) {
+					int written = ring.write(chunk, offset, n - offset);
+					if (written == 0) {
+						LockSupport.parkNanos(IDLE_PARK_NANOS);
+					}
+					offset += written;
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			if (!stopped) {
+				failed = true;
+				Consumer<Exception> handler = onError;
+				if (handler != null) {
+					handler.accept(e);
+				} else {
+					System.err.println("PCM decoding failed: " + e.getMessage());
+				}
+			}
+		} finally {
+			decoderFinished = true;
+		}
+	}
+
+	private void outputLoop() {
+		byte[] chunk = new byte[chunkBytes];
+		int frameSize = format.getFrameSize();
+		while (!stopped) {
+			if (paused) {
+				LockSupport.park(this);
+				continue;
+			}
+
+			int available = ring.available();
+			if (available < frameSize) {
+				if (decoderFinished && ring.available() < frameSize) {
+					sink.drain();
+					Runnable handler = onEnd;
+					if (!stopped && !failed && handler != null) {
+						handler.run();
+					}
+					return;
+				}
+				LockSupport.parkNanos(IDLE_PARK_NANOS);
+				continue;
+			}
+
+			int wanted = Math.min(chunk.length, available - available % frameSize);
+			int n = ring.read(chunk, 0, wanted);
+			int offset = 0;
+			while (offset < n && !stopped) {
+				// A blocked write returns early when the sink is paused; wait here instead of spinning
+				if (paused) {
+					LockSupport.park(this);
+					continue;
+				}
+				offset += sink.write(chunk, offset, n - offset);
+			}
+			framesPlayed += n / frameSize;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer byte ring buffer for PCM data.
+ * Exactly one thread may call {@link #write} and exactly one (other) thread may call {@link #read}.
+ * Positions are monotonically increasing counters, so the buffer never needs a "full" flag.
+ */
+public class PcmRingBuffer {
+	private final byte[] buffer;
+	private final int mask;
+	private final AtomicLong writePosition = new AtomicLong();
+	private final AtomicLong readPosition = new AtomicLong();
+
+	/**
+	 * Creates a ring buffer that can hold at least the given number of bytes.
+	 * @param minCapacity The minimum capacity in bytes; rounded up to a power of two
+	 * @throws IllegalArgumentException if minCapacity is not positive
+	 */
+	public PcmRingBuffer(int minCapacity) {
+		if (minCapacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + minCapacity);
+		}
+		int capacity = Integer.highestOneBit(minCapacity);
+		if (capacity < minCapacity) {
+			capacity <<= 1;
+		}
+		this.buffer = new byte[capacity];
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Copies as many bytes as currently fit into the buffer. Never blocks.
+	 * Must only be called from the producer thread.
+	 * @return The number of bytes written, possibly 0 if the buffer is full
+	 */
+	public int write(byte[] src, int offset, int length) {
+		long write = writePosition.get();
+		long read = readPosition.getAcquire();
+		int count = (int) Math.min(length, buffer.length - (write - read));
+		if (count <= 0) {
+			return 0;
+		}
+
+		int index = (int) (write & mask);
+		int firstPart = Math.min(count, buffer.length - index);
+		System.arraycopy(src, offset, buffer, index, firstPart);
+		System.arraycopy(src, offset + firstPart, buffer, 0, count - firstPart);
+
+		writePosition.setRelease(write + count);
+		return count;
+	}
+
+	/**
+	 * Copies up to {@code length} bytes out of the buffer. Never blocks.
+	 * Must only be called from the consumer thread.
+	 * @return The number of bytes read, possibly 0 if the buffer is empty
+	 */
+	public int read(byte[] dst, int offset, int length) {
+		long read = readPosition.get();
+		long write = writePosition.getAcquire();
+		int count = (int) Math.min(length, write - read);
+		if (count <= 0) {
+			return 0;
+		}
+
+		int index = (int) (read & mask);
+		int firstPart = Math.min(count, buffer.length - index);
+		System.arraycopy(buffer, index, dst, offset, firstPart);
+		System.arraycopy(buffer, 0, dst, offset + firstPart, count - firstPart);
+
+		readPosition.setRelease(read + count);
+		return count;
+	}
+
+	/**
+	 * @return The number of bytes ready to be read
+	 */
+	public int available() {
+		return (int) (writePosition.getAcquire() - readPosition.getAcquire());
+	}
+
+	/**
+	 * @return The total capacity in bytes
+	 */
+	public int capacity() {
+		return buffer.length;
+	}
+}
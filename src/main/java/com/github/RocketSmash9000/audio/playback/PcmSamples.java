@@ -0,0 +1,41 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Conversion of raw little-endian integer PCM, as returned by {@link PcmDecoder}, to floats.
+ */
+public final class PcmSamples {
+	private PcmSamples() {
+	}
+
+	/**
+	 * Converts interleaved PCM bytes to samples between -1.0 and 1.0.
+	 *
+	 * @param format The format of the bytes; 8 to 32 bit integer PCM, little-endian
+	 * @param bytes The PCM data
+	 * @param length The number of valid bytes
+	 * @param samples Receives one float per sample; must hold {@code length / bytesPerSample} entries
+	 * @return The number of samples written
+	 */
+	public static int toFloats(AudioFormat format, byte[] bytes, int length, float[] samples) {
+		int bytesPerSample = format.getSampleSizeInBits() / 8;
+		boolean unsigned = format.getEncoding() == AudioFormat.Encoding.PCM_UNSIGNED;
+		float scale = 1.0f / (1L << (bytesPerSample * 8 - 1));
+		int count = length / bytesPerSample;
+		for (int i = 0, pos = 0; i < count; i++, pos += bytesPerSample) {
+			int value = 0;
+			for (int b = 0; b < bytesPerSample; b++) {
+				value |= (bytes[pos + b] & 0xFF) << (8 * b);
+			}
+			if (unsigned) {
+				value -= 1 << (bytesPerSample * 8 - 1);
+			} else {
+				int shift = 32 - bytesPerSample * 8;
+				value = (value << shift) >> shift;
+			}
+			samples[i] = value * scale;
+		}
+		return count;
+	}
+}
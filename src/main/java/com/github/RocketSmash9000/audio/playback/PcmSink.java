@@ -0,0 +1,49 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+
+/**
+ * Destination for decoded PCM data, e.g. a sound card line.
+ * All methods are called from the playback engine's output thread, except {@link #setVolume}.
+ */
+public interface PcmSink extends AutoCloseable {
+
+	/**
+	 * Opens the sink for the given format.
+	 * @param format The PCM format that will be written
+	 * @param bufferBytes The requested device buffer size in bytes
+	 * @throws IOException if the sink cannot be opened for this format
+	 */
+	void open(AudioFormat format, int bufferBytes) throws IOException;
+
+	/**
+	 * Writes whole frames, blocking until they have been accepted.
+	 * @return The number of bytes written
+	 */
+	int write(byte[] buffer, int offset, int length);
+
+	/**
+	 * Starts or resumes output.
+	 */
+	void start();
+
+	/**
+	 * Pauses output, keeping any buffered data.
+	 */
+	void pause();
+
+	/**
+	 * Blocks until all written data has been played.
+	 */
+	void drain();
+
+	/**
+	 * Sets the output volume.
+	 * @param volume Linear volume between 0.0 and 1.0
+	 */
+	void setVolume(double volume);
+
+	@Override
+	void close();
+}
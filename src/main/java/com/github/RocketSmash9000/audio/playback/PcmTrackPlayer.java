@@ -0,0 +1,98 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import javafx.application.Platform;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * {@link TrackPlayer} backed by a {@link PcmPlaybackEngine} playing through a {@link SourceDataLineSink}.
+ * Engine callbacks are marshalled onto the JavaFX Application Thread.
+ */
+public class PcmTrackPlayer implements TrackPlayer {
+	private final PcmPlaybackEngine engine;
+	private Runnable onReady;
+	private Runnable onEndOfMedia;
+	private Runnable onError;
+	private boolean started;
+	private boolean disposed;
+
+	/**
+	 * Opens the track and prepares an engine for it. {@code onReady} fires on the next FX pulse.
+	 *
+	 * @param track The audio file to play
+	 * @param bufferMillis How much decoded audio to keep ahead of the output
+	 * @param lineBufferMillis The size of the audio device buffer
+	 * @throws IOException if the file cannot be decoded
+	 */
+	public PcmTrackPlayer(File track, int bufferMillis, int lineBufferMillis) throws IOException {
+		this.engine = new PcmPlaybackEngine(PcmDecoders.open(track), new SourceDataLineSink(),
+				bufferMillis, lineBufferMillis);
+		engine.setOnEnd(() -> Platform.runLater(() -> fire(onEndOfMedia)));
+		engine.setOnError(e -> {
+			System.err.println("PCM playback failed for " + track.getName() + ": " + e.getMessage());
+			Platform.runLater(() -> fire(onError));
+		});
+		// Fire asynchronously, like MediaPlayer, so callers can register handlers first
+		Platform.runLater(() -> fire(onReady));
+	}
+
+	private void fire(Runnable callback) {
+		if (!disposed && callback != null) {
+			callback.run();
+		}
+	}
+
+	@Override
+	public void setOnReady(Runnable onReady) {
+		this.onReady = onReady;
+	}
+
+	@Override
+	public void setOnEndOfMedia(Runnable onEndOfMedia) {
+		this.onEndOfMedia = onEndOfMedia;
+	}
+
+	@Override
+	public void setOnError(Runnable onError) {
+		this.onError = onError;
+	}
+
+	@Override
+	public void play() {
+		if (disposed) return;
+		if (!started) {
+			started = true;
+			try {
+				engine.start();
+			} catch (IOException e) {
+				System.err.println("Could not open audio output: " + e.getMessage());
+				Platform.runLater(() -> fire(onError));
+			}
+		} else {
+			engine.resume();
+		}
+	}
+
+	@Override
+	public void pause() {
+		engine.pause();
+	}
+
+	@Override
+	public void dispose() {
+		disposed = true;
+		engine.stop();
+	}
+
+	@Override
+	public void setVolume(double volume) {
+		engine.setVolume(volume);
+	}
+
+	@Override
+	public double getProgress() {
+		long total = engine.getTotalFrames();
+		return total > 0 ? (double) engine.getFramesPlayed() / total : Double.NaN;
+	}
+}
@@ -0,0 +1,11 @@
+package com.github.RocketSmash9000.audio.playback;
+
+/**
+ * The available playback implementations.
+ */
+public enum PlaybackBackend {
+	/** JavaFX {@code MediaPlayer}; supports the EQ visualizer. */
+	JAVAFX,
+	/** Pure-Java {@link PcmPlaybackEngine} on javax.sound.sampled; WAV and FLAC only. */
+	PCM
+}
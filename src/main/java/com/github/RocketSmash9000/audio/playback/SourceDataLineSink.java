@@ -0,0 +1,76 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.IOException;
+
+/**
+ * Sink that plays PCM data through a {@link SourceDataLine} of the default mixer.
+ */
+public class SourceDataLineSink implements PcmSink {
+	private SourceDataLine line;
+	private FloatControl gainControl;
+	private volatile double volume = 1.0;
+
+	@Override
+	public void open(AudioFormat format, int bufferBytes) throws IOException {
+		try {
+			line = AudioSystem.getSourceDataLine(format);
+			line.open(format, bufferBytes - bufferBytes % format.getFrameSize());
+		} catch (LineUnavailableException | IllegalArgumentException e) {
+			throw new IOException("No audio line available for " + format + ": " + e.getMessage(), e);
+		}
+		if (line.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
+			gainControl = (FloatControl) line.getControl(FloatControl.Type.MASTER_GAIN);
+		}
+		applyVolume();
+	}
+
+	@Override
+	public int write(byte[] buffer, int offset, int length) {
+		return line.write(buffer, offset, length);
+	}
+
+	@Override
+	public void start() {
+		line.start();
+	}
+
+	@Override
+	public void pause() {
+		line.stop();
+	}
+
+	@Override
+	public void drain() {
+		line.drain();
+	}
+
+	@Override
+	public void setVolume(double volume) {
+		this.volume = volume;
+		applyVolume();
+	}
+
+	private void applyVolume() {
+		FloatControl control = gainControl;
+		if (control == null) {
+			return;
+		}
+		// Convert linear volume to decibels, clamped to what the line supports
+		float db = volume <= 0.0 ? control.getMinimum() : (float) (20.0 * Math.log10(volume));
+		control.setValue(Math.max(control.getMinimum(), Math.min(control.getMaximum(), db)));
+	}
+
+	@Override
+	public void close() {
+		if (line != null) {
+			line.stop();
+			line.flush();
+			line.close();
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import javafx.scene.media.MediaPlayer;
+
+/**
+ * Plays a single track. Implementations invoke all callbacks on the JavaFX Application Thread.
+ */
+public interface TrackPlayer {
+
+	/**
+	 * @param onReady Called once the track can be played
+	 */
+	void setOnReady(Runnable onReady);
+
+	/**
+	 * @param onEndOfMedia Called when the track has finished playing
+	 */
+	void setOnEndOfMedia(Runnable onEndOfMedia);
+
+	/**
+	 * @param onError Called if the track cannot be played
+	 */
+	void setOnError(Runnable onError);
+
+	void play();
+
+	void pause();
+
+	/**
+	 * Stops playback and releases all resources. The player cannot be used afterwards.
+	 */
+	void dispose();
+
+	/**
+	 * @param volume Linear volume between 0.0 and 1.0
+	 */
+	void setVolume(double volume);
+
+	/**
+	 * @return The playback position as a fraction between 0.0 and 1.0, or NaN if unknown
+	 */
+	double getProgress();
+
+	/**
+	 * @return true if {@link #seek} is supported
+	 */
+	default boolean isSeekable() {
+		return false;
+	}
+
+	/**
+	 * Jumps to a position in the track. Does nothing if the player isn't seekable.
+	 *
+	 * @param fraction The new position as a fraction between 0.0 and 1.0
+	 */
+	default void seek(double fraction) {
+	}
+
+	/**
+	 * @return The underlying JavaFX media player, or null if this player doesn't use one
+	 */
+	default MediaPlayer getMediaPlayer() {
+		return null;
+	}
+}
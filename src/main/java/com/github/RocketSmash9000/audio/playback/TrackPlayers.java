@@ -0,0 +1,31 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Creates the right {@link TrackPlayer} for a track and the configured backend.
+ */
+public class TrackPlayers {
+
+	/**
+	 * Opens a player for the given track. The PCM backend is used when selected and able to decode the file,
+	 * and also as a fallback for formats JavaFX cannot play (e.g. FLAC). Otherwise JavaFX is used.
+	 *
+	 * @param track The audio file to play
+	 * @param backend The preferred backend
+	 * @param bufferMillis Ring buffer size for the PCM backend
+	 * @param lineBufferMillis Device buffer size for the PCM backend
+	 * @return A new player
+	 * @throws IOException if the PCM backend was chosen and the file cannot be decoded
+	 */
+	public static TrackPlayer open(File track, PlaybackBackend backend, int bufferMillis, int lineBufferMillis)
+			throws IOException {
+		boolean usePcm = PcmDecoders.supports(track)
+				&& (backend == PlaybackBackend.PCM || !JavaFxTrackPlayer.supports(track));
+		if (usePcm) {
+			return new PcmTrackPlayer(track, bufferMillis, lineBufferMillis);
+		}
+		return new JavaFxTrackPlayer(track);
+	}
+}
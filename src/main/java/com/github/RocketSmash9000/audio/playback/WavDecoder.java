@@ -0,0 +1,176 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * Decoder for uncompressed RIFF/WAVE files (integer PCM, 8 to 32 bits).
+ */
+public class WavDecoder implements PcmDecoder {
+	private static final int FORMAT_PCM = 1;
+	private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+	private final DataInputStream in;
+	private final AudioFormat format;
+	private final long totalFrames;
+	private long remainingBytes;
+
+	/**
+	 * Opens the given WAV file and parses its header.
+	 * @param file The file to decode
+	 * @throws IOException if the file cannot be read or isn't a supported WAV file
+	 */
+	public WavDecoder(File file) throws IOException {
+		this(Files.newInputStream(file.toPath()));
+	}
+
+	/**
+	 * Parses a WAV header from the given stream. The stream is closed with the decoder.
+	 * @param input The stream positioned at the start of the RIFF header
+	 * @throws IOException if the stream isn't a supported WAV file
+	 */
+	public WavDecoder(InputStream input) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(input));
+		try {
+			if (readTag() != 0x46464952 /* RIFF */) {
+				throw new IOException("Not a RIFF file");
+			}
+			readIntLE(); // RIFF size
+			if (readTag() != 0x45564157 /* WAVE */) {
+				throw new IOException("Not a WAVE file");
+			}
+
+			AudioFormat parsedFormat = null;
+			while (true) {
+				int chunkId = readTag();
+				long chunkSize = readIntLE() & 0xFFFFFFFFL;
+				if (chunkId == 0x20746D66 /* fmt */) {
+					parsedFormat = readFormatChunk(chunkSize);
+				} else if (chunkId == 0x61746164 /* data */) {
+					if (parsedFormat == null) {
+						throw new IOException("WAV data chunk before fmt chunk");
+					}
+					remainingBytes = chunkSize;
+					break;
+				} else {
+					skipFully(chunkSize + (chunkSize & 1));
+				}
+			}
+
+			this.format = parsedFormat;
+			this.totalFrames = remainingBytes / format.getFrameSize();
+		} catch (EOFException e) {
+			in.close();
+			throw new IOException("Truncated WAV header", e);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	private AudioFormat readFormatChunk(long chunkSize) throws IOException {
+		int formatTag = readShortLE();
+		int channels = readShortLE();
+		int sampleRate = readIntLE();
+		readIntLE(); // byte rate
+		readShortLE(); // block align
+		int bitsPerSample = readShortLE();
+		long consumed = 16;
+
+		if (formatTag == FORMAT_EXTENSIBLE && chunkSize >= 40) {
+			readShortLE(); // cbSize
+			readShortLE(); // valid bits per sample
+			readIntLE(); // channel mask
+			formatTag = readShortLE(); // first two bytes of the sub-format GUID
+			consumed += 10;
+		}
+		skipFully(chunkSize - consumed + (chunkSize & 1));
+
+		if (formatTag != FORMAT_PCM) {
+			throw new IOException("Unsupported WAV encoding: " + formatTag);
+		}
+		if (channels <= 0 || bitsPerSample <= 0 || bitsPerSample > 32 || bitsPerSample % 8 != 0) {
+			throw new IOException("Unsupported WAV layout: " + channels + " channels, " + bitsPerSample + " bits");
+		}
+
+		AudioFormat.Encoding encoding = bitsPerSample == 8
+				? AudioFormat.Encoding.PCM_UNSIGNED
+				: AudioFormat.Encoding.PCM_SIGNED;
+		return new AudioFormat(encoding, sampleRate, bitsPerSample, channels,
+				channels * bitsPerSample / 8, sampleRate, false);
+	}
+
+	@Override
+	public AudioFormat getFormat() {
+		return format;
+	}
+
+	@Override
+	public long getTotalFrames() {
+		return totalFrames;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		if (remainingBytes <= 0) {
+			return -1;
+		}
+		int frameSize = format.getFrameSize();
+		int wanted = (int) Math.min(length - length % frameSize, remainingBytes - remainingBytes % frameSize);
+		if (wanted <= 0) {
+			return -1;
+		}
+		int total = 0;
+		while (total < wanted) {
+			int n = in.read(buffer, offset + total, wanted - total);
+			if (n < 0) {
+				break;
+			}
+			total += n;
+		}
+		// Drop any trailing partial frame of a truncated file
+		total -= total % frameSize;
+		remainingBytes = total == 0 ? 0 : remainingBytes - total;
+		return total == 0 ? -1 : total;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private int readTag() throws IOException {
+		return readIntLE();
+	}
+
+	private int readIntLE() throws IOException {
+		int b0 = in.readUnsignedByte();
+		int b1 = in.readUnsignedByte();
+		int b2 = in.readUnsignedByte();
+		int b3 = in.readUnsignedByte();
+		return b0 | (b1 << 8) | (b2 << 16) | (b3 << 24);
+	}
+
+	private int readShortLE() throws IOException {
+		int b0 = in.readUnsignedByte();
+		int b1 = in.readUnsignedByte();
+		return b0 | (b1 << 8);
+	}
+
+	private void skipFully(long bytes) throws IOException {
+		while (bytes > 0) {
+			long skipped = in.skip(bytes);
+			if (skipped <= 0) {
+				in.readUnsignedByte();
+				skipped = 1;
+			}
+			bytes -= skipped;
+		}
+	}
+}
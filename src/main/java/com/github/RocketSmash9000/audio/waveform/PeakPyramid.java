@@ -0,0 +1,240 @@
+package com.github.RocketSmash9000.audio.waveform;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A waveform summary: min/max peaks of a track at several zoom levels.
+ * <p>
+ * Level 0 holds one min/max pair per {@link #getBaseFramesPerPeak()} frames; every further level
+ * merges pairs of peaks from the level below, halving the count, down to a few dozen peaks.
+ * Peaks are stored as signed 8-bit values, so a four-minute track takes roughly 160 KB.
+ */
+public class PeakPyramid {
+	/** Frames summarized by each level 0 peak; about 6 ms at 44.1 kHz. */
+	public static final int DEFAULT_FRAMES_PER_PEAK = 256;
+	/** Levels are added until a level has no more than this many peaks. */
+	static final int MIN_LEVEL_PEAKS = 64;
+
+	private static final int MAGIC = 0x54525746; // "TRWF"
+	private static final int VERSION = 1;
+
+	private final float sampleRate;
+	private final long totalFrames;
+	private final int baseFramesPerPeak;
+	private final byte[][] mins;
+	private final byte[][] maxs;
+
+	private PeakPyramid(float sampleRate, long totalFrames, int baseFramesPerPeak, byte[][] mins, byte[][] maxs) {
+		this.sampleRate = sampleRate;
+		this.totalFrames = totalFrames;
+		this.baseFramesPerPeak = baseFramesPerPeak;
+		this.mins = mins;
+		this.maxs = maxs;
+	}
+
+	public float getSampleRate() {
+		return sampleRate;
+	}
+
+	public long getTotalFrames() {
+		return totalFrames;
+	}
+
+	public int getBaseFramesPerPeak() {
+		return baseFramesPerPeak;
+	}
+
+	public int getLevelCount() {
+		return mins.length;
+	}
+
+	/**
+	 * @return The number of peaks in the given level
+	 */
+	public int getPeakCount(int level) {
+		return mins[level].length;
+	}
+
+	/**
+	 * @return The lowest sample in the given peak, between -1.0 and 1.0
+	 */
+	public float getMin(int level, int index) {
+		return mins[level][index] / 127f;
+	}
+
+	/**
+	 * @return The highest sample in the given peak, between -1.0 and 1.0
+	 */
+	public float getMax(int level, int index) {
+		return maxs[level][index] / 127f;
+	}
+
+	/**
+	 * Picks the coarsest level that still has at least one peak per column.
+	 *
+	 * @param columns The number of columns to draw, e.g. the width in pixels
+	 * @return The level to draw from
+	 */
+	public int levelFor(int columns) {
+		int level = 0;
+		while (level + 1 < mins.length && mins[level + 1].length >= columns) {
+			level++;
+		}
+		return level;
+	}
+
+	/**
+	 * Writes the pyramid in TRiM's compact binary format.
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeFloat(sampleRate);
+		out.writeLong(totalFrames);
+		out.writeInt(baseFramesPerPeak);
+		out.writeInt(mins.length);
+		for (int level = 0; level < mins.length; level++) {
+			out.writeInt(mins[level].length);
+			out.write(mins[level]);
+			out.write(maxs[level]);
+		}
+	}
+
+	/**
+	 * Reads a pyramid written by {@link #write}.
+	 *
+	 * @throws IOException if the data is truncated or not a waveform summary
+	 */
+	public static PeakPyramid read(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+			throw new IOException("Not a TRiM waveform file");
+		}
+		float sampleRate = in.readFloat();
+		long totalFrames = in.readLong();
+		int framesPerPeak = in.readInt();
+		int levels = in.readInt();
+		if (framesPerPeak <= 0 || levels <= 0 || levels > 32) {
+			throw new IOException("Corrupt waveform header");
+		}
+		byte[][] mins = new byte[levels][];
+		byte[][] maxs = new byte[levels][];
+		for (int level = 0; level < levels; level++) {
+			int count = in.readInt();
+			if (count < 0 || count > Integer.MAX_VALUE / 2) {
+				throw new IOException("Corrupt waveform level");
+			}
+			mins[level] = in.readNBytes(count);
+			maxs[level] = in.readNBytes(count);
+			if (mins[level].length != count || maxs[level].length != count) {
+				throw new IOException("Truncated waveform file");
+			}
+		}
+		return new PeakPyramid(sampleRate, totalFrames, framesPerPeak, mins, maxs);
+	}
+
+	/**
+	 * Accumulates decoded audio into level 0 peaks and derives the coarser levels.
+	 */
+	public static class Builder {
+		private final int framesPerPeak;
+		private byte[] mins = new byte[1024];
+		private byte[] maxs = new byte[1024];
+		private int count;
+		private int framesInPeak;
+		private float currentMin = Float.MAX_VALUE;
+		private float currentMax = -Float.MAX_VALUE;
+		private long totalFrames;
+
+		public Builder() {
+			this(DEFAULT_FRAMES_PER_PEAK);
+		}
+
+		/**
+		 * @param framesPerPeak The number of frames summarized by each level 0 peak
+		 */
+		public Builder(int framesPerPeak) {
+			if (framesPerPeak <= 0) {
+				throw new IllegalArgumentException("Frames per peak must be positive");
+			}
+			this.framesPerPeak = framesPerPeak;
+		}
+
+		/**
+		 * Adds interleaved samples. All channels of a frame count towards the same peak.
+		 *
+		 * @param samples Samples between -1.0 and 1.0
+		 * @param frames The number of frames in {@code samples}
+		 * @param channels The number of samples per frame
+		 */
+		public void add(float[] samples, int frames, int channels) {
+			int i = 0;
+			for (int frame = 0; frame < frames; frame++) {
+				for (int c = 0; c < channels; c++, i++) {
+					float sample = samples[i];
+					if (sample < currentMin) currentMin = sample;
+					if (sample > currentMax) currentMax = sample;
+				}
+				if (++framesInPeak == framesPerPeak) {
+					finishPeak();
+				}
+			}
+			totalFrames += frames;
+		}
+
+		private void finishPeak() {
+			if (count == mins.length) {
+				mins = Arrays.copyOf(mins, count * 2);
+				maxs = Arrays.copyOf(maxs, count * 2);
+			}
+			mins[count] = quantize(currentMin);
+			maxs[count] = quantize(currentMax);
+			count++;
+			framesInPeak = 0;
+			currentMin = Float.MAX_VALUE;
+			currentMax = -Float.MAX_VALUE;
+		}
+
+		private static byte quantize(float value) {
+			return (byte) Math.max(-127, Math.min(127, Math.round(value * 127)));
+		}
+
+		/**
+		 * @param sampleRate The sample rate of the audio that was added
+		 * @return The finished pyramid
+		 */
+		public PeakPyramid build(float sampleRate) {
+			if (framesInPeak > 0) {
+				finishPeak();
+			}
+			List<byte[]> levelMins = new ArrayList<>();
+			List<byte[]> levelMaxs = new ArrayList<>();
+			byte[] lowerMins = Arrays.copyOf(mins, count);
+			byte[] lowerMaxs = Arrays.copyOf(maxs, count);
+			levelMins.add(lowerMins);
+			levelMaxs.add(lowerMaxs);
+
+			while (lowerMins.length > MIN_LEVEL_PEAKS) {
+				int n = (lowerMins.length + 1) / 2;
+				byte[] upperMins = new byte[n];
+				byte[] upperMaxs = new byte[n];
+				for (int i = 0; i < n; i++) {
+					int a = 2 * i;
+					int b = Math.min(a + 1, lowerMins.length - 1);
+					upperMins[i] = (byte) Math.min(lowerMins[a], lowerMins[b]);
+					upperMaxs[i] = (byte) Math.max(lowerMaxs[a], lowerMaxs[b]);
+				}
+				levelMins.add(upperMins);
+				levelMaxs.add(upperMaxs);
+				lowerMins = upperMins;
+				lowerMaxs = upperMaxs;
+			}
+			return new PeakPyramid(sampleRate, totalFrames, framesPerPeak,
+					levelMins.toArray(new byte[0][]), levelMaxs.toArray(new byte[0][]));
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package com.github.RocketSmash9000.audio.waveform;
+
+import com.github.RocketSmash9000.config.WriteBehindStore;
+import com.github.RocketSmash9000.util.AppDirectories;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Two-tier cache of {@link PeakPyramid}s: recently used pyramids in memory, everything on disk.
+ * <p>
+ * Disk entries are keyed by content, so renamed or moved files reuse their waveform. The key hashes the
+ * file size and its first and last {@value #HASHED_BYTES} bytes, which is enough to tell audio files apart
+ * without reading them whole. The content key of each path is remembered for as long as the file's size
+ * and modification time stay the same, so repeated lookups never touch the file.
+ */
+public class WaveformCache {
+	private static final String CACHE_DIRECTORY = "waveform-cache";
+	private static final String EXTENSION = ".peaks";
+	private static final int HASHED_BYTES = 1 << 20;
+	private static final int MEMORY_ENTRIES = 64;
+
+	private final Path directory;
+	private final Map<String, KeyEntry> keys = new ConcurrentHashMap<>();
+	private final Map<String, PeakPyramid> memory = new LinkedHashMap<>(MEMORY_ENTRIES, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PeakPyramid> eldest) {
+			return size() > MEMORY_ENTRIES;
+		}
+	};
+
+	public WaveformCache() {
+		this(AppDirectories.getAppDir().resolve(CACHE_DIRECTORY));
+	}
+
+	public WaveformCache(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Gets a pyramid if it is already in memory. Never touches the disk.
+	 *
+	 * @param track The audio file
+	 * @return The pyramid, or null if it hasn't been loaded or computed yet
+	 */
+	public PeakPyramid getInMemory(File track) {
+		KeyEntry entry = keys.get(track.getAbsolutePath());
+		if (entry == null || !entry.matches(track)) {
+			return null;
+		}
+		synchronized (memory) {
+			return memory.get(entry.key);
+		}
+	}
+
+	/**
+	 * Gets a pyramid from memory or disk.
+	 *
+	 * @param track The audio file
+	 * @return The pyramid, or null if none has been stored for this content
+	 * @throws IOException if the track cannot be read for hashing
+	 */
+	public PeakPyramid get(File track) throws IOException {
+		String key = keyOf(track);
+		synchronized (memory) {
+			PeakPyramid cached = memory.get(key);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		Path file = directory.resolve(key + EXTENSION);
+		if (!Files.exists(file)) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			PeakPyramid pyramid = PeakPyramid.read(in);
+			remember(key, pyramid);
+			return pyramid;
+		} catch (IOException e) {
+			System.err.println("Discarding unreadable waveform cache entry " + file.getFileName() + ": " + e.getMessage());
+			Files.deleteIfExists(file);
+			return null;
+		}
+	}
+
+	/**
+	 * Stores a pyramid in memory and on disk.
+	 *
+	 * @param track The audio file the pyramid was computed from
+	 * @param pyramid The pyramid
+	 * @throws IOException if the track cannot be hashed or the cache file cannot be written
+	 */
+	public void put(File track, PeakPyramid pyramid) throws IOException {
+		String key = keyOf(track);
+		remember(key, pyramid);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bytes))) {
+			pyramid.write(out);
+		}
+		WriteBehindStore.writeAtomically(directory.resolve(key + EXTENSION), bytes.toByteArray());
+	}
+
+	private void remember(String key, PeakPyramid pyramid) {
+		synchronized (memory) {
+			memory.put(key, pyramid);
+		}
+	}
+
+	/**
+	 * @return The content key of the track, computing it only if the file changed since the last call
+	 */
+	String keyOf(File track) throws IOException {
+		String path = track.getAbsolutePath();
+		KeyEntry entry = keys.get(path);
+		if (entry != null && entry.matches(track)) {
+			return entry.key;
+		}
+		long size = track.length();
+		long lastModified = track.lastModified();
+		String key = contentHash(track);
+		keys.put(path, new KeyEntry(key, size, lastModified));
+		return key;
+	}
+
+	private static String contentHash(File track) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+		try (RandomAccessFile file = new RandomAccessFile(track, "r")) {
+			long length = file.length();
+			for (int i = 7; i >= 0; i--) {
+				digest.update((byte) (length >>> (8 * i)));
+			}
+			byte[] buffer = new byte[(int) Math.min(HASHED_BYTES, length)];
+			file.readFully(buffer);
+			digest.update(buffer);
+			if (length > HASHED_BYTES) {
+				long tailStart = Math.max(HASHED_BYTES, length - HASHED_BYTES);
+				buffer = new byte[(int) (length - tailStart)];
+				file.seek(tailStart);
+				file.readFully(buffer);
+				digest.update(buffer);
+			}
+		}
+		return HexFormat.of().formatHex(digest.digest(), 0, 16);
+	}
+
+	private record KeyEntry(String key, long size, long lastModified) {
+		boolean matches(File track) {
+			return size == track.length() && lastModified == track.lastModified();
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.github.RocketSmash9000.audio.waveform;
+
+import com.github.RocketSmash9000.audio.playback.PcmDecoder;
+import com.github.RocketSmash9000.audio.playback.PcmDecoders;
+import com.github.RocketSmash9000.audio.playback.PcmSamples;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * Computes waveform summaries on a low-priority background thread.
+ * <p>
+ * Whole libraries can be {@link #prefetch prefetched} so that the waveform of any track is already in
+ * memory when it starts playing. A {@link #request} for a specific track jumps ahead of the prefetch
+ * queue. Only formats with a pure-Java decoder (WAV and FLAC) get a waveform.
+ */
+public class WaveformService {
+	private static final int DECODE_BUFFER_BYTES = 64 * 1024;
+
+	private final WaveformCache cache;
+	private final LinkedBlockingDeque<File> work = new LinkedBlockingDeque<>();
+	private final Map<File, CompletableFuture<PeakPyramid>> pending = new ConcurrentHashMap<>();
+	private final Thread worker;
+	private volatile boolean shutdown;
+
+	public WaveformService() {
+		this(new WaveformCache());
+	}
+
+	public WaveformService(WaveformCache cache) {
+		this.cache = cache;
+		this.worker = new Thread(this::workLoop, "trim-waveform");
+		worker.setDaemon(true);
+		worker.setPriority(Thread.MIN_PRIORITY);
+		worker.start();
+	}
+
+	/**
+	 * @param track The audio file
+	 * @return The waveform if it is already in memory, otherwise null
+	 */
+	public PeakPyramid getIfReady(File track) {
+		return cache.getInMemory(track);
+	}
+
+	/**
+	 * Gets the waveform of a track, computing it ahead of any prefetched tracks if necessary.
+	 *
+	 * @param track The audio file
+	 * @return A future with the waveform, or with null if the track can't be decoded
+	 */
+	public CompletableFuture<PeakPyramid> request(File track) {
+		PeakPyramid ready = cache.getInMemory(track);
+		if (ready != null) {
+			return CompletableFuture.completedFuture(ready);
+		}
+		if (!PcmDecoders.supports(track)) {
+			return CompletableFuture.completedFuture(null);
+		}
+		CompletableFuture<PeakPyramid> future = pending.computeIfAbsent(track, t -> new CompletableFuture<>());
+		work.offerFirst(track);
+		return future;
+	}
+
+	/**
+	 * Queues tracks for loading from disk or computing, replacing any earlier prefetch that hasn't run yet.
+	 *
+	 * @param tracks The tracks to prepare
+	 */
+	public void prefetch(List<File> tracks) {
+		// Keep explicit requests, drop the rest of the previous prefetch
+		work.removeIf(track -> !pending.containsKey(track));
+		for (File track : tracks) {
+			if (PcmDecoders.supports(track)) {
+				work.offerLast(track);
+			}
+		}
+	}
+
+	/**
+	 * Stops the background thread. Pending requests complete with null.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		worker.interrupt();
+		work.clear();
+		pending.values().forEach(future -> future.complete(null));
+	}
+
+	private void workLoop() {
+		while (!shutdown) {
+			File track;
+			try {
+				track = work.takeFirst();
+			} catch (InterruptedException e) {
+				return;
+			}
+			PeakPyramid pyramid = null;
+			try {
+				pyramid = cache.getInMemory(track);
+				if (pyramid == null) {
+					pyramid = cache.get(track);
+				}
+				if (pyramid == null) {
+					pyramid = compute(track);
+					cache.put(track, pyramid);
+				}
+			} catch (IOException | RuntimeException e) {
+				System.err.println("Failed to compute waveform of " + track.getName() + ": " + e.getMessage());
+			}
+			CompletableFuture<PeakPyramid> future = pending.remove(track);
+			if (future != null) {
+				future.complete(pyramid);
+			}
+		}
+	}
+
+	/**
+	 * Decodes a whole track into a peak pyramid.
+	 *
+	 * @param track A WAV or FLAC file
+	 * @return The pyramid
+	 * @throws IOException if the track cannot be decoded
+	 */
+	public static PeakPyramid compute(File track) throws IOException {
+		try (PcmDecoder decoder = PcmDecoders.open(track)) {
+			return compute(decoder);
+		}
+	}
+
+	/**
+	 * Drains a decoder into a peak pyramid.
+	 *
+	 * @param decoder The decoder to drain
+	 * @return The pyramid
+	 * @throws IOException if decoding fails
+	 */
+	public static PeakPyramid compute(PcmDecoder decoder) throws IOException {
+		AudioFormat format = decoder.getFormat();
+		int channels = format.getChannels();
+		int bytesPerSample = format.getSampleSizeInBits() / 8;
+		PeakPyramid.Builder builder = new PeakPyramid.Builder();
+
+		byte[] bytes = new byte[DECODE_BUFFER_BYTES - DECODE_BUFFER_BYTES % format.getFrameSize()];
+		float[] samples = new float[bytes.length / bytesPerSample];
+		int n;
+		while ((n = decoder.read(bytes, 0, bytes.length)) > 0) {
+			int count = PcmSamples.toFloats(format, bytes, n, samples);
+			builder.add(samples, count / channels, channels);
+		}
+		return builder.build(format.getSampleRate());
+	}
+}
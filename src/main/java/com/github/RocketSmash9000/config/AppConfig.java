@@ -2,6 +2,8 @@ package com.github.RocketSmash9000.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.RocketSmash9000.audio.playback.PcmPlaybackEngine;
+import com.github.RocketSmash9000.audio.playback.PlaybackBackend;
 import com.github.RocketSmash9000.util.AppDirectories;
 
 import java.io.File;
@@ -10,17 +12,21 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 
 /**
- * Manages application configuration including volume settings.
+ * Manages application configuration including volume, playback backend and loudness normalization settings.
  */
 public class AppConfig {
     private static final ObjectMapper objectMapper = new ObjectMapper()
             .enable(SerializationFeature.INDENT_OUTPUT);
     
     private static final String CONFIG_FILENAME = "app_config.json";
-    private static final double DEFAULT_VOLUME = 0.1; // 10% volume by default
+    public static final double DEFAULT_VOLUME = 0.1; // 10% volume by default
     
     private final Path configPath;
     private double volume;
+    private PlaybackBackend playbackBackend = PlaybackBackend.JAVAFX;
+    private int pcmBufferMillis = PcmPlaybackEngine.DEFAULT_BUFFER_MILLIS;
+    private int pcmLineBufferMillis = PcmPlaybackEngine.DEFAULT_LINE_BUFFER_MILLIS;
+    private boolean loudnessNormalization = true;
     
     public AppConfig() {
         this.configPath = AppDirectories.getAppDir().resolve(CONFIG_FILENAME);
@@ -39,6 +45,18 @@ public class AppConfig {
                 if (!content.trim().isEmpty()) {
                     AppConfigData data = objectMapper.readValue(content, AppConfigData.class);
                     this.volume = data.getVolume();
+                    if (data.getPlaybackBackend() != null) {
+                        this.playbackBackend = data.getPlaybackBackend();
+                    }
+                    if (data.getPcmBufferMillis() > 0) {
+                        this.pcmBufferMillis = data.getPcmBufferMillis();
+                    }
+                    if (data.getPcmLineBufferMillis() > 0) {
+                        this.pcmLineBufferMillis = data.getPcmLineBufferMillis();
+                    }
+                    if (data.getLoudnessNormalization() != null) {
+                        this.loudnessNormalization = data.getLoudnessNormalization();
+                    }
                 } else {
                     // empty file, save defaults
                     save();
@@ -58,34 +76,90 @@ public class AppConfig {
     }
     
     /**
-     * Saves the current configuration to the config file.
+     * Schedules a write-behind save of the current configuration.
+     * Rapid changes (e.g. dragging the volume slider) are coalesced into a single atomic write.
      */
     private void save() {
+        WriteBehindStore.getDefault().schedule(configPath, this::serialize);
+    }
+
+    private synchronized byte[] serialize() throws IOException {
+        AppConfigData data = new AppConfigData(volume);
+        data.setPlaybackBackend(playbackBackend);
+        data.setPcmBufferMillis(pcmBufferMillis);
+        data.setPcmLineBufferMillis(pcmLineBufferMillis);
+        data.setLoudnessNormalization(loudnessNormalization);
+        return objectMapper.writeValueAsBytes(data);
+    }
+
+    /**
+     * Primes Jackson's serializer and deserializer caches for the config types so the
+     * first real save (usually triggered by the volume slider) doesn't pay for introspection.
+     * Safe to call from any thread.
+     */
+    public static void warmUp() {
         try {
-            AppConfigData data = new AppConfigData(volume);
-            String json = objectMapper.writeValueAsString(data);
-            Files.createDirectories(configPath.getParent());
-            Files.writeString(configPath, json);
+            String json = objectMapper.writeValueAsString(new AppConfigData(DEFAULT_VOLUME));
+            objectMapper.readValue(json, AppConfigData.class);
         } catch (IOException e) {
-            System.err.println("Failed to save application config: " + e.getMessage());
+            System.err.println("Failed to warm up config serialization: " + e.getMessage());
         }
     }
-    
+
     public double getVolume() {
         return volume;
     }
-    
-    public void setVolume(double volume) {
+
+    public synchronized void setVolume(double volume) {
         // Ensure volume is within valid range [0.0, 1.0]
         this.volume = Math.max(0.0, Math.min(1.0, volume));
         save();
     }
+
+    public PlaybackBackend getPlaybackBackend() {
+        return playbackBackend;
+    }
+
+    public synchronized void setPlaybackBackend(PlaybackBackend playbackBackend) {
+        this.playbackBackend = playbackBackend != null ? playbackBackend : PlaybackBackend.JAVAFX;
+        save();
+    }
+
+    /**
+     * @return How much decoded audio the PCM backend keeps ahead of the output, in milliseconds
+     */
+    public int getPcmBufferMillis() {
+        return pcmBufferMillis;
+    }
+
+    /**
+     * @return The size of the PCM backend's audio device buffer, in milliseconds
+     */
+    public int getPcmLineBufferMillis() {
+        return pcmLineBufferMillis;
+    }
+
+    /**
+     * @return Whether each track's volume is adjusted to a common loudness
+     */
+    public boolean isLoudnessNormalization() {
+        return loudnessNormalization;
+    }
+
+    public synchronized void setLoudnessNormalization(boolean loudnessNormalization) {
+        this.loudnessNormalization = loudnessNormalization;
+        save();
+    }
     
     /**
      * Data class for JSON serialization/deserialization.
      */
     public static class AppConfigData {
         private double volume;
+        private PlaybackBackend playbackBackend;
+        private int pcmBufferMillis;
+        private int pcmLineBufferMillis;
+        private Boolean loudnessNormalization;
 
         // No-args constructor for Jackson
         public AppConfigData() {}
@@ -101,5 +175,37 @@ public class AppConfig {
         public void setVolume(double volume) {
             this.volume = volume;
         }
+
+        public PlaybackBackend getPlaybackBackend() {
+            return playbackBackend;
+        }
+
+        public void setPlaybackBackend(PlaybackBackend playbackBackend) {
+            this.playbackBackend = playbackBackend;
+        }
+
+        public int getPcmBufferMillis() {
+            return pcmBufferMillis;
+        }
+
+        public void setPcmBufferMillis(int pcmBufferMillis) {
+            this.pcmBufferMillis = pcmBufferMillis;
+        }
+
+        public int getPcmLineBufferMillis() {
+            return pcmLineBufferMillis;
+        }
+
+        public void setPcmLineBufferMillis(int pcmLineBufferMillis) {
+            this.pcmLineBufferMillis = pcmLineBufferMillis;
+        }
+
+        public Boolean getLoudnessNormalization() {
+            return loudnessNormalization;
+        }
+
+        public void setLoudnessNormalization(Boolean loudnessNormalization) {
+            this.loudnessNormalization = loudnessNormalization;
+        }
     }
 }
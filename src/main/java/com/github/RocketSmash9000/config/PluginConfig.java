@@ -1,5 +1,6 @@
 package com.github.RocketSmash9000.config;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -9,20 +10,32 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages plugin configuration including enabled/disabled state.
+ * <p>
+ * Safe to use from any thread: reads don't lock, and changes are made one at a time under this
+ * object's lock, which the serializer for {@link #save()} also takes.
  */
 public class PluginConfig {
     private static final ObjectMapper objectMapper = new ObjectMapper()
             .enable(SerializationFeature.INDENT_OUTPUT);
     
     private final File configFile;
-    private Map<String, PluginState> pluginStates;
+    private final Map<String, PluginState> pluginStates = new ConcurrentHashMap<>();
     
     public PluginConfig() {
-        this.configFile = AppDirectories.getConfigFile().toFile();
-        this.pluginStates = new HashMap<>();
+        this(AppDirectories.getConfigFile().toFile());
+    }
+
+    /**
+     * Creates a plugin configuration backed by the given file.
+     *
+     * @param configFile The JSON file holding the plugin states
+     */
+    public PluginConfig(File configFile) {
+        this.configFile = configFile;
         load();
     }
     
@@ -35,7 +48,11 @@ public class PluginConfig {
             if (configFile.exists()) {
                 String content = new String(Files.readAllBytes(configFile.toPath()));
                 if (!content.trim().isEmpty()) {
-                    pluginStates = objectMapper.readValue(content, new TypeReference<Map<String, PluginState>>() {});
+                    Map<String, PluginState> stored = objectMapper.readValue(content, new TypeReference<Map<String, PluginState>>() {});
+                    if (stored != null) {
+                        stored.values().removeIf(Objects::isNull);
+                        pluginStates.putAll(stored);
+                    }
                 }
             } else {
                 // Create default config if it doesn't exist
@@ -43,19 +60,27 @@ public class PluginConfig {
             }
         } catch (IOException e) {
             System.err.println("Failed to load plugin config: " + e.getMessage());
-            pluginStates = new HashMap<>();
+            pluginStates.clear();
         }
     }
     
     /**
-     * Saves the current plugin configuration to the config file.
+     * Schedules a write-behind save of the current plugin configuration.
+     * Changes made in quick succession (e.g. one per plugin at startup) are coalesced into a single atomic write.
      */
-    public synchronized void save() {
-        try {
-            objectMapper.writeValue(configFile, pluginStates);
-        } catch (IOException e) {
-            System.err.println("Failed to save plugin config: " + e.getMessage());
-        }
+    public void save() {
+        WriteBehindStore.getDefault().schedule(configFile.toPath(), this::serialize);
+    }
+
+    /**
+     * Writes a pending save now instead of after the write-behind delay.
+     */
+    public void flush() {
+        WriteBehindStore.getDefault().flush(configFile.toPath());
+    }
+
+    private synchronized byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(pluginStates);
     }
     
     /**
@@ -75,8 +100,60 @@ public class PluginConfig {
      * @param pluginId The ID of the plugin to update
      * @param enabled Whether the plugin should be enabled
      */
-    public void setPluginEnabled(String pluginId, boolean enabled) {
-        pluginStates.computeIfAbsent(pluginId, id -> new PluginState()).setEnabled(enabled);
+    public synchronized void setPluginEnabled(String pluginId, boolean enabled) {
+        PluginState state = pluginStates.computeIfAbsent(pluginId, id -> new PluginState());
+        state.setEnabled(enabled);
+        if (enabled) {
+            // Enabling by hand gives an auto-disabled plugin another chance
+            state.setDisabledReason(null);
+        }
+        save();
+    }
+
+    /**
+     * Disables a plugin on TRiM's behalf, recording why so it can be shown to the user.
+     *
+     * @param pluginId The ID of the plugin to disable
+     * @param reason Why the plugin was disabled
+     */
+    public synchronized void disablePlugin(String pluginId, String reason) {
+        PluginState state = pluginStates.computeIfAbsent(pluginId, id -> new PluginState());
+        state.setEnabled(false);
+        state.setDisabledReason(reason);
+        save();
+    }
+
+    /**
+     * Gets why TRiM disabled a plugin.
+     *
+     * @param pluginId The ID of the plugin
+     * @return The reason, or null if the plugin wasn't disabled by TRiM
+     */
+    public String getDisabledReason(String pluginId) {
+        PluginState state = pluginStates.get(pluginId);
+        return state != null ? state.getDisabledReason() : null;
+    }
+    
+    /**
+     * Checks if a plugin should run in its own plugin host process rather than inside TRiM.
+     *
+     * @param pluginId The ID of the plugin to check
+     * @return true if the plugin runs out of process
+     */
+    public boolean isOutOfProcess(String pluginId) {
+        PluginState state = pluginStates.get(pluginId);
+        return state != null && state.isOutOfProcess();
+    }
+
+    /**
+     * Sets whether a plugin runs in its own plugin host process.
+     *
+     * @param pluginId The ID of the plugin to update
+     * @param outOfProcess Whether the plugin should run out of process; applies the next time it is loaded
+     */
+    public synchronized void setOutOfProcess(String pluginId, boolean outOfProcess) {
+        PluginState state = pluginStates.computeIfAbsent(pluginId, id -> new PluginState());
+        state.setOutOfProcess(outOfProcess);
         save();
     }
     
@@ -86,7 +163,7 @@ public class PluginConfig {
      * @param pluginId The ID of the plugin
      * @param version The version of the plugin
      */
-    public void updatePluginInfo(String pluginId, String version) {
+    public synchronized void updatePluginInfo(String pluginId, String version) {
         PluginState state = pluginStates.computeIfAbsent(pluginId, id -> new PluginState());
         state.setVersion(version);
         save();
@@ -103,11 +180,17 @@ public class PluginConfig {
     
     /**
      * Represents the state of a plugin in the configuration.
+     * Fields are volatile so {@link PluginConfig} can read them without locking.
      */
     public static class PluginState {
-        private boolean enabled = true; // By default, plugins are enabled
-        private String version;
-        private Map<String, Object> settings = new HashMap<>();
+        private volatile boolean enabled = true; // By default, plugins are enabled
+        private volatile String version;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private volatile String disabledReason; // Set when TRiM disabled the plugin, e.g. for exceeding its time budget
+        @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+        private volatile boolean outOfProcess; // Run in a plugin host process instead of TRiM's own JVM
+        // Plugins may read and write their settings from their own threads
+        private volatile Map<String, Object> settings = new ConcurrentHashMap<>();
         
         public boolean isEnabled() {
             return enabled;
@@ -125,12 +208,37 @@ public class PluginConfig {
             this.version = version;
         }
         
+        public String getDisabledReason() {
+            return disabledReason;
+        }
+        
+        public void setDisabledReason(String disabledReason) {
+            this.disabledReason = disabledReason;
+        }
+        
+        public boolean isOutOfProcess() {
+            return outOfProcess;
+        }
+        
+        public void setOutOfProcess(boolean outOfProcess) {
+            this.outOfProcess = outOfProcess;
+        }
+        
         public Map<String, Object> getSettings() {
             return settings;
         }
         
         public void setSettings(Map<String, Object> settings) {
-            this.settings = settings != null ? settings : new HashMap<>();
+            Map<String, Object> copy = new ConcurrentHashMap<>();
+            if (settings != null) {
+                // Null values can't go into the map; an absent setting reads as null anyway
+                settings.forEach((key, value) -> {
+                    if (key != null && value != null) {
+                        copy.put(key, value);
+                    }
+                });
+            }
+            this.settings = copy;
         }
         
         public <T> T getSetting(String key, Class<T> type) {
@@ -138,7 +246,11 @@ public class PluginConfig {
         }
         
         public void setSetting(String key, Object value) {
-            settings.put(key, value);
+            if (value == null) {
+                settings.remove(key);
+            } else {
+                settings.put(key, value);
+            }
         }
     }
 }
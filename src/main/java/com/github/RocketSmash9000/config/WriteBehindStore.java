@@ -0,0 +1,174 @@
+package com.github.RocketSmash9000.config;
+
+import com.github.RocketSmash9000.diagnostics.ConfigSaveEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalescing, write-behind persistence for small settings files.
+ * <p>
+ * Callers {@link #schedule} a content producer for a path; repeated schedules for the same path
+ * before the debounce delay expires collapse into a single write of the latest content.
+ * Writes happen on a background thread and replace the target atomically (temp file + rename),
+ * so a crash mid-write never leaves a truncated file behind. Writes of the same file run one at a time,
+ * in the order their content was scheduled.
+ */
+public class WriteBehindStore {
+    /** Delay between the first change to a file and the write that persists it. */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+
+    private static final WriteBehindStore DEFAULT = new WriteBehindStore(DEFAULT_DEBOUNCE_MILLIS);
+
+    static {
+        // Last-chance flush for exits that bypass Application.stop()
+        Runtime.getRuntime().addShutdownHook(new Thread(DEFAULT::flush, "trim-settings-flush"));
+    }
+
+    private final long debounceMillis;
+    private final ScheduledExecutorService writer;
+    private final Map<Path, Callable<byte[]>> pending = new ConcurrentHashMap<>();
+    // One per file ever scheduled; held from taking the pending content until it is renamed into place
+    private final Map<Path, Object> writeLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a store with its own writer thread.
+     *
+     * @param debounceMillis How long to wait after the first change before writing
+     */
+    public WriteBehindStore(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "trim-settings-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * @return The store shared by all of TRiM's settings files
+     */
+    public static WriteBehindStore getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Schedules a write of the given file. The content producer runs later on the writer thread,
+     * so it should snapshot the state it serializes under whatever lock guards that state.
+     *
+     * @param path The file to write
+     * @param content Produces the bytes to write
+     */
+    public void schedule(Path path, Callable<byte[]> content) {
+        writeLocks.computeIfAbsent(path, p -> new Object());
+        if (pending.put(path, content) == null) {
+            try {
+                writer.schedule(() -> write(path), debounceMillis, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // Writer already shut down; persist synchronously instead of losing the change
+                write(path);
+            }
+        }
+    }
+
+    /**
+     * Writes all pending files now, blocking until they are on disk, along with any the writer thread
+     * is in the middle of.
+     */
+    public void flush() {
+        List<Path> paths = new ArrayList<>(writeLocks.keySet());
+        for (Path path : paths) {
+            write(path);
+        }
+    }
+
+    /**
+     * Writes the given file now if a write of it is pending, blocking until it is on disk.
+     * If the writer thread is in the middle of writing it, waits for that write too.
+     */
+    public void flush(Path path) {
+        write(path);
+    }
+
+    /**
+     * Flushes pending writes and stops the writer thread.
+     */
+    public void shutdown() {
+        writer.shutdown();
+        flush();
+    }
+
+    private void write(Path path) {
+        Object lock = writeLocks.get(path);
+        if (lock == null) {
+            return; // Never scheduled
+        }
+        synchronized (lock) {
+            writeLocked(path);
+        }
+    }
+
+    private void writeLocked(Path path) {
+        Callable<byte[]> content = pending.remove(path);
+        if (content == null) {
+            return; // Already written by an earlier flush
+        }
+        ConfigSaveEvent event = new ConfigSaveEvent();
+        event.begin();
+        try {
+            byte[] bytes = content.call();
+            event.bytes = bytes.length;
+            writeAtomically(path, bytes);
+            event.succeeded = true;
+        } catch (Exception e) {
+            System.err.println("Failed to save " + path.getFileName() + ": " + e.getMessage());
+        } finally {
+            event.file = path.getFileName().toString();
+            event.commit();
+        }
+    }
+
+    /**
+     * Replaces a file's content atomically: the bytes go to a temp file in the same directory,
+     * are forced to disk and then renamed over the target.
+     *
+     * @param path The file to write
+     * @param bytes The new content
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeAtomically(Path path, byte[] bytes) throws IOException {
+        Path dir = path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.RocketSmash9000.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A settings file written by {@code WriteBehindStore}, serialization included.
+ */
+@Name("trim.ConfigSave")
+@Label("Config Save")
+@Category({"TRiM", "Config"})
+@Description("A settings file serialized and written to disk")
+public class ConfigSaveEvent extends Event {
+    @Label("File")
+    public String file;
+
+    @Label("Size")
+    @DataAmount(DataAmount.BYTES)
+    public long bytes;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -0,0 +1,29 @@
+package com.github.RocketSmash9000.diagnostics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up. Striped, so threads counting at the same time don't contend on one
+ * memory location, and counting doesn't allocate.
+ */
+public final class Counter {
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    /**
+     * @return The count so far; not an atomic snapshot while other threads are counting
+     */
+    public long get() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.RocketSmash9000.diagnostics;
+
+import com.github.RocketSmash9000.util.AppDirectories;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Starts a Java Flight Recorder recording when asked to with {@value #PROPERTY} or the {@value #ENV_VARIABLE}
+ * environment variable, so that TRiM can be profiled on a user's machine without extra tooling.
+ * <p>
+ * The value is the file to write, or {@code true} for a timestamped file in the {@code recordings} folder next to
+ * TRiM's config. The recording uses JFR's {@code profile} settings, which include TRiM's own events, keeps the last
+ * {@link #MAX_AGE} and is written out when TRiM exits.
+ */
+public final class FlightRecording {
+    public static final String PROPERTY = "trim.jfr";
+    public static final String ENV_VARIABLE = "TRIM_JFR";
+    /** How much history the recording keeps; older data is dropped. */
+    public static final Duration MAX_AGE = Duration.ofHours(1);
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private FlightRecording() {
+    }
+
+    /**
+     * Starts a recording if the switch is set.
+     *
+     * @return The recording, or null if the switch isn't set or the recording couldn't be started
+     */
+    public static Recording startIfRequested() {
+        String value = System.getProperty(PROPERTY);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(ENV_VARIABLE);
+        }
+        if (value == null || value.isBlank() || value.equalsIgnoreCase("false")) {
+            return null;
+        }
+        Path destination = value.equalsIgnoreCase("true")
+                ? AppDirectories.getAppDir().resolve("recordings")
+                        .resolve("trim-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr")
+                : Path.of(value);
+        try {
+            Recording recording = start(destination);
+            System.out.println("Recording flight data to " + destination.toAbsolutePath());
+            return recording;
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            System.err.println("Failed to start flight recording: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Starts a recording that is written to the given file when the JVM exits.
+     *
+     * @param destination The .jfr file to write
+     * @return The running recording
+     * @throws IOException if the file's folder can't be created or the file can't be written to
+     * @throws ParseException if JFR's profile settings can't be read
+     */
+    public static Recording start(Path destination) throws IOException, ParseException {
+        Path parent = destination.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Recording recording = new Recording(Configuration.getConfiguration("profile"));
+        recording.setName("TRiM");
+        recording.setMaxAge(MAX_AGE);
+        recording.setToDisk(true);
+        recording.setDumpOnExit(true);
+        recording.setDestination(destination);
+        recording.start();
+        return recording;
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.RocketSmash9000.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A music folder being scanned for audio files.
+ */
+@Name("trim.LibraryScan")
+@Label("Library Scan")
+@Category({"TRiM", "Library"})
+@Description("A music folder scanned for audio files")
+public class LibraryScanEvent extends Event {
+    @Label("Directory")
+    public String directory;
+
+    @Label("Audio Files")
+    public int files;
+
+    @Label("Directories")
+    @Description("Directories visited, the scanned folder included")
+    public int directories;
+
+    @Label("Audio Bytes")
+    @Description("Combined size of the audio files found")
+    @DataAmount(DataAmount.BYTES)
+    public long bytes;
+}
@@ -0,0 +1,31 @@
+package com.github.RocketSmash9000.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One tag read from a track by {@code AudioMetadataExtractor}.
+ */
+@Name("trim.MetadataRead")
+@Label("Metadata Read")
+@Category({"TRiM", "Library"})
+@Description("A title or artist read from a track's tags")
+public class MetadataReadEvent extends Event {
+    @Label("Track")
+    public String track;
+
+    @Label("Field")
+    @Description("\"title\" or \"artist\"")
+    public String field;
+
+    @Label("Parsed")
+    @Description("Whether the file was parsed; only MP3s are, others fall back to the file name")
+    public boolean parsed;
+
+    @Label("Found")
+    @Description("Whether the tags had a value")
+    public boolean found;
+}
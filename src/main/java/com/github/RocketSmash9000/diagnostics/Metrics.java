@@ -0,0 +1,70 @@
+package com.github.RocketSmash9000.diagnostics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Named counters, gauges and latency histograms, shown live by the diagnostics overlay.
+ * <p>
+ * Looking a metric up by name goes through a map, so hot paths keep the {@link Counter} or
+ * {@link LatencyHistogram} in a field; updating one after that is lock-free and doesn't allocate.
+ * A gauge is a function that is only called when it is read.
+ */
+public final class Metrics {
+    private static final Metrics DEFAULT = new Metrics();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty registry. TRiM itself reports to {@link #getDefault()}.
+     */
+    public Metrics() {
+    }
+
+    /**
+     * @return The registry all of TRiM reports to
+     */
+    public static Metrics getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return The counter with the given name, created on first use
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * @return The histogram with the given name, created on first use
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers a gauge, replacing any earlier one with the same name. The function is called on whichever
+     * thread reads the gauge, so it must be safe to call from any thread.
+     */
+    public void gauge(String name, DoubleSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * @return The gauge's current value, or NaN if there is no such gauge or it failed
+     */
+    public double gaugeValue(String name) {
+        DoubleSupplier gauge = gauges.get(name);
+        if (gauge == null) {
+            return Double.NaN;
+        }
+        try {
+            return gauge.getAsDouble();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.RocketSmash9000.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A call from TRiM into a plugin: its {@code onLoad()}, or a task on its executor such as a toolbar button's
+ * {@code onAction()}.
+ */
+@Name("trim.PluginCall")
+@Label("Plugin Call")
+@Category({"TRiM", "Plugins"})
+@Description("A call from TRiM into a plugin")
+public class PluginCallEvent extends Event {
+    @Label("Plugin")
+    public String pluginId;
+
+    @Label("Call")
+    @Description("What was called, e.g. \"onLoad\" or \"toolbar action\"")
+    public String call;
+
+    @Label("Succeeded")
+    @Description("False if the call threw")
+    public boolean succeeded;
+
+    public PluginCallEvent(String pluginId, String call) {
+        this.pluginId = pluginId;
+        this.call = call;
+    }
+}
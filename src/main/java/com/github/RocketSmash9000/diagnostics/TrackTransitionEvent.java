@@ -0,0 +1,44 @@
+package com.github.RocketSmash9000.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One phase of moving on to the next track. A transition is made of, in order: {@link #DISPOSE} of the
+ * previous player, {@link #OPEN} of the new one ({@code Media} and {@code MediaPlayer}, or the PCM decoder),
+ * waiting until it is {@link #READY}, and its {@link #FIRST_PLAY}. Events of one transition share its track.
+ */
+@Name("trim.TrackTransition")
+@Label("Track Transition")
+@Category({"TRiM", "Playback"})
+@Description("A phase of moving on to the next track")
+public class TrackTransitionEvent extends Event {
+    public static final String DISPOSE = "dispose";
+    public static final String OPEN = "open";
+    public static final String READY = "ready";
+    public static final String FIRST_PLAY = "first play";
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Track")
+    @Description("The track being moved on to, or the previous one while it is disposed")
+    public String track;
+
+    @Label("Backend")
+    public String backend;
+
+    /**
+     * @param phase One of the phase constants
+     * @param track The track, or null
+     * @param backend The playback backend, or null
+     */
+    public TrackTransitionEvent(String phase, String track, String backend) {
+        this.phase = phase;
+        this.track = track;
+        this.backend = backend;
+    }
+}
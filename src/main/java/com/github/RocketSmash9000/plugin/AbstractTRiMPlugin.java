@@ -1,5 +1,7 @@
 package com.github.RocketSmash9000.plugin;
 
+import com.github.RocketSmash9000.plugin.storage.PluginStorage;
+
 /**
  * Abstract base class for TRiM plugins that provides default implementations
  * for common plugin functionality.
@@ -10,6 +12,7 @@ public abstract class AbstractTRiMPlugin implements TRiMPlugin {
     private final String displayName;
     private final String version;
     private final String minimumApplicationVersion;
+    private volatile PluginStorage storage;
     
     /**
      * Creates a new plugin with the specified metadata.
@@ -69,6 +72,20 @@ public abstract class AbstractTRiMPlugin implements TRiMPlugin {
         return minimumApplicationVersion;
     }
     
+    @Override
+    public void setStorage(PluginStorage storage) {
+        this.storage = storage;
+    }
+    
+    /**
+     * Gets this plugin's persistent key-value store.
+     * 
+     * @return The storage, or null before TRiM has handed it over (it does so before {@code onLoad()})
+     */
+    public PluginStorage getStorage() {
+        return storage;
+    }
+    
     @Override
     public String toString() {
         return String.format("%s (ID: %s, Version: %s)", displayName, pluginId, version);
@@ -0,0 +1,491 @@
+package com.github.RocketSmash9000.plugin;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.RocketSmash9000.config.WriteBehindStore;
+import org.pf4j.LegacyExtensionFinder;
+import org.pf4j.PluginDependency;
+import org.pf4j.PluginDescriptor;
+import org.pf4j.PluginDescriptorFinder;
+import org.pf4j.PluginRepository;
+import org.pf4j.PluginWrapper;
+import org.pf4j.util.FileUtils;
+import org.pf4j.util.Unzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Persistent cache of what PF4J learns from plugin archives, so an unchanged set of plugins starts
+ * without opening any of them.
+ * <p>
+ * ZIP plugins are unpacked once into {@code unpacked/<sha-256>} under the cache directory instead of
+ * next to the ZIP, and the parsed descriptor and extension index of each ZIP and JAR are stored in
+ * {@code index.json}. Entries are keyed by archive file name and trusted while its size and modification
+ * time are unchanged; when they change the archive is hashed, and only a different hash invalidates the
+ * cached tree and metadata.
+ */
+public class PluginCache {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String INDEX_FILENAME = "index.json";
+    private static final String UNPACKED_DIR = "unpacked";
+
+    private final Path pluginsDir;
+    private final Path cacheDir;
+    private final Map<String, Entry> entries = new HashMap<>(); // Guarded by this
+    private final AtomicInteger archiveReads = new AtomicInteger();
+    private boolean loaded; // Guarded by this
+    private boolean dirty; // Guarded by this
+
+    /**
+     * @param pluginsDir The directory the plugin archives are installed in
+     * @param cacheDir Where unpacked plugins and the index are kept
+     */
+    public PluginCache(Path pluginsDir, Path cacheDir) {
+        this.pluginsDir = pluginsDir.toAbsolutePath().normalize();
+        this.cacheDir = cacheDir.toAbsolutePath().normalize();
+    }
+
+    /**
+     * @return The cache directory TRiM uses for a plugins directory: a sibling named after it with "-cache" appended
+     */
+    public static Path defaultCacheDir(Path pluginsDir) {
+        Path absolute = pluginsDir.toAbsolutePath().normalize();
+        return absolute.resolveSibling(absolute.getFileName() + "-cache");
+    }
+
+    /**
+     * Loads the index. Does nothing if it has already been loaded.
+     */
+    public synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        Path indexPath = cacheDir.resolve(INDEX_FILENAME);
+        try {
+            if (Files.exists(indexPath)) {
+                entries.putAll(objectMapper.readValue(indexPath.toFile(), new TypeReference<Map<String, Entry>>() {}));
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to load plugin cache: " + e.getMessage());
+        }
+        loaded = true;
+    }
+
+    /**
+     * Writes the index to disk if it has changed since the last save.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            Files.createDirectories(cacheDir);
+            WriteBehindStore.writeAtomically(cacheDir.resolve(INDEX_FILENAME), objectMapper.writeValueAsBytes(entries));
+        } catch (IOException e) {
+            System.err.println("Failed to save plugin cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return How many times, since the cache was created, plugin files had to be read because the index
+     *         didn't have the answer: to hash or unpack an archive, or to parse a descriptor or extension index
+     */
+    public int getArchiveReads() {
+        return archiveReads.get();
+    }
+
+    /**
+     * Gets the path PF4J should load a plugin archive from: the unpacked tree for a ZIP, unpacking it
+     * first if needed, or the archive itself for a JAR.
+     *
+     * @param archive A ZIP or JAR in the plugins directory
+     * @return The path to load, or null if the ZIP couldn't be unpacked
+     */
+    public synchronized Path pluginPathFor(Path archive) {
+        if (!isZip(archive)) {
+            return archive;
+        }
+        Entry entry = currentEntry(archive);
+        if (entry == null) {
+            return null;
+        }
+        Path unpacked = unpackedDir(entry);
+        if (Files.isDirectory(unpacked)) {
+            return unpacked;
+        }
+        Path staging = cacheDir.resolve(UNPACKED_DIR).resolve(entry.getSha256() + ".tmp");
+        try {
+            if (Files.exists(staging)) {
+                FileUtils.delete(staging);
+            }
+            archiveReads.incrementAndGet();
+            new Unzip(archive.toFile(), staging.toFile()).extract();
+            // Moved into place whole, so an interrupted unpack is never mistaken for a finished one
+            Files.move(staging, unpacked, StandardCopyOption.ATOMIC_MOVE);
+            return unpacked;
+        } catch (IOException e) {
+            System.err.println("Failed to unpack plugin " + archive.getFileName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Gets the path a plugin archive was last loaded from, without checking whether the archive changed since.
+     *
+     * @return The unpacked tree of a ZIP, the archive itself for a JAR, or null if the ZIP isn't cached
+     */
+    public synchronized Path lastPluginPathFor(Path archive) {
+        if (!isZip(archive)) {
+            return archive;
+        }
+        Entry entry = entries.get(archive.getFileName().toString());
+        return entry != null ? unpackedDir(entry) : null;
+    }
+
+    /**
+     * Drops an archive that was removed from the plugins directory, along with its unpacked tree.
+     * Its plugin must have been unloaded first.
+     */
+    public synchronized void remove(Path archive) {
+        Entry entry = entries.remove(archive.getFileName().toString());
+        if (entry != null) {
+            dirty = true;
+            deleteUnlessShared(entry);
+        }
+    }
+
+    /**
+     * Drops entries for archives that are gone and unpacked trees nothing refers to anymore.
+     *
+     * @param archiveNames File names of the archives currently in the plugins directory
+     */
+    synchronized void retainOnly(Set<String> archiveNames) {
+        if (entries.keySet().retainAll(archiveNames)) {
+            dirty = true;
+        }
+        Set<String> referenced = entries.values().stream().map(Entry::getSha256).collect(Collectors.toSet());
+        Path unpackedRoot = cacheDir.resolve(UNPACKED_DIR);
+        if (!Files.isDirectory(unpackedRoot)) {
+            return;
+        }
+        try (DirectoryStream<Path> trees = Files.newDirectoryStream(unpackedRoot)) {
+            for (Path tree : trees) {
+                if (!referenced.contains(tree.getFileName().toString())) {
+                    FileUtils.delete(tree);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to clean up plugin cache: " + e.getMessage());
+        }
+    }
+
+    private void deleteUnlessShared(Entry removed) {
+        boolean shared = entries.values().stream().anyMatch(entry -> entry.getSha256().equals(removed.getSha256()));
+        if (!shared) {
+            try {
+                FileUtils.delete(unpackedDir(removed));
+            } catch (IOException e) {
+                System.err.println("Failed to delete cached plugin " + removed.getSha256() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // The up-to-date entry for an archive, hashing it only when its size or modification time changed
+    private Entry currentEntry(Path archive) {
+        load();
+        String name = archive.getFileName().toString();
+        Entry entry = entries.get(name);
+        try {
+            long size = Files.size(archive);
+            long lastModified = Files.getLastModifiedTime(archive).toMillis();
+            if (entry != null && entry.getSize() == size && entry.getLastModified() == lastModified) {
+                return entry;
+            }
+            String sha256 = sha256(archive);
+            if (entry == null || !entry.getSha256().equals(sha256)) {
+                Entry previous = entry;
+                entry = new Entry();
+                entry.setSha256(sha256);
+                if (previous != null) {
+                    entries.remove(name);
+                    deleteUnlessShared(previous);
+                }
+            }
+            entry.setSize(size);
+            entry.setLastModified(lastModified);
+            entries.put(name, entry);
+            dirty = true;
+            return entry;
+        } catch (IOException e) {
+            System.err.println("Failed to inspect plugin " + name + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // The entry for a path PF4J loads a plugin from, or null if that path isn't a cached archive
+    private Entry entryForPluginPath(Path pluginPath) {
+        Path path = pluginPath.toAbsolutePath().normalize();
+        if (path.startsWith(cacheDir.resolve(UNPACKED_DIR))) {
+            load();
+            String sha256 = path.getFileName().toString();
+            return entries.values().stream().filter(entry -> entry.getSha256().equals(sha256)).findFirst().orElse(null);
+        }
+        if (pluginsDir.equals(path.getParent()) && FileUtils.isJarFile(path)) {
+            return currentEntry(path);
+        }
+        return null;
+    }
+
+    synchronized PluginDescriptor getDescriptor(Path pluginPath) {
+        Entry entry = entryForPluginPath(pluginPath);
+        return entry != null && entry.getDescriptor() != null ? entry.getDescriptor().toDescriptor() : null;
+    }
+
+    synchronized void putDescriptor(Path pluginPath, PluginDescriptor descriptor) {
+        Entry entry = entryForPluginPath(pluginPath);
+        if (entry != null) {
+            entry.setDescriptor(CachedDescriptor.of(descriptor));
+            dirty = true;
+        }
+    }
+
+    synchronized Set<String> getExtensions(Path pluginPath) {
+        Entry entry = entryForPluginPath(pluginPath);
+        return entry != null && entry.getExtensions() != null ? new LinkedHashSet<>(entry.getExtensions()) : null;
+    }
+
+    synchronized void putExtensions(Path pluginPath, Set<String> extensions) {
+        Entry entry = entryForPluginPath(pluginPath);
+        if (entry != null) {
+            entry.setExtensions(new ArrayList<>(extensions));
+            dirty = true;
+        }
+    }
+
+    private Path unpackedDir(Entry entry) {
+        return cacheDir.resolve(UNPACKED_DIR).resolve(entry.getSha256());
+    }
+
+    private String sha256(Path archive) throws IOException {
+        archiveReads.incrementAndGet();
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(archive), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static boolean isZip(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(".zip");
+    }
+
+    /**
+     * What is known about one archive, plus the attributes and hash it was learned from.
+     */
+    public static class Entry {
+        private long size;
+        private long lastModified;
+        private String sha256;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private CachedDescriptor descriptor;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private List<String> extensions;
+
+        public long getSize() { return size; }
+        public void setSize(long size) { this.size = size; }
+        public long getLastModified() { return lastModified; }
+        public void setLastModified(long lastModified) { this.lastModified = lastModified; }
+        public String getSha256() { return sha256; }
+        public void setSha256(String sha256) { this.sha256 = sha256; }
+        public CachedDescriptor getDescriptor() { return descriptor; }
+        public void setDescriptor(CachedDescriptor descriptor) { this.descriptor = descriptor; }
+        public List<String> getExtensions() { return extensions; }
+        public void setExtensions(List<String> extensions) { this.extensions = extensions; }
+    }
+
+    /**
+     * The fields of a parsed plugin descriptor.
+     *
+     * @param dependencies In {@code plugin.dependencies} syntax
+     */
+    public record CachedDescriptor(String pluginId, String description, String pluginClass, String version,
+                                   String requires, String provider, String license, String dependencies, boolean lazy) {
+
+        static CachedDescriptor of(PluginDescriptor descriptor) {
+            String dependencies = descriptor.getDependencies().stream()
+                    .map(CachedDescriptor::format)
+                    .collect(Collectors.joining(","));
+            return new CachedDescriptor(descriptor.getPluginId(), descriptor.getPluginDescription(),
+                    descriptor.getPluginClass(), descriptor.getVersion(), descriptor.getRequires(),
+                    descriptor.getProvider(), descriptor.getLicense(), dependencies, TRiMPluginDescriptor.isLazy(descriptor));
+        }
+
+        private static String format(PluginDependency dependency) {
+            return dependency.getPluginId() + (dependency.isOptional() ? "?" : "") + "@" + dependency.getPluginVersionSupport();
+        }
+
+        TRiMPluginDescriptor toDescriptor() {
+            return new TRiMPluginDescriptor(pluginId, description, pluginClass, version, requires, provider,
+                    license, dependencies, lazy);
+        }
+    }
+
+    /**
+     * Lists the plugins in the plugins directory for PF4J: directories as they are, and ZIPs as their
+     * unpacked trees in the cache. JARs are listed by PF4J's own JAR repository.
+     */
+    static class CachingRepository implements PluginRepository {
+        private final PluginCache cache;
+
+        CachingRepository(PluginCache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public List<Path> getPluginPaths() {
+            List<Path> paths = new ArrayList<>();
+            Set<String> archives = new HashSet<>();
+            if (!Files.isDirectory(cache.pluginsDir)) {
+                return paths;
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(cache.pluginsDir)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    if (name.startsWith(".")) {
+                        continue;
+                    }
+                    if (Files.isDirectory(file)) {
+                        // Older versions expanded ZIPs next to themselves; the ZIP is what counts
+                        if (!Files.exists(file.resolveSibling(name + ".zip"))) {
+                            paths.add(file);
+                        }
+                    } else if (isZip(file)) {
+                        archives.add(name);
+                        Path unpacked = cache.pluginPathFor(file);
+                        if (unpacked != null) {
+                            paths.add(unpacked);
+                        }
+                    } else if (FileUtils.isJarFile(file)) {
+                        archives.add(name);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to list plugins in " + cache.pluginsDir + ": " + e.getMessage());
+                return paths;
+            }
+            cache.retainOnly(archives);
+            paths.sort(Comparator.comparing(Path::toString));
+            return paths;
+        }
+
+        @Override
+        public boolean deletePluginPath(Path pluginPath) {
+            Path path = pluginPath.toAbsolutePath().normalize();
+            if (!path.startsWith(cache.cacheDir)) {
+                return false;
+            }
+            synchronized (cache) {
+                String sha256 = path.getFileName().toString();
+                for (Map.Entry<String, Entry> entry : new ArrayList<>(cache.entries.entrySet())) {
+                    if (entry.getValue().getSha256().equals(sha256)) {
+                        try {
+                            Files.deleteIfExists(cache.pluginsDir.resolve(entry.getKey()));
+                        } catch (IOException e) {
+                            System.err.println("Failed to delete plugin " + entry.getKey() + ": " + e.getMessage());
+                            return false;
+                        }
+                        cache.remove(cache.pluginsDir.resolve(entry.getKey()));
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Answers from the cache for archives it knows, and asks PF4J's finders for everything else.
+     */
+    static class CachingDescriptorFinder implements PluginDescriptorFinder {
+        private final PluginCache cache;
+        private final PluginDescriptorFinder finder;
+
+        CachingDescriptorFinder(PluginCache cache, PluginDescriptorFinder finder) {
+            this.cache = cache;
+            this.finder = finder;
+        }
+
+        @Override
+        public boolean isApplicable(Path pluginPath) {
+            return finder.isApplicable(pluginPath);
+        }
+
+        @Override
+        public PluginDescriptor find(Path pluginPath) {
+            PluginDescriptor cached = cache.getDescriptor(pluginPath);
+            if (cached != null) {
+                return cached;
+            }
+            cache.archiveReads.incrementAndGet();
+            PluginDescriptor descriptor = finder.find(pluginPath);
+            cache.putDescriptor(pluginPath, descriptor);
+            return descriptor;
+        }
+    }
+
+    /**
+     * Reads each plugin's extension index from the cache, only opening the plugin's JARs when it isn't cached.
+     * PF4J asks again after every plugin start or stop, so this also saves archive reads while TRiM runs.
+     */
+    static class CachingExtensionFinder extends LegacyExtensionFinder {
+        private final PluginCache cache;
+
+        CachingExtensionFinder(org.pf4j.PluginManager pluginManager, PluginCache cache) {
+            super(pluginManager);
+            this.cache = cache;
+        }
+
+        @Override
+        public Map<String, Set<String>> readPluginsStorages() {
+            Map<String, Set<String>> result = new LinkedHashMap<>();
+            List<PluginWrapper> uncached = new ArrayList<>();
+            for (PluginWrapper plugin : pluginManager.getPlugins()) {
+                Set<String> extensions = cache.getExtensions(plugin.getPluginPath());
+                if (extensions != null) {
+                    result.put(plugin.getPluginId(), extensions);
+                } else {
+                    uncached.add(plugin);
+                }
+            }
+            if (!uncached.isEmpty()) {
+                cache.archiveReads.incrementAndGet();
+                Map<String, Set<String>> read = super.readPluginsStorages();
+                for (PluginWrapper plugin : uncached) {
+                    Set<String> extensions = read.getOrDefault(plugin.getPluginId(), Set.of());
+                    result.put(plugin.getPluginId(), extensions);
+                    cache.putExtensions(plugin.getPluginPath(), extensions);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.github.RocketSmash9000.plugin;
+
+import com.github.RocketSmash9000.diagnostics.PluginCallEvent;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs one plugin's code away from the FX thread and the other plugins.
+ * <p>
+ * Calls run on the plugin's own pool of platform threads, which grows as needed, so a plugin blocking on I/O
+ * ties up nothing but itself. They are platform threads rather than virtual ones because the JVM only reports
+ * CPU time and allocations for platform threads, and every call is measured into the plugin's {@link PluginUsage}.
+ * A watchdog checks each call once its time budget has passed; a call still running then counts as an
+ * overrun, and after {@link #MAX_OVERRUNS} overruns the owner is told so it can disable the plugin.
+ * The watchdog never kills a call; plugin code can't be stopped safely, only interrupted after shutdown.
+ */
+public class PluginExecutor implements Executor {
+    public static final Duration DEFAULT_CALL_BUDGET = Duration.ofSeconds(2);
+    public static final int MAX_OVERRUNS = 3;
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "trim-plugin-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String pluginId;
+    private final Duration budget;
+    private final ExecutorService executor;
+    private final Consumer<PluginExecutor> onOverrunLimit;
+    private final PluginUsage usage;
+    private final AtomicInteger overruns = new AtomicInteger();
+    private final AtomicBoolean limitReported = new AtomicBoolean();
+
+    /**
+     * @param pluginId The plugin whose code this runs
+     * @param budget How long a single call may take
+     * @param onOverrunLimit Called once, on the watchdog thread, when the plugin reaches {@link #MAX_OVERRUNS}
+     */
+    public PluginExecutor(String pluginId, Duration budget, Consumer<PluginExecutor> onOverrunLimit) {
+        this(pluginId, budget, onOverrunLimit, new PluginUsage());
+    }
+
+    /**
+     * @param pluginId The plugin whose code this runs
+     * @param budget How long a single call may take
+     * @param onOverrunLimit Called once, on the watchdog thread, when the plugin reaches {@link #MAX_OVERRUNS}
+     * @param usage Where the cost of each call is added up; may outlive this executor
+     */
+    public PluginExecutor(String pluginId, Duration budget, Consumer<PluginExecutor> onOverrunLimit, PluginUsage usage) {
+        this.pluginId = pluginId;
+        this.budget = Objects.requireNonNull(budget, "Budget cannot be null");
+        this.onOverrunLimit = onOverrunLimit;
+        this.usage = Objects.requireNonNull(usage, "Usage cannot be null");
+        this.executor = Executors.newCachedThreadPool(Thread.ofPlatform().daemon().name("trim-plugin-" + pluginId + "-", 1).factory());
+    }
+
+    /**
+     * Runs a piece of plugin code.
+     *
+     * @param description What the call is, for log messages (e.g. "toolbar action")
+     * @return Completes when the call returns; completes exceptionally if it throws
+     */
+    public CompletableFuture<Void> run(String description, Runnable task) {
+        return call(description, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a piece of plugin code that returns a value.
+     *
+     * @param description What the call is, for log messages
+     * @return Completes with the call's result; completes exceptionally if it throws
+     */
+    public <T> CompletableFuture<T> call(String description, Callable<T> task) {
+        CompletableFuture<T> result;
+        try {
+            result = CompletableFuture.supplyAsync(() -> {
+                PluginCallEvent event = new PluginCallEvent(pluginId, description);
+                event.begin();
+                try {
+                    T value = usage.call(task);
+                    event.succeeded = true;
+                    return value;
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                } finally {
+                    event.commit();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Plugin " + pluginId + " has been stopped"));
+        }
+        WATCHDOG.schedule(() -> {
+            if (!result.isDone()) {
+                overrun(description);
+            }
+        }, budget.toNanos(), TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private void overrun(String description) {
+        int count = overruns.incrementAndGet();
+        System.err.println("Plugin " + pluginId + ": " + description + " is still running after "
+                + budget.toMillis() + " ms (" + count + "/" + MAX_OVERRUNS + ")");
+        if (count >= MAX_OVERRUNS && limitReported.compareAndSet(false, true) && onOverrunLimit != null) {
+            try {
+                onOverrunLimit.accept(this);
+            } catch (Exception e) {
+                System.err.println("Error handling overrun limit of plugin " + pluginId + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Runs plugin code that is timed by the caller instead of the watchdog, such as {@code onLoad()}.
+     */
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(() -> usage.run(task));
+    }
+
+    public String getPluginId() {
+        return pluginId;
+    }
+
+    public Duration getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return What this plugin's calls have cost so far
+     */
+    public PluginUsage getUsage() {
+        return usage;
+    }
+
+    /**
+     * @return How many calls were still running when their budget ran out
+     */
+    public int getOverrunCount() {
+        return overruns.get();
+    }
+
+    /**
+     * Stops accepting calls. Calls already submitted may finish within the budget; any still running
+     * after that are interrupted.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        WATCHDOG.schedule(executor::shutdownNow, budget.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Waits for the calls submitted before {@link #shutdown()} to finish.
+     *
+     * @param timeout How long to wait at most
+     * @return true if they all finished, false if some were still running after the timeout
+     */
+    public boolean awaitTermination(Duration timeout) throws InterruptedException {
+        return executor.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,185 @@
+package com.github.RocketSmash9000.plugin;
+
+import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
+import org.apache.commons.io.monitor.FileAlterationMonitor;
+import org.apache.commons.io.monitor.FileAlterationObserver;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Watches the plugins directory and reloads a plugin when its JAR or ZIP is added, replaced or removed.
+ * <p>
+ * Changes are applied once the directory has been quiet for a whole polling interval, so a file that
+ * is still being copied isn't loaded half-written. Reloading runs on the watcher thread and never
+ * touches playback. Afterwards, each released plugin class loader is checked for a few intervals; one
+ * that never becomes unreachable is reported as a leak.
+ */
+public class PluginHotReloader {
+    public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+    // Polling intervals a released class loader gets to be collected before it counts as leaked
+    private static final int LEAK_CHECK_INTERVALS = 10;
+
+    private final PluginManager pluginManager;
+    private final Path pluginsDir;
+    private final FileAlterationMonitor monitor;
+    // Only touched on the watcher thread
+    private final Set<Path> pending = new LinkedHashSet<>();
+    private final List<LeakCheck> leakChecks = new ArrayList<>();
+    private boolean changedThisInterval;
+
+    /**
+     * @param pluginManager The plugin manager that loaded the plugins in {@code pluginsDir}
+     * @param pluginsDir The directory to watch
+     * @param intervalMillis How often the directory is scanned
+     */
+    public PluginHotReloader(PluginManager pluginManager, Path pluginsDir, long intervalMillis) {
+        this.pluginManager = pluginManager;
+        this.pluginsDir = pluginsDir.toAbsolutePath().normalize();
+        FileAlterationObserver observer = new FileAlterationObserver(this.pluginsDir.toFile());
+        observer.addListener(new FileAlterationListenerAdaptor() {
+            @Override
+            public void onStart(FileAlterationObserver observer) {
+                changedThisInterval = false;
+            }
+
+            @Override
+            public void onFileCreate(File file) {
+                changed(file);
+            }
+
+            @Override
+            public void onFileChange(File file) {
+                changed(file);
+            }
+
+            @Override
+            public void onFileDelete(File file) {
+                changed(file);
+            }
+
+            @Override
+            public void onStop(FileAlterationObserver observer) {
+                if (!changedThisInterval) {
+                    applyPending();
+                }
+                checkForLeaks();
+            }
+        });
+        this.monitor = new FileAlterationMonitor(intervalMillis, observer);
+        this.monitor.setThreadFactory(r -> {
+            Thread t = new Thread(r, "trim-plugin-watcher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts watching. The current contents of the directory count as already loaded.
+     */
+    public void start() {
+        try {
+            monitor.start();
+        } catch (Exception e) {
+            System.err.println("Failed to watch plugins directory: " + e.getMessage());
+        }
+    }
+
+    public void stop() {
+        try {
+            monitor.stop(0);
+        } catch (Exception e) {
+            // Not running
+        }
+    }
+
+    private void changed(File file) {
+        Path root = pluginRoot(file.toPath());
+        if (root != null) {
+            pending.add(root);
+            changedThisInterval = true;
+        }
+    }
+
+    /**
+     * Maps a changed file to the plugin it belongs to: a JAR or ZIP directly in the plugins directory,
+     * or a plugin directory with a changed JAR in it. Returns null for anything else, including the
+     * contents of directories older versions of TRiM expanded next to a ZIP. ZIPs are now unpacked into
+     * the {@link PluginCache}, outside the watched directory.
+     */
+    Path pluginRoot(Path changed) {
+        Path file = changed.toAbsolutePath().normalize();
+        if (!file.startsWith(pluginsDir) || file.equals(pluginsDir) || !isJarOrZip(file)) {
+            return null;
+        }
+        Path root = pluginsDir.resolve(pluginsDir.relativize(file).getName(0));
+        if (!root.equals(file) && Files.exists(root.resolveSibling(root.getFileName() + ".zip"))) {
+            return null;
+        }
+        return root;
+    }
+
+    // PF4J's FileUtils.isZipOrJarFile only matches existing files, and deletions have to count too
+    private static boolean isJarOrZip(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".jar") || name.endsWith(".zip");
+    }
+
+    private void applyPending() {
+        for (Iterator<Path> it = pending.iterator(); it.hasNext(); ) {
+            Path root = it.next();
+            it.remove();
+            try {
+                for (WeakReference<ClassLoader> loader : pluginManager.reloadPlugin(root)) {
+                    leakChecks.add(new LeakCheck(root.getFileName().toString(), loader));
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to reload plugin " + root.getFileName() + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void checkForLeaks() {
+        if (leakChecks.isEmpty()) {
+            return;
+        }
+        boolean lastChance = false;
+        for (LeakCheck check : leakChecks) {
+            lastChance |= ++check.intervals == LEAK_CHECK_INTERVALS - 1;
+        }
+        if (lastChance) {
+            // Give anything that is only waiting for a collection one last chance
+            System.gc();
+        }
+        leakChecks.removeIf(check -> {
+            if (check.loader.get() == null) {
+                return true;
+            }
+            if (check.intervals >= LEAK_CHECK_INTERVALS) {
+                System.err.println("Class loader of the old version of plugin " + check.plugin
+                        + " is still reachable after reload; something is holding on to its classes");
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static final class LeakCheck {
+        private final String plugin;
+        private final WeakReference<ClassLoader> loader;
+        private int intervals;
+
+        private LeakCheck(String plugin, WeakReference<ClassLoader> loader) {
+            this.plugin = plugin;
+            this.loader = loader;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.RocketSmash9000.plugin;
+
+import java.time.Duration;
+
+/**
+ * The outcome of a plugin's {@link TRiMPlugin#onLoad()} call and how long it took.
+ *
+ * @param status Whether the plugin loaded
+ * @param loadTime How long {@code onLoad()} ran, or the timeout if it never finished
+ */
+public record PluginLoadInfo(Status status, Duration loadTime) {
+
+    public enum Status {
+        /** {@code onLoad()} completed normally. */
+        LOADED,
+        /** {@code onLoad()} threw an exception. */
+        FAILED,
+        /** {@code onLoad()} did not finish within the load timeout. */
+        TIMED_OUT,
+        /** Not loaded because a plugin it depends on didn't load. */
+        SKIPPED,
+        /** Loaded in its own plugin host process, which then exited unexpectedly. */
+        CRASHED
+    }
+
+    /**
+     * @return A short human-readable summary, e.g. "loaded in 120 ms"
+     */
+    public String describe() {
+        return switch (status) {
+            case LOADED -> "loaded in " + loadTime.toMillis() + " ms";
+            case FAILED -> "failed after " + loadTime.toMillis() + " ms";
+            case TIMED_OUT -> "timed out after " + loadTime.toMillis() + " ms";
+            case SKIPPED -> "skipped, a dependency didn't load";
+            case CRASHED -> "crashed, its process exited";
+        };
+    }
+}
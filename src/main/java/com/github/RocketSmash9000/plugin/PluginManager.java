@@ -1,22 +1,75 @@
 package com.github.RocketSmash9000.plugin;
 
 import com.github.RocketSmash9000.config.PluginConfig;
+import com.github.RocketSmash9000.diagnostics.Counter;
+import com.github.RocketSmash9000.diagnostics.LatencyHistogram;
+import com.github.RocketSmash9000.diagnostics.Metrics;
+import com.github.RocketSmash9000.diagnostics.PluginCallEvent;
+import com.github.RocketSmash9000.plugin.event.PlaybackEventBus;
+import com.github.RocketSmash9000.plugin.event.PlaybackEventListener;
+import com.github.RocketSmash9000.plugin.host.RemoteTRiMPlugin;
+import com.github.RocketSmash9000.plugin.storage.PluginStorage;
 import org.pf4j.*;
 
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * Manages the lifecycle of TRiM plugins.
  * Handles loading, unloading, and accessing plugins.
+ * <p>
+ * Safe to use from any thread. Lookups such as {@link #getPlugin} and {@link #getExtensions} don't lock;
+ * lifecycle changes (initializing, enabling, disabling, activating, reloading, shutting down) are made
+ * one at a time under this manager's lock, so lookups see a plugin either before or after a change.
+ * A plugin's {@code onUnload()} is waited for outside the lock, on the plugin's own executor, and only for
+ * up to the load timeout, so a plugin that hangs while unloading holds up nothing but its own removal.
  */
 public class PluginManager {
+    /** How long a single plugin's {@code onLoad()} may run before the plugin is given up on. */
+    public static final Duration DEFAULT_LOAD_TIMEOUT = Duration.ofSeconds(10);
+    // Runs code of extensions that come with TRiM itself rather than from a plugin
+    private static final String SYSTEM_EXECUTOR_ID = "system";
+    // Shared by all managers; the hit ratio is 1 - misses / lookups
+    private static final Counter EXTENSION_LOOKUPS = Metrics.getDefault().counter("plugins.extensionLookups");
+    private static final Counter EXTENSION_CACHE_MISSES = Metrics.getDefault().counter("plugins.extensionMisses");
+    private static final LatencyHistogram LOAD_TIMES = Metrics.getDefault().histogram("plugins.load");
+
     private final org.pf4j.PluginManager pluginManager;
-    private final Map<String, TRiMPlugin> loadedPlugins = new HashMap<>();
+    private final Map<String, TRiMPlugin> loadedPlugins = new ConcurrentHashMap<>();
     private final Path pluginsDir;
-    private boolean initialized = false;
+    private volatile boolean initialized = false; // Only changed under this manager's lock
     private final boolean developmentMode;
     private final PluginConfig pluginConfig;
+    private final PluginCache pluginCache;
+    private final Path storageDir;
+    // Opened lazily by each plugin's first use; closed once the plugin is unloaded
+    private final Map<String, PluginStorage> storages = new ConcurrentHashMap<>();
+    private final Map<String, PluginLoadInfo> loadInfo = new ConcurrentHashMap<>();
+    private volatile Duration loadTimeout = DEFAULT_LOAD_TIMEOUT;
+    private volatile Duration callBudget = PluginExecutor.DEFAULT_CALL_BUDGET;
+    private final Map<String, PluginExecutor> executors = new ConcurrentHashMap<>();
+    // Kept across enable/disable so the Plugins dialog shows totals for the session; reset on reload
+    private final Map<String, PluginUsage> usage = new ConcurrentHashMap<>();
+    // Enabled plugins with lazy activation that haven't been started yet
+    private final Set<String> dormantPlugins = ConcurrentHashMap.newKeySet();
+    // Extension calls of dormant plugins that wait for the plugin to be started by something else; guarded by this
+    private final Map<String, List<DeferredTask>> deferredTasks = new HashMap<>();
+    // Disabled plugins whose onUnload() hasn't returned or timed out yet; they're stopped once it has
+    private final Map<String, CompletableFuture<Void>> deactivations = new ConcurrentHashMap<>();
+    // Extensions by type; replaced wholesale whenever the set of started plugins changes
+    private volatile Map<Class<?>, List<?>> extensionCache = new ConcurrentHashMap<>();
+    private final List<ExtensionTracker<?>> extensionTrackers = new ArrayList<>(); // Guarded by this
+    // Set once the application hands its bus over; out-of-process plugins loaded later subscribe to it then
+    private volatile PlaybackEventBus eventBus;
 
     /**
      * Creates a new PluginManager with the specified configuration.
@@ -25,20 +78,61 @@ public class PluginManager {
      * @param developmentMode Whether to run in development mode (loads plugins from build directories)
      */
     public PluginManager(Path pluginsDir, boolean developmentMode) {
+        this(pluginsDir, developmentMode, new PluginConfig());
+    }
+
+    /**
+     * Creates a new PluginManager that keeps plugin states in the given configuration.
+     *
+     * @param pluginsDir The directory where plugins are stored
+     * @param developmentMode Whether to run in development mode (loads plugins from build directories)
+     * @param pluginConfig The configuration holding which plugins are enabled
+     */
+    public PluginManager(Path pluginsDir, boolean developmentMode, PluginConfig pluginConfig) {
         this.pluginsDir = pluginsDir;
         this.developmentMode = developmentMode;
-        this.pluginConfig = new PluginConfig();
+        this.pluginConfig = pluginConfig;
+        // Needed by the overrides below, which PF4J calls from its constructor
+        this.pluginCache = new PluginCache(pluginsDir, PluginCache.defaultCacheDir(pluginsDir));
+        Path absolutePluginsDir = pluginsDir.toAbsolutePath().normalize();
+        this.storageDir = absolutePluginsDir.resolveSibling(absolutePluginsDir.getFileName() + "-data");
         
         this.pluginManager = new DefaultPluginManager(pluginsDir) {
             @Override
             protected ExtensionFactory createExtensionFactory() {
-                return new DefaultExtensionFactory();
+                // One instance per extension class for as long as its plugin is started,
+                // so trackers see the same objects across cache invalidations
+                return new SingletonExtensionFactory(this);
             }
             
             @Override
             protected PluginFactory createPluginFactory() {
                 return new TRiMPluginFactory();
             }
+
+            @Override
+            protected PluginDescriptorFinder createPluginDescriptorFinder() {
+                // PF4J's defaults, but also reading whether a plugin wants lazy activation
+                return new PluginCache.CachingDescriptorFinder(pluginCache, new CompoundPluginDescriptorFinder()
+                        .add(new TRiMPluginDescriptor.PropertiesFinder())
+                        .add(new TRiMPluginDescriptor.ManifestFinder()));
+            }
+
+            @Override
+            protected PluginRepository createPluginRepository() {
+                // As PF4J's, except that ZIPs are unpacked into the plugin cache rather than next to themselves
+                return new CompoundPluginRepository()
+                        .add(new DevelopmentPluginRepository(getPluginsRoots()), this::isDevelopment)
+                        .add(new JarPluginRepository(getPluginsRoots()), this::isNotDevelopment)
+                        .add(new PluginCache.CachingRepository(pluginCache), this::isNotDevelopment);
+            }
+
+            @Override
+            protected ExtensionFinder createExtensionFinder() {
+                ExtensionFinder finder = new PluginCache.CachingExtensionFinder(this, pluginCache);
+                addPluginStateListener((PluginStateListener) finder);
+                return finder;
+            }
             
             @Override
             public boolean isDevelopment() {
@@ -49,9 +143,13 @@ public class PluginManager {
 
     /**
      * Initializes the plugin manager and loads all available plugins.
+     * The plugins' {@code onLoad()} calls run in parallel, in dependency order; see {@link #getLoadInfo}
+     * for how long each one took. Plugins with lazy activation are left unstarted until one of their
+     * extensions is called, unless a plugin started now depends on them. Plugins set to run out of process
+     * get a plugin host each and aren't started in TRiM at all.
      */
 	@SuppressWarnings("D")
-    public void initialize() {
+    public synchronized void initialize() {
         if (initialized) {
             return;
         }
@@ -67,67 +165,527 @@ public class PluginManager {
         pluginManager.loadPlugins();
 
         // Start only plugins that are enabled in the configuration
+        List<PluginWrapper> outOfProcess = new ArrayList<>();
         for (PluginWrapper wrapper : pluginManager.getPlugins()) {
             String pid = wrapper.getPluginId();
             boolean enabled = pluginConfig.isPluginEnabled(pid);
-            if (enabled) {
+            if (enabled && runsOutOfProcess(wrapper)) {
+                outOfProcess.add(wrapper);
+            } else if (enabled && TRiMPluginDescriptor.isLazy(wrapper.getDescriptor())) {
+                dormantPlugins.add(pid);
+            } else if (enabled) {
                 pluginManager.startPlugin(pid);
             } else if (wrapper.getPluginState() == PluginState.STARTED) {
                 pluginManager.stopPlugin(pid);
             }
         }
+        // Starting a plugin also starts the plugins it depends on
+        dormantPlugins.removeIf(pid -> pluginManager.getPlugin(pid).getPluginState() == PluginState.STARTED);
 
-        // Get all started plugins
-        List<PluginWrapper> startedPlugins = pluginManager.getStartedPlugins();
+        // Initialize TRiM plugins; PF4J lists started plugins with dependencies first
+        List<PluginWrapper> toLoad = new ArrayList<>(pluginManager.getStartedPlugins());
+        toLoad.addAll(outOfProcess);
+        loadPlugins(toLoad);
         
-        // Initialize TRiM plugins
-        for (PluginWrapper pluginWrapper : startedPlugins) {
-            TRiMPlugin plugin = getTRiMPlugin(pluginWrapper);
+        initialized = true;
+        invalidateExtensions();
+        // By now the extension indexes have been read too
+        pluginCache.save();
+    }
+
+    /**
+     * Calls {@link TRiMPlugin#onLoad()} of the given plugins in parallel. A plugin's {@code onLoad()} only
+     * runs once all plugins it depends on have loaded, and is given up on after the load timeout.
+     * Blocks until every plugin has loaded, failed or timed out.
+     *
+     * @param wrappers Started plugins, and unstarted ones that are to run out of process
+     */
+    private void loadPlugins(List<PluginWrapper> wrappers) {
+        List<PendingLoad> pending = new ArrayList<>();
+        for (PluginWrapper wrapper : wrappers) {
+            TRiMPlugin plugin = wrapper.getPluginState() == PluginState.STARTED
+                    ? getTRiMPlugin(wrapper) : newRemotePlugin(wrapper);
             if (plugin != null && isPluginEnabled(plugin)) {
+                // Update plugin info in config
+                pluginConfig.updatePluginInfo(plugin.getPluginId(), plugin.getVersion());
+                pending.add(new PendingLoad(wrapper, plugin));
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // Each onLoad() runs on its plugin's own executor
+        Map<String, CompletableFuture<Boolean>> loads = new HashMap<>();
+        for (PendingLoad load : pending) {
+            String id = load.wrapper().getPluginId();
+            List<CompletableFuture<Boolean>> dependencies = new ArrayList<>();
+            for (PluginDependency dependency : load.wrapper().getDescriptor().getDependencies()) {
+                CompletableFuture<Boolean> dependencyLoad = loads.get(dependency.getPluginId());
+                if (dependencyLoad != null) {
+                    dependencies.add(dependencyLoad);
+                }
+            }
+            loads.put(id, CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0]))
+                    .thenCompose(ignored -> {
+                        if (dependencies.stream().anyMatch(dependency -> !dependency.join())) {
+                            loadInfo.put(id, new PluginLoadInfo(PluginLoadInfo.Status.SKIPPED, Duration.ZERO));
+                            System.err.println("Skipping plugin " + id + ": a plugin it depends on failed to load");
+                            return CompletableFuture.completedFuture(false);
+                        }
+                        return loadWithTimeout(id, load.plugin());
+                    }));
+        }
+        CompletableFuture.allOf(loads.values().toArray(new CompletableFuture[0])).join();
+
+        for (PendingLoad load : pending) {
+            TRiMPlugin plugin = load.plugin();
+            if (loads.get(load.wrapper().getPluginId()).join()) {
+                loadedPlugins.put(plugin.getPluginId(), plugin);
+                forwardEvents(plugin);
+                System.out.println("Loaded plugin: " + plugin.getDisplayName() + " v" + plugin.getVersion()
+                        + " (" + loadInfo.get(load.wrapper().getPluginId()).describe() + ")");
+            }
+        }
+    }
+
+    private CompletableFuture<Boolean> loadWithTimeout(String pluginId, TRiMPlugin plugin) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        // Whichever of the load and the timeout settles first records the outcome before completing
+        AtomicBoolean settled = new AtomicBoolean();
+        Duration timeout = loadTimeout;
+        CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            boolean success = false;
+            PluginCallEvent event = new PluginCallEvent(pluginId, "onLoad");
+            event.begin();
+            try {
+                // A plugin host opens the storage itself
+                if (!(plugin instanceof RemoteTRiMPlugin)) {
+                    plugin.setStorage(storageFor(pluginId));
+                }
+                // Initialize the plugin
+                plugin.onLoad();
+                success = true;
+            } catch (Exception e) {
+                System.err.println("Failed to initialize plugin " + pluginId + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+            event.succeeded = success;
+            event.commit();
+            LOAD_TIMES.recordSince(start);
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            if (settled.compareAndSet(false, true)) {
+                loadInfo.put(pluginId, new PluginLoadInfo(success ? PluginLoadInfo.Status.LOADED : PluginLoadInfo.Status.FAILED, elapsed));
+                result.complete(success);
+            } else if (success) {
+                // Finished after it was given up on; don't leave it half-registered
+                System.err.println("Plugin " + pluginId + " finished loading after its timeout (" + elapsed.toMillis() + " ms), unloading it");
                 try {
-                    // Update plugin info in config
-                    pluginConfig.updatePluginInfo(plugin.getPluginId(), plugin.getVersion());
-                    
-                    // Initialize the plugin
-                    plugin.onLoad();
-                    loadedPlugins.put(plugin.getPluginId(), plugin);
-                    System.out.println("Loaded plugin: " + plugin.getDisplayName() + " v" + plugin.getVersion());
+                    plugin.onUnload();
                 } catch (Exception e) {
-                    System.err.println("Failed to initialize plugin " + pluginWrapper.getPluginId() + ": " + e.getMessage());
-                    e.printStackTrace();
+                    System.err.println("Error unloading plugin " + pluginId + ": " + e.getMessage());
                 }
             }
+        }, executorFor(pluginId));
+        CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (settled.compareAndSet(false, true)) {
+                loadInfo.put(pluginId, new PluginLoadInfo(PluginLoadInfo.Status.TIMED_OUT, timeout));
+                System.err.println("Plugin " + pluginId + " did not finish loading within " + timeout.toMillis() + " ms");
+                result.complete(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Calls a plugin's {@code onUnload()} on its own executor. Never blocks.
+     *
+     * @return Completes once {@code onUnload()} returns or throws, or after the load timeout if it doesn't,
+     *         in which case the plugin is treated as unloaded anyway
+     */
+    private CompletableFuture<Void> unloadWithTimeout(String pluginId, TRiMPlugin plugin) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Duration timeout = loadTimeout;
+        Runnable unload = () -> {
+            PluginCallEvent event = new PluginCallEvent(pluginId, "onUnload");
+            event.begin();
+            try {
+                plugin.onUnload();
+                event.succeeded = true;
+            } catch (Exception e) {
+                System.err.println("Error unloading plugin " + pluginId + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+            event.commit();
+            result.complete(null);
+        };
+        try {
+            executorFor(pluginId).execute(unload);
+        } catch (RejectedExecutionException e) {
+            // Its executor is already stopping; nothing of the plugin's is running anymore
+            unload.run();
+            return result;
         }
-        
-        initialized = true;
+        CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.complete(null)) {
+                System.err.println("Plugin " + pluginId + " did not finish unloading within " + timeout.toMillis()
+                        + " ms; treating it as unloaded");
+            }
+        });
+        return result;
+    }
+
+    private record PendingLoad(PluginWrapper wrapper, TRiMPlugin plugin) {
+    }
+
+    // Plugins that depend on others, or that others depend on, share classes with them and have to stay in TRiM
+    private boolean runsOutOfProcess(PluginWrapper wrapper) {
+        String pluginId = wrapper.getPluginId();
+        if (!pluginConfig.isOutOfProcess(pluginId)) {
+            return false;
+        }
+        List<PluginWrapper> dependents = new ArrayList<>();
+        collectDependents(pluginId, dependents);
+        if (!wrapper.getDescriptor().getDependencies().isEmpty() || !dependents.isEmpty()) {
+            System.err.println("Running plugin " + pluginId + " inside TRiM: plugins with dependencies or dependents can't run out of process");
+            return false;
+        }
+        return true;
+    }
+
+    private RemoteTRiMPlugin newRemotePlugin(PluginWrapper wrapper) {
+        return new RemoteTRiMPlugin(wrapper.getDescriptor(), wrapper.getPluginPath(), storageFileFor(wrapper.getPluginId()),
+                developmentMode, loadTimeout, this::remotePluginCrashed);
+    }
+
+    private PluginStorage storageFor(String pluginId) {
+        return storages.computeIfAbsent(pluginId, id -> new PluginStorage(storageFileFor(id)));
+    }
+
+    private Path storageFileFor(String pluginId) {
+        return storageDir.resolve(pluginId.replaceAll("[^A-Za-z0-9._-]", "_") + ".log");
+    }
+
+    private void closeStorage(String pluginId) {
+        PluginStorage storage = storages.remove(pluginId);
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    private void forwardEvents(TRiMPlugin plugin) {
+        PlaybackEventBus bus = eventBus;
+        if (plugin instanceof RemoteTRiMPlugin remote && bus != null) {
+            remote.forwardEvents(bus);
+        }
+    }
+
+    // Called on a background thread when a plugin host exits without being asked to
+    private void remotePluginCrashed(RemoteTRiMPlugin plugin, int exitCode) {
+        String pluginId = plugin.getPluginId();
+        if (loadedPlugins.remove(pluginId, plugin)) {
+            PluginLoadInfo previous = loadInfo.get(pluginId);
+            loadInfo.put(pluginId, new PluginLoadInfo(PluginLoadInfo.Status.CRASHED,
+                    previous != null ? previous.loadTime() : Duration.ZERO));
+            System.err.println("Plugin host for " + pluginId + " exited with code " + exitCode + "; the plugin is no longer running");
+        }
+    }
+
+    /**
+     * Checks whether a plugin is set to run in its own plugin host process.
+     *
+     * @param pluginId The ID of the plugin
+     * @return true if the plugin is set to run out of process
+     */
+    public boolean isOutOfProcess(String pluginId) {
+        return pluginConfig.isOutOfProcess(pluginId);
+    }
+
+    /**
+     * Sets whether a plugin runs in its own plugin host process. An enabled plugin is moved right away,
+     * which waits for its {@code onLoad()}, so don't call this on the FX thread.
+     *
+     * @param pluginId The ID of the plugin
+     * @param outOfProcess Whether the plugin should run out of process
+     */
+    public void setOutOfProcess(String pluginId, boolean outOfProcess) {
+        if (pluginConfig.isOutOfProcess(pluginId) == outOfProcess) {
+            return;
+        }
+        pluginConfig.setOutOfProcess(pluginId, outOfProcess);
+        if (pluginConfig.isPluginEnabled(pluginId)) {
+            setPluginEnabled(pluginId, false);
+            setPluginEnabled(pluginId, true);
+        }
+    }
+
+    /**
+     * Checks whether a plugin is currently loaded in a plugin host process.
+     *
+     * @param pluginId The ID of the plugin
+     * @return true if the plugin is loaded and runs out of process
+     */
+    public boolean isRunningOutOfProcess(String pluginId) {
+        return loadedPlugins.get(pluginId) instanceof RemoteTRiMPlugin;
+    }
+
+    /**
+     * Runs a call into an extension on the executor of the plugin that provides it, within the call budget.
+     * Never blocks; use the returned future to continue, and {@code Platform.runLater} for any UI updates.
+     *
+     * @param extension The extension being called
+     * @param description What the call is, for log messages (e.g. "toolbar action")
+     * @param task The call
+     * @return Completes when the call returns; completes exceptionally if it throws
+     */
+    public CompletableFuture<Void> runExtensionTask(Object extension, String description, Runnable task) {
+        return runPluginTask(ownerOf(extension), description, task);
+    }
+
+    private String ownerOf(Object extension) {
+        PluginWrapper owner = pluginManager.whichPlugin(extension.getClass());
+        return owner != null ? owner.getPluginId() : SYSTEM_EXECUTOR_ID;
+    }
+
+    /**
+     * Like {@link #runExtensionTask}, except that it doesn't start a plugin awaiting lazy activation. The call
+     * waits until the plugin is started by something else, such as a call to another of its extensions.
+     * Meant for notifications a plugin has no use for before it starts, such as handing it a resource.
+     *
+     * @return Completes when the call returns; completes exceptionally if it throws, and is cancelled
+     *         if the plugin is stopped, disabled or reloaded before it starts
+     */
+    public CompletableFuture<Void> runExtensionTaskWhenStarted(Object extension, String description, Runnable task) {
+        String pluginId = ownerOf(extension);
+        synchronized (this) {
+            // Plugins only leave the dormant set under this lock
+            if (dormantPlugins.contains(pluginId)) {
+                CompletableFuture<Void> result = new CompletableFuture<>();
+                deferredTasks.computeIfAbsent(pluginId, id -> new ArrayList<>()).add(new DeferredTask(description, task, result));
+                return result;
+            }
+        }
+        return runPluginTask(pluginId, description, task);
+    }
+
+    private record DeferredTask(String description, Runnable task, CompletableFuture<Void> result) {
+    }
+
+    // Runs the calls that waited for a plugin to start, or cancels them if it didn't load
+    private void runDeferredTasks(String pluginId) {
+        List<DeferredTask> tasks = deferredTasks.remove(pluginId);
+        if (tasks == null) {
+            return;
+        }
+        for (DeferredTask deferred : tasks) {
+            if (!loadedPlugins.containsKey(pluginId)) {
+                deferred.result().cancel(false);
+            } else if (!deferred.result().isDone()) {
+                runPluginTask(pluginId, deferred.description(), deferred.task()).whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        deferred.result().completeExceptionally(e);
+                    } else {
+                        deferred.result().complete(null);
+                    }
+                });
+            }
+        }
+    }
+
+    // Called with this manager's lock held when a dormant plugin goes away without being started,
+    // before extension trackers hear about it
+    private void cancelDeferredTasks(String pluginId) {
+        List<DeferredTask> tasks = deferredTasks.remove(pluginId);
+        if (tasks != null) {
+            for (DeferredTask deferred : tasks) {
+                deferred.result().cancel(false);
+            }
+        }
+    }
+
+    CompletableFuture<Void> runPluginTask(String pluginId, String description, Runnable task) {
+        if (dormantPlugins.contains(pluginId)) {
+            // The first call pays for starting the plugin, on the plugin's own thread
+            return executorFor(pluginId).run(description, () -> {
+                activate(pluginId);
+                task.run();
+            });
+        }
+        return executorFor(pluginId).run(description, task);
+    }
+
+    /**
+     * Starts a plugin with lazy activation, and any lazy plugins it depends on, and waits for their
+     * {@code onLoad()}. Calls racing to activate the same plugin wait for the first one.
+     */
+    private synchronized void activate(String pluginId) {
+        if (!dormantPlugins.remove(pluginId)) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (pluginManager.startPlugin(pluginId) != PluginState.STARTED) {
+            System.err.println("Failed to start plugin " + pluginId + " on first use");
+            cancelDeferredTasks(pluginId);
+            return;
+        }
+        // Started plugins come dependencies first
+        List<PluginWrapper> activated = new ArrayList<>();
+        for (PluginWrapper wrapper : pluginManager.getStartedPlugins()) {
+            String id = wrapper.getPluginId();
+            if (id.equals(pluginId) || dormantPlugins.remove(id)) {
+                activated.add(wrapper);
+            }
+        }
+        loadPlugins(activated);
+        invalidateExtensions();
+        for (PluginWrapper wrapper : activated) {
+            runDeferredTasks(wrapper.getPluginId());
+        }
+        System.out.println("Activated plugin " + pluginId + " on first use in "
+                + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+    }
+
+    /**
+     * Checks whether a plugin is enabled but waiting for one of its extensions to be used before it starts.
+     *
+     * @param pluginId The ID of the plugin
+     * @return true if the plugin has lazy activation and hasn't been started yet
+     */
+    public boolean isAwaitingActivation(String pluginId) {
+        return dormantPlugins.contains(pluginId);
+    }
+
+    private PluginExecutor executorFor(String pluginId) {
+        return executors.computeIfAbsent(pluginId, id -> new PluginExecutor(id, callBudget,
+                SYSTEM_EXECUTOR_ID.equals(id) ? null : this::budgetExceeded, usageFor(id)));
+    }
+
+    private PluginUsage usageFor(String pluginId) {
+        return usage.computeIfAbsent(pluginId, id -> new PluginUsage());
+    }
+
+    /**
+     * Gets what a plugin's calls have cost since it was installed or last reloaded: calls made on its executor,
+     * including {@code onLoad()}, and playback events delivered to its listeners.
+     *
+     * @param pluginId The ID of the plugin
+     * @return The plugin's usage, or null if TRiM hasn't called into it yet
+     */
+    public PluginUsage.Snapshot getUsage(String pluginId) {
+        PluginUsage pluginUsage = usage.get(pluginId);
+        return pluginUsage != null ? pluginUsage.snapshot() : null;
+    }
+
+    // Called on the watchdog thread once a plugin has run over its budget too often
+    private synchronized void budgetExceeded(PluginExecutor executor) {
+        String pluginId = executor.getPluginId();
+        if (executors.get(pluginId) != executor) {
+            // Disabled since the watchdog fired, and maybe re-enabled with a fresh executor
+            return;
+        }
+        String reason = "exceeded its " + executor.getBudget().toMillis() + " ms time budget "
+                + executor.getOverrunCount() + " times";
+        System.err.println("Disabling plugin " + pluginId + ": " + reason);
+        // The reason is recorded before the plugin goes away, so nobody sees it unloaded without one
+        pluginConfig.disablePlugin(pluginId, reason);
+        PluginWrapper wrapper = pluginManager.getPlugin(pluginId);
+        if (wrapper != null) {
+            // Not waited for; this is the watchdog thread every plugin's budget checks share
+            deactivate(pluginId, wrapper);
+        }
+    }
+
+    private void stopExecutor(String pluginId) {
+        PluginExecutor executor = executors.remove(pluginId);
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Sets how long a single call into a plugin may run before it counts as an overrun.
+     *
+     * @param callBudget The budget; applies to plugins started afterwards
+     */
+    public void setCallBudget(Duration callBudget) {
+        this.callBudget = Objects.requireNonNull(callBudget, "Call budget cannot be null");
+    }
+
+    /**
+     * Gets why TRiM disabled a plugin, if it did.
+     *
+     * @param pluginId The ID of the plugin
+     * @return The reason, or null if the plugin wasn't disabled by TRiM
+     */
+    public String getDisabledReason(String pluginId) {
+        return pluginConfig.getDisabledReason(pluginId);
+    }
+
+    /**
+     * Gets how a plugin's last load went.
+     *
+     * @param pluginId The ID of the plugin
+     * @return The load outcome and time, or null if the plugin hasn't been loaded
+     */
+    public PluginLoadInfo getLoadInfo(String pluginId) {
+        return loadInfo.get(pluginId);
+    }
+
+    /**
+     * Sets how long a single plugin's {@code onLoad()} may run before the plugin is given up on.
+     *
+     * @param loadTimeout The timeout; applies to plugins loaded afterwards
+     */
+    public void setLoadTimeout(Duration loadTimeout) {
+        this.loadTimeout = Objects.requireNonNull(loadTimeout, "Load timeout cannot be null");
     }
 
     /**
      * Shuts down the plugin manager and unloads all plugins.
      */
     public void shutdown() {
+        List<CompletableFuture<Void>> unloads = new ArrayList<>();
+        synchronized (this) {
+            if (!initialized) {
+                return;
+            }
+            // Unload all TRiM plugins, each on its own executor
+            for (TRiMPlugin plugin : new ArrayList<>(loadedPlugins.values())) {
+                unloads.add(unloadWithTimeout(plugin.getPluginId(), plugin));
+            }
+            unloads.addAll(deactivations.values());
+            loadedPlugins.clear();
+            dormantPlugins.clear();
+            for (String pluginId : new ArrayList<>(deferredTasks.keySet())) {
+                cancelDeferredTasks(pluginId);
+            }
+        }
+        // Outside the lock, and for at most the load timeout
+        CompletableFuture.allOf(unloads.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+        stopAll();
+    }
+
+    private synchronized void stopAll() {
         if (!initialized) {
             return;
         }
-        
-        // Unload all TRiM plugins
-        for (TRiMPlugin plugin : new ArrayList<>(loadedPlugins.values())) {
-            try {
-                plugin.onUnload();
-            } catch (Exception e) {
-                System.err.println("Error unloading plugin " + plugin.getPluginId() + ": " + e.getMessage());
-                e.printStackTrace();
-            }
+        for (String pluginId : new ArrayList<>(storages.keySet())) {
+            closeStorage(pluginId);
         }
         
-        // Clear loaded plugins
-        loadedPlugins.clear();
-        
         // Stop and unload all plugins
         pluginManager.stopPlugins();
         pluginManager.unloadPlugins();
         
         initialized = false;
+        invalidateExtensions();
+        // Last, so calls made by extension trackers on the way out still get to run
+        for (String pluginId : new ArrayList<>(executors.keySet())) {
+            stopExecutor(pluginId);
+        }
+        // Status changes made while running, such as crashed or disabled plugins, are on disk once this returns
+        pluginConfig.flush();
     }
     
     /**
@@ -151,15 +709,335 @@ public class PluginManager {
     
     /**
      * Gets all extensions of the specified type from all plugins.
+     * <p>
+     * The first lookup of a type asks PF4J, which reads the extension indexes and creates the extension
+     * instances; later lookups skip the index until a plugin is started or stopped. An extension is
+     * instantiated once and stays the same object for as long as its plugin is started.
+     * <p>
+     * Extensions of plugins awaiting lazy activation are included. They are created without starting
+     * their plugin, and keep their identity once it starts.
      * 
      * @param type The extension type class
      * @param <T> The extension type
-     * @return A list of extensions
+     * @return An unmodifiable list of extensions
      */
+    @SuppressWarnings("unchecked")
     public <T> List<T> getExtensions(Class<T> type) {
-        return pluginManager.getExtensions(type);
+        EXTENSION_LOOKUPS.increment();
+        return (List<T>) extensionCache.computeIfAbsent(type, t -> {
+            EXTENSION_CACHE_MISSES.increment();
+            return List.copyOf(findExtensions(type));
+        });
+    }
+
+    private <T> List<T> findExtensions(Class<T> type) {
+        List<T> extensions = new ArrayList<>(pluginManager.getExtensions(type));
+        for (String pluginId : dormantPlugins) {
+            PluginWrapper wrapper = pluginManager.getPlugin(pluginId);
+            // PF4J only instantiates extensions of started plugins, so go through its index and factory directly
+            for (String className : pluginManager.getExtensionClassNames(pluginId)) {
+                try {
+                    Class<?> extensionClass = Class.forName(className, false, wrapper.getPluginClassLoader());
+                    if (type.isAssignableFrom(extensionClass)) {
+                        extensions.add(type.cast(pluginManager.getExtensionFactory().create(extensionClass)));
+                    }
+                } catch (ClassNotFoundException | RuntimeException e) {
+                    System.err.println("Failed to create extension " + className + " of plugin " + pluginId + ": " + e.getMessage());
+                }
+            }
+        }
+        return extensions;
+    }
+
+    // Lookups still running against the old map finish there and are dropped with it
+    private void invalidateExtensions() {
+        extensionCache = new ConcurrentHashMap<>();
+        syncExtensionTrackers();
+    }
+
+    /**
+     * Follows the extensions of a type as plugins come and go. {@code onAdded} is called right away for
+     * the extensions already available, and from then on for each extension whose plugin starts;
+     * {@code onRemoved} is called for each extension whose plugin stops, including at shutdown.
+     * The callbacks run on whichever thread changed the plugins and should return quickly.
+     *
+     * @param type The extension type
+     * @param onAdded Called with each extension that became available
+     * @param onRemoved Called with each extension that went away
+     */
+    public synchronized <T> void trackExtensions(Class<T> type, Consumer<? super T> onAdded, Consumer<? super T> onRemoved) {
+        ExtensionTracker<T> tracker = new ExtensionTracker<>(type, onAdded, onRemoved);
+        extensionTrackers.add(tracker);
+        tracker.sync(initialized ? getExtensions(type) : List.of());
+    }
+
+    /**
+     * Subscribes {@link PlaybackEventListener} extensions to the given bus, and unsubscribes them
+     * again when their plugin is disabled. Plugins running out of process get every event sent to their host.
+     *
+     * @param eventBus The application's playback event bus
+     */
+    public synchronized void setEventBus(PlaybackEventBus eventBus) {
+        this.eventBus = eventBus;
+        // Plugins in a host process get the events forwarded there instead
+        for (TRiMPlugin plugin : new ArrayList<>(loadedPlugins.values())) {
+            forwardEvents(plugin);
+        }
+        // Only touched from tracker callbacks, which run under this manager's lock
+        Map<PlaybackEventListener, PlaybackEventBus.Subscription> subscriptions = new IdentityHashMap<>();
+        trackExtensions(PlaybackEventListener.class, listener -> {
+            // Deliveries run on the bus's own threads, so they're measured here rather than by the plugin's executor
+            String owner = ownerOf(listener);
+            PluginUsage listenerUsage = usageFor(owner);
+            subscriptions.put(listener, eventBus.subscribe(listener.getClass().getName(), event -> {
+                        if (dormantPlugins.contains(owner)) {
+                            activate(owner);
+                        }
+                        listenerUsage.run(() -> listener.onPlaybackEvent(event));
+                    },
+                    listener.getQueueCapacity(), listener.getOverflowPolicy()));
+        }, listener -> subscriptions.remove(listener).cancel());
+    }
+
+    private synchronized void syncExtensionTrackers() {
+        for (ExtensionTracker<?> tracker : extensionTrackers) {
+            syncTracker(tracker);
+        }
+    }
+
+    private <T> void syncTracker(ExtensionTracker<T> tracker) {
+        tracker.sync(initialized ? getExtensions(tracker.type) : List.of());
+    }
+
+    /**
+     * Remembers which extensions of one type a tracker has been told about.
+     */
+    private static final class ExtensionTracker<T> {
+        private final Class<T> type;
+        private final Consumer<? super T> onAdded;
+        private final Consumer<? super T> onRemoved;
+        // Keyed by identity; extension instances live as long as their plugin is started
+        private final Set<T> known = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private ExtensionTracker(Class<T> type, Consumer<? super T> onAdded, Consumer<? super T> onRemoved) {
+            this.type = type;
+            this.onAdded = onAdded;
+            this.onRemoved = onRemoved;
+        }
+
+        private void sync(List<T> current) {
+            Set<T> live = Collections.newSetFromMap(new IdentityHashMap<>());
+            live.addAll(current);
+            for (Iterator<T> it = known.iterator(); it.hasNext(); ) {
+                T extension = it.next();
+                if (!live.contains(extension)) {
+                    it.remove();
+                    notify(onRemoved, extension);
+                }
+            }
+            for (T extension : current) {
+                if (known.add(extension)) {
+                    notify(onAdded, extension);
+                }
+            }
+        }
+
+        private void notify(Consumer<? super T> callback, T extension) {
+            try {
+                callback.accept(extension);
+            } catch (Exception e) {
+                System.err.println("Error tracking " + type.getSimpleName() + " " + extension.getClass().getName() + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Swaps in a new version of a plugin after its JAR or ZIP changed on disk, without touching playback.
+     * <p>
+     * The old version is unloaded along with any plugins that depend on it, which also closes their
+     * class loaders. Then the file is loaded again, if it still exists, and so are the dependents.
+     * Plugins that are enabled in the configuration are started and loaded as at startup. Extension
+     * trackers see the old extensions go and the new ones arrive. Calls already queued on the old plugins'
+     * executors, such as those trackers make as the old extensions go, are waited for before the class loaders
+     * close, for at most the load timeout.
+     *
+     * @param pluginPath The plugin file or directory that changed, directly inside the plugins directory
+     * @return The class loaders that were released; each should become unreachable unless something leaks it
+     */
+    public List<WeakReference<ClassLoader>> reloadPlugin(Path pluginPath) {
+        Path path = pluginPath.toAbsolutePath().normalize();
+        PluginWrapper old;
+        List<PluginWrapper> affected = new ArrayList<>();
+        List<CompletableFuture<Void>> unloads = new ArrayList<>();
+        synchronized (this) {
+            old = findPluginAt(path);
+            if (old != null) {
+                // Dependents go first, and come back after the new version
+                collectDependents(old.getPluginId(), affected);
+                Collections.reverse(affected);
+                affected.add(old);
+                for (PluginWrapper wrapper : affected) {
+                    String pluginId = wrapper.getPluginId();
+                    dormantPlugins.remove(pluginId);
+                    cancelDeferredTasks(pluginId);
+                    TRiMPlugin plugin = loadedPlugins.remove(pluginId);
+                    if (plugin != null) {
+                        unloads.add(unloadWithTimeout(pluginId, plugin));
+                    }
+                }
+            }
+        }
+        // Outside the lock, and for at most the load timeout
+        CompletableFuture.allOf(unloads.toArray(new CompletableFuture[0])).join();
+        awaitStopped(stopForReload(affected));
+        return finishReload(path, old, affected);
+    }
+
+    /**
+     * Stops the plugins a reload replaces, once their onUnload() is out of the way, and lets trackers drop
+     * their extensions while the classes can still run.
+     *
+     * @return The plugins' executors, stopped but maybe still running what the trackers handed them
+     */
+    private synchronized List<PluginExecutor> stopForReload(List<PluginWrapper> affected) {
+        // Another reload may have dealt with some of them in the meantime
+        affected.removeIf(wrapper -> pluginManager.getPlugin(wrapper.getPluginId()) != wrapper);
+        for (PluginWrapper wrapper : affected) {
+            String pluginId = wrapper.getPluginId();
+            closeStorage(pluginId);
+            loadInfo.remove(pluginId);
+            dormantPlugins.remove(pluginId);
+            if (wrapper.getPluginState() == PluginState.STARTED) {
+                pluginManager.stopPlugin(pluginId);
+            }
+        }
+        invalidateExtensions();
+        List<PluginExecutor> stopped = new ArrayList<>();
+        for (PluginWrapper wrapper : affected) {
+            PluginExecutor executor = executors.remove(wrapper.getPluginId());
+            if (executor != null) {
+                executor.shutdown();
+                stopped.add(executor);
+            }
+        }
+        return stopped;
+    }
+
+    // Waits outside the lock, for at most the load timeout in all, so nothing runs plugin code once its loader closes
+    private void awaitStopped(List<PluginExecutor> stopped) {
+        long deadline = System.nanoTime() + loadTimeout.toNanos();
+        for (PluginExecutor executor : stopped) {
+            try {
+                if (!executor.awaitTermination(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())))) {
+                    System.err.println("Plugin " + executor.getPluginId() + " still has calls running after "
+                            + loadTimeout.toMillis() + " ms; unloading it anyway");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // The rest of reloadPlugin(), once nothing of the old plugins is running anymore
+    private synchronized List<WeakReference<ClassLoader>> finishReload(Path path, PluginWrapper old, List<PluginWrapper> affected) {
+        List<WeakReference<ClassLoader>> released = new ArrayList<>();
+        List<Path> reloadAfter = new ArrayList<>();
+        affected.removeIf(wrapper -> pluginManager.getPlugin(wrapper.getPluginId()) != wrapper);
+        for (PluginWrapper wrapper : affected) {
+            if (wrapper != old) {
+                reloadAfter.add(wrapper.getPluginPath());
+            }
+        }
+        Collections.reverse(reloadAfter);
+        for (PluginWrapper wrapper : affected) {
+            String pluginId = wrapper.getPluginId();
+            released.add(new WeakReference<>(wrapper.getPluginClassLoader()));
+            // Also closes the class loader
+            pluginManager.unloadPlugin(pluginId);
+            // In case something called into the plugin while it was waited for
+            stopExecutor(pluginId);
+            usage.remove(pluginId);
+        }
+
+        if (!Files.exists(path)) {
+            pluginCache.remove(path);
+            pluginCache.save();
+            System.out.println("Plugin removed: " + path.getFileName());
+            return released;
+        }
+        List<String> loadedIds = new ArrayList<>();
+        try {
+            Path loadPath = pluginCache.pluginPathFor(path);
+            String id = loadPath != null ? pluginManager.loadPlugin(loadPath) : null;
+            if (id != null) {
+                loadedIds.add(id);
+            }
+            for (Path dependent : reloadAfter) {
+                String dependentId = pluginManager.loadPlugin(dependent);
+                if (dependentId != null) {
+                    loadedIds.add(dependentId);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to reload plugin " + path.getFileName() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        List<PluginWrapper> toLoad = new ArrayList<>();
+        for (String id : loadedIds) {
+            if (!pluginConfig.isPluginEnabled(id)) {
+                continue;
+            }
+            PluginWrapper wrapper = pluginManager.getPlugin(id);
+            if (runsOutOfProcess(wrapper)) {
+                toLoad.add(wrapper);
+            } else if (TRiMPluginDescriptor.isLazy(wrapper.getDescriptor())) {
+                dormantPlugins.add(id);
+            } else if (pluginManager.startPlugin(id) == PluginState.STARTED) {
+                toLoad.add(pluginManager.getPlugin(id));
+            }
+        }
+        loadPlugins(toLoad);
+        invalidateExtensions();
+        pluginCache.save();
+        System.out.println("Reloaded plugin file " + path.getFileName() + " (" + String.join(", ", loadedIds) + ")");
+        return released;
+    }
+
+    // The plugin loaded from this file, or from the tree a ZIP was unpacked into
+    private PluginWrapper findPluginAt(Path path) {
+        Path unpacked = pluginCache.lastPluginPathFor(path);
+        for (PluginWrapper wrapper : pluginManager.getPlugins()) {
+            Path wrapperPath = wrapper.getPluginPath().toAbsolutePath().normalize();
+            if (wrapperPath.equals(path) || wrapperPath.equals(unpacked)) {
+                return wrapper;
+            }
+        }
+        return null;
+    }
+
+    private void collectDependents(String pluginId, List<PluginWrapper> dependents) {
+        for (PluginWrapper wrapper : pluginManager.getPlugins()) {
+            if (dependents.contains(wrapper)) {
+                continue;
+            }
+            for (PluginDependency dependency : wrapper.getDescriptor().getDependencies()) {
+                if (dependency.getPluginId().equals(pluginId)) {
+                    dependents.add(wrapper);
+                    collectDependents(wrapper.getPluginId(), dependents);
+                    break;
+                }
+            }
+        }
     }
+
     
+    PluginCache getPluginCache() {
+        return pluginCache;
+    }
+
     /**
      * Gets the PF4J plugin manager instance.
      * 
@@ -205,56 +1083,117 @@ public class PluginManager {
     
     /**
      * Enables or disables a plugin.
+     * Enabling waits for the plugin's {@code onLoad()}, and disabling for its {@code onUnload()}, each for up to
+     * the load timeout, so don't call this on the FX thread. Other lifecycle changes wait for this one to finish,
+     * except while it waits for {@code onUnload()}.
      * 
      * @param pluginId The ID of the plugin to enable/disable
      * @param enabled Whether the plugin should be enabled
      */
-	@SuppressWarnings("D")
     public void setPluginEnabled(String pluginId, boolean enabled) {
+        CompletableFuture<Void> deactivation;
+        while (true) {
+            // An earlier disable still waiting for onUnload() goes first, so the plugin isn't loaded twice at once
+            CompletableFuture<Void> pending = deactivations.get(pluginId);
+            if (pending != null && !pending.isDone()) {
+                pending.exceptionally(e -> null).join();
+                continue;
+            }
+            synchronized (this) {
+                // Deactivations are only added under the lock
+                pending = deactivations.get(pluginId);
+                if (pending == null || pending.isDone()) {
+                    deactivation = changePluginEnabled(pluginId, enabled);
+                    break;
+                }
+            }
+        }
+        // Outside the lock, and for at most the load timeout
+        deactivation.join();
+    }
+
+    /**
+     * @return Completes once a disabled plugin is stopped; already complete when enabling
+     */
+	@SuppressWarnings("D")
+    private synchronized CompletableFuture<Void> changePluginEnabled(String pluginId, boolean enabled) {
         pluginConfig.setPluginEnabled(pluginId, enabled);
         
         PluginWrapper wrapper = pluginManager.getPlugin(pluginId);
         if (wrapper == null) {
             // Plugin not found in PF4J registry (maybe removed). Nothing else to do.
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
-        if (enabled) {
-            // Start PF4J plugin if not started
-            if (wrapper.getPluginState() != PluginState.STARTED) {
+        boolean outOfProcess = enabled && wrapper.getPluginState() != PluginState.STARTED && runsOutOfProcess(wrapper);
+        if (enabled && !outOfProcess && wrapper.getPluginState() != PluginState.STARTED
+                && TRiMPluginDescriptor.isLazy(wrapper.getDescriptor())) {
+            // Started when one of its extensions is first called
+            if (dormantPlugins.add(pluginId)) {
+                invalidateExtensions();
+            }
+        } else if (enabled) {
+            // Start PF4J plugin if not started; out-of-process plugins are started in their host instead
+            if (!outOfProcess && wrapper.getPluginState() != PluginState.STARTED) {
                 pluginManager.startPlugin(pluginId);
                 wrapper = pluginManager.getPlugin(pluginId); // refresh state
+                invalidateExtensions();
             }
             // Initialize TRiM plugin if not already loaded
             if (!loadedPlugins.containsKey(pluginId)) {
-                TRiMPlugin plugin = getTRiMPlugin(wrapper);
+                TRiMPlugin plugin = outOfProcess ? newRemotePlugin(wrapper) : getTRiMPlugin(wrapper);
                 if (plugin != null) {
-                    try {
-                        pluginConfig.updatePluginInfo(plugin.getPluginId(), plugin.getVersion());
-                        plugin.onLoad();
+                    pluginConfig.updatePluginInfo(plugin.getPluginId(), plugin.getVersion());
+                    // Runs on the plugin's own thread and gives up after the load timeout
+                    if (loadWithTimeout(pluginId, plugin).join()) {
                         loadedPlugins.put(plugin.getPluginId(), plugin);
-                    } catch (Exception e) {
-                        System.err.println("Error initializing plugin " + pluginId + ": " + e.getMessage());
-                        e.printStackTrace();
+                        forwardEvents(plugin);
                     }
                 }
             }
         } else {
-            // If currently loaded at TRiM level, unload it first
-            if (loadedPlugins.containsKey(pluginId)) {
-                TRiMPlugin plugin = loadedPlugins.remove(pluginId);
-                try {
-                    plugin.onUnload();
-                } catch (Exception e) {
-                    System.err.println("Error unloading plugin " + pluginId + ": " + e.getMessage());
-                    e.printStackTrace();
-                }
-            }
-            // Stop PF4J plugin if started
-            if (wrapper.getPluginState() == PluginState.STARTED) {
-                pluginManager.stopPlugin(pluginId);
-            }
+            return deactivate(pluginId, wrapper);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Unloads and stops a plugin, leaving its config alone. Called with this manager's lock held, but doesn't
+     * wait: {@code onUnload()} runs on the plugin's executor, and the plugin is stopped once it returns or times out.
+     *
+     * @return Completes once the plugin is stopped
+     */
+    private CompletableFuture<Void> deactivate(String pluginId, PluginWrapper wrapper) {
+        if (dormantPlugins.remove(pluginId)) {
+            cancelDeferredTasks(pluginId);
+            invalidateExtensions();
+        }
+        // If currently loaded at TRiM level, unload it first
+        TRiMPlugin plugin = loadedPlugins.remove(pluginId);
+        CompletableFuture<Void> unload = plugin != null
+                ? unloadWithTimeout(pluginId, plugin) : CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> deactivation = unload.thenRun(() -> stopDeactivated(pluginId, wrapper));
+        if (!deactivation.isDone()) {
+            deactivations.put(pluginId, deactivation);
+            deactivation.whenComplete((ignored, e) -> deactivations.remove(pluginId, deactivation));
+        }
+        return deactivation;
+    }
+
+    // The rest of deactivate(), once onUnload() is out of the way
+    private synchronized void stopDeactivated(String pluginId, PluginWrapper wrapper) {
+        if (pluginManager.getPlugin(pluginId) != wrapper || loadedPlugins.containsKey(pluginId)
+                || dormantPlugins.contains(pluginId)) {
+            // Shut down, reloaded or enabled again in the meantime
+            return;
+        }
+        closeStorage(pluginId);
+        // Stop PF4J plugin if started
+        if (wrapper.getPluginState() == PluginState.STARTED) {
+            pluginManager.stopPlugin(pluginId);
+            invalidateExtensions();
         }
+        stopExecutor(pluginId);
     }
     
     /**
@@ -0,0 +1,198 @@
+package com.github.RocketSmash9000.plugin;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adds up what one plugin's calls cost: how many there were, their CPU time and allocated bytes,
+ * and a histogram of how long they took.
+ * <p>
+ * CPU time and allocations come from {@link ThreadMXBean} and are measured on the thread making the call,
+ * so they only count on platform threads; the JVM reports neither for virtual threads.
+ * Latencies go into power-of-two microsecond buckets, so percentiles are upper bounds.
+ */
+public final class PluginUsage {
+    static final int LATENCY_BUCKETS = 32;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED = enableCpuTime();
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = enableAllocations();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BUCKETS);
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * Runs and measures a piece of plugin code on the current thread.
+     */
+    public void run(Runnable task) {
+        long cpu = cpuTime();
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            task.run();
+            failed = false;
+        } finally {
+            record(System.nanoTime() - start, cpu, allocated, failed);
+        }
+    }
+
+    /**
+     * Runs and measures a piece of plugin code that returns a value on the current thread.
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        long cpu = cpuTime();
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = task.call();
+            failed = false;
+            return result;
+        } finally {
+            record(System.nanoTime() - start, cpu, allocated, failed);
+        }
+    }
+
+    private void record(long latencyNanos, long cpuBefore, long allocatedBefore, boolean failed) {
+        long cpuAfter = cpuTime();
+        long allocatedAfter = allocatedBytes();
+        if (cpuBefore >= 0 && cpuAfter >= 0) {
+            cpuNanos.add(cpuAfter - cpuBefore);
+        }
+        if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+            allocatedBytes.add(allocatedAfter - allocatedBefore);
+        }
+        calls.increment();
+        if (failed) {
+            failures.increment();
+        }
+        latencyBuckets.incrementAndGet(bucketOf(latencyNanos));
+        maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+    }
+
+    // Bucket 0 holds calls under 1 µs, bucket k those under 2^k µs
+    static int bucketOf(long latencyNanos) {
+        int bucket = 64 - Long.numberOfLeadingZeros(latencyNanos / 1000);
+        return Math.min(bucket, LATENCY_BUCKETS - 1);
+    }
+
+    /**
+     * @return The totals so far. Calls still running aren't included.
+     */
+    public Snapshot snapshot() {
+        long[] buckets = new long[LATENCY_BUCKETS];
+        long counted = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            buckets[i] = latencyBuckets.get(i);
+            counted += buckets[i];
+        }
+        return new Snapshot(calls.sum(), failures.sum(), Duration.ofNanos(cpuNanos.sum()), allocatedBytes.sum(),
+                percentile(buckets, counted, 0.5), percentile(buckets, counted, 0.99),
+                Duration.ofNanos(maxLatencyNanos.get()));
+    }
+
+    private static Duration percentile(long[] buckets, long counted, double quantile) {
+        if (counted == 0) {
+            return Duration.ZERO;
+        }
+        long rank = (long) Math.ceil(counted * quantile);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Duration.ofNanos((1L << i) * 1000);
+            }
+        }
+        return Duration.ofNanos((1L << (buckets.length - 1)) * 1000);
+    }
+
+    private static long cpuTime() {
+        return CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATIONS != null ? ALLOCATIONS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private static boolean enableCpuTime() {
+        try {
+            if (!THREADS.isCurrentThreadCpuTimeSupported()) {
+                return false;
+            }
+            if (!THREADS.isThreadCpuTimeEnabled()) {
+                THREADS.setThreadCpuTimeEnabled(true);
+            }
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            System.err.println("Per-plugin CPU time is unavailable: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean enableAllocations() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean threads) || !threads.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        try {
+            if (!threads.isThreadAllocatedMemoryEnabled()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+            return threads;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            System.err.println("Per-plugin allocation tracking is unavailable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * One plugin's usage at a point in time.
+     *
+     * @param calls How many calls finished
+     * @param failures How many of them threw
+     * @param cpuTime CPU time spent in them
+     * @param allocatedBytes Bytes allocated by them
+     * @param p50 Median call latency, rounded up to a power-of-two number of microseconds
+     * @param p99 99th percentile call latency, rounded the same way
+     * @param max Longest call
+     */
+    public record Snapshot(long calls, long failures, Duration cpuTime, long allocatedBytes,
+                           Duration p50, Duration p99, Duration max) {
+
+        /**
+         * @return A short human-readable summary, e.g. "42 calls · 18 ms CPU · 3.1 MB · p50 ≤512 µs · p99 ≤8 ms"
+         */
+        public String describe() {
+            if (calls == 0) {
+                return "no calls yet";
+            }
+            return String.format("%d call%s · %d ms CPU · %s · p50 ≤%s · p99 ≤%s", calls, calls == 1 ? "" : "s",
+                    cpuTime.toMillis(), formatBytes(allocatedBytes), formatLatency(p50), formatLatency(p99));
+        }
+
+        private static String formatBytes(long bytes) {
+            if (bytes < 1024) {
+                return bytes + " B";
+            } else if (bytes < 1024 * 1024) {
+                return String.format("%.1f KB", bytes / 1024.0);
+            }
+            return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+        }
+
+        private static String formatLatency(Duration latency) {
+            if (latency.toMillis() < 1) {
+                return latency.toNanos() / 1000 + " µs";
+            }
+            return latency.toMillis() + " ms";
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.RocketSmash9000.plugin;
 
+import com.github.RocketSmash9000.plugin.storage.PluginStorage;
+
 /**
  * Base interface for all TRiM plugins.
  * All plugins must implement this interface to be recognized by the TRiM application.
@@ -14,7 +16,8 @@ public interface TRiMPlugin {
     
     /**
      * Called when the plugin is being unloaded.
-     * Perform any cleanup here.
+     * Perform any cleanup here. Runs on the plugin's own thread; if it takes longer than the load timeout,
+     * TRiM stops waiting and treats the plugin as unloaded.
      */
     void onUnload();
     
@@ -44,4 +47,13 @@ public interface TRiMPlugin {
     default String getDescription() {
         return "No description available.";
     }
+    
+    /**
+     * Called before {@link #onLoad()} with the plugin's own persistent key-value store.
+     * Keep it if you need it; it stays open until {@link #onUnload()} returns or times out. Ignored by default.
+     * 
+     * @param storage The plugin's storage, shared with its extensions
+     */
+    default void setStorage(PluginStorage storage) {
+    }
 }
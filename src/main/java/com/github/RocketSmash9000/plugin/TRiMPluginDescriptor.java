@@ -0,0 +1,91 @@
+package com.github.RocketSmash9000.plugin;
+
+import org.pf4j.DefaultPluginDescriptor;
+import org.pf4j.ManifestPluginDescriptorFinder;
+import org.pf4j.PluginDescriptor;
+import org.pf4j.PropertiesPluginDescriptorFinder;
+
+import java.util.Properties;
+import java.util.jar.Manifest;
+
+/**
+ * PF4J plugin descriptor with TRiM's own settings.
+ * <p>
+ * A plugin declares lazy activation with {@code plugin.activation=lazy} in {@code plugin.properties},
+ * or {@code Plugin-Activation: lazy} in its JAR manifest. TRiM then leaves it unstarted until one of its
+ * extensions is first called.
+ */
+public class TRiMPluginDescriptor extends DefaultPluginDescriptor {
+    public static final String PLUGIN_ACTIVATION = "plugin.activation";
+    public static final String PLUGIN_ACTIVATION_ATTRIBUTE = "Plugin-Activation";
+    public static final String LAZY_ACTIVATION = "lazy";
+
+    private boolean lazy;
+
+    public TRiMPluginDescriptor() {
+    }
+
+    /**
+     * Recreates a descriptor from its fields, e.g. from {@link PluginCache}.
+     *
+     * @param dependencies In {@code plugin.dependencies} syntax, or null
+     */
+    TRiMPluginDescriptor(String pluginId, String description, String pluginClass, String version, String requires,
+                         String provider, String license, String dependencies, boolean lazy) {
+        super(pluginId, description, pluginClass, version, requires, provider, license);
+        setDependencies(dependencies);
+        this.lazy = lazy;
+    }
+
+    /**
+     * @return Whether the plugin waits for its extensions to be used before it is started
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    void setActivation(String activation) {
+        lazy = activation != null && LAZY_ACTIVATION.equalsIgnoreCase(activation.trim());
+    }
+
+    /**
+     * @return Whether the descriptor asks for lazy activation; false for descriptors TRiM didn't read itself
+     */
+    public static boolean isLazy(PluginDescriptor descriptor) {
+        return descriptor instanceof TRiMPluginDescriptor trim && trim.isLazy();
+    }
+
+    /**
+     * Reads {@code plugin.properties}, including TRiM's settings.
+     */
+    static class PropertiesFinder extends PropertiesPluginDescriptorFinder {
+        @Override
+        protected PluginDescriptor createPluginDescriptor(Properties properties) {
+            TRiMPluginDescriptor descriptor = (TRiMPluginDescriptor) super.createPluginDescriptor(properties);
+            descriptor.setActivation(properties.getProperty(PLUGIN_ACTIVATION));
+            return descriptor;
+        }
+
+        @Override
+        protected DefaultPluginDescriptor createPluginDescriptorInstance() {
+            return new TRiMPluginDescriptor();
+        }
+    }
+
+    /**
+     * Reads the JAR manifest, including TRiM's settings.
+     */
+    static class ManifestFinder extends ManifestPluginDescriptorFinder {
+        @Override
+        protected PluginDescriptor createPluginDescriptor(Manifest manifest) {
+            TRiMPluginDescriptor descriptor = (TRiMPluginDescriptor) super.createPluginDescriptor(manifest);
+            descriptor.setActivation(manifest.getMainAttributes().getValue(PLUGIN_ACTIVATION_ATTRIBUTE));
+            return descriptor;
+        }
+
+        @Override
+        protected DefaultPluginDescriptor createPluginDescriptorInstance() {
+            return new TRiMPluginDescriptor();
+        }
+    }
+}
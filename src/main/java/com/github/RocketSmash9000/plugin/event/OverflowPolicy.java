@@ -0,0 +1,14 @@
+package com.github.RocketSmash9000.plugin.event;
+
+/**
+ * What a subscription does with a new event when its queue is full.
+ */
+public enum OverflowPolicy {
+    /** The new event is dropped. */
+    DROP,
+    /**
+     * A queued {@link PlaybackEvent.Type#PROGRESS} event is replaced by a newer one instead of queuing both.
+     * If the queue is still full, the oldest queued progress event makes room; failing that, the new event is dropped.
+     */
+    COALESCE
+}
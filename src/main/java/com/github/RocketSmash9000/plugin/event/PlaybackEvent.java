@@ -0,0 +1,41 @@
+package com.github.RocketSmash9000.plugin.event;
+
+import java.io.File;
+import java.util.Objects;
+
+/**
+ * Something that happened in the player, as seen by plugins.
+ *
+ * @param type What happened
+ * @param file The track the event is about, or the music folder for {@link Type#LIBRARY_CHANGED}; may be null
+ * @param progress Playback position as a fraction of the track in [0, 1], or NaN if unknown
+ * @param timestampNanos When the event was published, in {@link System#nanoTime()} units
+ */
+public record PlaybackEvent(Type type, File file, double progress, long timestampNanos) {
+    public enum Type {
+        /** A track started playing. */
+        TRACK_STARTED,
+        /** A track played to the end. */
+        TRACK_ENDED,
+        /** A track was skipped before its end, by the user or because it could not be played. */
+        TRACK_SKIPPED,
+        PAUSED,
+        RESUMED,
+        /** Periodic position update while playing; superseded by the next one, so it may be coalesced. */
+        PROGRESS,
+        /** A new music folder was opened. */
+        LIBRARY_CHANGED
+    }
+
+    public PlaybackEvent {
+        Objects.requireNonNull(type, "Event type cannot be null");
+    }
+
+    public static PlaybackEvent of(Type type, File file) {
+        return new PlaybackEvent(type, file, Double.NaN, System.nanoTime());
+    }
+
+    public static PlaybackEvent progress(File track, double progress) {
+        return new PlaybackEvent(Type.PROGRESS, track, progress, System.nanoTime());
+    }
+}
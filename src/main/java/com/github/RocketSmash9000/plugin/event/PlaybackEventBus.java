@@ -0,0 +1,308 @@
+package com.github.RocketSmash9000.plugin.event;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Delivers playback events to plugin subscribers without ever blocking the publisher.
+ * <p>
+ * Publishers (the FX thread, mostly) claim a slot in a lock-free ring buffer and return immediately.
+ * A dispatcher thread drains the ring and copies each event into every subscriber's own bounded queue,
+ * and each subscriber is called from a pooled thread, one event at a time. A slow subscriber only
+ * fills its own queue, after which its {@link OverflowPolicy} decides what it misses; the ring and
+ * the other subscribers are unaffected. If the ring itself is full, the new event is dropped.
+ */
+public class PlaybackEventBus {
+    public static final int DEFAULT_RING_CAPACITY = 1024;
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+    // Events delivered to one subscriber before its thread is handed to the next one
+    private static final int DELIVERY_BATCH = 32;
+    // Upper bound on how long the dispatcher sleeps if a wake-up is ever missed
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final AtomicReferenceArray<PlaybackEvent> ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // Next slot a publisher claims
+    private volatile long tail; // Next slot the dispatcher reads; only the dispatcher writes it
+    private final LongAdder droppedEvents = new LongAdder();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ExecutorService deliveryExecutor;
+    private final Thread dispatcher;
+    private volatile boolean dispatcherIdle;
+    private volatile boolean running = true;
+
+    public PlaybackEventBus() {
+        this(DEFAULT_RING_CAPACITY);
+    }
+
+    /**
+     * @param ringCapacity How many published events may wait for the dispatcher; rounded up to a power of two
+     */
+    public PlaybackEventBus(int ringCapacity) {
+        if (ringCapacity < 1) {
+            throw new IllegalArgumentException("Ring capacity must be positive");
+        }
+        int capacity = Integer.highestOneBit(ringCapacity);
+        if (capacity < ringCapacity) {
+            capacity <<= 1;
+        }
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.deliveryExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "trim-events-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.dispatcher = new Thread(this::dispatchLoop, "trim-event-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Publishes an event. Never blocks; callable from any thread.
+     *
+     * @return false if the event was dropped because the ring was full or the bus has shut down
+     */
+    public boolean publish(PlaybackEvent event) {
+        Objects.requireNonNull(event, "Event cannot be null");
+        if (!running) {
+            return false;
+        }
+        long slot;
+        do {
+            slot = head.get();
+            if (slot - tail >= ring.length()) {
+                droppedEvents.increment();
+                return false;
+            }
+        } while (!head.compareAndSet(slot, slot + 1));
+        ring.set((int) (slot & mask), event);
+        if (dispatcherIdle) {
+            LockSupport.unpark(dispatcher);
+        }
+        return true;
+    }
+
+    /**
+     * Subscribes a listener to all events published from now on.
+     *
+     * @param name Used in error messages
+     * @param listener Called with each event on a background thread, one event at a time
+     * @param queueCapacity How many events may wait for this listener
+     * @param policy What happens to new events while the queue is full
+     * @return The subscription, which can be cancelled
+     */
+    public Subscription subscribe(String name, Consumer<PlaybackEvent> listener, int queueCapacity, OverflowPolicy policy) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        Subscription subscription = new Subscription(name, Objects.requireNonNull(listener), queueCapacity,
+                Objects.requireNonNull(policy));
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Subscribes a plugin's listener extension using its own queue capacity and overflow policy.
+     */
+    public Subscription subscribe(PlaybackEventListener listener) {
+        return subscribe(listener.getClass().getName(), listener::onPlaybackEvent,
+                listener.getQueueCapacity(), listener.getOverflowPolicy());
+    }
+
+    /**
+     * @return How many events were dropped because the ring was full
+     */
+    public long getDroppedCount() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Stops dispatching. Events still queued are discarded.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        for (Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+        deliveryExecutor.shutdown();
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            PlaybackEvent event = poll();
+            if (event == null) {
+                dispatcherIdle = true;
+                // Check again after announcing the nap, so a publisher either sees the flag or we see its event
+                event = poll();
+                if (event == null) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                dispatcherIdle = false;
+                if (event == null) {
+                    continue;
+                }
+            }
+            for (Subscription subscription : subscriptions) {
+                subscription.offer(event);
+            }
+        }
+    }
+
+    private PlaybackEvent poll() {
+        long next = tail;
+        int index = (int) (next & mask);
+        // A claimed slot stays null until its publisher has written it
+        PlaybackEvent event = ring.get(index);
+        if (event == null) {
+            return null;
+        }
+        ring.lazySet(index, null);
+        tail = next + 1;
+        return event;
+    }
+
+    /**
+     * One listener's queue and delivery state.
+     */
+    public final class Subscription {
+        private final String name;
+        private final Consumer<PlaybackEvent> listener;
+        private final int capacity;
+        private final OverflowPolicy policy;
+        private final ArrayDeque<PlaybackEvent> queue; // Guarded by this
+        private boolean scheduled; // Guarded by this; true while a delivery task is queued or running
+        private volatile boolean cancelled;
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+
+        private Subscription(String name, Consumer<PlaybackEvent> listener, int capacity, OverflowPolicy policy) {
+            this.name = name;
+            this.listener = listener;
+            this.capacity = capacity;
+            this.policy = policy;
+            this.queue = new ArrayDeque<>(Math.min(capacity, DEFAULT_QUEUE_CAPACITY));
+        }
+
+        // Called by the dispatcher only
+        private void offer(PlaybackEvent event) {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                boolean progress = event.type() == PlaybackEvent.Type.PROGRESS;
+                if (policy == OverflowPolicy.COALESCE && progress && !queue.isEmpty()
+                        && queue.peekLast().type() == PlaybackEvent.Type.PROGRESS) {
+                    queue.pollLast();
+                    coalesced.increment();
+                } else if (queue.size() >= capacity) {
+                    if (policy == OverflowPolicy.COALESCE && removeOldestProgress()) {
+                        coalesced.increment();
+                    } else {
+                        dropped.increment();
+                        return;
+                    }
+                }
+                queue.addLast(event);
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            schedule();
+        }
+
+        private boolean removeOldestProgress() {
+            for (Iterator<PlaybackEvent> it = queue.iterator(); it.hasNext(); ) {
+                if (it.next().type() == PlaybackEvent.Type.PROGRESS) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void schedule() {
+            try {
+                deliveryExecutor.execute(this::deliver);
+            } catch (RejectedExecutionException e) {
+                // Bus is shutting down
+                synchronized (this) {
+                    scheduled = false;
+                }
+            }
+        }
+
+        private void deliver() {
+            for (int i = 0; i < DELIVERY_BATCH; i++) {
+                PlaybackEvent event;
+                synchronized (this) {
+                    event = cancelled ? null : queue.pollFirst();
+                    if (event == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    listener.accept(event);
+                    delivered.increment();
+                } catch (Exception e) {
+                    System.err.println("Error in playback event listener " + name + ": " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+            // More events are waiting; requeue rather than hold on to the thread
+            schedule();
+        }
+
+        /**
+         * Stops delivery to this listener and discards its queued events.
+         */
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            synchronized (this) {
+                queue.clear();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getDeliveredCount() {
+            return delivered.sum();
+        }
+
+        /**
+         * @return How many events never reached this listener because its queue was full
+         */
+        public long getDroppedCount() {
+            return dropped.sum();
+        }
+
+        /**
+         * @return How many progress events were replaced by newer ones before delivery
+         */
+        public long getCoalescedCount() {
+            return coalesced.sum();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.RocketSmash9000.plugin.event;
+
+import org.pf4j.ExtensionPoint;
+
+/**
+ * Extension point: lets plugins observe playback.
+ *
+ * Implementations should be annotated with {@code @org.pf4j.Extension}
+ * and reside in the plugin JAR.
+ */
+public interface PlaybackEventListener extends ExtensionPoint {
+    /**
+     * Invoked for every delivered event, one at a time and in publishing order.
+     * Note: This is called on a background thread, never on the JavaFX Application Thread.
+     * Taking long here only makes this listener miss events; playback is never held up.
+     */
+    void onPlaybackEvent(PlaybackEvent event);
+
+    /**
+     * How many events may wait for this listener before the overflow policy applies.
+     */
+    default int getQueueCapacity() { return PlaybackEventBus.DEFAULT_QUEUE_CAPACITY; }
+
+    /**
+     * What happens to new events while this listener's queue is full.
+     */
+    default OverflowPolicy getOverflowPolicy() { return OverflowPolicy.COALESCE; }
+}
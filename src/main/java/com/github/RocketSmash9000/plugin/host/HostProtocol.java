@@ -0,0 +1,140 @@
+package com.github.RocketSmash9000.plugin.host;
+
+import com.github.RocketSmash9000.plugin.event.PlaybackEvent;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The wire format between TRiM and a plugin host process.
+ * <p>
+ * Every message is one frame: an int with the length of the rest, a type byte, an int request ID, then
+ * the payload. Replies carry the ID of the request they answer; events and the host's greeting use 0.
+ * Strings are an int byte count followed by UTF-8, with -1 for null. Numbers are big-endian.
+ */
+final class HostProtocol {
+    /** Host → TRiM once the plugin is started: long pid, then plugin ID, display name, version, minimum app version, description. */
+    static final byte HELLO = 1;
+    /** Either way: long nanos, echoed back in a {@link #PONG}. */
+    static final byte PING = 2;
+    static final byte PONG = 3;
+    /** TRiM → host: call {@code onLoad()}. Answered with {@link #OK} or {@link #ERROR}. */
+    static final byte LOAD = 4;
+    /** TRiM → host: call {@code onUnload()}. Answered with {@link #OK} or {@link #ERROR}. */
+    static final byte UNLOAD = 5;
+    /** TRiM → host: byte event type, string file path, double progress, long timestamp. Not answered. */
+    static final byte EVENT = 6;
+    /** TRiM → host: answer with {@link #OK}, then exit. */
+    static final byte SHUTDOWN = 7;
+    static final byte OK = 8;
+    /** string message */
+    static final byte ERROR = 9;
+
+    // Type byte and request ID
+    static final int HEADER_BYTES = 5;
+    // Nothing in the protocol comes close; a bigger length means the stream is out of step
+    static final int MAX_FRAME_BYTES = 1 << 20;
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    private static final PlaybackEvent.Type[] EVENT_TYPES = PlaybackEvent.Type.values();
+
+    private HostProtocol() {
+    }
+
+    /**
+     * One received message.
+     *
+     * @param payload Positioned at the start of the payload
+     */
+    record Frame(byte type, int requestId, ByteBuffer payload) {
+    }
+
+    /**
+     * Writes one frame. Callers sharing a channel must not write concurrently.
+     */
+    static void write(WritableByteChannel channel, byte type, int requestId, ByteBuffer payload) throws IOException {
+        ByteBuffer body = payload != null ? payload : EMPTY;
+        ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + HEADER_BYTES + body.remaining());
+        frame.putInt(HEADER_BYTES + body.remaining()).put(type).putInt(requestId).put(body).flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    /**
+     * Reads the next frame, blocking until it has fully arrived.
+     *
+     * @throws EOFException If the other side closed the connection
+     */
+    static Frame read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer length = readFully(channel, ByteBuffer.allocate(Integer.BYTES));
+        int size = length.getInt();
+        if (size < HEADER_BYTES || size > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid plugin host frame length: " + size);
+        }
+        ByteBuffer body = readFully(channel, ByteBuffer.allocate(size));
+        return new Frame(body.get(), body.getInt(), body);
+    }
+
+    private static ByteBuffer readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Plugin host connection closed");
+            }
+        }
+        return buffer.flip();
+    }
+
+    static int sizeOf(String value) {
+        return Integer.BYTES + (value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0);
+    }
+
+    static ByteBuffer putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            return buffer.putInt(-1);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return buffer.putInt(bytes.length).put(bytes);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static ByteBuffer encodeString(String value) {
+        return putString(ByteBuffer.allocate(sizeOf(value)), value).flip();
+    }
+
+    static ByteBuffer encodeEvent(PlaybackEvent event) {
+        String path = event.file() != null ? event.file().getPath() : null;
+        ByteBuffer buffer = ByteBuffer.allocate(1 + sizeOf(path) + Double.BYTES + Long.BYTES);
+        buffer.put((byte) event.type().ordinal());
+        putString(buffer, path);
+        return buffer.putDouble(event.progress()).putLong(event.timestampNanos()).flip();
+    }
+
+    static PlaybackEvent decodeEvent(ByteBuffer buffer) {
+        int type = buffer.get();
+        if (type < 0 || type >= EVENT_TYPES.length) {
+            throw new IllegalArgumentException("Unknown playback event type: " + type);
+        }
+        String path = getString(buffer);
+        return new PlaybackEvent(EVENT_TYPES[type], path != null ? new File(path) : null,
+                buffer.getDouble(), buffer.getLong());
+    }
+
+    static ByteBuffer encodeLong(long value) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(value).flip();
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.RocketSmash9000.plugin.host;
+
+import com.github.RocketSmash9000.plugin.TRiMPlugin;
+import com.github.RocketSmash9000.plugin.event.PlaybackEvent;
+import com.github.RocketSmash9000.plugin.event.PlaybackEventListener;
+import com.github.RocketSmash9000.plugin.storage.PluginStorage;
+import org.pf4j.DefaultPluginManager;
+import org.pf4j.PluginState;
+import org.pf4j.PluginWrapper;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Entry point of a plugin host process, started by {@link RemotePluginHost}.
+ * <p>
+ * Loads and starts a single plugin with its own PF4J manager, connects back to TRiM over the Unix domain
+ * socket it was given, and then serves TRiM's requests one at a time until it is told to shut down, TRiM
+ * closes the socket, or TRiM's process ends.
+ * <p>
+ * Arguments: the socket path, the plugin's path, its storage file and whether to load it in development mode.
+ */
+public final class PluginHostMain {
+    private final SocketChannel channel;
+    private final TRiMPlugin plugin;
+    private final List<PlaybackEventListener> listeners;
+
+    private PluginHostMain(SocketChannel channel, TRiMPlugin plugin, List<PlaybackEventListener> listeners) {
+        this.channel = channel;
+        this.plugin = plugin;
+        this.listeners = listeners;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: PluginHostMain <socket> <plugin path> <storage file> <development mode>");
+            System.exit(2);
+        }
+        // Never outlive TRiM, even if it exits without closing the socket or its plugin is stuck
+        ProcessHandle.current().parent().ifPresent(parent -> parent.onExit().thenRun(() -> Runtime.getRuntime().halt(0)));
+        Path pluginPath = Path.of(args[1]);
+        boolean developmentMode = Boolean.parseBoolean(args[3]);
+
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(args[0]));
+             PluginStorage storage = new PluginStorage(Path.of(args[2]))) {
+            PluginHostMain host;
+            try {
+                host = start(channel, pluginPath, storage, developmentMode);
+            } catch (Exception | LinkageError e) {
+                System.err.println("Plugin host failed to start " + pluginPath.getFileName() + ": " + e.getMessage());
+                HostProtocol.write(channel, HostProtocol.ERROR, 0, HostProtocol.encodeString(String.valueOf(e.getMessage())));
+                System.exit(1);
+                return;
+            }
+            host.serve();
+        }
+        // Plugins may have left non-daemon threads behind
+        System.exit(0);
+    }
+
+    private static PluginHostMain start(SocketChannel channel, Path pluginPath, PluginStorage storage,
+                                        boolean developmentMode) throws IOException {
+        DefaultPluginManager pluginManager = new DefaultPluginManager(pluginPath.toAbsolutePath().getParent()) {
+            @Override
+            public boolean isDevelopment() {
+                return developmentMode;
+            }
+        };
+        String pluginId = pluginManager.loadPlugin(pluginPath);
+        if (pluginManager.startPlugin(pluginId) != PluginState.STARTED) {
+            throw new IllegalStateException("Plugin " + pluginId + " did not start");
+        }
+        PluginWrapper wrapper = pluginManager.getPlugin(pluginId);
+        if (!(wrapper.getPlugin() instanceof TRiMPlugin plugin)) {
+            throw new IllegalStateException("Plugin " + pluginId + " does not implement TRiMPlugin interface");
+        }
+        List<PlaybackEventListener> listeners = pluginManager.getExtensions(PlaybackEventListener.class, pluginId);
+        plugin.setStorage(storage);
+
+        String[] metadata = {plugin.getPluginId(), plugin.getDisplayName(), plugin.getVersion(),
+                plugin.getMinimumApplicationVersion(), plugin.getDescription()};
+        int size = Long.BYTES;
+        for (String value : metadata) {
+            size += HostProtocol.sizeOf(value);
+        }
+        ByteBuffer hello = ByteBuffer.allocate(size).putLong(ProcessHandle.current().pid());
+        for (String value : metadata) {
+            HostProtocol.putString(hello, value);
+        }
+        HostProtocol.write(channel, HostProtocol.HELLO, 0, hello.flip());
+        return new PluginHostMain(channel, plugin, listeners);
+    }
+
+    private void serve() throws IOException {
+        while (true) {
+            HostProtocol.Frame frame;
+            try {
+                frame = HostProtocol.read(channel);
+            } catch (EOFException e) {
+                // TRiM exited or dropped us; there's nobody left to serve
+                return;
+            }
+            switch (frame.type()) {
+                case HostProtocol.PING -> HostProtocol.write(channel, HostProtocol.PONG, frame.requestId(), frame.payload());
+                case HostProtocol.LOAD -> call(frame.requestId(), plugin::onLoad);
+                case HostProtocol.UNLOAD -> call(frame.requestId(), plugin::onUnload);
+                case HostProtocol.EVENT -> deliver(HostProtocol.decodeEvent(frame.payload()));
+                case HostProtocol.SHUTDOWN -> {
+                    HostProtocol.write(channel, HostProtocol.OK, frame.requestId(), null);
+                    return;
+                }
+                default -> HostProtocol.write(channel, HostProtocol.ERROR, frame.requestId(),
+                        HostProtocol.encodeString("Unknown request type " + frame.type()));
+            }
+        }
+    }
+
+    // Errors, OutOfMemoryError included, are reported back rather than taking the host down
+    private void call(int requestId, Runnable task) throws IOException {
+        try {
+            task.run();
+            HostProtocol.write(channel, HostProtocol.OK, requestId, null);
+        } catch (Throwable t) {
+            System.err.println("Plugin " + plugin.getPluginId() + " failed: " + t);
+            HostProtocol.write(channel, HostProtocol.ERROR, requestId, HostProtocol.encodeString(t.toString()));
+        }
+    }
+
+    private void deliver(PlaybackEvent event) {
+        for (PlaybackEventListener listener : listeners) {
+            try {
+                listener.onPlaybackEvent(event);
+            } catch (Throwable t) {
+                System.err.println("Error in playback listener " + listener.getClass().getName() + ": " + t);
+            }
+        }
+    }
+}
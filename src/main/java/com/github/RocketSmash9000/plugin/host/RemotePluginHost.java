@@ -0,0 +1,388 @@
+package com.github.RocketSmash9000.plugin.host;
+
+import com.github.RocketSmash9000.plugin.event.PlaybackEvent;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/**
+ * TRiM's end of a plugin host: a child JVM running one plugin, so that the plugin's garbage collection,
+ * memory use and crashes stay out of the player's process.
+ * <p>
+ * The child is started from TRiM's own {@code java} and class path with a heap limit, and connects back over
+ * a Unix domain socket. Requests are answered in order; playback events are sent without waiting for
+ * them to be handled. Blocking calls give up after a timeout, but the request then stays with the host.
+ * <p>
+ * Everything sent to the host goes through a bounded outbox that a writer thread of its own empties, so a host
+ * that stops reading only ever stalls that thread. Once the outbox is full, events are dropped and requests fail
+ * right away.
+ */
+public final class RemotePluginHost implements AutoCloseable {
+    /** How long the host may take to start its plugin and connect. */
+    public static final Duration DEFAULT_START_TIMEOUT = Duration.ofSeconds(15);
+    /** The host's heap limit, as for {@code -Xmx}. */
+    public static final String DEFAULT_MAX_HEAP = "256m";
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(2);
+    private static final Duration PING_TIMEOUT = Duration.ofSeconds(5);
+    // Frames waiting to be written; a host that falls this far behind is stuck
+    static final int OUTBOX_CAPACITY = 256;
+
+    private final String pluginId;
+    private final Process process;
+    private final SocketChannel channel;
+    private final BlockingQueue<Outgoing> outbox = new ArrayBlockingQueue<>(OUTBOX_CAPACITY);
+    private final Thread writer;
+    private final Map<Integer, CompletableFuture<HostProtocol.Frame>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger lastRequestId = new AtomicInteger();
+    private volatile boolean disconnected;
+    private volatile boolean closing;
+    // Set while events are being dropped, so a stall is only reported once
+    private final AtomicBoolean droppingEvents = new AtomicBoolean();
+
+    private final long pid;
+    private final String displayName;
+    private final String version;
+    private final String minimumApplicationVersion;
+    private final String description;
+
+    private RemotePluginHost(String pluginId, Process process, SocketChannel channel, ByteBuffer hello) {
+        this.pluginId = pluginId;
+        this.process = process;
+        this.channel = channel;
+        this.pid = hello.getLong();
+        String reportedId = HostProtocol.getString(hello);
+        if (!pluginId.equals(reportedId)) {
+            System.err.println("Plugin host for " + pluginId + " reports plugin ID " + reportedId);
+        }
+        this.displayName = HostProtocol.getString(hello);
+        this.version = HostProtocol.getString(hello);
+        this.minimumApplicationVersion = HostProtocol.getString(hello);
+        this.description = HostProtocol.getString(hello);
+
+        Thread.ofPlatform().daemon().name("trim-plugin-host-" + pluginId).start(this::readReplies);
+        this.writer = Thread.ofPlatform().daemon().name("trim-plugin-host-writer-" + pluginId).start(this::writeFrames);
+    }
+
+    private record Outgoing(byte type, int requestId, ByteBuffer payload) {}
+
+    /**
+     * Starts a host process for a plugin and waits until the plugin is started and the host has connected.
+     * The plugin's {@code onLoad()} isn't called yet; see {@link #load}.
+     *
+     * @param pluginId The plugin's ID
+     * @param pluginPath The plugin's JAR or directory
+     * @param storageFile The file backing the plugin's storage, opened by the host
+     * @param developmentMode Whether the host loads the plugin in development mode
+     * @param maxHeap The host's heap limit, e.g. "256m"
+     * @param timeout How long to wait for the host
+     * @return The connected host
+     * @throws IOException If the host couldn't be started, exited, or didn't connect in time
+     */
+    public static RemotePluginHost start(String pluginId, Path pluginPath, Path storageFile, boolean developmentMode,
+                                         String maxHeap, Duration timeout) throws IOException {
+        // Socket paths are limited to about a hundred bytes, so keep it short
+        Path socketDir = Files.createTempDirectory("trim-host");
+        Path socket = socketDir.resolve("host.sock");
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Process process = null;
+        SocketChannel channel = null;
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            process = new ProcessBuilder(javaExecutable(), "-Xmx" + maxHeap,
+                    "-cp", System.getProperty("java.class.path"), PluginHostMain.class.getName(),
+                    socket.toString(), pluginPath.toAbsolutePath().toString(), storageFile.toAbsolutePath().toString(),
+                    Boolean.toString(developmentMode))
+                    .inheritIO()
+                    .start();
+
+            // Blocking accept and read are cut short by closing their channels if the host dies or stalls
+            AtomicBoolean greeted = new AtomicBoolean();
+            AtomicReference<SocketChannel> accepted = new AtomicReference<>();
+            Runnable giveUp = () -> {
+                if (!greeted.get()) {
+                    closeQuietly(server);
+                    closeQuietly(accepted.get());
+                }
+            };
+            process.onExit().thenRun(giveUp);
+            CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS).execute(giveUp);
+
+            HostProtocol.Frame hello;
+            try {
+                channel = server.accept();
+                accepted.set(channel);
+                if (System.nanoTime() - deadline > 0) {
+                    throw new ClosedChannelException();
+                }
+                hello = HostProtocol.read(channel);
+            } catch (ClosedChannelException | EOFException e) {
+                throw new IOException("Plugin host for " + pluginId + " " + describeFailure(process, timeout));
+            }
+            if (hello.type() == HostProtocol.ERROR) {
+                throw new IOException("Plugin host failed to start " + pluginId + ": " + HostProtocol.getString(hello.payload()));
+            } else if (hello.type() != HostProtocol.HELLO) {
+                throw new IOException("Plugin host for " + pluginId + " sent message type " + hello.type() + " before its greeting");
+            }
+            greeted.set(true);
+            return new RemotePluginHost(pluginId, process, channel, hello.payload());
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(channel);
+            if (process != null) {
+                process.destroyForcibly();
+            }
+            throw e;
+        } finally {
+            // Connected or not, nobody else needs the socket file
+            Files.deleteIfExists(socket);
+            Files.deleteIfExists(socketDir);
+        }
+    }
+
+    private static String describeFailure(Process process, Duration timeout) {
+        try {
+            if (process.waitFor(200, TimeUnit.MILLISECONDS)) {
+                return "exited with code " + process.exitValue();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "did not connect within " + timeout.toMillis() + " ms";
+    }
+
+    private static String javaExecutable() throws IOException {
+        Path bin = Path.of(System.getProperty("java.home"), "bin");
+        Path java = bin.resolve(File.separatorChar == '\\' ? "java.exe" : "java");
+        if (!Files.isExecutable(java)) {
+            // E.g. a native image, which has no JVM to start
+            throw new IOException("No java executable in " + bin);
+        }
+        return java.toString();
+    }
+
+    private void readReplies() {
+        try {
+            while (true) {
+                HostProtocol.Frame frame = HostProtocol.read(channel);
+                CompletableFuture<HostProtocol.Frame> request = pending.remove(frame.requestId());
+                if (request != null) {
+                    request.complete(frame);
+                }
+            }
+        } catch (IOException e) {
+            disconnect(e);
+        }
+    }
+
+    // Blocks on the socket when the host stops reading; closing the channel gets it out of there
+    private void writeFrames() {
+        try {
+            while (true) {
+                Outgoing frame = outbox.take();
+                HostProtocol.write(channel, frame.type(), frame.requestId(), frame.payload());
+            }
+        } catch (IOException e) {
+            disconnect(e);
+        } catch (InterruptedException e) {
+            // Closed while idle
+        }
+    }
+
+    private void disconnect(IOException cause) {
+        disconnected = true;
+        IOException lost = new IOException("Plugin host for " + pluginId + " disconnected", cause);
+        pending.values().forEach(request -> request.completeExceptionally(lost));
+        pending.clear();
+        outbox.clear();
+    }
+
+    private CompletableFuture<HostProtocol.Frame> request(byte type, ByteBuffer payload) {
+        int requestId = lastRequestId.incrementAndGet();
+        CompletableFuture<HostProtocol.Frame> reply = new CompletableFuture<>();
+        pending.put(requestId, reply);
+        if (disconnected) {
+            pending.remove(requestId);
+            reply.completeExceptionally(new IOException("Plugin host for " + pluginId + " disconnected"));
+        } else if (!outbox.offer(new Outgoing(type, requestId, payload))) {
+            pending.remove(requestId);
+            reply.completeExceptionally(new IOException("Plugin host for " + pluginId + " is not reading its messages"));
+        }
+        return reply;
+    }
+
+    // Waits for the reply and turns an ERROR into an exception
+    private HostProtocol.Frame await(CompletableFuture<HostProtocol.Frame> reply, String what, Duration timeout) {
+        HostProtocol.Frame frame;
+        try {
+            frame = reply.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? new UncheckedIOException(io) : new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Plugin " + pluginId + " did not answer " + what + " within " + timeout.toMillis() + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for plugin " + pluginId);
+        }
+        if (frame.type() == HostProtocol.ERROR) {
+            throw new IllegalStateException("Plugin " + pluginId + " failed in " + what + ": " + HostProtocol.getString(frame.payload()));
+        }
+        return frame;
+    }
+
+    /**
+     * Calls the plugin's {@code onLoad()} in the host and waits for it.
+     *
+     * @throws IllegalStateException If the plugin threw, or didn't answer in time
+     * @throws UncheckedIOException If the host went away
+     */
+    public void load(Duration timeout) {
+        await(request(HostProtocol.LOAD, null), "onLoad()", timeout);
+    }
+
+    /**
+     * Calls the plugin's {@code onUnload()} in the host and waits for it.
+     *
+     * @throws IllegalStateException If the plugin threw, or didn't answer in time
+     * @throws UncheckedIOException If the host went away
+     */
+    public void unload(Duration timeout) {
+        await(request(HostProtocol.UNLOAD, null), "onUnload()", timeout);
+    }
+
+    /**
+     * Passes a playback event to the plugin's listeners without waiting for them. Never blocks.
+     * Events sent to a host that went away, or that is too far behind, are dropped.
+     */
+    public void sendEvent(PlaybackEvent event) {
+        if (disconnected) {
+            return;
+        }
+        if (outbox.offer(new Outgoing(HostProtocol.EVENT, 0, HostProtocol.encodeEvent(event)))) {
+            droppingEvents.set(false);
+        } else if (!closing && droppingEvents.compareAndSet(false, true)) {
+            System.err.println("Plugin host for " + pluginId + " is not keeping up, dropping playback events");
+        }
+    }
+
+    /**
+     * Measures one round trip to the host. Since the host handles messages in order, this also waits
+     * for events sent before it.
+     *
+     * @return The round-trip time in nanoseconds
+     */
+    public long ping() {
+        HostProtocol.Frame pong = await(request(HostProtocol.PING, HostProtocol.encodeLong(System.nanoTime())), "ping", PING_TIMEOUT);
+        return System.nanoTime() - pong.payload().getLong();
+    }
+
+    /**
+     * Calls back once if the host process exits without being closed, e.g. because the plugin crashed it.
+     *
+     * @param onCrash Called with the exit code, on a background thread
+     */
+    public void onCrash(IntConsumer onCrash) {
+        process.onExit().thenAccept(exited -> {
+            if (!closing) {
+                onCrash.accept(exited.exitValue());
+            }
+        });
+    }
+
+    /**
+     * Asks the host to exit, and kills it if it doesn't within a couple of seconds. Never waits longer than
+     * that, even if the host has stopped reading. The plugin's {@code onUnload()} isn't called; see {@link #unload}.
+     */
+    @Override
+    public void close() {
+        if (closing) {
+            return;
+        }
+        closing = true;
+        try {
+            await(request(HostProtocol.SHUTDOWN, null), "shutdown", SHUTDOWN_TIMEOUT);
+        } catch (RuntimeException e) {
+            // Busy or already gone; it'll be killed below
+        }
+        // Also gets the writer out of a write the host isn't reading
+        closeQuietly(channel);
+        writer.interrupt();
+        try {
+            if (!process.waitFor(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                System.err.println("Plugin host for " + pluginId + " did not exit, killing it");
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Only ever closed to give up on it
+        }
+    }
+
+    /**
+     * @return Whether the host process is still running
+     */
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * @return The host's process ID
+     */
+    public long getPid() {
+        return pid;
+    }
+
+    public String getPluginId() {
+        return pluginId;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getMinimumApplicationVersion() {
+        return minimumApplicationVersion;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
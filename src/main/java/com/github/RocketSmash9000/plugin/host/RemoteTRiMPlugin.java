@@ -0,0 +1,142 @@
+package com.github.RocketSmash9000.plugin.host;
+
+import com.github.RocketSmash9000.plugin.TRiMPlugin;
+import com.github.RocketSmash9000.plugin.event.OverflowPolicy;
+import com.github.RocketSmash9000.plugin.event.PlaybackEventBus;
+import org.pf4j.PluginDescriptor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Stands in for a plugin that runs in its own {@link RemotePluginHost}.
+ * <p>
+ * {@code onLoad()} starts the host process and has it load the plugin; {@code onUnload()} unloads the plugin
+ * and shuts the host down. Until the host has reported the plugin's details, they come from its descriptor.
+ * Only the plugin class and its {@code PlaybackEventListener} extensions run in the host; TRiM doesn't see
+ * any of its other extensions.
+ */
+public final class RemoteTRiMPlugin implements TRiMPlugin {
+    private final PluginDescriptor descriptor;
+    private final Path pluginPath;
+    private final Path storageFile;
+    private final boolean developmentMode;
+    private final Duration callTimeout;
+    private final ObjIntConsumer<RemoteTRiMPlugin> onCrash;
+    private volatile RemotePluginHost host;
+    private volatile PlaybackEventBus.Subscription subscription;
+
+    /**
+     * @param descriptor The plugin's descriptor, as read by TRiM
+     * @param pluginPath The plugin's JAR or directory
+     * @param storageFile The file backing the plugin's storage, which the host opens
+     * @param developmentMode Whether the host loads the plugin in development mode
+     * @param callTimeout How long {@code onLoad()} and {@code onUnload()} may take in the host
+     * @param onCrash Called with this plugin and the exit code if the host exits on its own
+     */
+    public RemoteTRiMPlugin(PluginDescriptor descriptor, Path pluginPath, Path storageFile, boolean developmentMode,
+                            Duration callTimeout, ObjIntConsumer<RemoteTRiMPlugin> onCrash) {
+        this.descriptor = descriptor;
+        this.pluginPath = pluginPath;
+        this.storageFile = storageFile;
+        this.developmentMode = developmentMode;
+        this.callTimeout = callTimeout;
+        this.onCrash = onCrash;
+    }
+
+    @Override
+    public void onLoad() {
+        RemotePluginHost started;
+        try {
+            started = RemotePluginHost.start(getPluginId(), pluginPath, storageFile, developmentMode,
+                    RemotePluginHost.DEFAULT_MAX_HEAP, RemotePluginHost.DEFAULT_START_TIMEOUT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            started.load(callTimeout);
+        } catch (RuntimeException e) {
+            started.close();
+            throw e;
+        }
+        host = started;
+        started.onCrash(exitCode -> {
+            stopForwarding();
+            onCrash.accept(this, exitCode);
+        });
+    }
+
+    @Override
+    public void onUnload() {
+        stopForwarding();
+        RemotePluginHost running = host;
+        if (running == null) {
+            return;
+        }
+        try {
+            running.unload(callTimeout);
+        } finally {
+            running.close();
+        }
+    }
+
+    /**
+     * Forwards the bus's playback events to the plugin's listeners in the host, until it is unloaded.
+     * Events coalesce while the host falls behind.
+     */
+    public void forwardEvents(PlaybackEventBus eventBus) {
+        RemotePluginHost running = host;
+        if (running == null || subscription != null) {
+            return;
+        }
+        subscription = eventBus.subscribe("plugin host " + getPluginId(), running::sendEvent,
+                PlaybackEventBus.DEFAULT_QUEUE_CAPACITY, OverflowPolicy.COALESCE);
+    }
+
+    private void stopForwarding() {
+        PlaybackEventBus.Subscription forwarding = subscription;
+        subscription = null;
+        if (forwarding != null) {
+            forwarding.cancel();
+        }
+    }
+
+    /**
+     * @return The host the plugin runs in, or null before it has loaded
+     */
+    public RemotePluginHost getHost() {
+        return host;
+    }
+
+    @Override
+    public String getPluginId() {
+        return descriptor.getPluginId();
+    }
+
+    @Override
+    public String getDisplayName() {
+        RemotePluginHost running = host;
+        return running != null ? running.getDisplayName() : descriptor.getPluginId();
+    }
+
+    @Override
+    public String getVersion() {
+        RemotePluginHost running = host;
+        return running != null ? running.getVersion() : descriptor.getVersion();
+    }
+
+    @Override
+    public String getMinimumApplicationVersion() {
+        RemotePluginHost running = host;
+        return running != null ? running.getMinimumApplicationVersion() : descriptor.getRequires();
+    }
+
+    @Override
+    public String getDescription() {
+        RemotePluginHost running = host;
+        return running != null ? running.getDescription() : descriptor.getPluginDescription();
+    }
+}
@@ -0,0 +1,588 @@
+package com.github.RocketSmash9000.plugin.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * A plugin's own persistent key-value store: string keys, byte array values.
+ * <p>
+ * Stored as an append-only log in one memory-mapped file. Every change appends a record; a removal appends
+ * a tombstone. Only the keys and their records' offsets are kept on the heap, sorted, so point lookups and
+ * prefix scans read values straight from the mapping. Once overwritten and removed records take up more
+ * space than live ones, the live records are copied into the log's next generation and the old one is deleted.
+ * The file passed in is the first generation; later ones append their number to its name ({@code plugin.log.1},
+ * {@code plugin.log.2}, ...) and the newest one is used on open. A mapped file is never renamed or replaced,
+ * which Windows doesn't allow. A failed compaction is only retried once twice as much garbage has built up.
+ * <p>
+ * Each record carries a checksum, so a record torn by a crash is dropped when the file is next opened,
+ * together with anything after it. Changes reach the disk when the OS writes the mapping back, or on
+ * {@link #flush()} and {@link #close()}.
+ * <p>
+ * Safe to use from any thread. The file is only opened on first use and can grow to 2 GB.
+ */
+public final class PluginStorage implements Closeable {
+    /** Longest key, in UTF-8 bytes. */
+    public static final int MAX_KEY_BYTES = 1024;
+    /** Largest value. */
+    public static final int MAX_VALUE_BYTES = 16 * 1024 * 1024;
+
+    // Key length, value length (-1 for a removal), CRC32 of both lengths, the key and the value
+    static final int HEADER_BYTES = 12;
+    static final int INITIAL_CAPACITY = 64 * 1024;
+    // Compacting small logs isn't worth rewriting them
+    static final long COMPACTION_MIN_GARBAGE = 64 * 1024;
+    private static final int REMOVED = -1;
+
+    private final Path file;
+    private final Path compactionFile;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by lock
+    private final TreeMap<String, Integer> index = new TreeMap<>();
+    private Path current;
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int end;
+    private long liveBytes;
+    private long garbageBytes;
+    private long compactionThreshold = COMPACTION_MIN_GARBAGE;
+    private int compactions;
+    private volatile boolean opened;
+    private volatile boolean closed;
+
+    /**
+     * @param file The log file; created on first use if it doesn't exist
+     */
+    public PluginStorage(Path file) {
+        this.file = file;
+        this.compactionFile = file.resolveSibling(file.getFileName() + ".compact");
+    }
+
+    /**
+     * @return The value, or null if the key isn't set
+     */
+    public byte[] get(String key) {
+        open();
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            Integer offset = index.get(key);
+            return offset != null ? readValue(offset) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The value as UTF-8 text, or null if the key isn't set
+     */
+    public String getString(String key) {
+        byte[] value = get(key);
+        return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+
+    public boolean contains(String key) {
+        open();
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return index.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets a key.
+     *
+     * @throws IllegalArgumentException If the key is empty or the key or value is too long
+     * @throws IllegalStateException If the file would grow past 2 GB
+     * @throws UncheckedIOException If the file couldn't be grown
+     */
+    public void put(String key, byte[] value) {
+        byte[] keyBytes = keyBytes(key);
+        if (value.length > MAX_VALUE_BYTES) {
+            throw new IllegalArgumentException("Plugin storage values are limited to " + MAX_VALUE_BYTES + " bytes");
+        }
+        open();
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            int offset = append(keyBytes, value);
+            Integer previous = index.put(key, offset);
+            if (previous != null) {
+                discard(previous);
+            }
+            liveBytes += recordSize(keyBytes.length, value.length);
+            compactIfWorthIt();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets a key to UTF-8 text.
+     */
+    public void putString(String key, String value) {
+        put(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @return Whether it was set
+     */
+    public boolean remove(String key) {
+        byte[] keyBytes = keyBytes(key);
+        open();
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            Integer previous = index.get(key);
+            if (previous == null) {
+                return false;
+            }
+            append(keyBytes, null);
+            index.remove(key);
+            discard(previous);
+            garbageBytes += recordSize(keyBytes.length, REMOVED);
+            compactIfWorthIt();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The keys starting with the prefix, in order
+     */
+    public List<String> keys(String prefix) {
+        open();
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            List<String> keys = new ArrayList<>();
+            for (String key : index.tailMap(prefix, true).keySet()) {
+                if (!key.startsWith(prefix)) {
+                    break;
+                }
+                keys.add(key);
+            }
+            return keys;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits the keys starting with the prefix, in order, reading each value only when it is visited.
+     * The visitor may change the store; keys it removes before they are visited are skipped.
+     */
+    public void scan(String prefix, BiConsumer<String, byte[]> visitor) {
+        for (String key : keys(prefix)) {
+            byte[] value = get(key);
+            if (value != null) {
+                visitor.accept(key, value);
+            }
+        }
+    }
+
+    /**
+     * @return How many keys are set
+     */
+    public int size() {
+        open();
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes changes made so far to the disk.
+     */
+    public void flush() {
+        if (!opened) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                map.force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes all changes to the disk and closes the file. The store can't be used afterwards.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (!opened) {
+                return;
+            }
+            map.force();
+            index.clear();
+            map = null;
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close plugin storage " + file + ": " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The generation of the log in use, null before first use
+     */
+    Path getCurrentFile() {
+        lock.readLock().lock();
+        try {
+            return current;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return How many times compaction was attempted, including failed attempts
+     */
+    int getCompactionAttempts() {
+        lock.readLock().lock();
+        try {
+            return compactions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Plugin storage " + file.getFileName() + " is closed");
+        }
+    }
+
+    private static byte[] keyBytes(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0 || bytes.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("Plugin storage keys must be 1 to " + MAX_KEY_BYTES + " bytes long");
+        }
+        return bytes;
+    }
+
+    private static int recordSize(int keyLength, int valueLength) {
+        return HEADER_BYTES + keyLength + Math.max(valueLength, 0);
+    }
+
+    private void open() {
+        if (opened) {
+            checkOpen();
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (!opened) {
+                recover();
+                opened = true;
+                compactIfWorthIt();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open plugin storage " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Rebuilds the index from the newest generation, stopping at the first record that is missing or damaged
+    private void recover() throws IOException {
+        Path dir = Files.createDirectories(file.toAbsolutePath().getParent());
+        generation = newestGeneration(dir);
+        current = generationFile(generation);
+        channel = FileChannel.open(current, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Plugin storage file is larger than 2 GB");
+        }
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_CAPACITY));
+
+        int position = 0;
+        boolean damaged = false;
+        while (position + HEADER_BYTES <= map.capacity()) {
+            int keyLength = map.getInt(position);
+            int valueLength = map.getInt(position + 4);
+            if (keyLength == 0 && valueLength == 0) {
+                // Unwritten space
+                break;
+            }
+            if (keyLength < 0 || keyLength > MAX_KEY_BYTES || valueLength < REMOVED || valueLength > MAX_VALUE_BYTES
+                    || (long) position + recordSize(keyLength, valueLength) > map.capacity()
+                    || map.getInt(position + 8) != checksum(map, position, keyLength, valueLength)) {
+                damaged = true;
+                break;
+            }
+            byte[] keyBytes = new byte[keyLength];
+            map.get(position + HEADER_BYTES, keyBytes);
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+            int recordLength = recordSize(keyLength, valueLength);
+            Integer previous = valueLength == REMOVED ? index.remove(key) : index.put(key, position);
+            if (previous != null) {
+                discard(previous);
+            }
+            if (valueLength == REMOVED) {
+                garbageBytes += recordLength;
+            } else {
+                liveBytes += recordLength;
+            }
+            position += recordLength;
+        }
+        end = position;
+        if (damaged) {
+            System.err.println("Discarding damaged records at the end of plugin storage " + file + " from offset " + end);
+            // So that later appends aren't followed by leftovers that could be mistaken for records
+            for (int i = end; i < map.capacity(); i++) {
+                map.put(i, (byte) 0);
+            }
+            map.force();
+        }
+        deleteOldGenerations(dir);
+    }
+
+    private Path generationFile(long generation) {
+        return generation == 0 ? file : file.resolveSibling(file.getFileName() + "." + generation);
+    }
+
+    private long newestGeneration(Path dir) throws IOException {
+        long newest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path sibling : files) {
+                newest = Math.max(newest, generationOf(sibling));
+            }
+        }
+        return newest;
+    }
+
+    // Deletes what earlier compactions left behind: generations that couldn't be deleted while still mapped,
+    // and a copy that was never finished
+    private void deleteOldGenerations(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path sibling : files) {
+                long siblingGeneration = generationOf(sibling);
+                if (sibling.getFileName().equals(compactionFile.getFileName())
+                        || (siblingGeneration >= 0 && siblingGeneration < generation)) {
+                    try {
+                        Files.deleteIfExists(sibling);
+                    } catch (IOException e) {
+                        System.err.println("Failed to delete " + sibling + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The generation of the log that a file in its folder holds, or -1 if it isn't one
+     */
+    private long generationOf(Path sibling) {
+        String name = sibling.getFileName().toString();
+        String base = file.getFileName().toString();
+        if (name.equals(base)) {
+            return 0;
+        }
+        if (!name.startsWith(base + ".")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(base.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int position, int keyLength, int valueLength) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(position, 8));
+        crc.update(buffer.slice(position + HEADER_BYTES, keyLength + Math.max(valueLength, 0)));
+        return (int) crc.getValue();
+    }
+
+    private byte[] readValue(int offset) {
+        int keyLength = map.getInt(offset);
+        byte[] value = new byte[map.getInt(offset + 4)];
+        map.get(offset + HEADER_BYTES + keyLength, value);
+        return value;
+    }
+
+    // A record that was overwritten or removed
+    private void discard(int offset) {
+        int size = recordSize(map.getInt(offset), map.getInt(offset + 4));
+        liveBytes -= size;
+        garbageBytes += size;
+    }
+
+    /**
+     * Appends a record at the end of the log.
+     *
+     * @param value The value, or null for a removal
+     * @return The record's offset
+     */
+    private int append(byte[] keyBytes, byte[] value) {
+        int valueLength = value != null ? value.length : REMOVED;
+        int size = recordSize(keyBytes.length, valueLength);
+        ensureCapacity((long) end + size);
+        int offset = end;
+        map.putInt(offset, keyBytes.length).putInt(offset + 4, valueLength);
+        map.put(offset + HEADER_BYTES, keyBytes);
+        if (value != null) {
+            map.put(offset + HEADER_BYTES + keyBytes.length, value);
+        }
+        map.putInt(offset + 8, checksum(map, offset, keyBytes.length, valueLength));
+        end += size;
+        return offset;
+    }
+
+    private void ensureCapacity(long needed) {
+        if (needed <= map.capacity()) {
+            return;
+        }
+        if (needed > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Plugin storage " + file.getFileName() + " is full");
+        }
+        long capacity = Math.min(Math.max((long) map.capacity() * 2, needed), Integer.MAX_VALUE);
+        try {
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to grow plugin storage " + file, e);
+        }
+    }
+
+    private void compactIfWorthIt() {
+        if (garbageBytes >= compactionThreshold && garbageBytes >= liveBytes) {
+            compact();
+        }
+    }
+
+    /**
+     * Copies the live records into the next generation and switches to it. The copy is written to a temporary
+     * file that is only renamed to the next generation once complete and not mapped, so a crash leaves the old
+     * generation in use. On failure the old generation stays in use.
+     */
+    private void compact() {
+        compactions++;
+        Path next = generationFile(generation + 1);
+        long capacity = Math.max(INITIAL_CAPACITY, Long.highestOneBit(Math.max(liveBytes, 1)) * 2);
+        int[] offsets = new int[index.size()];
+        int position = 0;
+        try (FileChannel out = FileChannel.open(compactionFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            int i = 0;
+            for (int offset : index.values()) {
+                int size = recordSize(map.getInt(offset), map.getInt(offset + 4));
+                ByteBuffer record = map.slice(offset, size);
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+                offsets[i++] = position;
+                position += size;
+            }
+            out.force(true);
+        } catch (IOException e) {
+            compactionFailed(e);
+            return;
+        }
+        try {
+            Files.move(compactionFile, next, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            compactionFailed(e);
+            return;
+        }
+
+        FileChannel newChannel = null;
+        MappedByteBuffer newMap;
+        try {
+            newChannel = FileChannel.open(next, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            newMap = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            // The next generation would win on the next open, so it has to go
+            try {
+                if (newChannel != null) {
+                    newChannel.close();
+                }
+                Files.delete(next);
+            } catch (IOException rollback) {
+                closed = true;
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Closed anyway
+                }
+                throw new UncheckedIOException("Failed to switch plugin storage " + file + " to " + next, e);
+            }
+            compactionFailed(e);
+            return;
+        }
+
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : index.entrySet()) {
+            entry.setValue(offsets[i++]);
+        }
+        Path previous = current;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Only read from until now; nothing is lost
+        }
+        channel = newChannel;
+        map = newMap;
+        current = next;
+        generation++;
+        end = position;
+        garbageBytes = 0;
+        compactionThreshold = COMPACTION_MIN_GARBAGE;
+        try {
+            Files.deleteIfExists(previous);
+        } catch (IOException e) {
+            // On Windows it can't be deleted while it is still mapped; deleted on the next open instead
+        }
+    }
+
+    private void compactionFailed(IOException e) {
+        System.err.println("Failed to compact plugin storage " + file + ": " + e.getMessage());
+        try {
+            Files.deleteIfExists(compactionFile);
+        } catch (IOException ignored) {
+            // Overwritten by the next attempt
+        }
+        // So that a compaction that keeps failing isn't repeated on every write
+        compactionThreshold = garbageBytes * 2;
+    }
+}
@@ -36,7 +36,9 @@ public interface ToolbarButtonExtension {
 
     /**
      * Invoked when the button is clicked.
-     * Note: This will be called on the JavaFX Application Thread.
+     * Note: This is called on the plugin's own background thread, not the JavaFX Application Thread.
+     * Wrap any UI changes in {@code Platform.runLater}. Calls that take longer than the plugin's time
+     * budget are reported, and a plugin that keeps overrunning it is disabled.
      */
     void onAction();
 }
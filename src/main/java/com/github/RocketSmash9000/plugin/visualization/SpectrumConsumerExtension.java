@@ -0,0 +1,24 @@
+package com.github.RocketSmash9000.plugin.visualization;
+
+import org.pf4j.ExtensionPoint;
+
+/**
+ * Extension point: lets plugins build visualizers or analyzers on the spectrum TRiM already computes.
+ *
+ * Implementations should be annotated with {@code @org.pf4j.Extension}
+ * and reside in the plugin JAR.
+ */
+public interface SpectrumConsumerExtension extends ExtensionPoint {
+    /**
+     * Invoked when the plugin is started. Poll the source from your own render loop
+     * (e.g. an {@code AnimationTimer}) as often as you need frames.
+     * A plugin with lazy activation isn't started just for this; it's attached once something else starts it.
+     * Note: This is called on the plugin's own background thread.
+     */
+    void onAttach(SpectrumSource source);
+
+    /**
+     * Invoked when the plugin is stopped. The source must not be used afterwards.
+     */
+    default void onDetach() { }
+}
@@ -0,0 +1,56 @@
+package com.github.RocketSmash9000.plugin.visualization;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Read access to the spectrum frames TRiM's own visualizer uses.
+ * <p>
+ * Frames live in a small shared ring and are handed out as read-only views, so reading one copies and
+ * allocates nothing. A view aliases the ring slot, though, and the slot is reused a few frames later:
+ * read what you need, then check {@link #isValid(long)} before trusting what you read.
+ *
+ * <pre>{@code
+ * long sequence = source.getLatestSequence();
+ * FloatBuffer frame = source.getFrame(sequence);
+ * if (frame != null) {
+ *     float level = frame.get(0);
+ *     if (source.isValid(sequence)) {
+ *         // use level
+ *     }
+ * }
+ * }</pre>
+ *
+ * A source belongs to one consumer and must only be used from one thread at a time.
+ */
+public interface SpectrumSource {
+    /**
+     * @return The sequence number of the newest frame, or 0 if none has been published yet
+     */
+    long getLatestSequence();
+
+    /**
+     * Gets a read-only view of a frame: one magnitude per frequency bin, in dB, from index 0 to its limit.
+     * The same view object is returned again for later frames in the same slot.
+     *
+     * @param sequence The frame's sequence number
+     * @return The frame, or null if it hasn't been published yet or has already been overwritten
+     */
+    FloatBuffer getFrame(long sequence);
+
+    /**
+     * @param sequence The sequence number of a frame obtained from {@link #getFrame(long)}
+     * @return true if the frame hasn't been overwritten since, so values read from it are consistent
+     */
+    boolean isValid(long sequence);
+
+    /**
+     * @return The sample rate the bins are based on; bin {@code i} of {@code n} centers on
+     *         {@code (i + 0.5) * sampleRate / 2 / n} Hz
+     */
+    double getSampleRate();
+
+    /**
+     * @return The lowest level a bin reports, in dB
+     */
+    float getFloorDb();
+}
@@ -0,0 +1,145 @@
+package com.github.RocketSmash9000.ui;
+
+import com.github.RocketSmash9000.diagnostics.LatencyHistogram;
+import com.github.RocketSmash9000.diagnostics.Metrics;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.StackPane;
+import javafx.util.Duration;
+
+import java.util.Locale;
+
+/**
+ * A panel over the main window with TRiM's {@link Metrics}, refreshed twice a second while it is shown:
+ * track transition latency percentiles, library scan rate, cache hit ratios, FX frame times and heap use.
+ * <p>
+ * Hidden until {@link #TOGGLE} (Ctrl+Shift+D, Cmd+Shift+D on macOS) is pressed. It doesn't take mouse input,
+ * so the controls underneath keep working.
+ */
+public class DiagnosticsOverlay extends StackPane {
+    public static final KeyCombination TOGGLE =
+            new KeyCodeCombination(KeyCode.D, KeyCombination.SHORTCUT_DOWN, KeyCombination.SHIFT_DOWN);
+
+    private static final Duration REFRESH_INTERVAL = Duration.millis(500);
+    private static final double MB = 1024 * 1024;
+
+    private final Metrics metrics;
+    private final Label text = new Label();
+    private final Timeline refresher;
+
+    /**
+     * @param metrics The registry to show
+     */
+    public DiagnosticsOverlay(Metrics metrics) {
+        this.metrics = metrics;
+        text.setStyle("-fx-font-family: monospace; -fx-font-size: 11px; -fx-text-fill: #e0e0e0;");
+        getChildren().add(text);
+        setStyle("-fx-background-color: rgba(0, 0, 0, 0.8); -fx-background-radius: 4;");
+        setPadding(new Insets(6));
+        setMaxSize(Region.USE_PREF_SIZE, Region.USE_PREF_SIZE);
+        StackPane.setAlignment(this, Pos.TOP_LEFT);
+        setMouseTransparent(true);
+        setVisible(false);
+
+        refresher = new Timeline(new KeyFrame(REFRESH_INTERVAL, e -> refresh()));
+        refresher.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    /**
+     * Makes {@link #TOGGLE} show and hide the overlay in the given scene.
+     */
+    public void install(Scene scene) {
+        scene.getAccelerators().put(TOGGLE, this::toggle);
+    }
+
+    /**
+     * Shows the overlay if it's hidden, hides it otherwise. Only refreshes while shown.
+     */
+    public void toggle() {
+        boolean show = !isVisible();
+        setVisible(show);
+        if (show) {
+            refresh();
+            refresher.play();
+        } else {
+            refresher.stop();
+        }
+    }
+
+    private void refresh() {
+        text.setText(describe(metrics));
+    }
+
+    /**
+     * @return The overlay's text for the registry's current values
+     */
+    static String describe(Metrics metrics) {
+        StringBuilder sb = new StringBuilder();
+        line(sb, "Track transition", metrics.histogram("track.transition"));
+        line(sb, "Queue pick", metrics.histogram("queue.pick"));
+
+        LatencyHistogram.Snapshot scans = metrics.histogram("library.scan").snapshot();
+        long files = metrics.counter("library.files").get();
+        sb.append(String.format(Locale.ROOT, "%-17s", "Library scan"));
+        if (scans.getCount() == 0) {
+            sb.append("no scans");
+        } else {
+            double seconds = scans.getTotalNanos() / 1e9;
+            sb.append(String.format(Locale.ROOT, "%,.0f files/s  %,d files in %d scans",
+                    seconds > 0 ? files / seconds : 0, files, scans.getCount()));
+        }
+        sb.append('\n');
+
+        sb.append(String.format(Locale.ROOT, "%-17swaveforms %s  plugin extensions %s%n", "Cache hits",
+                hitRatio(metrics.counter("waveform.lookups").get(), metrics.counter("waveform.misses").get()),
+                hitRatio(metrics.counter("plugins.extensionLookups").get(), metrics.counter("plugins.extensionMisses").get())));
+
+        line(sb, "FX frame", metrics.histogram("fx.frame"));
+        line(sb, "FX layout", metrics.histogram("fx.layout"));
+        line(sb, "EQ render", metrics.histogram("eq.render"));
+        line(sb, "Plugin load", metrics.histogram("plugins.load"));
+
+        double used = metrics.gaugeValue("jvm.heap.used");
+        double max = metrics.gaugeValue("jvm.heap.max");
+        sb.append(String.format(Locale.ROOT, "%-17s", "Heap"));
+        if (Double.isNaN(used)) {
+            sb.append("unknown");
+        } else if (Double.isNaN(max)) {
+            sb.append(String.format(Locale.ROOT, "%.0f MB", used / MB));
+        } else {
+            sb.append(String.format(Locale.ROOT, "%.0f / %.0f MB (%.0f%%)", used / MB, max / MB, 100 * used / max));
+        }
+        return sb.toString();
+    }
+
+    private static void line(StringBuilder sb, String label, LatencyHistogram histogram) {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        sb.append(String.format(Locale.ROOT, "%-17s", label));
+        if (snapshot.getCount() == 0) {
+            sb.append("no data\n");
+            return;
+        }
+        sb.append(String.format(Locale.ROOT, "p50 %s  p95 %s  p99 %s  max %s  (%d)%n",
+                millis(snapshot.getPercentileNanos(50)), millis(snapshot.getPercentileNanos(95)),
+                millis(snapshot.getPercentileNanos(99)), millis(snapshot.getMaxNanos()), snapshot.getCount()));
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, nanos < 10_000_000 ? "%.2f ms" : "%.0f ms", nanos / 1e6);
+    }
+
+    private static String hitRatio(long lookups, long misses) {
+        if (lookups == 0) {
+            return "-";
+        }
+        return String.format(Locale.ROOT, "%.0f%%", 100.0 * (lookups - misses) / lookups);
+    }
+}
@@ -1,18 +1,27 @@
 package com.github.RocketSmash9000.ui;
 
+import com.github.RocketSmash9000.plugin.PluginLoadInfo;
 import com.github.RocketSmash9000.plugin.PluginManager;
+import com.github.RocketSmash9000.plugin.PluginUsage;
 import com.github.RocketSmash9000.plugin.TRiMPlugin;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
+import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.CheckBoxListCell;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.util.Callback;
+import javafx.util.Duration;
 
 import java.util.Comparator;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import org.pf4j.PluginDescriptor;
 import org.pf4j.PluginState;
 import org.pf4j.PluginWrapper;
@@ -29,6 +38,8 @@ public class PluginManagerController {
 
     private final PluginManager pluginManager;
     private final ObservableList<PluginItem> plugins = FXCollections.observableArrayList();
+    // Redraws the cells so the usage figures stay live while the dialog is open
+    private final Timeline usageRefresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> refreshUsage()));
 
     public PluginManagerController(PluginManager pluginManager) {
         this.pluginManager = pluginManager;
@@ -38,6 +49,18 @@ public class PluginManagerController {
     public void initialize() {
         setupPluginList();
         loadPlugins();
+        usageRefresh.setCycleCount(Animation.INDEFINITE);
+        usageRefresh.play();
+    }
+
+    private void refreshUsage() {
+        Scene scene = pluginList.getScene();
+        if (scene != null && scene.getWindow() != null && !scene.getWindow().isShowing()) {
+            // The dialog was closed
+            usageRefresh.stop();
+            return;
+        }
+        pluginList.refresh();
     }
 
     private void setupPluginList() {
@@ -80,9 +103,25 @@ public class PluginManagerController {
                 } catch (Exception ignored) {
                     // ignore and use descriptor fallback
                 }
+            } else if (pluginManager.isRunningOutOfProcess(id)) {
+                TRiMPlugin remote = pluginManager.getPlugin(id);
+                name = remote.getDisplayName();
+                description = remote.getDescription() != null ? remote.getDescription() : description;
             }
 
-            plugins.add(new PluginItem(id, name, version, enabled, description));
+            PluginLoadInfo loadInfo = pluginManager.getLoadInfo(id);
+            String loadStatus = loadInfo != null ? loadInfo.describe() : null;
+            if (enabled && pluginManager.isAwaitingActivation(id)) {
+                loadStatus = "starts on first use";
+            }
+            if (loadStatus != null && pluginManager.isRunningOutOfProcess(id)) {
+                loadStatus += " · separate process";
+            }
+            String disabledReason = pluginManager.getDisabledReason(id);
+            if (!enabled && disabledReason != null) {
+                loadStatus = "disabled: " + disabledReason;
+            }
+            plugins.add(new PluginItem(id, name, version, enabled, description, loadStatus));
         }
 
         plugins.sort(Comparator.comparing(PluginItem::getName, String.CASE_INSENSITIVE_ORDER));
@@ -92,8 +131,41 @@ public class PluginManagerController {
      * Toggles the enabled state of a plugin.
      */
     public void togglePlugin(PluginItem pluginItem) {
-        pluginManager.setPluginEnabled(pluginItem.getId(), pluginItem.isEnabled());
-        // TODO: Add visual feedback or confirmation
+        if (pluginManager.isPluginEnabled(pluginItem.getId()) == pluginItem.isEnabled()) {
+            // Cell updates set the checkbox too; nothing changed
+            return;
+        }
+        // Enabling waits for the plugin's onLoad(), so it happens off the FX thread
+        changeInBackground(pluginItem, "toggle",
+                () -> pluginManager.setPluginEnabled(pluginItem.getId(), pluginItem.isEnabled()));
+    }
+
+    /**
+     * Moves a plugin into or out of its own plugin host process.
+     */
+    public void setOutOfProcess(PluginItem pluginItem, boolean outOfProcess) {
+        if (pluginManager.isOutOfProcess(pluginItem.getId()) == outOfProcess) {
+            return;
+        }
+        // Reloads an enabled plugin, which waits for its onLoad()
+        changeInBackground(pluginItem, "move",
+                () -> pluginManager.setOutOfProcess(pluginItem.getId(), outOfProcess));
+    }
+
+    private void changeInBackground(PluginItem pluginItem, String action, Runnable change) {
+        CompletableFuture.runAsync(change)
+                .whenCompleteAsync((ignored, error) -> {
+                    if (error != null) {
+                        System.err.println("Failed to " + action + " plugin " + pluginItem.getId() + ": " + error.getMessage());
+                    }
+                    // Show the new load status, or why the plugin didn't come up
+                    PluginItem selected = pluginList.getSelectionModel().getSelectedItem();
+                    loadPlugins();
+                    if (selected != null) {
+                        plugins.stream().filter(item -> item.getId().equals(selected.getId())).findFirst()
+                                .ifPresent(item -> pluginList.getSelectionModel().select(item));
+                    }
+                }, Platform::runLater);
     }
 
     /**
@@ -105,13 +177,19 @@ public class PluginManagerController {
         private final String version;
         private boolean enabled;
         private final String description;
+        private final String loadStatus;
 
         public PluginItem(String id, String name, String version, boolean enabled, String description) {
+            this(id, name, version, enabled, description, null);
+        }
+
+        public PluginItem(String id, String name, String version, boolean enabled, String description, String loadStatus) {
             this.id = id;
             this.name = name;
             this.version = version;
             this.enabled = enabled;
             this.description = description != null ? description : "No description available.";
+            this.loadStatus = loadStatus;
         }
 
         // Getters and setters
@@ -121,6 +199,8 @@ public class PluginManagerController {
         public boolean isEnabled() { return enabled; }
         public void setEnabled(boolean enabled) { this.enabled = enabled; }
         public String getDescription() { return description; }
+        /** @return How the plugin's last load went (e.g. "loaded in 120 ms"), or null if it hasn't been loaded */
+        public String getLoadStatus() { return loadStatus; }
 
         @Override
         public String toString() {
@@ -135,7 +215,10 @@ public class PluginManagerController {
         private final CheckBox checkBox = new CheckBox();
         private final Label nameLabel = new Label();
         private final Label versionLabel = new Label();
+        private final Label usageLabel = new Label();
         private final VBox content = new VBox(2);
+        private final CheckMenuItem outOfProcessItem = new CheckMenuItem("Run in separate process");
+        private final ContextMenu contextMenu = new ContextMenu(outOfProcessItem);
 
         public PluginListCell() {
             super();
@@ -146,8 +229,10 @@ public class PluginManagerController {
             
             nameLabel.setStyle("-fx-font-weight: bold;");
             versionLabel.setStyle("-fx-font-size: 0.9em; -fx-text-fill: -fx-text-base-color; -fx-opacity: 0.8;");
+            usageLabel.setStyle(versionLabel.getStyle());
+            usageLabel.managedProperty().bind(usageLabel.visibleProperty());
             
-            VBox labels = new VBox(2, nameLabel, versionLabel);
+            VBox labels = new VBox(2, nameLabel, versionLabel, usageLabel);
             hbox.getChildren().addAll(checkBox, labels);
             
             content.getChildren().add(hbox);
@@ -160,6 +245,11 @@ public class PluginManagerController {
                     togglePlugin(getItem());
                 }
             });
+            outOfProcessItem.setOnAction(e -> {
+                if (getItem() != null) {
+                    setOutOfProcess(getItem(), outOfProcessItem.isSelected());
+                }
+            });
         }
 
         @Override
@@ -169,10 +259,18 @@ public class PluginManagerController {
             if (empty || item == null) {
                 setGraphic(null);
                 setText(null);
+                setContextMenu(null);
             } else {
                 nameLabel.setText(item.getName());
-                versionLabel.setText(String.format("v%s", item.getVersion()));
+                versionLabel.setText(item.getLoadStatus() != null
+                        ? String.format("v%s · %s", item.getVersion(), item.getLoadStatus())
+                        : String.format("v%s", item.getVersion()));
+                PluginUsage.Snapshot usage = pluginManager.getUsage(item.getId());
+                usageLabel.setVisible(usage != null);
+                usageLabel.setText(usage != null ? usage.describe() : null);
                 checkBox.setSelected(item.isEnabled());
+                outOfProcessItem.setSelected(pluginManager.isOutOfProcess(item.getId()));
+                setContextMenu(contextMenu);
                 setGraphic(content);
                 setText(null);
                 
@@ -0,0 +1,88 @@
+package com.github.RocketSmash9000.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Records how long each phase of application startup takes.
+ * Phases may run concurrently on different threads; each one is reported
+ * with its own duration plus its offset from JVM start, so overlapping work is visible.
+ */
+public class StartupProfiler {
+    private final long jvmStartMillis;
+    private final long originNanos;
+    private final long originMillis;
+    private final List<Phase> phases = new ArrayList<>();
+
+    public StartupProfiler() {
+        this.jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+        this.originNanos = System.nanoTime();
+        this.originMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Runs the given task and records its duration under the given phase name.
+     *
+     * @param phase The phase name
+     * @param task The work to time
+     */
+    public void time(String phase, Runnable task) {
+        time(phase, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the given task and records its duration under the given phase name.
+     *
+     * @param phase The phase name
+     * @param task The work to time
+     * @param <T> The result type
+     * @return The result of the task
+     */
+    public <T> T time(String phase, Supplier<T> task) {
+        long start = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            record(phase, start, System.nanoTime(), false);
+        }
+    }
+
+    /**
+     * Records an instantaneous milestone (e.g. "first frame") relative to JVM start.
+     *
+     * @param milestone The milestone name
+     */
+    public void mark(String milestone) {
+        long now = System.nanoTime();
+        record(milestone, now, now, true);
+    }
+
+    private synchronized void record(String name, long startNanos, long endNanos, boolean milestone) {
+        phases.add(new Phase(name, sinceJvmStart(startNanos), (endNanos - startNanos) / 1_000_000, milestone));
+    }
+
+    private long sinceJvmStart(long nanos) {
+        return originMillis - jvmStartMillis + (nanos - originNanos) / 1_000_000;
+    }
+
+    /**
+     * Prints all recorded phases to standard output.
+     */
+    public synchronized void report() {
+        StringBuilder sb = new StringBuilder("Startup timings (ms since JVM start):");
+        for (Phase phase : phases) {
+            sb.append(String.format("%n  %-16s at %6d ms", phase.name(), phase.startMillis()));
+            if (!phase.milestone()) {
+                sb.append(String.format("  took %5d ms", phase.durationMillis()));
+            }
+        }
+        System.out.println(sb);
+    }
+
+    private record Phase(String name, long startMillis, long durationMillis, boolean milestone) {}
+}
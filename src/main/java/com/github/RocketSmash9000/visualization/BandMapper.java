@@ -0,0 +1,127 @@
+package com.github.RocketSmash9000.visualization;
+
+import com.github.RocketSmash9000.audio.dsp.DspKernels;
+
+/**
+ * Maps linear FFT bins onto a smaller number of log- or mel-spaced bars.
+ * <p>
+ * The bin ranges and weights of every bar are computed once per bar count and stored in flat
+ * primitive arrays, so {@link #reduce} is a single pass with no allocation. The bins of a bar are
+ * contiguous, which makes each bar one {@link DspKernels#dot dot product}. Bins that only partly
+ * fall inside a bar contribute with the covered fraction, which keeps narrow bass bars from
+ * collapsing onto the same whole bin.
+ */
+public class BandMapper {
+	/** How bar edges are spaced along the frequency axis. */
+	public enum Scale {
+		/** Equal ratios between neighbouring bar edges. */
+		LOG,
+		/** Equal steps on the mel scale, linear-ish below 1 kHz and logarithmic above. */
+		MEL
+	}
+
+	private final DspKernels kernels = DspKernels.get();
+	private final int barCount;
+	private final int binCount;
+	// Bar b uses entries offsets[b] until offsets[b + 1]
+	private final int[] offsets;
+	private final int[] bins;
+	private final float[] weights;
+	private final float[] inverseTotals;
+
+	/**
+	 * Builds the tables.
+	 *
+	 * @param scale How to space the bars
+	 * @param barCount The number of output values
+	 * @param binCount The number of linear input bins, covering 0 Hz to {@code sampleRate / 2}
+	 * @param sampleRate The sample rate the bins were computed at
+	 * @param minFrequency The lower edge of the first bar, in Hz
+	 * @param maxFrequency The upper edge of the last bar, in Hz; clamped to the Nyquist frequency
+	 * @throws IllegalArgumentException if the counts or frequencies are not usable
+	 */
+	public BandMapper(Scale scale, int barCount, int binCount, double sampleRate, double minFrequency, double maxFrequency) {
+		if (barCount <= 0 || binCount <= 0) {
+			throw new IllegalArgumentException("Bar and bin counts must be positive");
+		}
+		double nyquist = sampleRate / 2;
+		maxFrequency = Math.min(maxFrequency, nyquist);
+		if (minFrequency <= 0 || minFrequency >= maxFrequency) {
+			throw new IllegalArgumentException("Invalid frequency range: " + minFrequency + " - " + maxFrequency);
+		}
+		this.barCount = barCount;
+		this.binCount = binCount;
+
+		double binWidth = nyquist / binCount;
+		double lowScaled = toScale(scale, minFrequency);
+		double highScaled = toScale(scale, maxFrequency);
+
+		// First pass: edges in fractional bin units and the number of entries per bar
+		double[] edges = new double[barCount + 1];
+		for (int b = 0; b <= barCount; b++) {
+			double scaled = lowScaled + (highScaled - lowScaled) * b / barCount;
+			edges[b] = Math.min(binCount, fromScale(scale, scaled) / binWidth);
+		}
+		this.offsets = new int[barCount + 1];
+		for (int b = 0; b < barCount; b++) {
+			int first = (int) Math.floor(edges[b]);
+			int last = Math.min(binCount - 1, Math.max(first, (int) Math.ceil(edges[b + 1]) - 1));
+			offsets[b + 1] = offsets[b] + (last - first + 1);
+		}
+
+		// Second pass: bin indices and the fraction of each bin covered by the bar
+		this.bins = new int[offsets[barCount]];
+		this.weights = new float[offsets[barCount]];
+		this.inverseTotals = new float[barCount];
+		for (int b = 0; b < barCount; b++) {
+			double low = edges[b];
+			double high = Math.max(edges[b + 1], Math.nextUp(low));
+			int first = (int) Math.floor(low);
+			double total = 0;
+			for (int k = offsets[b]; k < offsets[b + 1]; k++) {
+				int bin = first + (k - offsets[b]);
+				double covered = Math.min(high, bin + 1) - Math.max(low, bin);
+				bins[k] = bin;
+				weights[k] = (float) Math.max(0, covered);
+				total += weights[k];
+			}
+			inverseTotals[b] = total > 0 ? (float) (1.0 / total) : 0f;
+		}
+	}
+
+	private static double toScale(Scale scale, double hz) {
+		return scale == Scale.MEL ? 2595.0 * Math.log10(1 + hz / 700.0) : Math.log(hz);
+	}
+
+	private static double fromScale(Scale scale, double value) {
+		return scale == Scale.MEL ? 700.0 * (Math.pow(10, value / 2595.0) - 1) : Math.exp(value);
+	}
+
+	/**
+	 * Computes the weighted average of the bins belonging to each bar.
+	 *
+	 * @param input At least {@link #getBinCount()} bin values
+	 * @param output Receives {@link #getBarCount()} bar values
+	 */
+	public void reduce(float[] input, float[] output) {
+		for (int b = 0; b < barCount; b++) {
+			int start = offsets[b];
+			output[b] = kernels.dot(input, bins[start], weights, start, offsets[b + 1] - start) * inverseTotals[b];
+		}
+	}
+
+	public int getBarCount() {
+		return barCount;
+	}
+
+	public int getBinCount() {
+		return binCount;
+	}
+
+	/**
+	 * @return The index of the lowest bin that contributes to the given bar
+	 */
+	public int getFirstBin(int bar) {
+		return bins[offsets[bar]];
+	}
+}
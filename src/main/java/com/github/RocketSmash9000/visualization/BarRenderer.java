@@ -0,0 +1,32 @@
+package com.github.RocketSmash9000.visualization;
+
+import javafx.scene.Node;
+
+/**
+ * Draws the EQ bars for {@link EQVisualizer}.
+ */
+interface BarRenderer {
+
+	/**
+	 * @return The node that displays the bars; added to the visualizer once
+	 */
+	Node getNode();
+
+	/**
+	 * Called when the visualizer's size or bar count changes.
+	 */
+	void layout(double width, double height, int barCount);
+
+	/**
+	 * Draws one frame.
+	 * @param values Normalized bar heights between 0 and 1
+	 * @param peaks Normalized held peak heights between 0 and 1
+	 * @param count The number of valid entries in {@code values} and {@code peaks}
+	 */
+	void render(float[] values, float[] peaks, int count);
+
+	/**
+	 * @return A short name for logging
+	 */
+	String getName();
+}
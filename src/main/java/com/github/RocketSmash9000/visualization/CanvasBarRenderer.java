@@ -0,0 +1,74 @@
+package com.github.RocketSmash9000.visualization;
+
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * Draws all bars onto a single {@link Canvas}. Resizing only resizes the canvas,
+ * and bar colors come from a lookup table built once, so drawing a frame allocates nothing.
+ */
+class CanvasBarRenderer implements BarRenderer {
+	private static final int COLOR_STEPS = 256;
+	private static final Color BACKGROUND = Color.rgb(0, 0, 0, 0.3);
+	private static final Color PEAK_COLOR = Color.rgb(255, 255, 255, 0.8);
+	private static final double PEAK_HEIGHT = 2.0;
+	private static final Color[] COLOR_LUT = new Color[COLOR_STEPS];
+
+	static {
+		// Same blue-to-cyan ramp as the node renderer, sampled once
+		for (int i = 0; i < COLOR_STEPS; i++) {
+			double value = i / (double) (COLOR_STEPS - 1);
+			COLOR_LUT[i] = Color.hsb(180 + value * 180, 0.8, 1.0);
+		}
+	}
+
+	private final Canvas canvas = new Canvas();
+	private final GraphicsContext gc = canvas.getGraphicsContext2D();
+	private double barWidth;
+	private double startX;
+
+	@Override
+	public Node getNode() {
+		return canvas;
+	}
+
+	@Override
+	public void layout(double width, double height, int barCount) {
+		canvas.setWidth(width);
+		canvas.setHeight(height);
+		barWidth = EQVisualizer.barWidth(width, barCount);
+		startX = EQVisualizer.startX(width, barCount, barWidth);
+		render(null, null, 0);
+	}
+
+	@Override
+	public void render(float[] values, float[] peaks, int count) {
+		double width = canvas.getWidth();
+		double height = canvas.getHeight();
+		gc.clearRect(0, 0, width, height);
+		gc.setFill(BACKGROUND);
+		gc.fillRect(0, 0, width, height);
+
+		for (int i = 0; i < count; i++) {
+			double value = values[i];
+			double barHeight = value * height * 0.9; // 90% of the height
+			gc.setFill(COLOR_LUT[(int) (value * (COLOR_STEPS - 1))]);
+			double x = startX + i * (barWidth + EQVisualizer.BAR_SPACING);
+			gc.fillRect(x, height - barHeight, barWidth, barHeight);
+		}
+
+		gc.setFill(PEAK_COLOR);
+		for (int i = 0; i < count; i++) {
+			if (peaks[i] <= 0) continue;
+			double y = height - peaks[i] * height * 0.9;
+			gc.fillRect(startX + i * (barWidth + EQVisualizer.BAR_SPACING), y - PEAK_HEIGHT, barWidth, PEAK_HEIGHT);
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "canvas";
+	}
+}
@@ -1,29 +1,70 @@
 package com.github.RocketSmash9000.visualization;
 
+import com.github.RocketSmash9000.audio.dsp.DspKernels;
+import com.github.RocketSmash9000.diagnostics.LatencyHistogram;
+import com.github.RocketSmash9000.diagnostics.Metrics;
 import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
 import javafx.scene.layout.Pane;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Line;
-import javafx.scene.shape.Rectangle;
 import javafx.scene.media.AudioSpectrumListener;
 import javafx.scene.media.MediaPlayer;
-
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import javafx.stage.Stage;
+import javafx.stage.Window;
 
 public class EQVisualizer extends Pane {
-    private static final int BANDS = 30;
-    private static final double UPDATE_INTERVAL = 0.05; // 50ms
+    /** JavaFX doesn't report the decoded sample rate; nearly all music is 44.1 kHz. */
+    private static final double SAMPLE_RATE = 44100.0;
+    private static final double MIN_FREQUENCY = 50.0;
+    private static final double MAX_FREQUENCY = 16000.0;
     private static final double MIN_BAR_WIDTH = 10.0; // Minimum width of each bar in pixels
-    private static final double BAR_SPACING = 5.0; // Spacing between bars in pixels
-    private final List<Line> eqBars = new ArrayList<>();
+    static final double BAR_SPACING = 5.0; // Spacing between bars in pixels
+    /** Selects the bar renderer: "canvas" (default) or "node" for the original Line-per-bar renderer. */
+    private static final String RENDERER_PROPERTY = "trim.eq.renderer";
+    /** Selects the frequency scale of the bars: "log" (default) or "mel". */
+    private static final String SCALE_PROPERTY = "trim.eq.scale";
+    private static final double DEFAULT_ATTACK = 0.6;
+    private static final double DEFAULT_DECAY = 0.25;
+    private static final int DEFAULT_PEAK_HOLD_FRAMES = 10; // ~0.5 s at the fastest spectrum interval
+    private static final double DEFAULT_PEAK_DECAY_DB = 1.5;
+    private static final long INTERVAL_WINDOW_NANOS = 2_000_000_000L;
+    private final BarRenderer renderer;
+    private final BandMapper.Scale scale;
+    private final DspKernels kernels = DspKernels.get();
+    private BandMapper bandMapper;
+    private final FrameTimeStats renderStats = new FrameTimeStats();
+    private final FrameTimeStats layoutPulseStats = new FrameTimeStats();
+    private final LatencyHistogram renderTimes = Metrics.getDefault().histogram("eq.render");
+    private final LatencyHistogram layoutPulseTimes = Metrics.getDefault().histogram("fx.layout");
+    private long pulseStart;
+    private float[] barValues = new float[0];
+    private int barCount;
     private MediaPlayer mediaPlayer;
     private double width;
     private final double height;
     private double lastUpdateTime = 0;
-    private final float[] magnitudes = new float[BANDS];
-    private boolean isEnabled = false;
+    // Written by the spectrum listener, read on the FX thread, handed over without locks.
+    // Replaced (on the FX thread) when the bin count changes.
+    private volatile SpectrumBuffer spectrum;
+    // Raw frames for plugin consumers; only filled while at least one is reading
+    private final SpectrumRing spectrumRing = new SpectrumRing(SpectrumRing.DEFAULT_SLOTS, SpectrumBudget.MAX_BINS, SAMPLE_RATE);
+    private float[] peakValues = new float[0];
+    private volatile boolean isEnabled = false;
+    // Spectrum analysis settings; only touched on the FX thread
+    private final SpectrumBudget budget = new SpectrumBudget();
+    private final AudioSpectrumListener spectrumListener = this::onSpectrum;
+    private final InvalidationListener analysisStateListener = obs -> updateSpectrumAnalysis();
+    private Window window;
+    private boolean analysisAttached;
+    private int binCount;
+    private double interval = SpectrumBudget.MIN_INTERVAL;
+    // Smoothing and peak hold for the bars, kept here so that they carry over to a new SpectrumBuffer
+    private double attack = DEFAULT_ATTACK;
+    private double decay = DEFAULT_DECAY;
+    private int peakHoldFrames = DEFAULT_PEAK_HOLD_FRAMES;
+    private double peakDecayDb = DEFAULT_PEAK_DECAY_DB;
+    private long intervalWindowStart;
+    private int intervalWindowFrames;
 
     public EQVisualizer(MediaPlayer mediaPlayer, double width, double height) {
         this.mediaPlayer = mediaPlayer;
@@ -33,6 +74,43 @@ public class EQVisualizer extends Pane {
         // Make the visualization fill its container
         setMaxWidth(Double.MAX_VALUE);
         setMinWidth(0);
+
+        this.renderer = "node".equalsIgnoreCase(System.getProperty(RENDERER_PROPERTY))
+                ? new NodeBarRenderer()
+                : new CanvasBarRenderer();
+        getChildren().add(renderer.getNode());
+        this.scale = "mel".equalsIgnoreCase(System.getProperty(SCALE_PROPERTY))
+                ? BandMapper.Scale.MEL
+                : BandMapper.Scale.LOG;
+
+        // Time the CSS + layout part of each pulse, which is where node-heavy rendering costs show up
+        Runnable preLayout = () -> pulseStart = System.nanoTime();
+        Runnable postLayout = () -> {
+            if (isEnabled && pulseStart != 0) {
+                long elapsed = System.nanoTime() - pulseStart;
+                layoutPulseStats.record(elapsed);
+                layoutPulseTimes.record(elapsed);
+            }
+        };
+        sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (oldScene != null) {
+                oldScene.removePreLayoutPulseListener(preLayout);
+                oldScene.removePostLayoutPulseListener(postLayout);
+            }
+            if (newScene != null) {
+                newScene.addPreLayoutPulseListener(preLayout);
+                newScene.addPostLayoutPulseListener(postLayout);
+            }
+        });
+
+        // Spectrum analysis only runs while the bars can actually be seen
+        sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (oldScene != null) oldScene.windowProperty().removeListener(analysisStateListener);
+            if (newScene != null) newScene.windowProperty().addListener(analysisStateListener);
+            updateSpectrumAnalysis();
+        });
+        visibleProperty().addListener(analysisStateListener);
+        spectrumRing.setOnReadersChanged(() -> Platform.runLater(this::updateSpectrumAnalysis));
         
         // Set up animation
         new AnimationTimer() {
@@ -50,166 +128,253 @@ public class EQVisualizer extends Pane {
             }
         });
         
+        // Initial bar creation
+        recreateBars();
+
         // Set up audio spectrum listener
         if (mediaPlayer != null) {
             setMediaPlayer(mediaPlayer);
         }
-        
-        // Initial bar creation
-        recreateBars();
     }
 
-	@SuppressWarnings("D")
     public void setMediaPlayer(MediaPlayer newMediaPlayer) {
         // Remove listener from old media player if exists
-        if (this.mediaPlayer != null) {
-            try {
-                this.mediaPlayer.setAudioSpectrumListener(null);
-            } catch (Exception e) {
-                // Ignore errors when cleaning up old media player
+        detachSpectrumAnalysis();
+        this.mediaPlayer = newMediaPlayer;
+        updateSpectrumAnalysis();
+    }
+
+    private void onSpectrum(double timestamp, double duration, float[] magnitudes, float[] phases) {
+        // Bins are mapped onto bars on the FX thread, where the bar count is known.
+        // Frames sized for a previous bin count are dropped.
+        SpectrumBuffer target = spectrum;
+        if (isEnabled && target != null && magnitudes != null && magnitudes.length == target.getBands()) {
+            target.publish(magnitudes);
+        }
+        if (magnitudes != null && spectrumRing.getReaderCount() > 0) {
+            spectrumRing.publish(magnitudes, Math.min(magnitudes.length, SpectrumBudget.MAX_BINS));
+        }
+    }
+
+    /**
+     * @return The ring that plugin spectrum consumers read raw frames from
+     */
+    public SpectrumRing getSpectrumRing() {
+        return spectrumRing;
+    }
+
+    /**
+     * Attaches spectrum analysis if the bars are enabled and on screen or a plugin is reading frames,
+     * detaches it otherwise. The native analysis keeps running for as long as a listener is set,
+     * so it is removed whenever nobody would use it.
+     */
+    private void updateSpectrumAnalysis() {
+        Window newWindow = getScene() == null ? null : getScene().getWindow();
+        if (newWindow != window) {
+            if (window != null) {
+                window.showingProperty().removeListener(analysisStateListener);
+                if (window instanceof Stage stage) stage.iconifiedProperty().removeListener(analysisStateListener);
+            }
+            window = newWindow;
+            if (window != null) {
+                window.showingProperty().addListener(analysisStateListener);
+                if (window instanceof Stage stage) stage.iconifiedProperty().addListener(analysisStateListener);
             }
         }
-        
-        this.mediaPlayer = newMediaPlayer;
-        
-        if (newMediaPlayer != null) {
+
+        boolean onScreen = window != null && window.isShowing()
+                && !(window instanceof Stage stage && stage.isIconified());
+        boolean barsShown = isEnabled && isVisible() && onScreen;
+        if ((barsShown || spectrumRing.getReaderCount() > 0) && mediaPlayer != null) {
+            attachSpectrumAnalysis();
+        } else {
+            detachSpectrumAnalysis();
+        }
+    }
+
+    private void attachSpectrumAnalysis() {
+        int bins = SpectrumBudget.binsFor(barCount);
+        if (analysisAttached && bins == binCount) return;
+
+        if (spectrum == null || spectrum.getBands() != bins) {
+            SpectrumBuffer buffer = new SpectrumBuffer(bins);
+            buffer.setSmoothing(attack, decay);
+            buffer.setPeakHold(peakHoldFrames, peakDecayDb);
+            spectrum = buffer;
+        }
+        binCount = bins;
+        rebuildBandMapper();
+        try {
+            // Set spectrum interval (in seconds)
+            mediaPlayer.setAudioSpectrumInterval(interval);
+            // Number of bands (must be a power of 2, between 2 and 32768)
+            mediaPlayer.setAudioSpectrumNumBands(bins);
+            // Sensitivity in decibels (negative values)
+            mediaPlayer.setAudioSpectrumThreshold(-60);
+            mediaPlayer.setAudioSpectrumListener(spectrumListener);
+            analysisAttached = true;
+            budget.switchTo(SpectrumBudget.describe(bins, interval));
+        } catch (Exception e) {
+            System.err.println("Error setting up audio spectrum: " + e.getMessage());
+        }
+    }
+
+    private void detachSpectrumAnalysis() {
+        if (analysisAttached && mediaPlayer != null) {
             try {
-                // Set up audio spectrum listener
-                newMediaPlayer.setAudioSpectrumListener((double timestamp, double duration, 
-                        float[] magnitudes, float[] phases) -> {
-                    if (isEnabled && magnitudes != null && magnitudes.length > 0) {
-                        // Average the bands to make the visualization smoother
-                        int bandsPerBar = Math.max(1, magnitudes.length / BANDS);
-                        for (int i = 0; i < BANDS && i * bandsPerBar < magnitudes.length; i++) {
-                            float sum = 0;
-                            int start = i * bandsPerBar;
-                            int end = Math.min(start + bandsPerBar, magnitudes.length);
-                            for (int j = start; j < end; j++) {
-                                sum += magnitudes[j];
-                            }
-                            this.magnitudes[i] = sum / (end - start);
-                        }
-                    }
-                });
-                
-                // Set spectrum interval (in seconds)
-                newMediaPlayer.setAudioSpectrumInterval(UPDATE_INTERVAL);
-                // Number of bands (must be a power of 2, between 2 and 32768)
-                newMediaPlayer.setAudioSpectrumNumBands(256);
-                // Sensitivity in decibels (negative values)
-                newMediaPlayer.setAudioSpectrumThreshold(-60);
+                // A null listener also switches off the native analysis
+                mediaPlayer.setAudioSpectrumListener(null);
             } catch (Exception e) {
-                System.err.println("Error setting up audio spectrum: " + e.getMessage());
+                // Ignore errors when cleaning up old media player
             }
         }
+        analysisAttached = false;
+        budget.switchTo(SpectrumBudget.DETACHED);
     }
-    
+
+    /**
+     * Slows the analysis down to the frame rate the bars are really drawn at. Called once per rendered frame.
+     */
+    private void adaptInterval(long nowNanos) {
+        if (intervalWindowStart == 0) {
+            intervalWindowStart = nowNanos;
+            intervalWindowFrames = 0;
+            return;
+        }
+        intervalWindowFrames++;
+        long elapsed = nowNanos - intervalWindowStart;
+        if (elapsed < INTERVAL_WINDOW_NANOS) return;
+
+        double achieved = elapsed / 1e9 / intervalWindowFrames;
+        intervalWindowStart = nowNanos;
+        intervalWindowFrames = 0;
+
+        double wanted = SpectrumBudget.intervalFor(achieved);
+        if (Math.abs(wanted - interval) > interval * 0.1 && analysisAttached) {
+            interval = wanted;
+            mediaPlayer.setAudioSpectrumInterval(interval);
+            budget.switchTo(SpectrumBudget.describe(binCount, interval));
+        }
+    }
+
+    private void rebuildBandMapper() {
+        if (barCount == 0 || binCount == 0) return;
+        // The bin tables only depend on the bar and bin counts, so resizes that keep them are free
+        if (bandMapper == null || bandMapper.getBarCount() != barCount || bandMapper.getBinCount() != binCount) {
+            bandMapper = new BandMapper(scale, barCount, binCount, SAMPLE_RATE, MIN_FREQUENCY, MAX_FREQUENCY);
+        }
+    }
+
     private void recreateBars() {
-        getChildren().clear();
-        eqBars.clear();
-        
         if (width <= 0) return;
-        
+
         // Calculate how many bars can fit with minimum width and spacing
-        int maxBands = (int) Math.max(1, (width + BAR_SPACING) / (MIN_BAR_WIDTH + BAR_SPACING));
-        
-        // Calculate actual bar width to fill available space
-        double barWidth = (width - ((maxBands - 1) * BAR_SPACING)) / maxBands;
-        
-        // Calculate total width used by all bars and spacing
-        double totalWidth = (barWidth * maxBands) + (BAR_SPACING * (maxBands - 1));
-        
-        // Calculate start position to center the bars
-        double startX = (width - totalWidth) / 2;
-        
-        // Create bars
-        for (int i = 0; i < maxBands; i++) {
-            Line bar = new Line();
-            bar.setStroke(Color.rgb(100, 200, 255));
-            bar.setStrokeWidth(barWidth);
-            
-            // Position each bar with proper spacing
-            double x = startX + (i * (barWidth + BAR_SPACING)) + (barWidth / 2);
-            
-            bar.setStartX(x);
-            bar.setStartY(height);
-            bar.setEndX(x);
-            bar.setEndY(height);
-            
-            eqBars.add(bar);
-            getChildren().add(bar);
+        barCount = (int) Math.max(1, (width + BAR_SPACING) / (MIN_BAR_WIDTH + BAR_SPACING));
+        if (barValues.length < barCount) {
+            barValues = new float[barCount];
+            peakValues = new float[barCount];
+        }
+        renderer.layout(width, height, barCount);
+        if (analysisAttached) {
+            // Picks a new bin count if the bar count moved far enough
+            attachSpectrumAnalysis();
         }
-        
-        // Add background
-        addBackground();
     }
-    
-    private void addBackground() {
-        // Add a semi-transparent background for better visibility
-        Rectangle bg = new Rectangle(0, 0, width, height);
-        bg.setFill(Color.rgb(0, 0, 0, 0.3));
-        getChildren().add(0, bg);
+
+    /**
+     * Calculates the actual bar width that fills the available space.
+     */
+    static double barWidth(double width, int barCount) {
+        return (width - ((barCount - 1) * BAR_SPACING)) / barCount;
     }
-    
+
+    /**
+     * Calculates the x position of the first bar so that the bars are centered.
+     */
+    static double startX(double width, int barCount, double barWidth) {
+        double totalWidth = (barWidth * barCount) + (BAR_SPACING * (barCount - 1));
+        return (width - totalWidth) / 2;
+    }
+
     private void updateBars() {
-        if (!isEnabled || eqBars.isEmpty()) return;
-        
+        if (!isEnabled || !analysisAttached || bandMapper == null) return;
+
         long currentTime = System.currentTimeMillis();
         if (currentTime - lastUpdateTime < 50) { // Limit to ~20 FPS
             return;
         }
         lastUpdateTime = currentTime;
-        
-        int bandsToUse = Math.min(eqBars.size(), magnitudes.length);
-        if (bandsToUse == 0) return;
-        
-        // Distribute the frequency data across the current number of bars
-        int bandsPerBar = Math.max(1, magnitudes.length / eqBars.size());
-        
-        for (int i = 0; i < eqBars.size() && (i * bandsPerBar) < magnitudes.length; i++) {
-            Line bar = eqBars.get(i);
-            
-            // Average the magnitudes for this bar
-	        double normalizedValue = getNormalizedValue(i, bandsPerBar);
-
-	        double barHeight = normalizedValue * height * 0.9; // 90% of the height
-            
-            bar.setStartY(height);
-            bar.setEndY(height - barHeight);
-            
-            // Change color based on intensity (blue to cyan)
-            double hue = 180 + (normalizedValue * 180);
-            bar.setStroke(Color.hsb(hue, 0.8, 1.0));
-        }
+
+        long start = System.nanoTime();
+        adaptInterval(start);
+
+        SpectrumBuffer.Frame frame = spectrum.acquire();
+        bandMapper.reduce(frame.values, barValues);
+        bandMapper.reduce(frame.peaks, peakValues);
+        // Convert dB to bar heights between 0 and 1, with a curve to make the visualization more dynamic
+        kernels.normalizeDb(barValues, barValues, barCount, SpectrumBuffer.FLOOR_DB);
+        kernels.normalizeDb(peakValues, peakValues, barCount, SpectrumBuffer.FLOOR_DB);
+        renderer.render(barValues, peakValues, barCount);
+
+        long elapsed = System.nanoTime() - start;
+        renderStats.record(elapsed);
+        renderTimes.record(elapsed);
     }
 
-	private double getNormalizedValue(int i, int bandsPerBar) {
-		double sum = 0;
-		int start = i * bandsPerBar;
-		int end = Math.min(start + bandsPerBar, magnitudes.length);
-		for (int j = start; j < end; j++) {
-		    sum += magnitudes[j];
+	/**
+	 * Sets how quickly the bars follow the music. Takes effect immediately if the spectrum is running, otherwise
+	 * once it starts.
+	 *
+	 * @param attack Fraction of the distance covered per spectrum frame when rising, in (0, 1]
+	 * @param decay Fraction of the distance covered per spectrum frame when falling, in (0, 1]
+	 */
+	public void setSmoothing(double attack, double decay) {
+		if (attack <= 0 || attack > 1 || decay <= 0 || decay > 1) {
+			throw new IllegalArgumentException("Attack and decay must be in (0, 1]");
+		}
+		this.attack = attack;
+		this.decay = decay;
+		SpectrumBuffer target = spectrum;
+		if (target != null) {
+			target.setSmoothing(attack, decay);
+		}
+	}
+
+	/**
+	 * Configures the peak markers drawn above the bars. Like {@link #setSmoothing}, this can be called before the
+	 * spectrum starts.
+	 *
+	 * @param holdFrames How many spectrum frames a peak is held
+	 * @param decayDbPerFrame How fast a released peak falls, in dB per spectrum frame
+	 */
+	public void setPeakHold(int holdFrames, double decayDbPerFrame) {
+		if (holdFrames < 0 || decayDbPerFrame <= 0) {
+			throw new IllegalArgumentException("Invalid peak hold settings");
+		}
+		this.peakHoldFrames = holdFrames;
+		this.peakDecayDb = decayDbPerFrame;
+		SpectrumBuffer target = spectrum;
+		if (target != null) {
+			target.setPeakHold(holdFrames, decayDbPerFrame);
 		}
-		double avgMagnitude = sum / (end - start);
-
-		// Convert dB to a value between 0 and 1 (with some scaling)
-		double normalizedValue = (avgMagnitude + 60) / 60.0;
-		// Clamp the value between 0 and 1
-		normalizedValue = Math.max(0, Math.min(1, normalizedValue));
-		// Apply a curve to make the visualization more dynamic
-		normalizedValue = Math.pow(normalizedValue, 1.5);
-		return normalizedValue;
 	}
 
 	public void setEnabled(boolean enabled) {
+        if (isEnabled && !enabled && renderStats.getFrames() > 0) {
+            System.out.println("EQ " + renderer.getName() + " renderer: update " + renderStats
+                    + "; CSS+layout pulse " + layoutPulseStats);
+            renderStats.reset();
+            layoutPulseStats.reset();
+        }
         this.isEnabled = enabled;
         setVisible(enabled);
         
-        if (enabled) {
-            // Reset magnitudes when enabling
-	        // Min value
-	        Arrays.fill(magnitudes, -60);
+        if (enabled && spectrum != null) {
+            // Reset levels and peaks when enabling; applied by the writer before its next frame
+            spectrum.reset();
         }
+        intervalWindowStart = 0;
+        updateSpectrumAnalysis();
     }
     
     public boolean isEnabled() {
@@ -0,0 +1,35 @@
+package com.github.RocketSmash9000.visualization;
+
+/**
+ * Accumulates frame times without allocating.
+ */
+class FrameTimeStats {
+	private long frames;
+	private long totalNanos;
+	private long maxNanos;
+
+	void record(long nanos) {
+		frames++;
+		totalNanos += nanos;
+		if (nanos > maxNanos) maxNanos = nanos;
+	}
+
+	long getFrames() {
+		return frames;
+	}
+
+	void reset() {
+		frames = 0;
+		totalNanos = 0;
+		maxNanos = 0;
+	}
+
+	@Override
+	public String toString() {
+		if (frames == 0) {
+			return "no frames";
+		}
+		return String.format("avg %.1f µs, max %.1f µs over %d frames",
+				totalNanos / 1000.0 / frames, maxNanos / 1000.0, frames);
+	}
+}
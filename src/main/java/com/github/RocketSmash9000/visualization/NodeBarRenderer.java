@@ -0,0 +1,75 @@
+package com.github.RocketSmash9000.visualization;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.Rectangle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Original renderer: one scene-graph {@link Line} per bar, rebuilt on every layout change.
+ * Kept for comparison with {@link CanvasBarRenderer}.
+ */
+class NodeBarRenderer implements BarRenderer {
+	private final Group group = new Group();
+	private final List<Line> eqBars = new ArrayList<>();
+	private double height;
+
+	@Override
+	public Node getNode() {
+		return group;
+	}
+
+	@Override
+	public void layout(double width, double height, int barCount) {
+		this.height = height;
+		group.getChildren().clear();
+		eqBars.clear();
+
+		// Add a semi-transparent background for better visibility
+		Rectangle bg = new Rectangle(0, 0, width, height);
+		bg.setFill(Color.rgb(0, 0, 0, 0.3));
+		group.getChildren().add(bg);
+
+		double barWidth = EQVisualizer.barWidth(width, barCount);
+		double startX = EQVisualizer.startX(width, barCount, barWidth);
+		for (int i = 0; i < barCount; i++) {
+			Line bar = new Line();
+			bar.setStroke(Color.rgb(100, 200, 255));
+			bar.setStrokeWidth(barWidth);
+
+			// Position each bar with proper spacing
+			double x = startX + (i * (barWidth + EQVisualizer.BAR_SPACING)) + (barWidth / 2);
+			bar.setStartX(x);
+			bar.setStartY(height);
+			bar.setEndX(x);
+			bar.setEndY(height);
+
+			eqBars.add(bar);
+			group.getChildren().add(bar);
+		}
+	}
+
+	@Override
+	public void render(float[] values, float[] peaks, int count) {
+		// Peaks are only drawn by the canvas renderer
+		for (int i = 0; i < count && i < eqBars.size(); i++) {
+			Line bar = eqBars.get(i);
+			double barHeight = values[i] * height * 0.9; // 90% of the height
+			bar.setStartY(height);
+			bar.setEndY(height - barHeight);
+
+			// Change color based on intensity (blue to cyan)
+			double hue = 180 + (values[i] * 180);
+			bar.setStroke(Color.hsb(hue, 0.8, 1.0));
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "node";
+	}
+}
@@ -0,0 +1,86 @@
+package com.github.RocketSmash9000.visualization;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * Decides how much spectrum analysis the visualizer asks for and measures what each setting costs.
+ * <p>
+ * The bin count follows the number of bars on screen and the analysis interval follows the frame
+ * rate the visualizer actually achieves, so the native analysis never produces data nobody draws.
+ * Process CPU usage is tracked per mode and printed whenever the mode changes.
+ */
+class SpectrumBudget {
+	static final int MIN_BINS = 64;
+	static final int MAX_BINS = 512;
+	/** Bins per bar; log-spaced bass bars need a finer grid than their share of the spectrum suggests. */
+	static final int BINS_PER_BAR = 8;
+	static final double MIN_INTERVAL = 0.05; // 50ms, the visualizer's frame cap
+	static final double MAX_INTERVAL = 0.2;
+	/** Mode name used while no analysis is running. */
+	static final String DETACHED = "detached";
+
+	private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+	private String mode;
+	private long modeStartNanos;
+	private long modeStartCpuNanos;
+
+	/**
+	 * @return The smallest power of two that gives every bar {@link #BINS_PER_BAR} bins, within limits
+	 */
+	static int binsFor(int barCount) {
+		int wanted = Math.max(MIN_BINS, barCount * BINS_PER_BAR);
+		int bins = Integer.highestOneBit(wanted);
+		if (bins < wanted) bins <<= 1;
+		return Math.min(MAX_BINS, bins);
+	}
+
+	/**
+	 * @param achievedFrameInterval Seconds between rendered frames, or 0 if unknown
+	 * @return The analysis interval in seconds; no faster than the frames being drawn
+	 */
+	static double intervalFor(double achievedFrameInterval) {
+		if (!(achievedFrameInterval > 0)) return MIN_INTERVAL;
+		return Math.max(MIN_INTERVAL, Math.min(MAX_INTERVAL, achievedFrameInterval));
+	}
+
+	/**
+	 * Switches to a new mode, printing the CPU usage of the previous one.
+	 *
+	 * @param newMode A short description of the analysis settings
+	 * @return The CPU usage of the previous mode as a fraction of one core, or -1 if unavailable
+	 */
+	double switchTo(String newMode) {
+		long now = System.nanoTime();
+		long cpu = processCpuNanos();
+		double usage = -1;
+		if (mode != null && !mode.equals(newMode)) {
+			long elapsed = now - modeStartNanos;
+			if (cpu >= 0 && modeStartCpuNanos >= 0 && elapsed > 0) {
+				usage = (double) (cpu - modeStartCpuNanos) / elapsed;
+				System.out.printf("EQ spectrum %s: %.1f%% CPU over %.1f s%n", mode, usage * 100, elapsed / 1e9);
+			}
+		}
+		if (mode == null || !mode.equals(newMode)) {
+			mode = newMode;
+			modeStartNanos = now;
+			modeStartCpuNanos = cpu;
+		}
+		return usage;
+	}
+
+	String getMode() {
+		return mode;
+	}
+
+	private long processCpuNanos() {
+		if (os instanceof com.sun.management.OperatingSystemMXBean sunOs) {
+			return sunOs.getProcessCpuTime();
+		}
+		return -1;
+	}
+
+	static String describe(int bins, double interval) {
+		return String.format("%d bins @ %.0f ms", bins, interval * 1000);
+	}
+}
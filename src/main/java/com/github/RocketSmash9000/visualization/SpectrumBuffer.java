@@ -0,0 +1,173 @@
+package com.github.RocketSmash9000.visualization;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free handoff of spectrum frames from the media thread to the FX thread.
+ * <p>
+ * Uses triple buffering: the writer fills a private back frame and swaps it into a shared slot,
+ * the reader swaps the shared slot with its private front frame. Neither side ever blocks or sees
+ * a frame that is still being written. Attack/decay smoothing and peak hold are applied once per
+ * frame on the writer side, so every reader sees the same finished values.
+ * <p>
+ * Exactly one thread may call {@link #publish} and exactly one thread may call {@link #acquire}.
+ */
+public class SpectrumBuffer {
+	/** Level (in dB) that bands fall back to when there is no signal. */
+	public static final float FLOOR_DB = -60f;
+
+	private final int bands;
+	private final AtomicReference<Frame> shared;
+	private Frame back;
+	private Frame front;
+
+	// Writer-side state
+	private final float[] smoothed;
+	private final float[] peaks;
+	private final int[] holdRemaining;
+	private long sequence;
+	private volatile boolean resetRequested = true;
+
+	// Settings; written by any thread, read by the writer
+	private volatile float attack = 1.0f;
+	private volatile float decay = 1.0f;
+	private volatile int peakHoldFrames = 0;
+	private volatile float peakDecayPerFrame = Float.MAX_VALUE;
+
+	/**
+	 * @param bands The number of values in each frame
+	 */
+	public SpectrumBuffer(int bands) {
+		this.bands = bands;
+		this.shared = new AtomicReference<>(new Frame(bands));
+		this.back = new Frame(bands);
+		this.front = new Frame(bands);
+		this.smoothed = new float[bands];
+		this.peaks = new float[bands];
+		this.holdRemaining = new int[bands];
+	}
+
+	/**
+	 * Sets how fast bars follow the signal. 1.0 follows immediately; smaller values smooth more.
+	 *
+	 * @param attack Fraction of the distance covered per frame when rising, in (0, 1]
+	 * @param decay Fraction of the distance covered per frame when falling, in (0, 1]
+	 */
+	public void setSmoothing(double attack, double decay) {
+		if (attack <= 0 || attack > 1 || decay <= 0 || decay > 1) {
+			throw new IllegalArgumentException("Attack and decay must be in (0, 1]");
+		}
+		this.attack = (float) attack;
+		this.decay = (float) decay;
+	}
+
+	/**
+	 * Configures peak hold.
+	 *
+	 * @param holdFrames How many frames a peak stays put before falling
+	 * @param decayDbPerFrame How fast a released peak falls, in dB per frame
+	 */
+	public void setPeakHold(int holdFrames, double decayDbPerFrame) {
+		if (holdFrames < 0 || decayDbPerFrame <= 0) {
+			throw new IllegalArgumentException("Invalid peak hold settings");
+		}
+		this.peakHoldFrames = holdFrames;
+		this.peakDecayPerFrame = (float) decayDbPerFrame;
+	}
+
+	/**
+	 * Asks the writer to drop its smoothing and peak state before the next frame. Callable from any thread.
+	 */
+	public void reset() {
+		resetRequested = true;
+	}
+
+	/**
+	 * Publishes a new frame. Must only be called from the writer thread.
+	 *
+	 * @param levels Band levels in dB; at least {@code bands} entries
+	 */
+	public void publish(float[] levels) {
+		if (resetRequested) {
+			resetRequested = false;
+			Arrays.fill(smoothed, FLOOR_DB);
+			Arrays.fill(peaks, FLOOR_DB);
+			Arrays.fill(holdRemaining, 0);
+		}
+
+		float rise = attack;
+		float fall = decay;
+		int hold = peakHoldFrames;
+		float peakFall = peakDecayPerFrame;
+		for (int i = 0; i < bands; i++) {
+			float target = levels[i];
+			float current = smoothed[i];
+			current += (target - current) * (target > current ? rise : fall);
+			smoothed[i] = current;
+
+			if (current >= peaks[i]) {
+				peaks[i] = current;
+				holdRemaining[i] = hold;
+			} else if (holdRemaining[i] > 0) {
+				holdRemaining[i]--;
+			} else {
+				peaks[i] = Math.max(current, peaks[i] - peakFall);
+			}
+		}
+
+		Frame frame = back;
+		System.arraycopy(smoothed, 0, frame.values, 0, bands);
+		System.arraycopy(peaks, 0, frame.peaks, 0, bands);
+		frame.sequence = ++sequence;
+		back = shared.getAndSet(frame);
+	}
+
+	/**
+	 * Returns the newest published frame. Must only be called from the reader thread.
+	 * The returned frame stays valid and unchanged until the next call.
+	 *
+	 * @return The latest frame; its sequence is 0 if nothing has been published yet
+	 */
+	public Frame acquire() {
+		if (shared.get().sequence > front.sequence) {
+			front = shared.getAndSet(front);
+		}
+		return front;
+	}
+
+	/**
+	 * @return The number of values in each frame
+	 */
+	public int getBands() {
+		return bands;
+	}
+
+	/**
+	 * One spectrum frame: smoothed band levels and their held peaks, both in dB.
+	 */
+	public static final class Frame {
+		final float[] values;
+		final float[] peaks;
+		volatile long sequence;
+
+		Frame(int bands) {
+			this.values = new float[bands];
+			this.peaks = new float[bands];
+			Arrays.fill(values, FLOOR_DB);
+			Arrays.fill(peaks, FLOOR_DB);
+		}
+
+		public float value(int band) {
+			return values[band];
+		}
+
+		public float peak(int band) {
+			return peaks[band];
+		}
+
+		public long getSequence() {
+			return sequence;
+		}
+	}
+}
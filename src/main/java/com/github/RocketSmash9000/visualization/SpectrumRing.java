@@ -0,0 +1,160 @@
+package com.github.RocketSmash9000.visualization;
+
+import com.github.RocketSmash9000.plugin.visualization.SpectrumSource;
+
+import java.lang.invoke.VarHandle;
+import java.nio.FloatBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Shares raw spectrum frames with any number of readers without copying them per reader.
+ * <p>
+ * All frames live in one {@link FloatBuffer}, split into a few fixed-size slots. The single writer
+ * fills the next slot and stamps it with the frame's sequence number; each reader gets its own
+ * read-only views over the slots once, when it is created. A slot's stamp is cleared while it is being
+ * rewritten, so a reader detects an overwritten frame by checking the stamp after reading, as with a seqlock.
+ */
+public class SpectrumRing {
+	public static final int DEFAULT_SLOTS = 8;
+
+	private final int slots;
+	private final int maxBins;
+	private final double sampleRate;
+	private final FloatBuffer storage;
+	private final AtomicLongArray stamps;
+	private final int[] slotBins; // Written before the slot's stamp, read after it
+	private volatile long latest;
+	private final AtomicInteger readerCount = new AtomicInteger();
+	private volatile Runnable onReadersChanged;
+
+	/**
+	 * @param slots How many frames are kept; a reader has that many frame intervals to finish a frame
+	 * @param maxBins The largest frame that can be published
+	 * @param sampleRate The sample rate the bins are based on
+	 */
+	public SpectrumRing(int slots, int maxBins, double sampleRate) {
+		if (slots < 2 || maxBins < 1) {
+			throw new IllegalArgumentException("Need at least two slots and one bin");
+		}
+		this.slots = slots;
+		this.maxBins = maxBins;
+		this.sampleRate = sampleRate;
+		this.storage = FloatBuffer.allocate(slots * maxBins);
+		this.stamps = new AtomicLongArray(slots);
+		this.slotBins = new int[slots];
+	}
+
+	/**
+	 * Publishes a frame. Must only be called from the writer thread.
+	 *
+	 * @param magnitudes Bin levels in dB
+	 * @param bins How many entries of {@code magnitudes} to publish, at most the ring's maximum
+	 */
+	public void publish(float[] magnitudes, int bins) {
+		if (bins > maxBins) {
+			throw new IllegalArgumentException("Frame has " + bins + " bins, ring holds " + maxBins);
+		}
+		long sequence = latest + 1;
+		int slot = (int) (sequence % slots);
+		stamps.set(slot, 0); // Readers of the old frame now see it as overwritten
+		VarHandle.storeStoreFence();
+		storage.put(slot * maxBins, magnitudes, 0, bins);
+		slotBins[slot] = bins;
+		stamps.set(slot, sequence);
+		latest = sequence;
+	}
+
+	/**
+	 * Creates a reader with its own views over the ring. Allocates once; reading frames allocates nothing.
+	 */
+	public Reader newReader() {
+		Reader reader = new Reader();
+		readerCount.incrementAndGet();
+		readersChanged();
+		return reader;
+	}
+
+	/**
+	 * @return How many readers are open; there is no point publishing without any
+	 */
+	public int getReaderCount() {
+		return readerCount.get();
+	}
+
+	/**
+	 * Sets a callback run whenever a reader is opened or closed, on the thread that did so.
+	 */
+	public void setOnReadersChanged(Runnable onReadersChanged) {
+		this.onReadersChanged = onReadersChanged;
+	}
+
+	private void readersChanged() {
+		Runnable callback = onReadersChanged;
+		if (callback != null) {
+			callback.run();
+		}
+	}
+
+	/**
+	 * One consumer's view of the ring.
+	 */
+	public final class Reader implements SpectrumSource, AutoCloseable {
+		private final FloatBuffer[] views = new FloatBuffer[slots];
+		private boolean closed;
+
+		private Reader() {
+			for (int i = 0; i < slots; i++) {
+				views[i] = storage.slice(i * maxBins, maxBins).asReadOnlyBuffer();
+			}
+		}
+
+		@Override
+		public long getLatestSequence() {
+			return latest;
+		}
+
+		@Override
+		public FloatBuffer getFrame(long sequence) {
+			if (sequence <= 0) {
+				return null;
+			}
+			int slot = (int) (sequence % slots);
+			if (stamps.get(slot) != sequence) {
+				return null;
+			}
+			FloatBuffer view = views[slot];
+			view.limit(slotBins[slot]).position(0);
+			return view;
+		}
+
+		@Override
+		public boolean isValid(long sequence) {
+			// Keep the reads of the frame from moving past the stamp check
+			VarHandle.acquireFence();
+			return sequence > 0 && stamps.get((int) (sequence % slots)) == sequence;
+		}
+
+		@Override
+		public double getSampleRate() {
+			return sampleRate;
+		}
+
+		@Override
+		public float getFloorDb() {
+			return SpectrumBuffer.FLOOR_DB;
+		}
+
+		/**
+		 * Releases this reader. Closing twice is harmless.
+		 */
+		@Override
+		public synchronized void close() {
+			if (!closed) {
+				closed = true;
+				readerCount.decrementAndGet();
+				readersChanged();
+			}
+		}
+	}
+}
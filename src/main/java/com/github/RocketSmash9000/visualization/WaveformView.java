@@ -0,0 +1,144 @@
+package com.github.RocketSmash9000.visualization;
+
+import com.github.RocketSmash9000.audio.waveform.PeakPyramid;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * Seekable playback position display. Draws the track's waveform from a {@link PeakPyramid} when one is
+ * available and a plain progress bar otherwise.
+ * <p>
+ * The column extents are computed once per width and waveform, so progress updates only repaint.
+ * They are also skipped entirely while the played position stays within the same pixel column.
+ */
+public class WaveformView extends Region {
+	private static final Color TRACK_COLOR = Color.web("#3c3f41");
+	private static final Color PLAYED_COLOR = Color.web("#4a9cff");
+	private static final Color UNPLAYED_COLOR = Color.web("#7a7d80");
+	private static final double BAR_HEIGHT = 10.0;
+
+	private final Canvas canvas = new Canvas();
+	private final GraphicsContext gc = canvas.getGraphicsContext2D();
+	private PeakPyramid peaks;
+	private double progress;
+	private int playedColumns = -1;
+	private float[] columnMins = new float[0];
+	private float[] columnMaxs = new float[0];
+	private DoubleConsumer onSeek;
+
+	public WaveformView() {
+		getChildren().add(canvas);
+		setMinHeight(BAR_HEIGHT);
+		setPrefHeight(40);
+
+		canvas.addEventHandler(MouseEvent.MOUSE_PRESSED, this::seek);
+		canvas.addEventHandler(MouseEvent.MOUSE_DRAGGED, this::seek);
+	}
+
+	/**
+	 * @param onSeek Called with the clicked position as a fraction between 0.0 and 1.0
+	 */
+	public void setOnSeek(DoubleConsumer onSeek) {
+		this.onSeek = onSeek;
+	}
+
+	/**
+	 * @param peaks The waveform of the current track, or null to show a plain progress bar
+	 */
+	public void setPeaks(PeakPyramid peaks) {
+		this.peaks = peaks;
+		computeColumns();
+		repaint();
+	}
+
+	/**
+	 * @param progress The playback position as a fraction between 0.0 and 1.0
+	 */
+	public void setProgress(double progress) {
+		this.progress = Math.max(0, Math.min(1, progress));
+		int columns = (int) (this.progress * canvas.getWidth());
+		if (columns != playedColumns) {
+			repaint();
+		}
+	}
+
+	@Override
+	protected void layoutChildren() {
+		double width = snapSizeX(getWidth());
+		double height = snapSizeY(getHeight());
+		if (width != canvas.getWidth() || height != canvas.getHeight()) {
+			canvas.setWidth(width);
+			canvas.setHeight(height);
+			computeColumns();
+			repaint();
+		}
+	}
+
+	private void seek(MouseEvent event) {
+		if (onSeek != null && canvas.getWidth() > 0) {
+			onSeek.accept(Math.max(0, Math.min(1, event.getX() / canvas.getWidth())));
+		}
+	}
+
+	/**
+	 * Reduces the pyramid level closest to the current width to one min/max pair per pixel column.
+	 */
+	private void computeColumns() {
+		int columns = (int) canvas.getWidth();
+		if (peaks == null || columns <= 0 || peaks.getPeakCount(0) == 0) {
+			columnMins = new float[0];
+			columnMaxs = new float[0];
+			return;
+		}
+		int level = peaks.levelFor(columns);
+		int count = peaks.getPeakCount(level);
+		columnMins = new float[columns];
+		columnMaxs = new float[columns];
+		for (int x = 0; x < columns; x++) {
+			int from = (int) ((long) x * count / columns);
+			int to = Math.max(from + 1, (int) ((long) (x + 1) * count / columns));
+			float min = 1f;
+			float max = -1f;
+			for (int i = from; i < to && i < count; i++) {
+				min = Math.min(min, peaks.getMin(level, i));
+				max = Math.max(max, peaks.getMax(level, i));
+			}
+			columnMins[x] = min;
+			columnMaxs[x] = max;
+		}
+	}
+
+	private void repaint() {
+		double width = canvas.getWidth();
+		double height = canvas.getHeight();
+		playedColumns = (int) (progress * width);
+		gc.clearRect(0, 0, width, height);
+
+		if (columnMins.length == 0) {
+			// No waveform (yet): draw a plain progress bar in the middle
+			double y = (height - BAR_HEIGHT) / 2;
+			gc.setFill(TRACK_COLOR);
+			gc.fillRect(0, y, width, BAR_HEIGHT);
+			gc.setFill(PLAYED_COLOR);
+			gc.fillRect(0, y, playedColumns, BAR_HEIGHT);
+			return;
+		}
+
+		double middle = height / 2;
+		double scale = height / 2;
+		gc.setFill(PLAYED_COLOR);
+		for (int x = 0; x < columnMins.length; x++) {
+			if (x == playedColumns) {
+				gc.setFill(UNPLAYED_COLOR);
+			}
+			double top = middle - columnMaxs[x] * scale;
+			double bottom = middle - columnMins[x] * scale;
+			gc.fillRect(x, top, 1, Math.max(1, bottom - top));
+		}
+	}
+}
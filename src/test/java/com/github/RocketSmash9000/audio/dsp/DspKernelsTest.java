@@ -0,0 +1,87 @@
+package com.github.RocketSmash9000.audio.dsp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DspKernelsTest {
+    private final DspKernels scalar = new ScalarKernels();
+    // Surefire starts the JVM with the Vector API module, so this is the SIMD implementation
+    private final DspKernels fastest = DspKernels.get();
+
+    private static float[] random(int length, long seed) {
+        Random random = new Random(seed);
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextFloat() * 2 - 1;
+        }
+        return values;
+    }
+
+    @Test
+    void testVectorKernelsAreLoaded() {
+        assertTrue(fastest.getName().startsWith("vector"), "Got " + fastest.getName());
+    }
+
+    @Test
+    void testImplementationsAgree() {
+        // Odd lengths exercise the scalar tails
+        for (int length : new int[]{0, 1, 7, 64, 1001}) {
+            float[] a = random(length + 3, length);
+            float[] b = random(length + 5, length + 1);
+
+            assertEquals(scalar.dot(a, 3, b, 5, length), fastest.dot(a, 3, b, 5, length), 1e-3f);
+            assertEquals(scalar.peak(a, length), fastest.peak(a, length));
+            assertEquals(scalar.sumOfSquares(a, length), fastest.sumOfSquares(a, length), 1e-3);
+
+            float[] expected = new float[length];
+            float[] actual = new float[length];
+            scalar.multiply(a, b, expected, length);
+            fastest.multiply(a, b, actual, length);
+            assertArrayEquals(expected, actual, 1e-6f);
+
+            scalar.magnitudes(a, b, expected, length);
+            fastest.magnitudes(a, b, actual, length);
+            assertArrayEquals(expected, actual, 1e-6f);
+
+            float[] db = new float[length];
+            for (int i = 0; i < length; i++) db[i] = a[i] * 70 - 40;
+            scalar.normalizeDb(db, expected, length, -60);
+            fastest.normalizeDb(db, actual, length, -60);
+            assertArrayEquals(expected, actual, 1e-6f);
+        }
+    }
+
+    @Test
+    void testNormalizeDbClampsAndCurves() {
+        float[] db = {-80, -60, -15, 0, 6};
+        float[] out = new float[db.length];
+        scalar.normalizeDb(db, out, db.length, -60);
+        assertArrayEquals(new float[]{0, 0, (float) Math.pow(0.75, 1.5), 1, 1}, out, 1e-6f);
+    }
+
+    @Test
+    void testFftFindsSineFrequency() {
+        int size = 1024;
+        float[] samples = new float[size];
+        for (int i = 0; i < size; i++) {
+            samples[i] = (float) Math.sin(2 * Math.PI * 64 * i / size);
+        }
+        for (DspKernels kernels : new DspKernels[]{scalar, fastest}) {
+            float[] magnitudes = new float[size / 2 + 1];
+            new WindowedFft(size, kernels).transform(samples, 0, magnitudes);
+
+            int loudest = 0;
+            for (int i = 1; i < magnitudes.length; i++) {
+                if (magnitudes[i] > magnitudes[loudest]) loudest = i;
+            }
+            assertEquals(64, loudest, kernels.getName());
+            // A Hann-windowed unit sine peaks at size / 4
+            assertEquals(size / 4.0, magnitudes[64], 1.0);
+            assertTrue(magnitudes[80] < 1e-2, "Leakage far from the peak should be tiny");
+        }
+        assertThrows(IllegalArgumentException.class, () -> new WindowedFft(1000));
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.RocketSmash9000.audio.loudness;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoudnessAnalyzerTest {
+
+    @Test
+    void testFullScaleSineMeasuresMinusThreeLufs() {
+        // BS.1770: a 0 dBFS 1 kHz sine in one channel reads -3.01 LUFS
+        assertEquals(-3.01, measureSine(1.0, 1, 48_000), 0.1);
+        assertEquals(-3.01, measureSine(1.0, 1, 44_100), 0.1);
+    }
+
+    @Test
+    void testHalvingAmplitudeLowersLoudnessBySixDb() {
+        double full = measureSine(1.0, 2, 44_100);
+        double half = measureSine(0.5, 2, 44_100);
+        assertEquals(6.02, full - half, 0.05);
+    }
+
+    @Test
+    void testSilenceIsGatedAway() {
+        LoudnessMeter meter = new LoudnessMeter(44_100, 2);
+        meter.process(new float[44_100 * 2], 44_100);
+        assertEquals(Double.NEGATIVE_INFINITY, meter.getIntegratedLoudness());
+        assertEquals(1.0, new LoudnessResult(meter.getIntegratedLoudness(), 0, LoudnessResult.Source.ANALYZED)
+                .gainFactor(LoudnessAnalyzer.TARGET_LUFS));
+    }
+
+    @Test
+    void testGainIsLimitedByPeak() {
+        // -30 LUFS would need +12 dB, but a 0.5 peak only leaves ~6 dB of headroom
+        LoudnessResult quiet = new LoudnessResult(-30.0, 0.5, LoudnessResult.Source.ANALYZED);
+        assertEquals(2.0, quiet.gainFactor(-18.0), 0.01);
+
+        LoudnessResult loud = new LoudnessResult(-8.0, 1.0, LoudnessResult.Source.ANALYZED);
+        assertEquals(Math.pow(10, -10 / 20.0), loud.gainFactor(-18.0), 1e-9);
+    }
+
+    @Test
+    void testReplayGainTagsMapToLoudness() {
+        LoudnessResult result = ReplayGainTags.fromTags(Map.of(
+                "REPLAYGAIN_TRACK_GAIN", "-6.50 dB",
+                "REPLAYGAIN_TRACK_PEAK", "0.988"));
+        assertNotNull(result);
+        assertEquals(-11.5, result.integratedLufs(), 1e-9);
+        assertEquals(0.988, result.peak(), 1e-9);
+        assertEquals(LoudnessResult.Source.REPLAYGAIN_TAG, result.source());
+
+        assertNull(ReplayGainTags.fromTags(Map.of("REPLAYGAIN_TRACK_GAIN", "loud")));
+    }
+
+    @Test
+    void testUnanalyzableTracksAreSkippedUntilTheyChange(@TempDir Path tempDir) throws Exception {
+        // Neither tagged nor decodable
+        File track = tempDir.resolve("untagged.mp3").toFile();
+        Files.write(track.toPath(), new byte[4096]);
+        Path cacheFile = tempDir.resolve("loudness_cache.json");
+        LoudnessAnalyzer analyzer = new LoudnessAnalyzer(new LoudnessCache(cacheFile), 1);
+        try {
+            analyzer.analyzeAll(List.of(track)).get(10, TimeUnit.SECONDS);
+        } finally {
+            analyzer.shutdown();
+        }
+        assertEquals(1.0, analyzer.getGainFactor(track));
+
+        LoudnessCache reopened = new LoudnessCache(cacheFile);
+        reopened.load();
+        assertTrue(reopened.isUnanalyzable(track));
+        assertNull(reopened.get(track));
+
+        Files.write(track.toPath(), new byte[8192]);
+        assertFalse(reopened.isUnanalyzable(track), "A changed file should be tried again");
+    }
+
+    private static double measureSine(double amplitude, int channels, int sampleRate) {
+        int frames = sampleRate * 5;
+        float[] samples = new float[frames * channels];
+        for (int i = 0; i < frames; i++) {
+            float value = (float) (amplitude * Math.sin(2 * Math.PI * 1000 * i / sampleRate));
+            // Only the first channel carries the tone so the reference value applies per channel count
+            samples[i * channels] = value;
+        }
+        LoudnessMeter meter = new LoudnessMeter(sampleRate, channels);
+        meter.process(samples, frames);
+        return meter.getIntegratedLoudness();
+    }
+}
@@ -0,0 +1,184 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlacDecoderTest {
+    private static final int BLOCK_SIZE = 64;
+
+    @Test
+    void testDecodesVerbatimFixedAndMidSideFrames() throws IOException {
+        int[] left = new int[BLOCK_SIZE];
+        int[] right = new int[BLOCK_SIZE];
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            left[i] = (i * 37) % 2000 - 1000;
+            right[i] = i * i - 500;
+        }
+
+        FlacDecoder decoder = new FlacDecoder(new ByteArrayInputStream(flac(left, right)));
+        assertEquals(2 * BLOCK_SIZE, decoder.getTotalFrames());
+        assertEquals(44_100f, decoder.getFormat().getSampleRate());
+        assertEquals(4, decoder.getFormat().getFrameSize());
+        assertEquals("-6.50 dB", decoder.getComments().get("REPLAYGAIN_TRACK_GAIN"));
+
+        byte[] pcm = new byte[4 * 2 * BLOCK_SIZE + 100];
+        int total = 0;
+        int n;
+        while ((n = decoder.read(pcm, total, pcm.length - total)) > 0) {
+            total += n;
+        }
+        assertEquals(4 * 2 * BLOCK_SIZE, total);
+
+        // Frame 1: independent channels (verbatim left, fixed order 2 right)
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            assertEquals(left[i], sample(pcm, i, 0), "left sample " + i);
+            assertEquals(right[i], sample(pcm, i, 1), "right sample " + i);
+        }
+        // Frame 2: mid/side coded constants, left = 300 and right = -100
+        for (int i = BLOCK_SIZE; i < 2 * BLOCK_SIZE; i++) {
+            assertEquals(300, sample(pcm, i, 0));
+            assertEquals(-100, sample(pcm, i, 1));
+        }
+        assertEquals(-1, decoder.read(pcm, 0, pcm.length));
+        decoder.close();
+    }
+
+    @Test
+    void testRejectsNonFlacData() {
+        assertThrows(IOException.class, () -> new FlacDecoder(new ByteArrayInputStream("RIFF0000WAVE".getBytes())));
+    }
+
+    private static int sample(byte[] pcm, int frame, int channel) {
+        int pos = frame * 4 + channel * 2;
+        return (short) ((pcm[pos] & 0xFF) | (pcm[pos + 1] << 8));
+    }
+
+    private static byte[] flac(int[] left, int[] right) {
+        BitWriter w = new BitWriter();
+        w.write(0x664C6143, 32);
+
+        // STREAMINFO
+        w.write(0, 1);
+        w.write(0, 7);
+        w.write(34, 24);
+        w.write(BLOCK_SIZE, 16);
+        w.write(BLOCK_SIZE, 16);
+        w.write(0, 24);
+        w.write(0, 24);
+        w.write(44_100, 20);
+        w.write(1, 3); // 2 channels
+        w.write(15, 5); // 16 bits
+        w.write(0, 4);
+        w.write(2 * BLOCK_SIZE, 32);
+        for (int i = 0; i < 16; i++) w.write(0, 8);
+
+        // VORBIS_COMMENT (little-endian lengths)
+        byte[] vendor = "test".getBytes(StandardCharsets.UTF_8);
+        byte[] comment = "replaygain_track_gain=-6.50 dB".getBytes(StandardCharsets.UTF_8);
+        w.write(1, 1);
+        w.write(4, 7);
+        w.write(4 + vendor.length + 4 + 4 + comment.length, 24);
+        w.writeIntLE(vendor.length);
+        w.writeBytes(vendor);
+        w.writeIntLE(1);
+        w.writeIntLE(comment.length);
+        w.writeBytes(comment);
+
+        // Frame 0: independent stereo
+        frameHeader(w, 0, 1);
+        w.write(0, 1);
+        w.write(1, 6); // verbatim
+        w.write(0, 1);
+        for (int v : left) w.write(v, 16);
+
+        w.write(0, 1);
+        w.write(8 | 2, 6); // fixed, order 2
+        w.write(0, 1);
+        w.write(right[0], 16);
+        w.write(right[1], 16);
+        int riceParam = 3;
+        w.write(0, 2); // rice, 4-bit parameters
+        w.write(0, 4); // partition order 0
+        w.write(riceParam, 4);
+        for (int i = 2; i < BLOCK_SIZE; i++) {
+            int residual = right[i] - (2 * right[i - 1] - right[i - 2]);
+            int folded = residual >= 0 ? residual << 1 : ((-residual) << 1) - 1;
+            for (int q = folded >>> riceParam; q > 0; q--) w.write(0, 1);
+            w.write(1, 1);
+            w.write(folded & ((1 << riceParam) - 1), riceParam);
+        }
+        w.align();
+        w.write(0, 16);
+
+        // Frame 1: mid/side stereo with constant subframes
+        frameHeader(w, 1, 10);
+        int l = 300;
+        int r = -100;
+        w.write(0, 1);
+        w.write(0, 6);
+        w.write(0, 1);
+        w.write((l + r) >> 1, 16); // mid
+        w.write(0, 1);
+        w.write(0, 6);
+        w.write(0, 1);
+        w.write(l - r, 17); // side has one extra bit
+        w.align();
+        w.write(0, 16);
+
+        return w.toByteArray();
+    }
+
+    private static void frameHeader(BitWriter w, int frameNumber, int channelAssignment) {
+        w.write(0x3FFE, 14);
+        w.write(0, 1);
+        w.write(0, 1); // fixed block size
+        w.write(7, 4); // 16-bit block size follows
+        w.write(0, 4); // sample rate from STREAMINFO
+        w.write(channelAssignment, 4);
+        w.write(4, 3); // 16 bits
+        w.write(0, 1);
+        w.write(frameNumber, 8); // UTF-8 coded, < 128
+        w.write(BLOCK_SIZE - 1, 16);
+        w.write(0, 8); // CRC-8 (not verified)
+    }
+
+    private static final class BitWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private int current;
+        private int count;
+
+        void write(int value, int bits) {
+            for (int i = bits - 1; i >= 0; i--) {
+                current = (current << 1) | ((value >>> i) & 1);
+                if (++count == 8) {
+                    out.write(current);
+                    current = 0;
+                    count = 0;
+                }
+            }
+        }
+
+        void writeIntLE(int value) {
+            for (int i = 0; i < 4; i++) write(value >>> (8 * i), 8);
+        }
+
+        void writeBytes(byte[] bytes) {
+            for (byte b : bytes) write(b, 8);
+        }
+
+        void align() {
+            while (count != 0) write(0, 1);
+        }
+
+        byte[] toByteArray() {
+            align();
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PcmPlaybackEngineTest {
+
+    @Test
+    void testWavPlaysToNullSinkAndSignalsEnd() throws Exception {
+        int frames = 44_100;
+        WavDecoder decoder = new WavDecoder(new ByteArrayInputStream(wav(frames, 2, 44_100)));
+        assertEquals(frames, decoder.getTotalFrames());
+        assertEquals(4, decoder.getFormat().getFrameSize());
+
+        NullSink sink = new NullSink();
+        PcmPlaybackEngine engine = new PcmPlaybackEngine(decoder, sink, 50, 20);
+        CountDownLatch ended = new CountDownLatch(1);
+        engine.setOnEnd(ended::countDown);
+        engine.start();
+
+        assertTrue(ended.await(5, TimeUnit.SECONDS), "Engine never reached the end of the stream");
+        assertEquals(frames * 4L, sink.getBytesWritten());
+        assertEquals(frames, engine.getFramesPlayed());
+
+        engine.stop();
+        assertTrue(sink.isClosed());
+    }
+
+    @Test
+    void testPauseHoldsOutputUntilResumed() throws Exception {
+        WavDecoder decoder = new WavDecoder(new ByteArrayInputStream(wav(10_000, 1, 8_000)));
+        NullSink sink = new NullSink();
+        PcmPlaybackEngine engine = new PcmPlaybackEngine(decoder, sink, 100, 20);
+        CountDownLatch ended = new CountDownLatch(1);
+        engine.setOnEnd(ended::countDown);
+
+        engine.pause();
+        engine.start();
+        assertFalse(ended.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, sink.getBytesWritten());
+
+        engine.resume();
+        assertTrue(ended.await(5, TimeUnit.SECONDS));
+        assertEquals(20_000, sink.getBytesWritten());
+        engine.stop();
+    }
+
+    @Test
+    void testStopIsIdempotentAndSuppressesEnd() throws Exception {
+        WavDecoder decoder = new WavDecoder(new ByteArrayInputStream(wav(100_000, 2, 44_100)));
+        PcmPlaybackEngine engine = new PcmPlaybackEngine(decoder, new NullSink());
+        engine.pause();
+        engine.start();
+        engine.stop();
+        engine.stop();
+        assertTrue(engine.getFramesPlayed() <= 100_000);
+    }
+
+    @Test
+    void testRejectsNonWavData() {
+        assertThrows(IOException.class, () -> new WavDecoder(new ByteArrayInputStream(new byte[64])));
+    }
+
+    /**
+     * Builds a 16-bit PCM WAV file whose samples count upwards, with an extra chunk before the data.
+     */
+    static byte[] wav(int frames, int channels, int sampleRate) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int dataSize = frames * channels * 2;
+        writeTag(out, "RIFF");
+        writeInt(out, 4 + 8 + 16 + 8 + 4 + 8 + dataSize);
+        writeTag(out, "WAVE");
+        writeTag(out, "fmt ");
+        writeInt(out, 16);
+        writeShort(out, 1);
+        writeShort(out, channels);
+        writeInt(out, sampleRate);
+        writeInt(out, sampleRate * channels * 2);
+        writeShort(out, channels * 2);
+        writeShort(out, 16);
+        writeTag(out, "LIST");
+        writeInt(out, 4);
+        writeTag(out, "INFO");
+        writeTag(out, "data");
+        writeInt(out, dataSize);
+        for (int i = 0; i < frames * channels; i++) {
+            writeShort(out, i);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeTag(ByteArrayOutputStream out, String tag) {
+        out.writeBytes(tag.getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        writeShort(out, value);
+        writeShort(out, value >>> 16);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+    }
+}
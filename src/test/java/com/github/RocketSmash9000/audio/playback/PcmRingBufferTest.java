@@ -0,0 +1,81 @@
+package com.github.RocketSmash9000.audio.playback;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PcmRingBufferTest {
+
+    @Test
+    void testCapacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(1024, new PcmRingBuffer(1000).capacity());
+        assertEquals(1024, new PcmRingBuffer(1024).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new PcmRingBuffer(0));
+    }
+
+    @Test
+    void testWriteStopsWhenFullAndWrapsAround() {
+        PcmRingBuffer ring = new PcmRingBuffer(8);
+        byte[] data = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+        assertEquals(8, ring.write(data, 0, data.length));
+        assertEquals(0, ring.write(data, 8, 2));
+
+        byte[] out = new byte[6];
+        assertEquals(6, ring.read(out, 0, 6));
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6}, out);
+
+        // This write wraps past the end of the backing array
+        assertEquals(2, ring.write(data, 8, 2));
+        byte[] rest = new byte[10];
+        assertEquals(4, ring.read(rest, 0, rest.length));
+        assertArrayEquals(new byte[]{7, 8, 9, 10}, java.util.Arrays.copyOf(rest, 4));
+        assertEquals(0, ring.available());
+    }
+
+    @Test
+    void testConcurrentProducerAndConsumerSeeOrderedStream() throws Exception {
+        PcmRingBuffer ring = new PcmRingBuffer(4096);
+        int total = 1_000_000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread producer = new Thread(() -> {
+            byte[] chunk = new byte[97];
+            int next = 0;
+            while (next < total) {
+                int n = Math.min(chunk.length, total - next);
+                for (int i = 0; i < n; i++) chunk[i] = (byte) (next + i);
+                int offset = 0;
+                while (offset < n) {
+                    int written = ring.write(chunk, offset, n - offset);
+                    if (written == 0) Thread.yield();
+                    offset += written;
+                }
+                next += n;
+            }
+        });
+        Thread consumer = new Thread(() -> {
+            byte[] chunk = new byte[61];
+            int expected = 0;
+            while (expected < total) {
+                int n = ring.read(chunk, 0, chunk.length);
+                if (n == 0) Thread.yield();
+                for (int i = 0; i < n; i++, expected++) {
+                    if (chunk[i] != (byte) expected) {
+                        failure.set(new AssertionError("Byte " + expected + " out of order"));
+                        return;
+                    }
+                }
+            }
+        });
+        producer.start();
+        consumer.start();
+        producer.join(10_000);
+        consumer.join(10_000);
+
+        assertNull(failure.get());
+        assertFalse(consumer.isAlive());
+    }
+}
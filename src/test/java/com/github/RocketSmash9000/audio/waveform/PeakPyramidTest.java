@@ -0,0 +1,89 @@
+package com.github.RocketSmash9000.audio.waveform;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeakPyramidTest {
+
+    /** A stereo ramp whose left channel rises from -1 to 1 and whose right channel is silent. */
+    private static PeakPyramid ramp(int frames, int framesPerPeak) {
+        PeakPyramid.Builder builder = new PeakPyramid.Builder(framesPerPeak);
+        float[] samples = new float[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            samples[2 * i] = -1f + 2f * i / (frames - 1);
+        }
+        builder.add(samples, frames, 2);
+        return builder.build(44100);
+    }
+
+    @Test
+    void testLevelsHalveUntilSmall() {
+        PeakPyramid pyramid = ramp(100_000, 100);
+
+        assertEquals(100_000, pyramid.getTotalFrames());
+        assertEquals(1000, pyramid.getPeakCount(0));
+        for (int level = 1; level < pyramid.getLevelCount(); level++) {
+            assertEquals((pyramid.getPeakCount(level - 1) + 1) / 2, pyramid.getPeakCount(level));
+        }
+        assertTrue(pyramid.getPeakCount(pyramid.getLevelCount() - 1) <= PeakPyramid.MIN_LEVEL_PEAKS);
+    }
+
+    @Test
+    void testPeaksCoverAllChannels() {
+        PeakPyramid pyramid = ramp(100_000, 100);
+        int top = pyramid.getLevelCount() - 1;
+
+        // The first peak starts at -1 on the left channel and includes the silent right channel
+        assertEquals(-1f, pyramid.getMin(0, 0), 0.01f);
+        assertEquals(0f, pyramid.getMax(0, 0), 0.01f);
+        // The coarsest level still spans the full range
+        float min = 1f, max = -1f;
+        for (int i = 0; i < pyramid.getPeakCount(top); i++) {
+            min = Math.min(min, pyramid.getMin(top, i));
+            max = Math.max(max, pyramid.getMax(top, i));
+        }
+        assertEquals(-1f, min, 0.01f);
+        assertEquals(1f, max, 0.01f);
+    }
+
+    @Test
+    void testLevelForPicksCoarsestLevelWithEnoughPeaks() {
+        PeakPyramid pyramid = ramp(100_000, 100);
+
+        assertEquals(0, pyramid.levelFor(800));
+        int level = pyramid.levelFor(300);
+        assertTrue(pyramid.getPeakCount(level) >= 300);
+        assertTrue(pyramid.getPeakCount(level + 1) < 300);
+        assertEquals(pyramid.getLevelCount() - 1, pyramid.levelFor(1));
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        PeakPyramid pyramid = ramp(50_000, 256);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        pyramid.write(new DataOutputStream(bytes));
+
+        PeakPyramid read = PeakPyramid.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(pyramid.getTotalFrames(), read.getTotalFrames());
+        assertEquals(pyramid.getSampleRate(), read.getSampleRate());
+        assertEquals(pyramid.getLevelCount(), read.getLevelCount());
+        for (int level = 0; level < pyramid.getLevelCount(); level++) {
+            for (int i = 0; i < pyramid.getPeakCount(level); i++) {
+                assertEquals(pyramid.getMin(level, i), read.getMin(level, i));
+                assertEquals(pyramid.getMax(level, i), read.getMax(level, i));
+            }
+        }
+
+        byte[] truncated = java.util.Arrays.copyOf(bytes.toByteArray(), bytes.size() / 2);
+        assertThrows(IOException.class,
+                () -> PeakPyramid.read(new DataInputStream(new ByteArrayInputStream(truncated))));
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.RocketSmash9000.audio.waveform;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaveformServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    /** Writes a 16-bit mono WAV with a full-scale 440 Hz sine. */
+    private File sineWav(String name, int frames) throws IOException {
+        AudioFormat format = new AudioFormat(44100, 16, 1, true, false);
+        byte[] data = new byte[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            short value = (short) (Math.sin(2 * Math.PI * 440 * i / 44100.0) * Short.MAX_VALUE);
+            data[2 * i] = (byte) value;
+            data[2 * i + 1] = (byte) (value >> 8);
+        }
+        File file = tempDir.resolve(name).toFile();
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(data), format, frames),
+                AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+
+    @Test
+    void testComputesAndCachesWaveform() throws Exception {
+        File track = sineWav("sine.wav", 44100);
+        WaveformService service = new WaveformService(new WaveformCache(tempDir.resolve("cache")));
+        try {
+            assertNull(service.getIfReady(track));
+
+            PeakPyramid pyramid = service.request(track).get(10, TimeUnit.SECONDS);
+
+            assertNotNull(pyramid);
+            assertEquals(44100, pyramid.getTotalFrames());
+            assertEquals(1f, pyramid.getMax(0, 10), 0.02f);
+            assertEquals(-1f, pyramid.getMin(0, 10), 0.02f);
+            // Now served from memory without touching the worker
+            assertSame(pyramid, service.getIfReady(track));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void testDiskCacheIsKeyedByContent() throws Exception {
+        File track = sineWav("sine.wav", 22050);
+        Path cacheDir = tempDir.resolve("cache");
+        new WaveformCache(cacheDir).put(track, WaveformService.compute(track));
+
+        // A fresh cache, as after a restart, finds the entry for a moved copy of the same audio
+        Path moved = tempDir.resolve("moved.wav");
+        Files.move(track.toPath(), moved);
+        WaveformCache reloaded = new WaveformCache(cacheDir);
+        PeakPyramid fromDisk = reloaded.get(moved.toFile());
+
+        assertNotNull(fromDisk);
+        assertEquals(22050, fromDisk.getTotalFrames());
+        assertSame(fromDisk, reloaded.getInMemory(moved.toFile()));
+        assertNull(reloaded.get(sineWav("other.wav", 1000)));
+    }
+
+    @Test
+    void testUnsupportedTracksHaveNoWaveform() throws Exception {
+        File mp3 = Files.writeString(tempDir.resolve("song.mp3"), "not really audio").toFile();
+        WaveformService service = new WaveformService(new WaveformCache(tempDir.resolve("cache")));
+        try {
+            assertNull(service.request(mp3).get(1, TimeUnit.SECONDS));
+        } finally {
+            service.shutdown();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.RocketSmash9000.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindStoreTest {
+    private Path dir;
+    private WriteBehindStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("trim-write-behind");
+        store = new WriteBehindStore(200);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.shutdown();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    void testRapidChangesAreCoalescedIntoOneWrite() throws Exception {
+        Path file = dir.resolve("app_config.json");
+        AtomicInteger serializations = new AtomicInteger();
+        for (int i = 0; i < 50; i++) {
+            String value = "{\"volume\":" + i + "}";
+            store.schedule(file, () -> {
+                serializations.incrementAndGet();
+                return value.getBytes(StandardCharsets.UTF_8);
+            });
+        }
+        assertFalse(Files.exists(file), "Write should be deferred");
+
+        Thread.sleep(600);
+        assertEquals(1, serializations.get());
+        assertEquals("{\"volume\":49}", Files.readString(file));
+    }
+
+    @Test
+    void testFlushWritesImmediately() throws Exception {
+        Path file = dir.resolve("config.json");
+        store.schedule(file, () -> "{}".getBytes(StandardCharsets.UTF_8));
+        store.flush();
+        assertEquals("{}", Files.readString(file));
+    }
+
+    @Test
+    void testFlushWaitsForAWriteInProgress() throws Exception {
+        WriteBehindStore immediate = new WriteBehindStore(0);
+        Path file = dir.resolve("config.json");
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            immediate.schedule(file, () -> {
+                writing.countDown();
+                release.await();
+                return "{\"late\":true}".getBytes(StandardCharsets.UTF_8);
+            });
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            // The writer thread has already taken the content; flushing must still wait for it to land
+            CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS).execute(release::countDown);
+            immediate.flush(file);
+            assertEquals("{\"late\":true}", Files.readString(file));
+        } finally {
+            release.countDown();
+            immediate.shutdown();
+        }
+    }
+
+    @Test
+    void testFailedSerializationKeepsPreviousFile() throws Exception {
+        Path file = dir.resolve("config.json");
+        Files.writeString(file, "{\"ok\":true}");
+        store.schedule(file, () -> {
+            throw new IOException("boom");
+        });
+        store.flush();
+
+        assertEquals("{\"ok\":true}", Files.readString(file));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count(), "No temp files should be left behind");
+        }
+    }
+
+    @Test
+    void testAtomicWriteReplacesExistingFile() throws Exception {
+        Path file = dir.resolve("config.json");
+        Files.writeString(file, "old content that is longer");
+        WriteBehindStore.writeAtomically(file, "new".getBytes(StandardCharsets.UTF_8));
+        assertEquals("new", Files.readString(file));
+    }
+}
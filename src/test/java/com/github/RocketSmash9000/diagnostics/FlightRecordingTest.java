@@ -0,0 +1,91 @@
+package com.github.RocketSmash9000.diagnostics;
+
+import com.github.RocketSmash9000.audio.AudioFinder;
+import com.github.RocketSmash9000.audio.AudioMetadataExtractor;
+import com.github.RocketSmash9000.config.WriteBehindStore;
+import com.github.RocketSmash9000.plugin.PluginExecutor;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingTest {
+
+    @Test
+    void testRecordingCapturesTrimEvents(@TempDir Path tempDir) throws Exception {
+        Path library = Files.createDirectories(tempDir.resolve("music/album"));
+        Files.write(library.resolve("one.flac"), new byte[100]);
+        Files.write(library.resolve("two.mp3"), new byte[50]);
+        Files.write(library.resolve("cover.jpg"), new byte[1000]);
+        Path destination = tempDir.resolve("recordings/test.jfr");
+
+        Recording recording = FlightRecording.start(destination);
+        try {
+            new AudioFinder(tempDir.resolve("music").toString());
+            AudioMetadataExtractor.getTrackTitle(library.resolve("one.flac").toFile());
+            WriteBehindStore store = new WriteBehindStore(0);
+            store.schedule(tempDir.resolve("settings.json"), () -> "{}".getBytes());
+            store.shutdown();
+            PluginExecutor executor = new PluginExecutor("recorded", PluginExecutor.DEFAULT_CALL_BUDGET, null);
+            executor.run("toolbar action", () -> {
+            }).get(5, TimeUnit.SECONDS);
+            executor.run("failing action", () -> {
+                throw new IllegalStateException("boom");
+            }).handle((ignored, ex) -> null).get(5, TimeUnit.SECONDS);
+            executor.shutdown();
+        } finally {
+            recording.stop();
+            recording.close();
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(destination);
+        RecordedEvent scan = only(events, "trim.LibraryScan");
+        assertEquals(tempDir.resolve("music").toFile().getAbsolutePath(), scan.getString("directory"));
+        assertEquals(2, scan.getInt("files"));
+        assertEquals(2, scan.getInt("directories"));
+        assertEquals(150, scan.getLong("bytes"));
+
+        RecordedEvent metadata = only(events, "trim.MetadataRead");
+        assertEquals("title", metadata.getString("field"));
+        assertFalse(metadata.getBoolean("parsed"));
+
+        RecordedEvent save = only(events, "trim.ConfigSave");
+        assertEquals("settings.json", save.getString("file"));
+        assertEquals(2, save.getLong("bytes"));
+        assertTrue(save.getBoolean("succeeded"));
+
+        List<RecordedEvent> calls = named(events, "trim.PluginCall");
+        assertEquals(2, calls.size());
+        for (RecordedEvent call : calls) {
+            assertEquals("recorded", call.getString("pluginId"));
+            assertEquals(call.getString("call").equals("toolbar action"), call.getBoolean("succeeded"));
+        }
+    }
+
+    @Test
+    void testNoRecordingUnlessRequested() {
+        assertNull(System.getProperty(FlightRecording.PROPERTY));
+        if (System.getenv(FlightRecording.ENV_VARIABLE) == null) {
+            assertNull(FlightRecording.startIfRequested());
+        }
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = named(events, name);
+        assertEquals(1, matching.size(), "Events named " + name);
+        return matching.get(0);
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).toList();
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.RocketSmash9000.diagnostics;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void testBucketsCoverEveryValueInOrder() {
+        int previous = 0;
+        for (long value = 0; value < 100_000; value++) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(bucket == previous || bucket == previous + 1, "Bucket jumped at " + value);
+            assertTrue(value <= LatencyHistogram.upperBoundOf(bucket));
+            previous = bucket;
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE >>> 21));
+    }
+
+    @Test
+    void testPercentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1_000 + random.nextInt(50_000_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(values.length, snapshot.getCount());
+        assertEquals(values[values.length - 1], snapshot.getMaxNanos());
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(values.length * percentile / 100) - 1];
+            long estimate = snapshot.getPercentileNanos(percentile);
+            assertTrue(estimate >= exact && estimate <= exact + exact / LatencyHistogram.SUB_BUCKETS,
+                    "p" + percentile + ": " + estimate + " for " + exact);
+        }
+        assertEquals(snapshot.getMaxNanos(), snapshot.getPercentileNanos(100));
+        assertEquals(0, new LatencyHistogram().snapshot().getPercentileNanos(50));
+    }
+
+    @Test
+    void testRecordingDoesNotAllocate() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Counter counter = new Counter();
+        // Warm up, so the measured loop runs compiled code
+        for (int i = 0; i < 100_000; i++) {
+            histogram.record(i);
+            counter.increment();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            histogram.record(i * 31L);
+            counter.increment();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        // Reading the counter itself allocates a little, but nothing per record
+        assertTrue(allocated < 1024, "Allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void testConcurrentUpdatesAreAllCounted() throws Exception {
+        Metrics metrics = new Metrics();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    metrics.counter("calls").increment();
+                    metrics.histogram("latency").record(i);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(200_000, metrics.counter("calls").get());
+        assertEquals(200_000, metrics.histogram("latency").snapshot().getCount());
+        assertEquals(49_999, metrics.histogram("latency").snapshot().getMaxNanos());
+    }
+
+    @Test
+    void testGauges() {
+        Metrics metrics = new Metrics();
+        assertTrue(Double.isNaN(metrics.gaugeValue("missing")));
+        metrics.gauge("answer", () -> 42);
+        assertEquals(42, metrics.gaugeValue("answer"));
+        metrics.gauge("broken", () -> {
+            throw new IllegalStateException("unavailable");
+        });
+        assertTrue(Double.isNaN(metrics.gaugeValue("broken")));
+    }
+}
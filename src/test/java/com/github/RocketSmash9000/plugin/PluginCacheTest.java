@@ -0,0 +1,102 @@
+package com.github.RocketSmash9000.plugin;
+
+import com.github.RocketSmash9000.config.PluginConfig;
+import com.github.RocketSmash9000.plugin.ui.ToolbarButtonExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PluginCacheTest {
+
+    @Test
+    void testUnchangedZipPluginStartsWithoutReadingTheArchive(@TempDir Path tempDir) throws Exception {
+        Path pluginsDir = Files.createDirectories(tempDir.resolve("plugins"));
+        TestPlugins.installZip(pluginsDir.resolve("reloadable.zip"), "1.0.0");
+
+        PluginManager first = newManager(tempDir, pluginsDir);
+        first.initialize();
+        try {
+            assertNotNull(first.getPlugin(ReloadablePlugin.ID));
+            assertTrue(first.getPluginCache().getArchiveReads() > 0);
+        } finally {
+            first.shutdown();
+        }
+
+        PluginManager second = newManager(tempDir, pluginsDir);
+        second.initialize();
+        try {
+            assertEquals(0, second.getPluginCache().getArchiveReads());
+            assertNotNull(second.getPlugin(ReloadablePlugin.ID));
+            assertEquals(1, second.getExtensions(ToolbarButtonExtension.class).stream()
+                    .filter(ext -> ext.getClass().getName().equals(ReloadablePlugin.Button.class.getName())).count());
+            // Unpacked into the cache, not next to the ZIP
+            try (Stream<Path> files = Files.list(pluginsDir)) {
+                assertEquals(1, files.count());
+            }
+        } finally {
+            second.shutdown();
+        }
+    }
+
+    @Test
+    void testChangedZipIsUnpackedAgain(@TempDir Path tempDir) throws Exception {
+        Path pluginsDir = Files.createDirectories(tempDir.resolve("plugins"));
+        Path zip = pluginsDir.resolve("reloadable.zip");
+        TestPlugins.installZip(zip, "1.0.0");
+        PluginManager first = newManager(tempDir, pluginsDir);
+        first.initialize();
+        first.shutdown();
+
+        TestPlugins.installZip(zip, "2.0.0");
+        // Same size, so make sure the modification time differs too
+        Files.setLastModifiedTime(zip, FileTime.fromMillis(Files.getLastModifiedTime(zip).toMillis() + 10_000));
+        PluginManager second = newManager(tempDir, pluginsDir);
+        second.initialize();
+        try {
+            assertEquals("2.0.0", second.getPf4jPluginManager().getPlugin(ReloadablePlugin.ID).getDescriptor().getVersion());
+            // The tree of the old version was dropped
+            try (Stream<Path> trees = Files.list(PluginCache.defaultCacheDir(pluginsDir).resolve("unpacked"))) {
+                assertEquals(1, trees.count());
+            }
+        } finally {
+            second.shutdown();
+        }
+    }
+
+    @Test
+    void testTouchedButIdenticalArchiveIsOnlyHashed(@TempDir Path tempDir) throws Exception {
+        Path pluginsDir = Files.createDirectories(tempDir.resolve("plugins"));
+        Path jar = pluginsDir.resolve("reloadable.jar");
+        TestPlugins.installJar(jar, "1.0.0", null);
+        PluginManager first = newManager(tempDir, pluginsDir);
+        first.initialize();
+        first.shutdown();
+
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 10_000));
+        PluginManager second = newManager(tempDir, pluginsDir);
+        second.initialize();
+        try {
+            assertNotNull(second.getPlugin(ReloadablePlugin.ID));
+            // Hashing it is the only read; the descriptor and extension index still come from the cache
+            assertEquals(1, second.getPluginCache().getArchiveReads());
+        } finally {
+            second.shutdown();
+        }
+    }
+
+    private static PluginManager newManager(Path tempDir, Path pluginsDir) throws Exception {
+        Path configFile = tempDir.resolve("plugins.json");
+        if (!Files.exists(configFile)) {
+            Files.writeString(configFile, "{}");
+        }
+        PluginConfig config = new PluginConfig(configFile.toFile());
+        config.setPluginEnabled(ReloadablePlugin.ID, true);
+        return new PluginManager(pluginsDir, false, config);
+    }
+}
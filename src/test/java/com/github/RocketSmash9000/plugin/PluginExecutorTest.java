@@ -0,0 +1,77 @@
+package com.github.RocketSmash9000.plugin;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PluginExecutorTest {
+    private PluginExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testRunsCallsOnMeasuredPluginThreads() {
+        executor = new PluginExecutor("test", Duration.ofSeconds(5), null);
+
+        Thread thread = executor.call("check", Thread::currentThread).join();
+        // Platform threads, so ThreadMXBean can account for them
+        assertFalse(thread.isVirtual());
+        assertTrue(thread.isDaemon());
+        assertTrue(thread.getName().startsWith("trim-plugin-test-"));
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> executor.run("fail", () -> { throw new IllegalStateException("boom"); }).join());
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals(0, executor.getOverrunCount());
+
+        PluginUsage.Snapshot usage = executor.getUsage().snapshot();
+        assertEquals(2, usage.calls());
+        assertEquals(1, usage.failures());
+    }
+
+    @Test
+    void testReportsOverrunLimitOnce() throws Exception {
+        AtomicInteger reports = new AtomicInteger();
+        CountDownLatch reported = new CountDownLatch(1);
+        executor = new PluginExecutor("slow", Duration.ofMillis(50), e -> {
+            reports.incrementAndGet();
+            reported.countDown();
+        });
+
+        for (int i = 0; i < PluginExecutor.MAX_OVERRUNS + 1; i++) {
+            executor.run("sleep", () -> sleep(500));
+        }
+
+        assertTrue(reported.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(PluginExecutor.MAX_OVERRUNS + 1, executor.getOverrunCount());
+        assertEquals(1, reports.get());
+    }
+
+    @Test
+    void testCallsAfterShutdownFail() {
+        executor = new PluginExecutor("stopped", Duration.ofSeconds(5), null);
+        executor.shutdown();
+
+        assertTrue(executor.run("late", () -> { }).isCompletedExceptionally());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
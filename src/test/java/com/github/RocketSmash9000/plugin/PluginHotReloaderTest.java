@@ -0,0 +1,133 @@
+package com.github.RocketSmash9000.plugin;
+
+import com.github.RocketSmash9000.config.PluginConfig;
+import com.github.RocketSmash9000.plugin.ui.ToolbarButtonExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PluginHotReloaderTest {
+
+    @Test
+    void testReloadSwapsInNewVersionAndReleasesOldClassLoader(@TempDir Path tempDir) throws Exception {
+        Path pluginsDir = Files.createDirectories(tempDir.resolve("plugins"));
+        Path jar = pluginsDir.resolve("reloadable.jar");
+        TestPlugins.installJar(jar, "1.0.0", null);
+        PluginManager manager = newManager(tempDir, pluginsDir);
+        manager.initialize();
+        try {
+            assertEquals("1.0.0", descriptorVersion(manager));
+            assertNotSame(ReloadablePlugin.class, manager.getPlugin(ReloadablePlugin.ID).getClass(),
+                    "The plugin should come from its own class loader");
+
+            TestPlugins.installJar(jar, "2.0.0", null);
+            List<WeakReference<ClassLoader>> released = manager.reloadPlugin(jar);
+
+            assertEquals("2.0.0", descriptorVersion(manager));
+            assertNotNull(manager.getPlugin(ReloadablePlugin.ID));
+            assertEquals(1, released.size());
+            assertCollected(released.get(0));
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void testReloadWaitsForCallsTrackersQueuedOnTheOldPlugin(@TempDir Path tempDir) throws Exception {
+        Path pluginsDir = Files.createDirectories(tempDir.resolve("plugins"));
+        Path jar = pluginsDir.resolve("reloadable.jar");
+        TestPlugins.installJar(jar, "1.0.0", null);
+        PluginManager manager = newManager(tempDir, pluginsDir);
+        manager.initialize();
+        try {
+            AtomicBoolean detached = new AtomicBoolean();
+            // Like a consumer being told it's detached, on the plugin's executor
+            manager.trackExtensions(ToolbarButtonExtension.class, button -> { }, button ->
+                    manager.runExtensionTask(button, "detach", () -> {
+                        try {
+                            Thread.sleep(300);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        detached.set(true);
+                    }));
+
+            TestPlugins.installJar(jar, "2.0.0", null);
+            List<WeakReference<ClassLoader>> released = manager.reloadPlugin(jar);
+
+            assertTrue(detached.get(), "The old class loader closed while a call into the plugin was still queued");
+            assertCollected(released.get(0));
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void testRemovedPluginIsUnloaded(@TempDir Path tempDir) throws Exception {
+        Path pluginsDir = Files.createDirectories(tempDir.resolve("plugins"));
+        Path jar = pluginsDir.resolve("reloadable.jar");
+        TestPlugins.installJar(jar, "1.0.0", null);
+        PluginManager manager = newManager(tempDir, pluginsDir);
+        manager.initialize();
+        try {
+            Files.delete(jar);
+            List<WeakReference<ClassLoader>> released = manager.reloadPlugin(jar);
+
+            assertNull(manager.getPlugin(ReloadablePlugin.ID));
+            assertNull(manager.getPf4jPluginManager().getPlugin(ReloadablePlugin.ID));
+            assertCollected(released.get(0));
+
+            // Dropping it back in loads it again
+            TestPlugins.installJar(jar, "1.0.1", null);
+            manager.reloadPlugin(jar);
+            assertEquals("1.0.1", descriptorVersion(manager));
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void testOnlyPluginFilesTriggerReloads(@TempDir Path tempDir) throws Exception {
+        Path pluginsDir = Files.createDirectories(tempDir.resolve("plugins"));
+        Files.createDirectories(pluginsDir.resolve("expanded/lib"));
+        Files.createFile(pluginsDir.resolve("expanded.zip"));
+        Files.createDirectories(pluginsDir.resolve("manual"));
+        PluginHotReloader reloader = new PluginHotReloader(newManager(tempDir, pluginsDir), pluginsDir, 1000);
+
+        assertEquals(pluginsDir.resolve("a.jar"), reloader.pluginRoot(pluginsDir.resolve("a.jar")));
+        assertEquals(pluginsDir.resolve("b.zip"), reloader.pluginRoot(pluginsDir.resolve("b.zip")));
+        assertEquals(pluginsDir.resolve("manual"), reloader.pluginRoot(pluginsDir.resolve("manual/plugin.jar")));
+        // Contents of a ZIP PF4J expanded, other files and anything outside the plugins directory are ignored
+        assertNull(reloader.pluginRoot(pluginsDir.resolve("expanded/lib/dependency.jar")));
+        assertNull(reloader.pluginRoot(pluginsDir.resolve("notes.txt")));
+        assertNull(reloader.pluginRoot(tempDir.resolve("elsewhere.jar")));
+    }
+
+    private static PluginManager newManager(Path tempDir, Path pluginsDir) throws IOException {
+        Path configFile = tempDir.resolve("plugins.json");
+        Files.writeString(configFile, "{}");
+        PluginConfig config = new PluginConfig(configFile.toFile());
+        config.setPluginEnabled(ReloadablePlugin.ID, true);
+        return new PluginManager(pluginsDir, false, config);
+    }
+
+    private static String descriptorVersion(PluginManager manager) {
+        return manager.getPf4jPluginManager().getPlugin(ReloadablePlugin.ID).getDescriptor().getVersion();
+    }
+
+    private static void assertCollected(WeakReference<ClassLoader> loader) throws InterruptedException {
+        for (int i = 0; i < 50 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(loader.get(), "The old plugin class loader leaked");
+    }
+}
@@ -1,11 +1,24 @@
 package com.github.RocketSmash9000.plugin;
 
+import com.github.RocketSmash9000.config.PluginConfig;
+import com.github.RocketSmash9000.plugin.example.ExamplePlugin;
+import com.github.RocketSmash9000.plugin.storage.PluginStorage;
+import com.github.RocketSmash9000.plugin.ui.ToolbarButtonExtension;
 import com.github.RocketSmash9000.util.AppDirectories;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pf4j.PluginState;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -51,6 +64,411 @@ class PluginManagerTest {
         assertNull(pluginManager.getPlugin("non.existent.plugin"));
     }
 
+    @Test
+    void testPluginsLoadInParallelAfterTheirDependencies(@TempDir Path tempDir) throws Exception {
+        PluginManager manager = managerWithPlugins(tempDir);
+        TestPlugins.install(tempDir.resolve("plugins"), "slow-a", TestPlugins.SlowA.class, null);
+        TestPlugins.install(tempDir.resolve("plugins"), "slow-b", TestPlugins.SlowB.class, null);
+        TestPlugins.install(tempDir.resolve("plugins"), "depends-on-a", TestPlugins.DependsOnA.class, "slow-a");
+
+        manager.initialize();
+        try {
+            assertEquals(3, manager.getPlugins().size());
+
+            // Compares when each onLoad() ran rather than how long initialize() took, which depends on the machine
+            long[] a = TestPlugins.LOAD_TIMES.get("slow-a");
+            long[] b = TestPlugins.LOAD_TIMES.get("slow-b");
+            long[] dependent = TestPlugins.LOAD_TIMES.get("depends-on-a");
+            assertTrue(a[0] < b[1] && b[0] < a[1], "Independent plugins should load at the same time");
+            assertTrue(dependent[0] >= a[1], "A plugin must load after its dependencies");
+
+            PluginLoadInfo info = manager.getLoadInfo("slow-a");
+            assertEquals(PluginLoadInfo.Status.LOADED, info.status());
+            assertTrue(info.loadTime().toMillis() >= 300);
+
+            // onLoad() ran on the plugin's executor, so it is part of the plugin's usage
+            PluginUsage.Snapshot usage = manager.getUsage("slow-a");
+            assertEquals(1, usage.calls());
+            assertTrue(usage.max().toMillis() >= 300);
+            assertNull(manager.getUsage("not-installed"));
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void testSlowAndFailingPluginsDoNotBlockOthers(@TempDir Path tempDir) throws Exception {
+        PluginManager manager = managerWithPlugins(tempDir);
+        manager.setLoadTimeout(Duration.ofMillis(1000));
+        TestPlugins.install(tempDir.resolve("plugins"), "hanging", TestPlugins.Hanging.class, null);
+        TestPlugins.install(tempDir.resolve("plugins"), "failing", TestPlugins.Failing.class, null);
+        TestPlugins.install(tempDir.resolve("plugins"), "depends-on-failing", TestPlugins.DependsOnFailing.class, "failing");
+        TestPlugins.install(tempDir.resolve("plugins"), "slow-b", TestPlugins.SlowB.class, null);
+
+        manager.initialize();
+        try {
+            assertEquals(PluginLoadInfo.Status.TIMED_OUT, manager.getLoadInfo("hanging").status());
+            assertEquals(PluginLoadInfo.Status.FAILED, manager.getLoadInfo("failing").status());
+            assertEquals(PluginLoadInfo.Status.SKIPPED, manager.getLoadInfo("depends-on-failing").status());
+            assertEquals(PluginLoadInfo.Status.LOADED, manager.getLoadInfo("slow-b").status());
+
+            assertNull(manager.getPlugin("hanging"));
+            assertNull(manager.getPlugin("failing"));
+            assertNull(manager.getPlugin("depends-on-failing"));
+            assertNotNull(manager.getPlugin("slow-b"));
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void testPluginStorageOutlivesRestarts(@TempDir Path tempDir) throws Exception {
+        TestPlugins.install(Files.createDirectories(tempDir.resolve("plugins")), "counting", TestPlugins.Counting.class, null);
+        for (int run = 1; run <= 2; run++) {
+            PluginManager manager = managerWithPlugins(tempDir);
+            manager.initialize();
+            manager.shutdown();
+        }
+
+        Path file = tempDir.resolve("plugins-data/counting.log");
+        try (PluginStorage storage = new PluginStorage(file)) {
+            assertEquals("2", storage.getString("loads"));
+        }
+    }
+
+    @Test
+    void testExtensionsAreCachedUntilAPluginStartsOrStops(@TempDir Path tempDir) throws Exception {
+        PluginManager manager = managerWithPlugins(tempDir);
+        TestPlugins.install(tempDir.resolve("plugins"), "slow-b", TestPlugins.SlowB.class, null);
+        manager.initialize();
+        try {
+            // ExamplePlugin is indexed as an extension on the application classpath
+            List<ExamplePlugin> first = manager.getExtensions(ExamplePlugin.class);
+            assertEquals(1, first.size());
+            assertSame(first, manager.getExtensions(ExamplePlugin.class));
+            assertThrows(UnsupportedOperationException.class, () -> first.add(new ExamplePlugin()));
+
+            manager.setPluginEnabled("slow-b", false);
+            List<ExamplePlugin> afterStop = manager.getExtensions(ExamplePlugin.class);
+            assertNotSame(first, afterStop);
+            assertSame(afterStop, manager.getExtensions(ExamplePlugin.class));
+
+            manager.setPluginEnabled("slow-b", true);
+            assertNotSame(afterStop, manager.getExtensions(ExamplePlugin.class));
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void testTrackedExtensionsFollowPluginLifecycle(@TempDir Path tempDir) throws Exception {
+        PluginManager manager = managerWithPlugins(tempDir);
+        TestPlugins.install(tempDir.resolve("plugins"), "slow-b", TestPlugins.SlowB.class, null);
+        List<ExamplePlugin> added = new CopyOnWriteArrayList<>();
+        List<ExamplePlugin> removed = new CopyOnWriteArrayList<>();
+        manager.trackExtensions(ExamplePlugin.class, added::add, removed::add);
+        assertTrue(added.isEmpty());
+
+        manager.initialize();
+        assertEquals(1, added.size());
+
+        // Unrelated plugins coming and going don't re-announce the same extension
+        manager.setPluginEnabled("slow-b", false);
+        manager.setPluginEnabled("slow-b", true);
+        assertEquals(1, added.size());
+        assertTrue(removed.isEmpty());
+
+        manager.shutdown();
+        assertEquals(1, removed.size());
+        assertSame(added.get(0), removed.get(0));
+    }
+
+    @Test
+    void testPluginOverrunningItsBudgetIsDisabled(@TempDir Path tempDir) throws Exception {
+        PluginManager manager = managerWithPlugins(tempDir);
+        manager.setCallBudget(Duration.ofMillis(50));
+        TestPlugins.install(tempDir.resolve("plugins"), "slow-b", TestPlugins.SlowB.class, null);
+        manager.initialize();
+        try {
+            for (int i = 0; i < PluginExecutor.MAX_OVERRUNS; i++) {
+                manager.runPluginTask("slow-b", "blocking call", () -> {
+                    try {
+                        Thread.sleep(2000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (manager.getPlugin("slow-b") != null && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertNull(manager.getPlugin("slow-b"));
+            assertFalse(manager.isPluginEnabled("slow-b"));
+            assertNotNull(manager.getDisabledReason("slow-b"));
+
+            // Turning it back on by hand clears the flag
+            manager.setPluginEnabled("slow-b", true);
+            assertNotNull(manager.getPlugin("slow-b"));
+            assertNull(manager.getDisabledReason("slow-b"));
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void testPluginHangingInOnUnloadOnlyHoldsUpItself(@TempDir Path tempDir) throws Exception {
+        PluginManager manager = managerWithPlugins(tempDir);
+        manager.setLoadTimeout(Duration.ofMillis(500));
+        TestPlugins.install(tempDir.resolve("plugins"), "hanging-unload", TestPlugins.HangingUnload.class, null);
+        TestPlugins.install(tempDir.resolve("plugins"), "slow-b", TestPlugins.SlowB.class, null);
+        manager.initialize();
+        try {
+            CompletableFuture<Void> disabling = CompletableFuture.runAsync(() -> manager.setPluginEnabled("hanging-unload", false));
+            assertTrue(TestPlugins.UNLOAD_HANGING.await(5, TimeUnit.SECONDS));
+
+            // The manager's lock isn't held while onUnload() hangs
+            CompletableFuture.runAsync(() -> manager.setPluginEnabled("slow-b", false)).get(5, TimeUnit.SECONDS);
+            assertNull(manager.getPlugin("slow-b"));
+
+            // Given up on after the load timeout, and stopped anyway
+            disabling.get(5, TimeUnit.SECONDS);
+            assertNull(manager.getPlugin("hanging-unload"));
+            assertNotEquals(PluginState.STARTED, manager.getPf4jPluginManager().getPlugin("hanging-unload").getPluginState());
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void testLazyPluginStartsOnFirstExtensionCall(@TempDir Path tempDir) throws Exception {
+        Path pluginsDir = Files.createDirectories(tempDir.resolve("plugins"));
+        TestPlugins.installJar(pluginsDir.resolve("reloadable.jar"), "1.0.0", TRiMPluginDescriptor.LAZY_ACTIVATION);
+        Path configFile = tempDir.resolve("plugins.json");
+        Files.writeString(configFile, "{}");
+        PluginConfig config = new PluginConfig(configFile.toFile());
+        config.setPluginEnabled(ReloadablePlugin.ID, true);
+        PluginManager manager = new PluginManager(pluginsDir, false, config);
+        manager.initialize();
+        try {
+            assertTrue(manager.isAwaitingActivation(ReloadablePlugin.ID));
+            assertNull(manager.getPlugin(ReloadablePlugin.ID));
+            assertNull(manager.getLoadInfo(ReloadablePlugin.ID));
+            assertEquals(PluginState.RESOLVED,
+                    manager.getPf4jPluginManager().getPlugin(ReloadablePlugin.ID).getPluginState());
+
+            // The button is there, and asking for its text doesn't start the plugin
+            ToolbarButtonExtension button = lazyButton(manager);
+            assertEquals("Reloadable", button.getText());
+            assertNull(manager.getPlugin(ReloadablePlugin.ID));
+
+            manager.runExtensionTask(button, "toolbar action", button::onAction).join();
+            assertFalse(manager.isAwaitingActivation(ReloadablePlugin.ID));
+            assertNotNull(manager.getPlugin(ReloadablePlugin.ID));
+            assertEquals(PluginLoadInfo.Status.LOADED, manager.getLoadInfo(ReloadablePlugin.ID).status());
+            assertSame(button, lazyButton(manager));
+
+            // Once disabled and enabled again, it waits for its first use again
+            manager.setPluginEnabled(ReloadablePlugin.ID, false);
+            assertTrue(manager.getExtensions(ToolbarButtonExtension.class).stream().noneMatch(PluginManagerTest::isLazyButton));
+            manager.setPluginEnabled(ReloadablePlugin.ID, true);
+            assertTrue(manager.isAwaitingActivation(ReloadablePlugin.ID));
+            assertNull(manager.getPlugin(ReloadablePlugin.ID));
+            assertNotNull(lazyButton(manager));
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void testCallsThatDontActivateWaitForTheLazyPluginToStart(@TempDir Path tempDir) throws Exception {
+        Path pluginsDir = Files.createDirectories(tempDir.resolve("plugins"));
+        TestPlugins.installJar(pluginsDir.resolve("reloadable.jar"), "1.0.0", TRiMPluginDescriptor.LAZY_ACTIVATION);
+        Path configFile = tempDir.resolve("plugins.json");
+        Files.writeString(configFile, "{}");
+        PluginConfig config = new PluginConfig(configFile.toFile());
+        config.setPluginEnabled(ReloadablePlugin.ID, true);
+        PluginManager manager = new PluginManager(pluginsDir, false, config);
+        manager.initialize();
+        try {
+            ToolbarButtonExtension button = lazyButton(manager);
+            AtomicBoolean ran = new AtomicBoolean();
+            CompletableFuture<Void> waiting = manager.runExtensionTaskWhenStarted(button, "attach", () -> ran.set(true));
+            assertTrue(manager.isAwaitingActivation(ReloadablePlugin.ID));
+            assertFalse(waiting.isDone());
+
+            // Runs once something else starts the plugin
+            manager.runExtensionTask(button, "toolbar action", button::onAction).join();
+            waiting.get(5, TimeUnit.SECONDS);
+            assertTrue(ran.get());
+
+            // And is dropped if the plugin goes away before it starts
+            manager.setPluginEnabled(ReloadablePlugin.ID, false);
+            manager.setPluginEnabled(ReloadablePlugin.ID, true);
+            CompletableFuture<Void> dropped = manager.runExtensionTaskWhenStarted(lazyButton(manager), "attach",
+                    () -> fail("Ran without the plugin starting"));
+            manager.setPluginEnabled(ReloadablePlugin.ID, false);
+            assertTrue(dropped.isCancelled());
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void testConcurrentEnableDisableAndLookups(@TempDir Path tempDir) throws Exception {
+        PluginManager manager = managerWithPlugins(tempDir);
+        String[] ids = {"quick-1", "quick-2", "quick-3"};
+        TestPlugins.install(tempDir.resolve("plugins"), ids[0], TestPlugins.Quick1.class, null);
+        TestPlugins.install(tempDir.resolve("plugins"), ids[1], TestPlugins.Quick2.class, null);
+        TestPlugins.install(tempDir.resolve("plugins"), ids[2], TestPlugins.Quick3.class, null);
+        manager.initialize();
+
+        int togglers = 4;
+        int readers = 4;
+        ExecutorService threads = Executors.newFixedThreadPool(togglers + readers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean toggling = new AtomicBoolean(true);
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        try {
+            List<Future<?>> toggles = new ArrayList<>();
+            for (int t = 0; t < togglers; t++) {
+                toggles.add(threads.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 150; i++) {
+                        manager.setPluginEnabled(ids[random.nextInt(ids.length)], random.nextBoolean());
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> lookups = new ArrayList<>();
+            for (int r = 0; r < readers; r++) {
+                lookups.add(threads.submit(() -> {
+                    start.await();
+                    while (toggling.get()) {
+                        for (String id : ids) {
+                            TRiMPlugin plugin = manager.getPlugin(id);
+                            if (plugin != null) {
+                                assertEquals(id, plugin.getPluginId());
+                            }
+                            manager.isPluginEnabled(id);
+                            manager.getLoadInfo(id);
+                            manager.getUsage(id);
+                        }
+                        for (TRiMPlugin plugin : manager.getPlugins()) {
+                            assertNotNull(plugin.getPluginId());
+                        }
+                        assertEquals(1, manager.getExtensions(ExamplePlugin.class).size());
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> toggle : toggles) {
+                collectFailure(toggle, errors);
+            }
+            toggling.set(false);
+            for (Future<?> lookup : lookups) {
+                collectFailure(lookup, errors);
+            }
+            assertTrue(errors.isEmpty(), () -> "Concurrent use failed: " + errors);
+            assertFalse(TestPlugins.LIFECYCLE_VIOLATED.get(), "A plugin was loaded or unloaded twice");
+
+            // Whatever order the changes landed in, the manager ends up consistent
+            for (String id : ids) {
+                manager.setPluginEnabled(id, true);
+                assertNotNull(manager.getPlugin(id));
+                assertEquals(PluginState.STARTED, manager.getPf4jPluginManager().getPlugin(id).getPluginState());
+                assertEquals(1, TestPlugins.ACTIVE.get(id).get());
+            }
+            assertEquals(ids.length, manager.getPlugins().size());
+        } finally {
+            threads.shutdownNow();
+            manager.shutdown();
+        }
+        for (String id : ids) {
+            assertEquals(0, TestPlugins.ACTIVE.get(id).get());
+        }
+    }
+
+    @Test
+    void testConcurrentConfigChanges(@TempDir Path tempDir) throws Exception {
+        Path configFile = tempDir.resolve("plugins.json");
+        Files.writeString(configFile, "{}");
+        PluginConfig config = new PluginConfig(configFile.toFile());
+        int threadCount = 8;
+        ExecutorService threads = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> changes = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                int thread = t;
+                changes.add(threads.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 200; i++) {
+                        String id = "plugin-" + thread + "-" + (i % 10);
+                        config.setPluginEnabled(id, i % 2 == 0);
+                        config.updatePluginInfo(id, "1.0." + i);
+                        config.isPluginEnabled("plugin-" + ((thread + 1) % threadCount) + "-" + (i % 10));
+                        config.getPluginStates().forEach((key, state) -> state.isEnabled());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+            for (Future<?> change : changes) {
+                collectFailure(change, errors);
+            }
+            assertTrue(errors.isEmpty(), () -> "Concurrent config changes failed: " + errors);
+        } finally {
+            threads.shutdownNow();
+        }
+
+        assertEquals(threadCount * 10, config.getPluginStates().size());
+        // Each plugin's last change was i = 190..199, odd i disabled it
+        assertTrue(config.isPluginEnabled("plugin-0-0"));
+        assertFalse(config.isPluginEnabled("plugin-0-1"));
+        assertEquals("1.0.199", config.getPluginStates().get("plugin-7-9").getVersion());
+    }
+
+    private static void collectFailure(Future<?> future, Queue<Throwable> errors) throws InterruptedException {
+        try {
+            future.get(60, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            errors.add(e.getCause());
+        } catch (TimeoutException e) {
+            errors.add(e);
+        }
+    }
+
+    private static ToolbarButtonExtension lazyButton(PluginManager manager) {
+        return manager.getExtensions(ToolbarButtonExtension.class).stream()
+                .filter(PluginManagerTest::isLazyButton).findFirst().orElseThrow();
+    }
+
+    // The JAR's copy of the class, not the one on the test classpath
+    private static boolean isLazyButton(ToolbarButtonExtension extension) {
+        return extension.getClass().getName().equals(ReloadablePlugin.Button.class.getName());
+    }
+
+    /**
+     * Creates a development-mode manager with its own plugin directory and a config in which
+     * every test plugin is enabled.
+     */
+    static PluginManager managerWithPlugins(Path tempDir) throws Exception {
+        Path configFile = tempDir.resolve("plugins.json");
+        Files.writeString(configFile, "{}");
+        PluginConfig config = new PluginConfig(configFile.toFile());
+        for (String id : new String[]{"slow-a", "slow-b", "depends-on-a", "hanging", "hanging-unload", "failing",
+                "depends-on-failing", "quick-1", "quick-2", "quick-3", "counting"}) {
+            config.setPluginEnabled(id, true);
+        }
+        return new PluginManager(Files.createDirectories(tempDir.resolve("plugins")), true, config);
+    }
+
     // Helper method to delete test directories
     private void deleteDirectory(java.io.File directory) {
         if (directory.exists()) {
@@ -0,0 +1,66 @@
+package com.github.RocketSmash9000.plugin;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PluginUsageTest {
+
+    @Test
+    void testLatencyBuckets() {
+        assertEquals(0, PluginUsage.bucketOf(0));
+        assertEquals(0, PluginUsage.bucketOf(999));
+        assertEquals(1, PluginUsage.bucketOf(1_000));
+        assertEquals(2, PluginUsage.bucketOf(3_999));
+        assertEquals(11, PluginUsage.bucketOf(1_500_000));
+        assertEquals(PluginUsage.LATENCY_BUCKETS - 1, PluginUsage.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testPercentilesAreBucketUpperBounds() throws Exception {
+        PluginUsage usage = new PluginUsage();
+        for (int i = 0; i < 99; i++) {
+            usage.run(() -> { });
+        }
+        usage.call(() -> {
+            Thread.sleep(20);
+            return null;
+        });
+
+        PluginUsage.Snapshot snapshot = usage.snapshot();
+        assertEquals(100, snapshot.calls());
+        assertTrue(snapshot.p50().compareTo(Duration.ofMillis(1)) < 0, "p50 was " + snapshot.p50());
+        // The one slow call is the 100th, above the 99th percentile
+        assertTrue(snapshot.p99().compareTo(Duration.ofMillis(20)) < 0, "p99 was " + snapshot.p99());
+        assertTrue(snapshot.max().compareTo(Duration.ofMillis(20)) >= 0);
+    }
+
+    @Test
+    void testMeasuresCpuTimeAndAllocationsOnPlatformThreads() {
+        PluginUsage usage = new PluginUsage();
+        long[] sink = new long[1];
+        usage.run(() -> {
+            long deadline = System.nanoTime() + Duration.ofMillis(30).toNanos();
+            while (System.nanoTime() < deadline) {
+                sink[0] += new byte[1024].length;
+            }
+        });
+
+        PluginUsage.Snapshot snapshot = usage.snapshot();
+        assertTrue(snapshot.cpuTime().toMillis() >= 10, "CPU time was " + snapshot.cpuTime());
+        assertTrue(snapshot.allocatedBytes() >= 1024, "Allocated " + snapshot.allocatedBytes() + " bytes");
+        assertTrue(snapshot.describe().startsWith("1 call · "));
+    }
+
+    @Test
+    void testFailedCallsAreCounted() {
+        PluginUsage usage = new PluginUsage();
+        assertThrows(IllegalStateException.class, () -> usage.run(() -> { throw new IllegalStateException(); }));
+
+        assertEquals(1, usage.snapshot().calls());
+        assertEquals(1, usage.snapshot().failures());
+        assertEquals("no calls yet", new PluginUsage().snapshot().describe());
+    }
+}
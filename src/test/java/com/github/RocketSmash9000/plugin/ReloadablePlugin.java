@@ -0,0 +1,55 @@
+package com.github.RocketSmash9000.plugin;
+
+import com.github.RocketSmash9000.plugin.ui.ToolbarButtonExtension;
+import org.pf4j.Plugin;
+
+/**
+ * Test plugin packaged into real JARs by {@link TestPlugins#installJar}, so it gets its own class loader.
+ * It must not refer to any other test class, since only this class and its button go into the JAR.
+ */
+public class ReloadablePlugin extends Plugin implements TRiMPlugin {
+    public static final String ID = "reloadable";
+
+    @Override
+    public void onLoad() {
+    }
+
+    @Override
+    public void onUnload() {
+    }
+
+    @Override
+    public String getPluginId() {
+        return ID;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Reloadable";
+    }
+
+    @Override
+    public String getVersion() {
+        return "1.0.0";
+    }
+
+    @Override
+    public String getMinimumApplicationVersion() {
+        return "1.0.0";
+    }
+
+    /**
+     * The plugin's one extension. Listed in the JAR's extension index rather than annotated,
+     * so it doesn't also turn up as an extension of the test classpath.
+     */
+    public static class Button implements ToolbarButtonExtension {
+        @Override
+        public String getText() {
+            return "Reloadable";
+        }
+
+        @Override
+        public void onAction() {
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.github.RocketSmash9000.plugin;
+
+import com.github.RocketSmash9000.plugin.storage.PluginStorage;
+import org.pf4j.Plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Plugins for PluginManager tests. Each one is installed as a development-mode plugin directory whose
+ * plugin.properties points at a class on the test classpath, except {@link ReloadablePlugin}, which is
+ * packaged into a JAR of its own.
+ */
+public final class TestPlugins {
+    /** When each plugin's onLoad started and finished, in System.nanoTime() units. */
+    static final Map<String, long[]> LOAD_TIMES = new ConcurrentHashMap<>();
+    /** How many times each {@link QuickPlugin} is loaded right now; never more than one if lifecycle changes are serialized. */
+    static final Map<String, AtomicInteger> ACTIVE = new ConcurrentHashMap<>();
+    /** Set when a {@link QuickPlugin} was loaded twice at once, or unloaded while not loaded. */
+    static final AtomicBoolean LIFECYCLE_VIOLATED = new AtomicBoolean();
+    /** Counted down once {@link HangingUnload} starts hanging in onUnload. */
+    static final CountDownLatch UNLOAD_HANGING = new CountDownLatch(1);
+
+    private TestPlugins() {
+    }
+
+    /**
+     * Writes a plugin directory for the given class.
+     *
+     * @param dependencies Comma-separated plugin ids, or null
+     */
+    static void install(Path pluginsDir, String id, Class<? extends Plugin> pluginClass, String dependencies) throws IOException {
+        install(pluginsDir, id, pluginClass, dependencies, null);
+    }
+
+    /**
+     * Writes a plugin directory for the given class, with an extension index listing one extension.
+     *
+     * @param dependencies Comma-separated plugin ids, or null
+     * @param extension An extension class to list in the plugin's extension index, or null
+     */
+    public static void install(Path pluginsDir, String id, Class<? extends Plugin> pluginClass, String dependencies,
+                               Class<?> extension) throws IOException {
+        Path dir = Files.createDirectories(pluginsDir.resolve(id));
+        StringBuilder properties = new StringBuilder()
+                .append("plugin.id=").append(id).append('\n')
+                .append("plugin.class=").append(pluginClass.getName()).append('\n')
+                .append("plugin.version=1.0.0\n")
+                .append("plugin.provider=TRiM tests\n");
+        if (dependencies != null) {
+            properties.append("plugin.dependencies=").append(dependencies).append('\n');
+        }
+        Files.writeString(dir.resolve("plugin.properties"), properties.toString());
+        if (extension != null) {
+            // Development mode puts target/classes on the plugin's class path
+            Path index = dir.resolve("target/classes/META-INF/extensions.idx");
+            Files.createDirectories(index.getParent());
+            Files.writeString(index, extension.getName() + "\n");
+        }
+    }
+
+    /**
+     * Packages {@link ReloadablePlugin} and its button as a PF4J JAR plugin described by its manifest.
+     *
+     * @param activation The Plugin-Activation attribute, or null
+     */
+    static void installJar(Path jar, String version, String activation) throws IOException {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Plugin-Id", ReloadablePlugin.ID);
+        attributes.putValue("Plugin-Class", ReloadablePlugin.class.getName());
+        attributes.putValue("Plugin-Version", version);
+        if (activation != null) {
+            attributes.putValue(TRiMPluginDescriptor.PLUGIN_ACTIVATION_ATTRIBUTE, activation);
+        }
+
+        try (OutputStream out = Files.newOutputStream(jar);
+             JarOutputStream jarOut = new JarOutputStream(out, manifest)) {
+            for (Class<?> type : new Class<?>[]{ReloadablePlugin.class, ReloadablePlugin.Button.class}) {
+                String classFile = type.getName().replace('.', '/') + ".class";
+                try (InputStream classBytes = type.getClassLoader().getResourceAsStream(classFile)) {
+                    jarOut.putNextEntry(new JarEntry(classFile));
+                    classBytes.transferTo(jarOut);
+                    jarOut.closeEntry();
+                }
+            }
+            jarOut.putNextEntry(new JarEntry("META-INF/extensions.idx"));
+            jarOut.write((ReloadablePlugin.Button.class.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+            jarOut.closeEntry();
+        }
+    }
+
+    /**
+     * Packages {@link ReloadablePlugin} as a PF4J ZIP plugin: plugin.properties at the root and its JAR under lib/.
+     */
+    static void installZip(Path zip, String version) throws IOException {
+        Path jar = Files.createTempFile("reloadable", ".jar");
+        try {
+            installJar(jar, version, null);
+            String properties = "plugin.id=" + ReloadablePlugin.ID + "\n"
+                    + "plugin.class=" + ReloadablePlugin.class.getName() + "\n"
+                    + "plugin.version=" + version + "\n";
+            try (ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(zip))) {
+                zipOut.putNextEntry(new ZipEntry("plugin.properties"));
+                zipOut.write(properties.getBytes(StandardCharsets.UTF_8));
+                zipOut.closeEntry();
+                zipOut.putNextEntry(new ZipEntry("lib/reloadable.jar"));
+                Files.copy(jar, zipOut);
+                zipOut.closeEntry();
+            }
+        } finally {
+            Files.delete(jar);
+        }
+    }
+
+    /** Base for test plugins whose onLoad takes a fixed time. */
+    abstract static class TimedPlugin extends Plugin implements TRiMPlugin {
+        private final String id;
+        private final long loadMillis;
+
+        TimedPlugin(String id, long loadMillis) {
+            this.id = id;
+            this.loadMillis = loadMillis;
+        }
+
+        @Override
+        public void onLoad() {
+            long start = System.nanoTime();
+            try {
+                Thread.sleep(loadMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            LOAD_TIMES.put(id, new long[]{start, System.nanoTime()});
+        }
+
+        @Override
+        public void onUnload() {
+        }
+
+        @Override
+        public String getPluginId() {
+            return id;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return id;
+        }
+
+        @Override
+        public String getVersion() {
+            return "1.0.0";
+        }
+
+        @Override
+        public String getMinimumApplicationVersion() {
+            return "1.0.0";
+        }
+    }
+
+    public static class SlowA extends TimedPlugin {
+        public SlowA() {
+            super("slow-a", 300);
+        }
+    }
+
+    public static class SlowB extends TimedPlugin {
+        public SlowB() {
+            super("slow-b", 300);
+        }
+    }
+
+    public static class DependsOnA extends TimedPlugin {
+        public DependsOnA() {
+            super("depends-on-a", 10);
+        }
+    }
+
+    public static class Hanging extends TimedPlugin {
+        public Hanging() {
+            super("hanging", 3000);
+        }
+    }
+
+    public static class HangingUnload extends TimedPlugin {
+        public HangingUnload() {
+            super("hanging-unload", 0);
+        }
+
+        @Override
+        public void onUnload() {
+            UNLOAD_HANGING.countDown();
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public static class Failing extends TimedPlugin {
+        public Failing() {
+            super("failing", 0);
+        }
+
+        @Override
+        public void onLoad() {
+            throw new IllegalStateException("boom");
+        }
+    }
+
+    public static class DependsOnFailing extends TimedPlugin {
+        public DependsOnFailing() {
+            super("depends-on-failing", 0);
+        }
+    }
+
+    /** Loads instantly and keeps count of how often it is loaded, for stress tests. */
+    abstract static class QuickPlugin extends TimedPlugin {
+        private final String id;
+
+        QuickPlugin(String id) {
+            super(id, 0);
+            this.id = id;
+        }
+
+        @Override
+        public void onLoad() {
+            if (ACTIVE.computeIfAbsent(id, key -> new AtomicInteger()).incrementAndGet() != 1) {
+                LIFECYCLE_VIOLATED.set(true);
+            }
+        }
+
+        @Override
+        public void onUnload() {
+            if (ACTIVE.computeIfAbsent(id, key -> new AtomicInteger()).decrementAndGet() != 0) {
+                LIFECYCLE_VIOLATED.set(true);
+            }
+        }
+    }
+
+    public static class Quick1 extends QuickPlugin {
+        public Quick1() {
+            super("quick-1");
+        }
+    }
+
+    public static class Quick2 extends QuickPlugin {
+        public Quick2() {
+            super("quick-2");
+        }
+    }
+
+    public static class Quick3 extends QuickPlugin {
+        public Quick3() {
+            super("quick-3");
+        }
+    }
+
+    /** Counts its loads in its own storage. */
+    public static class Counting extends TimedPlugin {
+        private PluginStorage storage;
+
+        public Counting() {
+            super("counting", 0);
+        }
+
+        @Override
+        public void setStorage(PluginStorage storage) {
+            this.storage = storage;
+        }
+
+        @Override
+        public void onLoad() {
+            String loads = storage.getString("loads");
+            storage.putString("loads", String.valueOf(loads == null ? 1 : Integer.parseInt(loads) + 1));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.RocketSmash9000.plugin.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaybackEventBusTest {
+    private static final File TRACK = new File("track.mp3");
+
+    private PlaybackEventBus bus;
+
+    @BeforeEach
+    void setUp() {
+        bus = new PlaybackEventBus();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bus.shutdown();
+    }
+
+    @Test
+    void testDeliversEventsInOrder() throws Exception {
+        List<PlaybackEvent> received = new CopyOnWriteArrayList<>();
+        bus.subscribe("test", received::add, 1000, OverflowPolicy.DROP);
+
+        for (int i = 0; i < 500; i++) {
+            assertTrue(bus.publish(PlaybackEvent.progress(TRACK, i / 500.0)));
+        }
+
+        awaitTrue(() -> received.size() == 500);
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i / 500.0, received.get(i).progress());
+        }
+    }
+
+    @Test
+    void testSlowSubscriberDoesNotBlockPublisherOrOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PlaybackEventBus.Subscription slow = bus.subscribe("slow", event -> await(release), 4, OverflowPolicy.DROP);
+        List<PlaybackEvent> fast = new CopyOnWriteArrayList<>();
+        bus.subscribe("fast", fast::add, 1000, OverflowPolicy.DROP);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 200; i++) {
+            bus.publish(PlaybackEvent.of(PlaybackEvent.Type.TRACK_STARTED, TRACK));
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "Publishing should never wait on subscribers");
+
+        awaitTrue(() -> fast.size() == 200);
+        // At most one event is stuck in the listener and four are queued; the rest were dropped
+        assertTrue(slow.getDroppedCount() >= 195);
+        release.countDown();
+        awaitTrue(() -> slow.getDeliveredCount() + slow.getDroppedCount() == 200);
+    }
+
+    @Test
+    void testCoalescesProgressWhileSubscriberIsBusy() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<PlaybackEvent> received = new CopyOnWriteArrayList<>();
+        PlaybackEventBus.Subscription subscription = bus.subscribe("busy", event -> {
+            received.add(event);
+            if (event.type() == PlaybackEvent.Type.TRACK_STARTED) {
+                await(release);
+            }
+        }, 4, OverflowPolicy.COALESCE);
+
+        bus.publish(PlaybackEvent.of(PlaybackEvent.Type.TRACK_STARTED, TRACK));
+        for (int i = 1; i <= 100; i++) {
+            bus.publish(PlaybackEvent.progress(TRACK, i / 100.0));
+        }
+        bus.publish(PlaybackEvent.of(PlaybackEvent.Type.TRACK_ENDED, TRACK));
+        awaitTrue(() -> subscription.getCoalescedCount() == 99);
+        release.countDown();
+
+        awaitTrue(() -> received.size() == 3);
+        assertEquals(PlaybackEvent.Type.TRACK_STARTED, received.get(0).type());
+        assertEquals(PlaybackEvent.Type.PROGRESS, received.get(1).type());
+        assertEquals(1.0, received.get(1).progress());
+        assertEquals(PlaybackEvent.Type.TRACK_ENDED, received.get(2).type());
+        assertEquals(0, subscription.getDroppedCount());
+    }
+
+    @Test
+    void testFailingListenerKeepsReceivingEvents() throws Exception {
+        List<PlaybackEvent> received = new CopyOnWriteArrayList<>();
+        bus.subscribe("failing", event -> {
+            received.add(event);
+            throw new IllegalStateException("boom");
+        }, 16, OverflowPolicy.DROP);
+
+        bus.publish(PlaybackEvent.of(PlaybackEvent.Type.PAUSED, TRACK));
+        bus.publish(PlaybackEvent.of(PlaybackEvent.Type.RESUMED, TRACK));
+
+        awaitTrue(() -> received.size() == 2);
+    }
+
+    @Test
+    void testCancelledSubscriptionReceivesNothing() throws Exception {
+        List<PlaybackEvent> cancelled = new CopyOnWriteArrayList<>();
+        List<PlaybackEvent> active = new CopyOnWriteArrayList<>();
+        bus.subscribe("cancelled", cancelled::add, 16, OverflowPolicy.DROP).cancel();
+        bus.subscribe("active", active::add, 16, OverflowPolicy.DROP);
+
+        bus.publish(PlaybackEvent.of(PlaybackEvent.Type.LIBRARY_CHANGED, new File(".")));
+
+        awaitTrue(() -> active.size() == 1);
+        assertTrue(cancelled.isEmpty());
+    }
+
+    @Test
+    void testPublishAfterShutdownIsRejected() {
+        bus.shutdown();
+        assertFalse(bus.publish(PlaybackEvent.of(PlaybackEvent.Type.PAUSED, TRACK)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for delivery");
+            Thread.sleep(5);
+        }
+    }
+}
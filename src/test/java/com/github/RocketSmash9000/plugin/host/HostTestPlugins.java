@@ -0,0 +1,118 @@
+package com.github.RocketSmash9000.plugin.host;
+
+import com.github.RocketSmash9000.plugin.TRiMPlugin;
+import com.github.RocketSmash9000.plugin.event.PlaybackEvent;
+import com.github.RocketSmash9000.plugin.event.PlaybackEventListener;
+import org.pf4j.Plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plugins for plugin host tests, installed with {@link com.github.RocketSmash9000.plugin.TestPlugins#install}
+ * as development-mode plugin directories whose classes come from the test classpath. That classpath is also
+ * the host process's, so the same classes load there.
+ */
+final class HostTestPlugins {
+    /** Exit code of a host whose plugin halted it. */
+    static final int CRASH_EXIT_CODE = 42;
+
+    private HostTestPlugins() {
+    }
+
+    /** Base for the test plugins; does nothing when loaded. */
+    abstract static class IdlePlugin extends Plugin implements TRiMPlugin {
+        private final String id;
+
+        IdlePlugin(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public void onLoad() {
+        }
+
+        @Override
+        public void onUnload() {
+        }
+
+        @Override
+        public String getPluginId() {
+            return id;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Test " + id;
+        }
+
+        @Override
+        public String getVersion() {
+            return "1.0.0";
+        }
+
+        @Override
+        public String getMinimumApplicationVersion() {
+            return "1.0.0";
+        }
+    }
+
+    /** Runs out of process; its listener halts the host when a track is skipped. */
+    public static class Crashy extends IdlePlugin {
+        public Crashy() {
+            super("host-crashy");
+        }
+    }
+
+    public static class HaltOnSkip implements PlaybackEventListener {
+        @Override
+        public void onPlaybackEvent(PlaybackEvent event) {
+            if (event.type() == PlaybackEvent.Type.TRACK_SKIPPED) {
+                Runtime.getRuntime().halt(CRASH_EXIT_CODE);
+            }
+        }
+    }
+
+    /** Runs out of process; its listener never returns once a track is skipped, so the host stops reading. */
+    public static class Stuck extends IdlePlugin {
+        public Stuck() {
+            super("host-stuck");
+        }
+    }
+
+    public static class BlockOnSkip implements PlaybackEventListener {
+        @Override
+        public void onPlaybackEvent(PlaybackEvent event) {
+            if (event.type() == PlaybackEvent.Type.TRACK_SKIPPED) {
+                while (true) {
+                    try {
+                        Thread.sleep(Long.MAX_VALUE);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }
+        }
+    }
+
+    /** Runs inside TRiM, next to the out-of-process ones. */
+    public static class Local extends IdlePlugin {
+        public Local() {
+            super("host-local");
+        }
+    }
+
+    /** Allocates until its heap runs out. */
+    public static class Hungry extends IdlePlugin {
+        public Hungry() {
+            super("host-hungry");
+        }
+
+        @Override
+        public void onLoad() {
+            List<long[]> hoard = new ArrayList<>();
+            while (true) {
+                hoard.add(new long[1 << 20]);
+            }
+        }
+    }
+}
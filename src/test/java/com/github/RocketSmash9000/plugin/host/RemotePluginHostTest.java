@@ -0,0 +1,164 @@
+package com.github.RocketSmash9000.plugin.host;
+
+import com.github.RocketSmash9000.config.PluginConfig;
+import com.github.RocketSmash9000.plugin.PluginLoadInfo;
+import com.github.RocketSmash9000.plugin.PluginManager;
+import com.github.RocketSmash9000.plugin.TestPlugins;
+import com.github.RocketSmash9000.plugin.event.OverflowPolicy;
+import com.github.RocketSmash9000.plugin.event.PlaybackEvent;
+import com.github.RocketSmash9000.plugin.event.PlaybackEventBus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pf4j.PluginState;
+
+import java.io.File;
+import java.nio.channels.Pipe;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemotePluginHostTest {
+
+    @Test
+    void testEventsSurviveTheWireFormat() throws Exception {
+        Pipe pipe = Pipe.open();
+        PlaybackEvent event = PlaybackEvent.progress(new File("música/track.flac"), 0.25);
+        HostProtocol.write(pipe.sink(), HostProtocol.EVENT, 0, HostProtocol.encodeEvent(event));
+        HostProtocol.write(pipe.sink(), HostProtocol.EVENT, 0, HostProtocol.encodeEvent(PlaybackEvent.of(PlaybackEvent.Type.PAUSED, null)));
+
+        HostProtocol.Frame frame = HostProtocol.read(pipe.source());
+        assertEquals(HostProtocol.EVENT, frame.type());
+        assertEquals(event, HostProtocol.decodeEvent(frame.payload()));
+        PlaybackEvent paused = HostProtocol.decodeEvent(HostProtocol.read(pipe.source()).payload());
+        assertEquals(PlaybackEvent.Type.PAUSED, paused.type());
+        assertNull(paused.file());
+    }
+
+    @Test
+    void testPluginRunsInItsOwnProcess(@TempDir Path tempDir) throws Exception {
+        PluginManager manager = managerWithPlugins(tempDir);
+        TestPlugins.install(tempDir.resolve("plugins"), "host-crashy", HostTestPlugins.Crashy.class, null, HostTestPlugins.HaltOnSkip.class);
+        manager.initialize();
+        long pid;
+        try {
+            assertEquals(PluginLoadInfo.Status.LOADED, manager.getLoadInfo("host-crashy").status());
+            assertTrue(manager.isRunningOutOfProcess("host-crashy"));
+            // Never started in TRiM itself
+            assertNotEquals(PluginState.STARTED, manager.getPf4jPluginManager().getPlugin("host-crashy").getPluginState());
+
+            RemoteTRiMPlugin plugin = (RemoteTRiMPlugin) manager.getPlugin("host-crashy");
+            assertEquals("Test host-crashy", plugin.getDisplayName());
+            pid = plugin.getHost().getPid();
+            assertNotEquals(ProcessHandle.current().pid(), pid);
+            assertTrue(plugin.getHost().ping() > 0);
+        } finally {
+            manager.shutdown();
+        }
+        assertFalse(ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false), "Host still running after shutdown");
+    }
+
+    @Test
+    void testCrashingPluginOnlyTakesDownItsHost(@TempDir Path tempDir) throws Exception {
+        PluginManager manager = managerWithPlugins(tempDir);
+        TestPlugins.install(tempDir.resolve("plugins"), "host-crashy", HostTestPlugins.Crashy.class, null, HostTestPlugins.HaltOnSkip.class);
+        TestPlugins.install(tempDir.resolve("plugins"), "host-local", HostTestPlugins.Local.class, null, null);
+        PlaybackEventBus eventBus = new PlaybackEventBus();
+        manager.initialize();
+        manager.setEventBus(eventBus);
+        try {
+            assertTrue(manager.isRunningOutOfProcess("host-crashy"));
+            assertFalse(manager.isRunningOutOfProcess("host-local"));
+
+            eventBus.publish(PlaybackEvent.of(PlaybackEvent.Type.TRACK_SKIPPED, null));
+            assertTrue(waitFor(() -> manager.getPlugin("host-crashy") == null), "Crash was not noticed");
+            assertEquals(PluginLoadInfo.Status.CRASHED, manager.getLoadInfo("host-crashy").status());
+
+            // Everything in TRiM carries on
+            assertNotNull(manager.getPlugin("host-local"));
+            CountDownLatch delivered = new CountDownLatch(1);
+            eventBus.subscribe("test", event -> delivered.countDown(), 4, OverflowPolicy.DROP);
+            eventBus.publish(PlaybackEvent.of(PlaybackEvent.Type.TRACK_STARTED, null));
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        } finally {
+            manager.shutdown();
+            eventBus.shutdown();
+        }
+    }
+
+    @Test
+    void testStuckHostDoesNotBlockTheManager(@TempDir Path tempDir) throws Exception {
+        PluginManager manager = managerWithPlugins(tempDir);
+        TestPlugins.install(tempDir.resolve("plugins"), "host-stuck", HostTestPlugins.Stuck.class, null, HostTestPlugins.BlockOnSkip.class);
+        PlaybackEventBus eventBus = new PlaybackEventBus();
+        manager.initialize();
+        manager.setEventBus(eventBus);
+        try {
+            RemoteTRiMPlugin plugin = (RemoteTRiMPlugin) manager.getPlugin("host-stuck");
+            long pid = plugin.getHost().getPid();
+
+            // The host stops reading on the skip; the events after it fill the socket's buffer
+            File track = new File("x".repeat(4096) + ".flac");
+            eventBus.publish(PlaybackEvent.of(PlaybackEvent.Type.TRACK_SKIPPED, track));
+            for (int i = 0; i < 5000; i++) {
+                eventBus.publish(PlaybackEvent.of(PlaybackEvent.Type.TRACK_STARTED, track));
+                if (i % 100 == 0) {
+                    Thread.sleep(1);
+                }
+            }
+
+            CompletableFuture.runAsync(() -> manager.setPluginEnabled("host-stuck", false)).get(20, TimeUnit.SECONDS);
+            assertNull(manager.getPlugin("host-stuck"));
+            assertTrue(waitFor(() -> !ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false)),
+                    "Stuck host still running after it was disabled");
+        } finally {
+            manager.shutdown();
+            eventBus.shutdown();
+        }
+    }
+
+    @Test
+    void testPluginRunningOutOfMemoryOnlyFailsItself(@TempDir Path tempDir) throws Exception {
+        PluginManager manager = managerWithPlugins(tempDir);
+        TestPlugins.install(tempDir.resolve("plugins"), "host-hungry", HostTestPlugins.Hungry.class, null, null);
+        TestPlugins.install(tempDir.resolve("plugins"), "host-local", HostTestPlugins.Local.class, null, null);
+        manager.initialize();
+        try {
+            assertEquals(PluginLoadInfo.Status.FAILED, manager.getLoadInfo("host-hungry").status());
+            assertNull(manager.getPlugin("host-hungry"));
+            assertEquals(PluginLoadInfo.Status.LOADED, manager.getLoadInfo("host-local").status());
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+
+    /**
+     * Creates a development-mode manager in which every test plugin is enabled and all but
+     * "host-local" run out of process.
+     */
+    private static PluginManager managerWithPlugins(Path tempDir) throws Exception {
+        Path configFile = tempDir.resolve("plugins.json");
+        Files.writeString(configFile, "{}");
+        PluginConfig config = new PluginConfig(configFile.toFile());
+        for (String id : new String[]{"host-crashy", "host-hungry", "host-local", "host-stuck"}) {
+            config.setPluginEnabled(id, true);
+            config.setOutOfProcess(id, !id.equals("host-local"));
+        }
+        return new PluginManager(Files.createDirectories(tempDir.resolve("plugins")), true, config);
+    }
+}
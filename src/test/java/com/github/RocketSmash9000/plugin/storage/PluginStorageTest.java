@@ -0,0 +1,149 @@
+package com.github.RocketSmash9000.plugin.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PluginStorageTest {
+
+    @Test
+    void testChangesSurviveReopening(@TempDir Path tempDir) {
+        Path file = tempDir.resolve("data/plugin.log");
+        try (PluginStorage storage = new PluginStorage(file)) {
+            assertFalse(Files.exists(file), "File created before first use");
+            storage.putString("name", "first");
+            storage.putString("name", "second");
+            storage.put("bytes", new byte[]{1, 2, 3});
+            storage.putString("gone", "soon");
+            assertTrue(storage.remove("gone"));
+            assertFalse(storage.remove("never-set"));
+        }
+
+        try (PluginStorage storage = new PluginStorage(file)) {
+            assertEquals("second", storage.getString("name"));
+            assertArrayEquals(new byte[]{1, 2, 3}, storage.get("bytes"));
+            assertNull(storage.get("gone"));
+            assertFalse(storage.contains("gone"));
+            assertEquals(2, storage.size());
+        }
+    }
+
+    @Test
+    void testPrefixScanIsSortedAndSkipsRemovedKeys(@TempDir Path tempDir) {
+        try (PluginStorage storage = new PluginStorage(tempDir.resolve("plugin.log"))) {
+            storage.putString("track/b", "2");
+            storage.putString("album/x", "-");
+            storage.putString("track/a", "1");
+            storage.putString("track/c", "3");
+            storage.putString("tracks", "not under track/");
+            storage.remove("track/c");
+
+            assertEquals(List.of("track/a", "track/b"), storage.keys("track/"));
+            List<String> visited = new ArrayList<>();
+            storage.scan("track/", (key, value) -> visited.add(key + "=" + new String(value)));
+            assertEquals(List.of("track/a=1", "track/b=2"), visited);
+            assertEquals(4, storage.keys("").size());
+        }
+    }
+
+    @Test
+    void testCompactionShrinksTheLogAndKeepsLiveValues(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("plugin.log");
+        byte[] value = new byte[1000];
+        try (PluginStorage storage = new PluginStorage(file)) {
+            storage.put("kept", "kept".getBytes());
+            for (int i = 0; i < 2000; i++) {
+                storage.put("counter", value);
+            }
+            storage.put("counter", "last".getBytes());
+            storage.flush();
+
+            // Two megabytes were appended, but the overwritten records were compacted away along the way
+            Path current = storage.getCurrentFile();
+            assertNotEquals(file, current);
+            assertTrue(Files.size(current) <= 2 * PluginStorage.INITIAL_CAPACITY, "Log was not compacted: " + Files.size(current));
+            assertEquals("last", storage.getString("counter"));
+            storage.putString("after", "compaction");
+        }
+
+        try (PluginStorage storage = new PluginStorage(file)) {
+            assertEquals("kept", storage.getString("kept"));
+            assertEquals("last", storage.getString("counter"));
+            assertEquals("compaction", storage.getString("after"));
+            assertEquals(3, storage.size());
+        }
+        assertFalse(Files.exists(tempDir.resolve("plugin.log.compact")));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count(), "Old generations were left behind");
+        }
+    }
+
+    @Test
+    void testFailedCompactionIsNotRetriedOnEveryWrite(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("plugin.log");
+        // Stands in for a compaction that can't write its copy
+        Path blocker = Files.createDirectories(tempDir.resolve("plugin.log.compact/blocker"));
+        byte[] value = new byte[1000];
+        try (PluginStorage storage = new PluginStorage(file)) {
+            storage.put("kept", "kept".getBytes());
+            for (int i = 0; i < 2000; i++) {
+                storage.put("counter", value);
+            }
+            // Garbage passed the threshold around the 64th write; retried only each time it doubled since
+            int attempts = storage.getCompactionAttempts();
+            assertTrue(attempts >= 1 && attempts <= 10, "Compaction attempts: " + attempts);
+            assertEquals(file, storage.getCurrentFile());
+            assertEquals("kept", storage.getString("kept"));
+
+            Files.delete(blocker);
+            Files.delete(blocker.getParent());
+            for (int i = 0; i < 2000; i++) {
+                storage.put("counter", value);
+            }
+            assertNotEquals(file, storage.getCurrentFile(), "Compaction did not recover");
+            assertArrayEquals(value, storage.get("counter"));
+        }
+    }
+
+    @Test
+    void testTornRecordIsDiscarded(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("plugin.log");
+        try (PluginStorage storage = new PluginStorage(file)) {
+            storage.putString("a", "intact");
+            storage.putString("b", "torn");
+        }
+        // Header of "a" (12) + key (1) + value (6), then corrupt the value of "b"
+        int second = PluginStorage.HEADER_BYTES + 1 + 6;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(second + PluginStorage.HEADER_BYTES + 1);
+            raf.write('X');
+        }
+
+        try (PluginStorage storage = new PluginStorage(file)) {
+            assertEquals("intact", storage.getString("a"));
+            assertNull(storage.get("b"));
+            storage.putString("c", "written after recovery");
+        }
+        try (PluginStorage storage = new PluginStorage(file)) {
+            assertEquals(List.of("a", "c"), storage.keys(""));
+        }
+    }
+
+    @Test
+    void testRejectsUseAfterCloseAndOversizedKeys(@TempDir Path tempDir) {
+        PluginStorage storage = new PluginStorage(tempDir.resolve("plugin.log"));
+        assertThrows(IllegalArgumentException.class, () -> storage.putString("", "empty key"));
+        assertThrows(IllegalArgumentException.class,
+                () -> storage.putString("k".repeat(PluginStorage.MAX_KEY_BYTES + 1), "too long"));
+        storage.close();
+        assertThrows(IllegalStateException.class, () -> storage.get("a"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.RocketSmash9000.visualization;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BandMapperTest {
+
+    @Test
+    void testConstantInputGivesConstantBars() {
+        for (BandMapper.Scale scale : BandMapper.Scale.values()) {
+            BandMapper mapper = new BandMapper(scale, 40, 256, 44100, 50, 16000);
+            float[] bins = new float[256];
+            Arrays.fill(bins, -25f);
+            float[] bars = new float[40];
+
+            mapper.reduce(bins, bars);
+
+            for (float bar : bars) {
+                assertEquals(-25.0, bar, 1e-4, scale.name());
+            }
+        }
+    }
+
+    @Test
+    void testLogScaleGivesBassSeveralBars() {
+        BandMapper mapper = new BandMapper(BandMapper.Scale.LOG, 30, 256, 44100, 50, 16000);
+
+        // Bins are ~86 Hz wide, so everything below 250 Hz lives in the first three bins
+        int bassBars = 0;
+        for (int bar = 0; bar < mapper.getBarCount(); bar++) {
+            if (mapper.getFirstBin(bar) < 3) bassBars++;
+        }
+        assertTrue(bassBars >= 8, "Only " + bassBars + " bars cover the bass");
+
+        // Bars never move backwards through the spectrum
+        for (int bar = 1; bar < mapper.getBarCount(); bar++) {
+            assertTrue(mapper.getFirstBin(bar) >= mapper.getFirstBin(bar - 1));
+        }
+    }
+
+    @Test
+    void testPartiallyCoveredBinsAreWeighted() {
+        // One bar per bin edge-aligned: 4 bins over 0-4 Hz at an 8 Hz sample rate, log from 1 to 4 Hz
+        BandMapper mapper = new BandMapper(BandMapper.Scale.LOG, 1, 4, 8, 1.5, 4);
+        float[] bins = {0, 10, 20, 30};
+        float[] bars = new float[1];
+
+        mapper.reduce(bins, bars);
+
+        // Covers half of bin 1 and all of bins 2 and 3
+        assertEquals((0.5 * 10 + 20 + 30) / 2.5, bars[0], 1e-4);
+    }
+
+    @Test
+    void testRejectsInvalidRanges() {
+        assertThrows(IllegalArgumentException.class, () -> new BandMapper(BandMapper.Scale.LOG, 0, 256, 44100, 50, 16000));
+        assertThrows(IllegalArgumentException.class, () -> new BandMapper(BandMapper.Scale.LOG, 10, 256, 44100, 0, 16000));
+        assertThrows(IllegalArgumentException.class, () -> new BandMapper(BandMapper.Scale.MEL, 10, 256, 44100, 30000, 40000));
+    }
+}
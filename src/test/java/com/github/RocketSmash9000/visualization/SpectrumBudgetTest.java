@@ -0,0 +1,44 @@
+package com.github.RocketSmash9000.visualization;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpectrumBudgetTest {
+
+    @Test
+    void testBinCountFollowsBarCount() {
+        assertEquals(SpectrumBudget.MIN_BINS, SpectrumBudget.binsFor(1));
+        assertEquals(256, SpectrumBudget.binsFor(30));
+        assertEquals(512, SpectrumBudget.binsFor(40));
+        assertEquals(SpectrumBudget.MAX_BINS, SpectrumBudget.binsFor(500));
+
+        for (int bars = 1; bars < 200; bars++) {
+            int bins = SpectrumBudget.binsFor(bars);
+            assertEquals(1, Integer.bitCount(bins), "Bin count must be a power of two");
+        }
+    }
+
+    @Test
+    void testIntervalNeverOutpacesRendering() {
+        assertEquals(SpectrumBudget.MIN_INTERVAL, SpectrumBudget.intervalFor(0));
+        assertEquals(SpectrumBudget.MIN_INTERVAL, SpectrumBudget.intervalFor(1.0 / 60));
+        assertEquals(0.1, SpectrumBudget.intervalFor(0.1), 1e-9);
+        assertEquals(SpectrumBudget.MAX_INTERVAL, SpectrumBudget.intervalFor(1.0));
+    }
+
+    @Test
+    void testUsageIsReportedForThePreviousMode() throws Exception {
+        SpectrumBudget budget = new SpectrumBudget();
+        assertEquals(-1, budget.switchTo(SpectrumBudget.DETACHED));
+        assertEquals(SpectrumBudget.DETACHED, budget.getMode());
+
+        // Staying in the same mode keeps measuring it
+        assertEquals(-1, budget.switchTo(SpectrumBudget.DETACHED));
+
+        Thread.sleep(20);
+        double usage = budget.switchTo(SpectrumBudget.describe(256, 0.05));
+        assertEquals("256 bins @ 50 ms", budget.getMode());
+        assertTrue(usage == -1 || usage >= 0, "Usage must be unavailable or non-negative");
+    }
+}
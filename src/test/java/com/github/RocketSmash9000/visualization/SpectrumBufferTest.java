@@ -0,0 +1,110 @@
+package com.github.RocketSmash9000.visualization;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpectrumBufferTest {
+
+    @Test
+    void testAcquireReturnsLatestFrame() {
+        SpectrumBuffer buffer = new SpectrumBuffer(4);
+        assertEquals(0, buffer.acquire().getSequence());
+        assertEquals(SpectrumBuffer.FLOOR_DB, buffer.acquire().value(0));
+
+        buffer.publish(new float[]{-10, -20, -30, -40});
+        buffer.publish(new float[]{-5, -15, -25, -35});
+
+        SpectrumBuffer.Frame frame = buffer.acquire();
+        assertEquals(2, frame.getSequence());
+        assertEquals(-5f, frame.value(0));
+        assertEquals(-35f, frame.value(3));
+
+        // Nothing new published: the reader keeps its frame
+        assertSame(frame, buffer.acquire());
+    }
+
+    @Test
+    void testSmoothingUsesAttackAndDecay() {
+        SpectrumBuffer buffer = new SpectrumBuffer(1);
+        buffer.setSmoothing(0.5, 0.25);
+
+        buffer.publish(new float[]{-20});
+        assertEquals(-40f, buffer.acquire().value(0), 1e-4);
+
+        buffer.publish(new float[]{-60});
+        assertEquals(-45f, buffer.acquire().value(0), 1e-4);
+
+        assertThrows(IllegalArgumentException.class, () -> buffer.setSmoothing(0, 0.5));
+    }
+
+    @Test
+    void testPeakIsHeldThenFalls() {
+        SpectrumBuffer buffer = new SpectrumBuffer(1);
+        buffer.setPeakHold(2, 10);
+
+        buffer.publish(new float[]{-10});
+        buffer.publish(new float[]{-60});
+        buffer.publish(new float[]{-60});
+        assertEquals(-10f, buffer.acquire().peak(0), 1e-4);
+
+        buffer.publish(new float[]{-60});
+        assertEquals(-20f, buffer.acquire().peak(0), 1e-4);
+
+        buffer.reset();
+        buffer.publish(new float[]{-60});
+        assertEquals(-60f, buffer.acquire().peak(0), 1e-4);
+    }
+
+    @Test
+    void testConcurrentReaderNeverSeesTornFrames() throws Exception {
+        int bands = 64;
+        int frames = 200_000;
+        SpectrumBuffer buffer = new SpectrumBuffer(bands);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            float[] levels = new float[bands];
+            for (int n = 1; n <= frames; n++) {
+                // Every band of frame n carries the same value, so a mixed frame is detectable
+                Arrays.fill(levels, -(n % 60));
+                buffer.publish(levels);
+                if (n % 64 == 0) Thread.yield();
+            }
+        });
+        Thread reader = new Thread(() -> {
+            long last = 0;
+            while (last < frames && failure.get() == null) {
+                SpectrumBuffer.Frame frame = buffer.acquire();
+                long sequence = frame.getSequence();
+                if (sequence < last) {
+                    failure.set(new AssertionError("Sequence went backwards: " + sequence + " < " + last));
+                }
+                if (sequence > 0) {
+                    float expected = -(sequence % 60);
+                    for (int i = 0; i < bands; i++) {
+                        if (frame.value(i) != expected) {
+                            failure.set(new AssertionError("Torn frame " + sequence + " at band " + i));
+                            break;
+                        }
+                    }
+                }
+                last = sequence;
+                Thread.yield();
+            }
+        });
+
+        writer.start();
+        reader.start();
+        writer.join(30_000);
+        reader.join(30_000);
+
+        if (failure.get() != null) {
+            fail(failure.get());
+        }
+        assertEquals(frames, buffer.acquire().getSequence());
+    }
+}
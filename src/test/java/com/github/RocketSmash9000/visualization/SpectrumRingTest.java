@@ -0,0 +1,140 @@
+package com.github.RocketSmash9000.visualization;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.FloatBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpectrumRingTest {
+
+    @Test
+    void testReadersSeePublishedFrames() {
+        SpectrumRing ring = new SpectrumRing(4, 8, 44100);
+        SpectrumRing.Reader reader = ring.newReader();
+        assertEquals(0, reader.getLatestSequence());
+        assertNull(reader.getFrame(0));
+
+        ring.publish(new float[]{-10, -20, -30, -40}, 4);
+
+        long sequence = reader.getLatestSequence();
+        assertEquals(1, sequence);
+        FloatBuffer frame = reader.getFrame(sequence);
+        assertEquals(4, frame.remaining());
+        assertEquals(-10f, frame.get(0));
+        assertEquals(-40f, frame.get(3));
+        assertTrue(reader.isValid(sequence));
+        assertThrows(ReadOnlyBufferException.class, () -> frame.put(0, 0f));
+    }
+
+    @Test
+    void testOverwrittenFramesAreReported() {
+        SpectrumRing ring = new SpectrumRing(4, 8, 44100);
+        SpectrumRing.Reader reader = ring.newReader();
+        ring.publish(new float[]{-1}, 1);
+        FloatBuffer first = reader.getFrame(1);
+
+        for (int i = 2; i <= 5; i++) {
+            ring.publish(new float[]{-i}, 1);
+        }
+
+        // Frame 5 went into frame 1's slot
+        assertFalse(reader.isValid(1));
+        assertNull(reader.getFrame(1));
+        assertSame(first, reader.getFrame(5));
+        assertEquals(-5f, reader.getFrame(5).get(0));
+    }
+
+    @Test
+    void testReadersAreCountedAndIndependent() {
+        SpectrumRing ring = new SpectrumRing(4, 8, 44100);
+        AtomicInteger changes = new AtomicInteger();
+        ring.setOnReadersChanged(changes::incrementAndGet);
+
+        SpectrumRing.Reader a = ring.newReader();
+        SpectrumRing.Reader b = ring.newReader();
+        assertEquals(2, ring.getReaderCount());
+
+        ring.publish(new float[]{-1, -2, -3}, 3);
+        // Moving one reader's position doesn't disturb the other
+        a.getFrame(1).position(2);
+        assertEquals(3, b.getFrame(1).remaining());
+        assertNotSame(a.getFrame(1), b.getFrame(1));
+
+        a.close();
+        a.close();
+        assertEquals(1, ring.getReaderCount());
+        assertEquals(3, changes.get());
+    }
+
+    @Test
+    void testReadingAllocatesNothing() {
+        SpectrumRing ring = new SpectrumRing(8, 256, 44100);
+        SpectrumRing.Reader reader = ring.newReader();
+        float[] magnitudes = new float[256];
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        float sum = 0;
+        for (int round = 0; round < 2; round++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                ring.publish(magnitudes, 256);
+                long sequence = reader.getLatestSequence();
+                FloatBuffer frame = reader.getFrame(sequence);
+                sum += frame.get(i % 256);
+                assertTrue(reader.isValid(sequence));
+            }
+            if (round == 1) {
+                // Allow for a little noise from the measurement itself
+                assertTrue(threads.getCurrentThreadAllocatedBytes() - before < 1024);
+            }
+        }
+        assertEquals(0f, sum);
+    }
+
+    @Test
+    void testValidFramesAreNeverTorn() throws InterruptedException {
+        SpectrumRing ring = new SpectrumRing(2, 64, 44100);
+        SpectrumRing.Reader reader = ring.newReader();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            float[] frame = new float[64];
+            for (int n = 1; n <= 200_000; n++) {
+                Arrays.fill(frame, n);
+                ring.publish(frame, 64);
+                if (n % 64 == 0) Thread.yield();
+            }
+            done.set(true);
+        });
+        Thread readerThread = new Thread(() -> {
+            float[] copy = new float[64];
+            while (!done.get()) {
+                long sequence = reader.getLatestSequence();
+                FloatBuffer frame = reader.getFrame(sequence);
+                if (frame == null) continue;
+                frame.get(0, copy);
+                if (!reader.isValid(sequence)) continue;
+                for (float value : copy) {
+                    if (value != copy[0]) {
+                        failure.set("Torn frame " + sequence);
+                        return;
+                    }
+                }
+                Thread.yield();
+            }
+        });
+        writer.start();
+        readerThread.start();
+        writer.join();
+        readerThread.join();
+        assertNull(failure.get());
+    }
+}